@@ -26,7 +26,9 @@ import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Random;
+import java.util.TreeMap;
 
 @Slf4j
 @Component
@@ -40,8 +42,14 @@ public class SnmpTransportReceiverListener implements CommandResponder {
     @Value("${snmp.agent.agentPort}")
     private int agentPort;
 
+    @Getter
+    @Value("${snmp.agent.ifTableRows}")
+    private int ifTableRows;
+
     private Map<String, OID> oidMap = new HashMap<>();
 
+    private NavigableMap<OID, Variable> ifTable = new TreeMap<>();
+
     private static Random random = new Random();
 
     public SnmpTransportReceiverListener() {}
@@ -49,6 +57,7 @@ public class SnmpTransportReceiverListener implements CommandResponder {
     @PostConstruct
     public void init() {
         loadOidMap();
+        loadIfTable();
     }
 
     @EventListener(ApplicationReadyEvent.class)
@@ -117,6 +126,10 @@ public class SnmpTransportReceiverListener implements CommandResponder {
     public synchronized void processPdu(CommandResponderEvent cmdRespEvent) {
         System.out.println("Received PDU...");
         PDU pdu = cmdRespEvent.getPDU();
+        if (pdu != null && pdu.getType() == PDU.GETBULK) {
+            processGetBulk(cmdRespEvent, pdu);
+            return;
+        }
         if (pdu != null) {
             int pduType = pdu.getType();
             if ((pduType == PDU.GET) || (pduType == PDU.NOTIFICATION)) {
@@ -161,6 +174,65 @@ public class SnmpTransportReceiverListener implements CommandResponder {
         }
     }
 
+    /**
+     * Answers GETBULK requests from the synthetic ifTable, so table walks can be exercised against this agent.
+     */
+    private void processGetBulk(CommandResponderEvent cmdRespEvent, PDU pdu) {
+        int nonRepeaters = Math.max(0, Math.min(pdu.getNonRepeaters(), pdu.size()));
+        int maxRepetitions = Math.max(1, pdu.getMaxRepetitions());
+        PDU response = new PDU();
+        response.setType(PDU.RESPONSE);
+        response.setRequestID(pdu.getRequestID());
+        for (int i = 0; i < nonRepeaters; i++) {
+            response.add(nextBinding(pdu.get(i).getOid()));
+        }
+        OID[] cursors = new OID[pdu.size() - nonRepeaters];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = pdu.get(nonRepeaters + i).getOid();
+        }
+        for (int r = 0; r < maxRepetitions && cursors.length > 0; r++) {
+            for (int i = 0; i < cursors.length; i++) {
+                VariableBinding vb = nextBinding(cursors[i]);
+                response.add(vb);
+                cursors[i] = vb.getOid();
+            }
+            if (response.getBERLength() > cmdRespEvent.getMaxSizeResponsePDU()) {
+                for (int i = 0; i < cursors.length; i++) {
+                    response.trim();
+                }
+                break;
+            }
+        }
+        try {
+            cmdRespEvent.getMessageDispatcher().returnResponsePdu(cmdRespEvent.getMessageProcessingModel(),
+                    cmdRespEvent.getSecurityModel(), cmdRespEvent.getSecurityName(), cmdRespEvent.getSecurityLevel(),
+                    response, cmdRespEvent.getMaxSizeResponsePDU(), cmdRespEvent.getStateReference(), new StatusInformation());
+        } catch (MessageException ex) {
+            log.error("Error while sending GETBULK response", ex);
+        }
+    }
+
+    private VariableBinding nextBinding(OID oid) {
+        Map.Entry<OID, Variable> next = ifTable.higherEntry(oid);
+        if (next == null) {
+            return new VariableBinding(oid, Null.endOfMibView);
+        }
+        return new VariableBinding(next.getKey(), next.getValue());
+    }
+
+    /**
+     * Builds ifIndex, ifDescr, ifInOctets and ifOutOctets columns of IF-MIB::ifTable with the configured number of rows.
+     */
+    public void loadIfTable() {
+        OID ifEntry = new OID("1.3.6.1.2.1.2.2.1");
+        for (int i = 1; i <= ifTableRows; i++) {
+            ifTable.put(new OID(ifEntry).append(1).append(i), new Integer32(i));
+            ifTable.put(new OID(ifEntry).append(2).append(i), new OctetString("eth" + i));
+            ifTable.put(new OID(ifEntry).append(10).append(i), new Counter32(random.nextInt(Integer.MAX_VALUE)));
+            ifTable.put(new OID(ifEntry).append(16).append(i), new Counter32(random.nextInt(Integer.MAX_VALUE)));
+        }
+    }
+
     @PreDestroy
     public void destroy() {
         Thread.currentThread().interrupt();
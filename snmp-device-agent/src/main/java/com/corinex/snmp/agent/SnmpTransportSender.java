@@ -32,6 +32,8 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
 
 /**
  * <p>org.thingsboard.server.transport.snmp.SnmpTransportSender class.</p>
@@ -108,20 +110,31 @@ public class SnmpTransportSender {
     private JsonObject uptimeJsonObject = new JsonObject();
     private JsonObject attributesJsonObject = new JsonObject();
 
+    // Shared by all notifications, so sending does not open a new socket each time
+    private Snmp snmp;
+
     @PostConstruct
-    public void init() {
+    public void init() throws IOException {
         uptimeJsonObject = new JsonParser().parse(SYSUPTIME_TRAP_TEMPLATE).getAsJsonObject();
         attributesJsonObject = new JsonParser().parse(ATTRIBUTES_NOTIFICATION_TEMPLATE).getAsJsonObject();
+        SecurityProtocols.getInstance().addPrivacyProtocol(new Priv3DES());
+        TransportMapping transport = new DefaultUdpTransportMapping();
+        snmp = new Snmp(transport);
+        transport.listen();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        try {
+            snmp.close();
+        } catch (IOException e) {
+            log.warn("Failed to close SNMP session", e);
+        }
     }
 
     @Scheduled(fixedRateString="${snmp.agent.scheduled.trapSendRate}", initialDelay=2000)
     public void sendSnmpTrapNotification() {
-        Snmp snmp = null;
         try {
-            //Create Transport Mapping
-            TransportMapping transport = new DefaultUdpTransportMapping();
-            transport.listen();
-
             //Create Target
             CommunityTarget comtarget = new CommunityTarget();
             comtarget.setCommunity(new OctetString(community));
@@ -142,34 +155,18 @@ public class SnmpTransportSender {
             pdu.add(new VariableBinding(new OID(trapOid), new OctetString("Major")));
             pdu.setType(PDU.NOTIFICATION);
 
-            SecurityProtocols.getInstance().addPrivacyProtocol(new Priv3DES());
-
             // Send the PDU
-            snmp = new Snmp(transport);
             log.info("Sending V2 Trap to {} on Port {}", targetAddress, targetPort);
             snmp.send(pdu, comtarget);
 
         } catch (Exception e) {
             log.error("Error in Sending V2 Trap to {}:{}", targetAddress, targetPort, e);
-        } finally {
-           if(snmp!=null) {
-               try {
-                   snmp.close();
-               } catch (Exception e) {
-                    e.printStackTrace();
-               }
-           }
         }
     }
 
     @Scheduled(fixedRateString="${snmp.agent.scheduled.attrsSendRate}", initialDelay=1000)
     public void sendSnmpAttributes() {
-        Snmp snmp = null;
         try {
-            //Create Transport Mapping
-            TransportMapping transport = new DefaultUdpTransportMapping();
-            transport.listen();
-
             //Create Target
             CommunityTarget comtarget = new CommunityTarget();
             comtarget.setCommunity(new OctetString(community));
@@ -192,20 +189,11 @@ public class SnmpTransportSender {
 //            pdu.setType(PDU.GET);
 
             //Send the PDU
-            snmp = new Snmp(transport);
             log.info("Sending V2 Attributes to {} on Port {}", targetAddress, targetPort);
             snmp.send(pdu, comtarget);
 
         } catch (Exception e) {
             log.error("Error in Sending V2 Attributes to {}:{}", targetAddress, targetPort, e);
-        } finally {
-            if(snmp!=null) {
-                try {
-                    snmp.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
         }
     }
 
@@ -230,11 +218,12 @@ public class SnmpTransportSender {
         return json;
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         SnmpTransportSender sender = new SnmpTransportSender();
         sender.init();
         sender.sendSnmpTrapNotification();
         sender.sendSnmpAttributes();
+        sender.destroy();
     }
 
     private int genRandomNumInRange() {
@@ -0,0 +1,108 @@
+package com.corinex.snmp.agent.load;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of latencies in microseconds, from 1 us to about 9 hours. Buckets are powers of two split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so a percentile is reported within about 6% of the recorded value.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDES = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+
+    public void record(long value, TimeUnit unit) {
+        counts.incrementAndGet(index(Math.max(0, unit.toMicros(value))));
+    }
+
+    /**
+     * @return the recorded values, after which the histogram starts empty
+     */
+    public Snapshot snapshotAndReset() {
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(snapshot);
+    }
+
+    private static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        // The five highest bits select the sub-bucket of the power of two
+        int shift = 64 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS - 1;
+        int magnitude = shift + 1;
+        if (magnitude >= MAGNITUDES) {
+            return MAGNITUDES * SUB_BUCKETS - 1;
+        }
+        return magnitude * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return the highest value that falls into the bucket
+     */
+    private static long highestValue(int index) {
+        int magnitude = index / SUB_BUCKETS;
+        int subBucket = index % SUB_BUCKETS;
+        if (magnitude == 0) {
+            return subBucket;
+        }
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (magnitude - 1)) - 1;
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the value in microseconds below which the percentile of the recorded values falls, 0 if empty
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValue(i);
+                }
+            }
+            return highestValue(counts.length - 1);
+        }
+
+        public long getMax() {
+            return getPercentile(100);
+        }
+
+        /**
+         * @return percentiles in milliseconds, e.g. {@code n=1200 p50=1.2 p90=3.4 p99=8.0 p99.9=12.1 max=15.0}
+         */
+        @Override
+        public String toString() {
+            return String.format("n=%d p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f", count,
+                    getPercentile(50) / 1000.0, getPercentile(90) / 1000.0, getPercentile(99) / 1000.0,
+                    getPercentile(99.9) / 1000.0, getMax() / 1000.0);
+        }
+    }
+}
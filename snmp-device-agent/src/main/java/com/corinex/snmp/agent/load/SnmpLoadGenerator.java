@@ -0,0 +1,510 @@
+package com.corinex.snmp.agent.load;
+
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.IpAddress;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates many SNMP agents to measure the capacity of the SNMP transport without real hardware. The agents send
+ * v2c traps or informs to {@code snmp.server} at an aggregate rate and answer GET, GETNEXT and GETBULK requests from a
+ * {@link SyntheticMib}, with configurable latency and loss. All agent sockets are served by a single selector thread.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "snmp.load", name = "enabled", havingValue = "true")
+public class SnmpLoadGenerator {
+
+    public enum Addressing {
+        // One socket per agent on consecutive ports
+        PORTS,
+        // One socket shared by all agents, told apart by community
+        COMMUNITIES
+    }
+
+    public enum TrapFormat {
+        // JSON payload in sysDescr, as sent by SnmpTransportSender
+        JSON,
+        // Octet counters of the first interface as plain variable bindings
+        VARBINDS
+    }
+
+    private static final int MAX_DATAGRAM = 65535;
+    private static final int MAX_RESPONSE_SIZE = 65000;
+    private static final long TRAP_TICK_MS = 10;
+
+    @Value("${snmp.server.targetAddress}")
+    private String targetAddress;
+
+    @Value("${snmp.server.targetPort}")
+    private int targetPort;
+
+    @Value("${snmp.server.sendTimeout}")
+    private long sendTimeout;
+
+    @Value("${snmp.agent.community}")
+    private String community;
+
+    @Value("${snmp.agent.trapOid}")
+    private String trapOid;
+
+    @Value("${snmp.agent.agentHost}")
+    private String agentHost;
+
+    @Value("${snmp.load.agents}")
+    private int agents;
+
+    @Value("${snmp.load.addressing}")
+    private Addressing addressing;
+
+    @Value("${snmp.load.basePort}")
+    private int basePort;
+
+    @Value("${snmp.load.trapRate}")
+    private int trapRate;
+
+    @Value("${snmp.load.informs}")
+    private boolean informs;
+
+    @Value("${snmp.load.trapFormat}")
+    private TrapFormat trapFormat;
+
+    @Value("${snmp.load.deviceToken}")
+    private String deviceToken;
+
+    @Value("${snmp.load.ifTableRows}")
+    private int ifTableRows;
+
+    @Value("${snmp.load.responder.latency}")
+    private long responseLatency;
+
+    @Value("${snmp.load.responder.jitter}")
+    private long responseJitter;
+
+    @Value("${snmp.load.responder.loss}")
+    private double responseLoss;
+
+    @Value("${snmp.load.reportInterval}")
+    private long reportInterval;
+
+    private final List<DatagramChannel> channels = new ArrayList<>();
+    private final LatencyHistogram responseLatencies = new LatencyHistogram();
+    private final LatencyHistogram informLatencies = new LatencyHistogram();
+    // Request ID of each unacknowledged inform and the time it was sent
+    private final ConcurrentMap<Integer, Long> pendingInforms = new ConcurrentHashMap<>();
+    private final AtomicInteger requestIds = new AtomicInteger();
+
+    private final AtomicLong trapsSent = new AtomicLong();
+    private final AtomicLong informsAcked = new AtomicLong();
+    private final AtomicLong informsLost = new AtomicLong();
+    private final AtomicLong requestsReceived = new AtomicLong();
+    private final AtomicLong requestsDropped = new AtomicLong();
+    private final AtomicLong responsesSent = new AtomicLong();
+    // Malformed or for an unknown community
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong sendFailures = new AtomicLong();
+
+    private SyntheticMib mib;
+    private InetSocketAddress target;
+    private Selector selector;
+    private ScheduledExecutorService scheduler;
+    private Thread receiver;
+    private volatile boolean stopped;
+
+    // Only touched by the trap tick
+    private long trapStartNanos;
+    private long trapsDue;
+    private int nextAgent;
+    // Only touched by the reporter
+    private long lastReportNanos;
+    private long lastTrapsSent;
+    private long lastRequestsReceived;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (agents <= 0) {
+            throw new IllegalArgumentException("snmp.load.agents must be positive");
+        }
+        mib = new SyntheticMib(ifTableRows);
+        target = new InetSocketAddress(targetAddress, targetPort);
+        selector = Selector.open();
+        int sockets = addressing == Addressing.PORTS ? agents : 1;
+        try {
+            for (int i = 0; i < sockets; i++) {
+                DatagramChannel channel = DatagramChannel.open();
+                channels.add(channel);
+                channel.configureBlocking(false);
+                channel.bind(new InetSocketAddress(agentHost, basePort + i));
+                channel.register(selector, SelectionKey.OP_READ, i);
+            }
+        } catch (IOException e) {
+            destroy();
+            throw new IOException("Failed to open " + sockets + " agent sockets from " + agentHost + ":" + basePort
+                    + ", check the open file limit", e);
+        }
+        scheduler = Executors.newScheduledThreadPool(2);
+        log.info("Simulating {} SNMP agents on {}:{} by {}, sending {} {} per second to {}", agents, agentHost, basePort,
+                addressing, trapRate, informs ? "informs" : "traps", target);
+        // Started here rather than on the application ready event, whose listener in SnmpTransportReceiverListener never returns
+        start();
+    }
+
+    private void start() {
+        receiver = new Thread(this::receive, "SnmpLoadReceiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        trapStartNanos = lastReportNanos = System.nanoTime();
+        if (trapRate > 0) {
+            scheduler.scheduleAtFixedRate(this::sendTraps, TRAP_TICK_MS, TRAP_TICK_MS, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleAtFixedRate(this::report, reportInterval, reportInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopped = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        for (DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Failed to close agent socket", e);
+            }
+        }
+        channels.clear();
+        if (selector != null) {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.debug("Failed to close selector", e);
+            }
+        }
+    }
+
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM);
+        while (!stopped) {
+            try {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    DatagramChannel channel = (DatagramChannel) key.channel();
+                    SocketAddress sender;
+                    while ((sender = channel.receive(buffer)) != null) {
+                        buffer.flip();
+                        try {
+                            process(channel, (Integer) key.attachment(), sender, buffer);
+                        } catch (IOException | RuntimeException e) {
+                            rejected.incrementAndGet();
+                            log.debug("Failed to decode message from {}", sender, e);
+                        }
+                        buffer.clear();
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                if (!stopped) {
+                    log.warn("Failed to receive SNMP messages", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param socket index of the socket that received the message, which is the agent when addressed by port
+     */
+    private void process(DatagramChannel channel, int socket, SocketAddress sender, ByteBuffer message) throws IOException {
+        long received = System.nanoTime();
+        BERInputStream in = new BERInputStream(message);
+        BER.MutableByte type = new BER.MutableByte();
+        BER.decodeHeader(in, type);
+        int version = BER.decodeInteger(in, type);
+        OctetString requestCommunity = new OctetString();
+        requestCommunity.decodeBER(in);
+        PDU request = version == SnmpConstants.version1 ? new PDUv1() : new PDU();
+        request.decodeBER(in);
+
+        if (request.getType() == PDU.RESPONSE) {
+            Long sent = pendingInforms.remove(request.getRequestID().getValue());
+            if (sent != null) {
+                informsAcked.incrementAndGet();
+                informLatencies.record(received - sent, TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+        int agent = agentOf(socket, requestCommunity.toString());
+        if (agent < 0) {
+            rejected.incrementAndGet();
+            return;
+        }
+        PDU response = respond(agent, request);
+        if (response == null) {
+            return;
+        }
+        requestsReceived.incrementAndGet();
+        if (responseLoss > 0 && ThreadLocalRandom.current().nextDouble() < responseLoss) {
+            requestsDropped.incrementAndGet();
+            return;
+        }
+        ByteBuffer encoded = encode(version, requestCommunity, response);
+        long delay = responseLatency + (responseJitter > 0 ? ThreadLocalRandom.current().nextLong(responseJitter + 1) : 0);
+        if (delay > 0) {
+            scheduler.schedule(() -> sendResponse(channel, sender, encoded, received), delay, TimeUnit.MILLISECONDS);
+        } else {
+            sendResponse(channel, sender, encoded, received);
+        }
+    }
+
+    private int agentOf(int socket, String requestCommunity) {
+        if (addressing == Addressing.PORTS) {
+            return community.equals(requestCommunity) ? socket : -1;
+        }
+        String prefix = community + "-";
+        if (!requestCommunity.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            int agent = Integer.parseInt(requestCommunity.substring(prefix.length()));
+            return agent < agents ? agent : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the response to a GET, GETNEXT or GETBULK request, or null for other PDU types
+     */
+    private PDU respond(int agent, PDU request) {
+        PDU response = request instanceof PDUv1 ? new PDUv1() : new PDU();
+        response.setType(PDU.RESPONSE);
+        response.setRequestID(request.getRequestID());
+        switch (request.getType()) {
+            case PDU.GET:
+                for (VariableBinding vb : request.getVariableBindings()) {
+                    response.add(mib.get(agent, vb.getOid()));
+                }
+                break;
+            case PDU.GETNEXT:
+                for (VariableBinding vb : request.getVariableBindings()) {
+                    response.add(mib.next(agent, vb.getOid()));
+                }
+                break;
+            case PDU.GETBULK:
+                bulk(agent, request, response);
+                break;
+            default:
+                return null;
+        }
+        if (request instanceof PDUv1) {
+            // SNMPv1 has no exception values, a missing object fails the whole request
+            for (int i = 0; i < response.size(); i++) {
+                if (response.get(i).isException()) {
+                    response.clear();
+                    response.addAll(request.toArray());
+                    response.setErrorStatus(PDU.noSuchName);
+                    response.setErrorIndex(i + 1);
+                    break;
+                }
+            }
+        }
+        return response;
+    }
+
+    private void bulk(int agent, PDU request, PDU response) {
+        int nonRepeaters = Math.max(0, Math.min(request.getNonRepeaters(), request.size()));
+        int maxRepetitions = Math.max(1, request.getMaxRepetitions());
+        for (int i = 0; i < nonRepeaters; i++) {
+            response.add(mib.next(agent, request.get(i).getOid()));
+        }
+        OID[] cursors = new OID[request.size() - nonRepeaters];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = request.get(nonRepeaters + i).getOid();
+        }
+        for (int r = 0; r < maxRepetitions && cursors.length > 0; r++) {
+            for (int i = 0; i < cursors.length; i++) {
+                VariableBinding vb = mib.next(agent, cursors[i]);
+                response.add(vb);
+                cursors[i] = vb.getOid();
+            }
+            if (response.getBERLength() > MAX_RESPONSE_SIZE) {
+                for (int i = 0; i < cursors.length; i++) {
+                    response.trim();
+                }
+                break;
+            }
+        }
+    }
+
+    private void sendResponse(DatagramChannel channel, SocketAddress sender, ByteBuffer response, long received) {
+        if (send(channel, response, sender)) {
+            responsesSent.incrementAndGet();
+            responseLatencies.record(System.nanoTime() - received, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Sends the traps due since the last tick, round robin over the agents. After a stall the backlog is capped at one
+     * second of traps, so the generator does not burst to catch up.
+     */
+    private void sendTraps() {
+        try {
+            long due = (long) ((System.nanoTime() - trapStartNanos) / 1e9 * trapRate);
+            if (due - trapsDue > trapRate) {
+                trapsDue = due - trapRate;
+            }
+            for (; trapsDue < due && !stopped; trapsDue++) {
+                sendTrap(nextAgent);
+                nextAgent = (nextAgent + 1) % agents;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to send traps", e);
+        }
+    }
+
+    private void sendTrap(int agent) {
+        PDU pdu = new PDU();
+        pdu.setType(informs ? PDU.INFORM : PDU.TRAP);
+        int requestId = requestIds.incrementAndGet() & Integer.MAX_VALUE;
+        pdu.setRequestID(new Integer32(requestId));
+        pdu.add(new VariableBinding(SnmpConstants.sysUpTime, new TimeTicks((System.nanoTime() - trapStartNanos) / 10000000L)));
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, new OID(trapOid)));
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapAddress, new IpAddress(agentHost)));
+        if (trapFormat == TrapFormat.JSON) {
+            pdu.add(new VariableBinding(SnmpConstants.sysDescr, new OctetString(payload(agent))));
+        } else {
+            pdu.add(mib.get(agent, SyntheticMib.ifInOctets(1)));
+            pdu.add(mib.get(agent, SyntheticMib.ifOutOctets(1)));
+        }
+        DatagramChannel channel;
+        OctetString trapCommunity;
+        if (addressing == Addressing.PORTS) {
+            channel = channels.get(agent);
+            trapCommunity = new OctetString(community);
+        } else {
+            channel = channels.get(0);
+            trapCommunity = new OctetString(community + "-" + agent);
+        }
+        try {
+            ByteBuffer message = encode(SnmpConstants.version2c, trapCommunity, pdu);
+            if (informs) {
+                pendingInforms.put(requestId, System.nanoTime());
+            }
+            if (send(channel, message, target)) {
+                trapsSent.incrementAndGet();
+            } else if (informs) {
+                pendingInforms.remove(requestId);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to encode trap", e);
+        }
+    }
+
+    private String payload(int agent) {
+        JsonObject params = new JsonObject();
+        params.addProperty("upSpeed", ThreadLocalRandom.current().nextInt(10000, 100000));
+        params.addProperty("downSpeed", ThreadLocalRandom.current().nextInt(10000, 100000));
+        params.addProperty("agentHost", agentHost);
+        params.addProperty("agentPort", String.valueOf(addressing == Addressing.PORTS ? basePort + agent : basePort));
+        JsonObject json = new JsonObject();
+        json.addProperty("deviceToken", String.format(deviceToken, agent));
+        json.addProperty("method", "cxSysAttributes");
+        json.add("params", params);
+        return json.toString();
+    }
+
+    /**
+     * @return false if the socket buffer is full or the send failed, in which case the datagram is dropped
+     */
+    private boolean send(DatagramChannel channel, ByteBuffer message, SocketAddress address) {
+        try {
+            if (channel.send(message, address) > 0) {
+                return true;
+            }
+        } catch (IOException e) {
+            log.debug("Failed to send to {}", address, e);
+        }
+        sendFailures.incrementAndGet();
+        return false;
+    }
+
+    private static ByteBuffer encode(int version, OctetString community, PDU pdu) throws IOException {
+        Integer32 snmpVersion = new Integer32(version);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BER.encodeHeader(out, BER.SEQUENCE, snmpVersion.getBERLength() + community.getBERLength() + pdu.getBERLength());
+        snmpVersion.encodeBER(out);
+        community.encodeBER(out);
+        pdu.encodeBER(out);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private void report() {
+        try {
+            long now = System.nanoTime();
+            long expiry = now - TimeUnit.MILLISECONDS.toNanos(sendTimeout);
+            for (Iterator<Map.Entry<Integer, Long>> it = pendingInforms.entrySet().iterator(); it.hasNext(); ) {
+                if (it.next().getValue() < expiry) {
+                    it.remove();
+                    informsLost.incrementAndGet();
+                }
+            }
+            double seconds = (now - lastReportNanos) / 1e9;
+            long traps = trapsSent.get();
+            long requests = requestsReceived.get();
+            log.info("Sent {} traps/s (target {}), received {} requests/s, {} answered, {} dropped, {} rejected, {} send failures",
+                    String.format("%.0f", (traps - lastTrapsSent) / seconds), trapRate,
+                    String.format("%.0f", (requests - lastRequestsReceived) / seconds), responsesSent.get(),
+                    requestsDropped.get(), rejected.get(), sendFailures.get());
+            log.info("Response latency ms: {}", responseLatencies.snapshotAndReset());
+            if (informs) {
+                log.info("Inform round trip ms: {}, {} acknowledged, {} lost, {} pending", informLatencies.snapshotAndReset(),
+                        informsAcked.get(), informsLost.get(), pendingInforms.size());
+            }
+            lastReportNanos = now;
+            lastTrapsSent = traps;
+            lastRequestsReceived = requests;
+        } catch (RuntimeException e) {
+            log.warn("Failed to report load", e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.corinex.snmp.agent.load;
+
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.Arrays;
+
+/**
+ * System group and IF-MIB::ifTable shared by all virtual agents. Only the OIDs are stored; values are computed per
+ * agent on request, with octet counters growing with time, so thousands of agents cost no more memory than one.
+ */
+public class SyntheticMib {
+
+    private static final OID IF_ENTRY = new OID("1.3.6.1.2.1.2.2.1");
+    private static final int IF_INDEX = 1;
+    private static final int IF_DESCR = 2;
+    private static final int IF_SPEED = 5;
+    private static final int IF_IN_OCTETS = 10;
+    private static final int IF_OUT_OCTETS = 16;
+    private static final int[] IF_COLUMNS = {IF_INDEX, IF_DESCR, IF_SPEED, IF_IN_OCTETS, IF_OUT_OCTETS};
+    private static final long IF_SPEED_BPS = 100000000L;
+
+    private final OID[] oids;
+    private final int ifTableRows;
+    private final long startMillis = System.currentTimeMillis();
+
+    public SyntheticMib(int ifTableRows) {
+        this.ifTableRows = ifTableRows;
+        oids = new OID[4 + IF_COLUMNS.length * ifTableRows];
+        int i = 0;
+        oids[i++] = new OID(SnmpConstants.sysDescr);
+        oids[i++] = new OID(SnmpConstants.sysUpTime);
+        oids[i++] = new OID(SnmpConstants.sysName);
+        oids[i++] = new OID(SnmpConstants.sysLocation);
+        for (int column : IF_COLUMNS) {
+            for (int row = 1; row <= ifTableRows; row++) {
+                oids[i++] = new OID(IF_ENTRY).append(column).append(row);
+            }
+        }
+        Arrays.sort(oids);
+    }
+
+    public int getIfTableRows() {
+        return ifTableRows;
+    }
+
+    public static OID ifInOctets(int row) {
+        return new OID(IF_ENTRY).append(IF_IN_OCTETS).append(row);
+    }
+
+    public static OID ifOutOctets(int row) {
+        return new OID(IF_ENTRY).append(IF_OUT_OCTETS).append(row);
+    }
+
+    /**
+     * @return the value of exactly this OID for the agent, or noSuchObject
+     */
+    public VariableBinding get(int agent, OID oid) {
+        int i = Arrays.binarySearch(oids, oid);
+        return new VariableBinding(oid, i >= 0 ? value(agent, oids[i]) : Null.noSuchObject);
+    }
+
+    /**
+     * @return the binding of the OID that follows the given one, or endOfMibView
+     */
+    public VariableBinding next(int agent, OID oid) {
+        int i = Arrays.binarySearch(oids, oid);
+        i = i >= 0 ? i + 1 : -i - 1;
+        if (i >= oids.length) {
+            return new VariableBinding(oid, Null.endOfMibView);
+        }
+        return new VariableBinding(oids[i], value(agent, oids[i]));
+    }
+
+    public Variable value(int agent, OID oid) {
+        if (oid.startsWith(IF_ENTRY)) {
+            int column = oid.get(IF_ENTRY.size());
+            int row = oid.get(IF_ENTRY.size() + 1);
+            switch (column) {
+                case IF_INDEX:
+                    return new Integer32(row);
+                case IF_DESCR:
+                    return new OctetString("eth" + row);
+                case IF_SPEED:
+                    return new Gauge32(IF_SPEED_BPS);
+                case IF_IN_OCTETS:
+                    return new Counter32(octets(agent, row, 1000));
+                default:
+                    return new Counter32(octets(agent, row, 250));
+            }
+        }
+        if (oid.startsWith(SnmpConstants.sysUpTime)) {
+            return new TimeTicks((System.currentTimeMillis() - startMillis) / 10);
+        }
+        if (oid.startsWith(SnmpConstants.sysName)) {
+            return new OctetString("load-agent-" + agent);
+        }
+        if (oid.startsWith(SnmpConstants.sysLocation)) {
+            return new OctetString("rack " + agent / 40);
+        }
+        return new OctetString("Synthetic SNMP load agent");
+    }
+
+    /**
+     * Octet counter growing by {@code rate} bytes per second and row, wrapping at 2^32 like a Counter32.
+     */
+    private long octets(int agent, int row, long rate) {
+        long seconds = (System.currentTimeMillis() - startMillis) / 1000;
+        return (agent * 7919L + row * 104729L + seconds * rate * row) & 0xFFFFFFFFL;
+    }
+}
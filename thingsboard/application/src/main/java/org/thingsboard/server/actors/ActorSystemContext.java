@@ -72,6 +72,7 @@ import org.thingsboard.server.service.executors.ExternalCallExecutorService;
 import org.thingsboard.server.service.executors.SharedEventLoopGroupService;
 import org.thingsboard.server.service.mail.MailExecutorService;
 import org.thingsboard.server.service.rpc.DeviceRpcService;
+import org.thingsboard.server.service.snmp.SnmpPushService;
 import org.thingsboard.server.service.script.JsExecutorService;
 import org.thingsboard.server.service.script.JsInvokeService;
 import org.thingsboard.server.service.session.DeviceSessionCacheService;
@@ -185,6 +186,10 @@ public class ActorSystemContext {
     @Getter
     private DeviceRpcService deviceRpcService;
 
+    @Autowired
+    @Getter
+    private SnmpPushService snmpPushService;
+
     @Autowired
     @Getter
     private JsInvokeService jsSandbox;
@@ -247,6 +252,10 @@ public class ActorSystemContext {
     @Getter
     private long syncSessionTimeout;
 
+    @Value("${transport.snmp.push.direct}")
+    @Getter
+    private boolean snmpPushDirect;
+
     @Value("${actors.queue.enabled}")
     @Getter
     private boolean queuePersistenceEnabled;
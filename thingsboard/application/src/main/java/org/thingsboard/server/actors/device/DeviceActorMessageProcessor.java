@@ -47,6 +47,7 @@ import org.thingsboard.server.common.msg.timeout.DeviceActorClientSideRpcTimeout
 import org.thingsboard.server.common.msg.timeout.DeviceActorServerSideRpcTimeoutMsg;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.gen.transport.TransportProtos.AttributeUpdateNotificationMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.CredentialsUpdateNotificationProto;
 import org.thingsboard.server.gen.transport.TransportProtos.DeviceActorToTransportMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetAttributeRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetAttributeResponseMsg;
@@ -141,7 +142,8 @@ class DeviceActorMessageProcessor extends AbstractContextAwareMsgProcessor {
         ToDeviceRpcRequest request = msg.getMsg();
         ToDeviceRpcRequestBody body = request.getBody();
         ToDeviceRpcRequestMsg rpcRequest = ToDeviceRpcRequestMsg.newBuilder().setRequestId(
-                rpcSeq++).setMethodName(body.getMethod()).setParams(body.getParams()).build();
+                rpcSeq++).setMethodName(body.getMethod()).setParams(body.getParams())
+                .setSnmpPushDirect(systemContext.isSnmpPushDirect()).build();
 
         long timeout = request.getExpirationTime() - System.currentTimeMillis();
         if (timeout <= 0) {
@@ -217,7 +219,8 @@ class DeviceActorMessageProcessor extends AbstractContextAwareMsgProcessor {
                 systemContext.getDeviceRpcService().processResponseToServerSideRPCRequestFromDeviceActor(new FromDeviceRpcResponse(request.getId(), null, null));
             }
             ToDeviceRpcRequestMsg rpcRequest = ToDeviceRpcRequestMsg.newBuilder().setRequestId(
-                    entry.getKey()).setMethodName(body.getMethod()).setParams(body.getParams()).build();
+                    entry.getKey()).setMethodName(body.getMethod()).setParams(body.getParams())
+                    .setSnmpPushDirect(systemContext.isSnmpPushDirect()).build();
             sendToTransport(rpcRequest, sessionId, nodeId);
         };
     }
@@ -526,6 +529,10 @@ class DeviceActorMessageProcessor extends AbstractContextAwareMsgProcessor {
 
     void processCredentialsUpdate() {
         sessions.forEach(this::notifyTransportAboutClosedSession);
+        CredentialsUpdateNotificationProto notification = CredentialsUpdateNotificationProto.newBuilder()
+                .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits()).build();
+        systemContext.getRuleEngineTransportService().process(notification);
         attributeSubscriptions.clear();
         rpcSubscriptions.clear();
         dumpSessions();
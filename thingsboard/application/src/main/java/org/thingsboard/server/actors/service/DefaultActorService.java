@@ -234,6 +234,9 @@ public class DefaultActorService implements ActorService {
             case CLUSTER_TRANSACTION_SERVICE_MESSAGE:
                 actorContext.getRuleChainTransactionService().onRemoteTransactionMsg(serverAddress, msg.getPayload().toByteArray());
                 break;
+            case CLUSTER_SNMP_PUSH_REQUEST_MESSAGE:
+                actorContext.getSnmpPushService().onRemotePushRequest(serverAddress, msg.getPayload().toByteArray());
+                break;
         }
     }
 
@@ -123,6 +123,8 @@ public class DeviceController extends BaseController {
                     ActionType.DELETED, null, strDeviceId);
 
             deviceStateService.onDeviceDeleted(device);
+            // Closes the sessions of the device and evicts its credentials from the transport caches
+            actorService.onCredentialsUpdate(getCurrentUser().getTenantId(), deviceId);
         } catch (Exception e) {
             logEntityAction(emptyId(EntityType.DEVICE),
                     null,
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.util.concurrent.FutureCallback;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -48,17 +49,13 @@ import org.thingsboard.server.service.rpc.LocalRequestMetaData;
 import org.thingsboard.server.service.security.AccessValidator;
 import org.thingsboard.server.service.security.model.SecurityUser;
 import org.thingsboard.server.service.security.permission.Operation;
+import org.thingsboard.server.service.snmp.SnmpPushService;
 import org.thingsboard.server.service.telemetry.exception.ToErrorResponseEntity;
-import org.thingsboard.server.transport.snmp.push.SnmpPushManager;
 
 import javax.annotation.Nullable;
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Created by ashvayka on 22.03.18.
@@ -77,28 +74,16 @@ public class RpcController extends BaseController {
     @Autowired
     private AccessValidator accessValidator;
 
-    private ExecutorService executor;
-
     @Autowired
-    private SnmpPushManager snmpPushManager;
-
-    @PostConstruct
-    public void initExecutor() {
-        executor = Executors.newSingleThreadExecutor();
-    }
+    private SnmpPushService snmpPushService;
 
-    @PreDestroy
-    public void shutdownExecutor() {
-        if (executor != null) {
-            executor.shutdownNow();
-        }
-    }
+    @Value("${transport.snmp.push.direct}")
+    private boolean snmpPushDirect;
 
     @PreAuthorize("hasAnyAuthority('SYS_ADMIN', 'TENANT_ADMIN', 'CUSTOMER_USER')")
     @RequestMapping(value = "/oneway/{deviceId}", method = RequestMethod.POST)
     @ResponseBody
     public DeferredResult<ResponseEntity> handleOneWayDeviceRPCRequest(@PathVariable("deviceId") String deviceIdStr, @RequestBody String requestBody) throws ThingsboardException {
-        snmpPushManager.doSnmpPush(requestBody);
         return handleDeviceRPCRequest(true, new DeviceId(UUID.fromString(deviceIdStr)), requestBody);
     }
 
@@ -106,7 +91,6 @@ public class RpcController extends BaseController {
     @RequestMapping(value = "/twoway/{deviceId}", method = RequestMethod.POST)
     @ResponseBody
     public DeferredResult<ResponseEntity> handleTwoWayDeviceRPCRequest(@PathVariable("deviceId") String deviceIdStr, @RequestBody String requestBody) throws ThingsboardException {
-        snmpPushManager.doSnmpPush(requestBody);
         return handleDeviceRPCRequest(false, new DeviceId(UUID.fromString(deviceIdStr)), requestBody);
     }
 
@@ -136,6 +120,11 @@ public class RpcController extends BaseController {
                             body
                     );
                     deviceRpcService.processRestAPIRpcRequestToRuleEngine(rpcRequest, fromDeviceRpcResponse -> reply(new LocalRequestMetaData(rpcRequest, currentUser, result), fromDeviceRpcResponse));
+                    // Without direct push the request reaches the SNMP transport like any device RPC, through the session of the device
+                    if (!snmpPushDirect) {
+                        return;
+                    }
+                    snmpPushService.push(rpcRequest, requestBody);
                 }
 
                 @Override
@@ -44,6 +44,7 @@ import org.springframework.util.Assert;
 import org.thingsboard.server.actors.service.ActorService;
 import org.thingsboard.server.common.msg.cluster.ServerAddress;
 import org.thingsboard.server.service.cluster.routing.ClusterRoutingService;
+import org.thingsboard.server.service.snmp.SnmpPushService;
 import org.thingsboard.server.service.state.DeviceStateService;
 import org.thingsboard.server.service.telemetry.TelemetrySubscriptionService;
 import org.thingsboard.server.utils.MiscUtils;
@@ -90,6 +91,10 @@ public class ZkDiscoveryService implements DiscoveryService, PathChildrenCacheLi
     @Lazy
     private DeviceStateService deviceStateService;
 
+    @Autowired
+    @Lazy
+    private SnmpPushService snmpPushService;
+
     @Autowired
     @Lazy
     private ActorService actorService;
@@ -310,6 +315,7 @@ public class ZkDiscoveryService implements DiscoveryService, PathChildrenCacheLi
                 routingService.onServerAdded(instance);
                 tsSubService.onClusterUpdate();
                 deviceStateService.onClusterUpdate();
+                snmpPushService.onClusterUpdate();
                 actorService.onServerAdded(instance);
                 break;
             case CHILD_UPDATED:
@@ -320,6 +326,7 @@ public class ZkDiscoveryService implements DiscoveryService, PathChildrenCacheLi
                 routingService.onServerRemoved(instance);
                 tsSubService.onClusterUpdate();
                 deviceStateService.onClusterUpdate();
+                snmpPushService.onClusterUpdate();
                 actorService.onServerRemoved(instance);
                 break;
             default:
@@ -0,0 +1,172 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.snmp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.msg.cluster.ServerAddress;
+import org.thingsboard.server.common.msg.rpc.ToDeviceRpcRequest;
+import org.thingsboard.server.gen.cluster.ClusterAPIProtos;
+import org.thingsboard.server.service.cluster.discovery.DiscoveryService;
+import org.thingsboard.server.service.cluster.routing.ClusterRoutingService;
+import org.thingsboard.server.service.cluster.rpc.ClusterRpcService;
+import org.thingsboard.server.service.rpc.DeviceRpcService;
+import org.thingsboard.server.service.rpc.FromDeviceRpcResponse;
+import org.thingsboard.server.transport.snmp.cluster.SnmpAgentSharding;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+import org.thingsboard.server.transport.snmp.push.SnmpPushManager;
+import org.thingsboard.server.transport.snmp.util.SnmpUtility;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Partitions SNMP agents over the core nodes with the cluster hash ring, keyed by agent address. A push request is
+ * forwarded to the node that owns its agent, so sessions, engine IDs and per-agent timeouts and limits of an agent
+ * live on one node. The response of a two-way request is routed back to the node that received the REST call.
+ * <p>
+ * Unless the SNMP sharding nodes are configured, polled agents are sharded over the core nodes of the cluster too.
+ */
+@Service
+@Slf4j
+public class DefaultSnmpPushService implements SnmpPushService {
+
+    private static final ObjectMapper json = new ObjectMapper();
+
+    @Autowired
+    private ClusterRoutingService routingService;
+
+    @Autowired
+    private ClusterRpcService rpcService;
+
+    @Autowired
+    private DeviceRpcService deviceRpcService;
+
+    @Autowired
+    private SnmpPushManager snmpPushManager;
+
+    @Autowired
+    private SnmpOidRegistryService oidRegistryService;
+
+    @Autowired
+    private DiscoveryService discoveryService;
+
+    @Autowired(required = false)
+    private SnmpAgentSharding agentSharding;
+
+    @Override
+    public void push(ToDeviceRpcRequest request, String requestBody) {
+        Optional<String> agent = getAgent(requestBody);
+        if (!agent.isPresent()) {
+            // RPC to a device of another transport, completed by the device or its timeout
+            log.trace("[{}] No SNMP agent in rpc request", request.getId());
+            return;
+        }
+        Optional<ServerAddress> owner = resolveOwner(agent.get());
+        if (owner.isPresent()) {
+            log.trace("[{}] Forwarding SNMP push to [{}]", request.getId(), owner.get());
+            ClusterAPIProtos.SnmpPushRequestProto proto = ClusterAPIProtos.SnmpPushRequestProto.newBuilder()
+                    .setRequestIdMSB(request.getId().getMostSignificantBits())
+                    .setRequestIdLSB(request.getId().getLeastSignificantBits())
+                    .setOneway(request.isOneway())
+                    .setBody(requestBody)
+                    .build();
+            rpcService.tell(owner.get(), ClusterAPIProtos.MessageType.CLUSTER_SNMP_PUSH_REQUEST_MESSAGE, proto.toByteArray());
+        } else {
+            pushLocally(routingService.getCurrentServer(), request.getId(), request.isOneway(), requestBody);
+        }
+    }
+
+    @Override
+    public void onRemotePushRequest(ServerAddress serverAddress, byte[] data) {
+        ClusterAPIProtos.SnmpPushRequestProto proto;
+        try {
+            proto = ClusterAPIProtos.SnmpPushRequestProto.parseFrom(data);
+        } catch (InvalidProtocolBufferException e) {
+            log.warn("[{}] Failed to decode SNMP push request", serverAddress, e);
+            return;
+        }
+        pushLocally(serverAddress, new UUID(proto.getRequestIdMSB(), proto.getRequestIdLSB()), proto.getOneway(), proto.getBody());
+    }
+
+    /**
+     * Drops the per-agent state of the agents that moved to another node and shards the polled agents over the
+     * current members.
+     */
+    @Override
+    public void onClusterUpdate() {
+        if (agentSharding != null && !agentSharding.isConfigured()) {
+            String currentNode = discoveryService.getCurrentServer().getServerAddress().toString();
+            List<String> nodes = new ArrayList<>();
+            nodes.add(currentNode);
+            discoveryService.getOtherServers().forEach(server -> nodes.add(server.getServerAddress().toString()));
+            agentSharding.setNodes(currentNode, nodes);
+        }
+        int dropped = snmpPushManager.retainAgents(agent -> !resolveOwner(agent).isPresent());
+        if (dropped > 0) {
+            log.info("Dropped the state of {} SNMP agents owned by other nodes", dropped);
+        }
+    }
+
+    private void pushLocally(ServerAddress requestOriginAddress, UUID requestId, boolean oneway, String requestBody) {
+        if (oneway) {
+            snmpPushManager.doSnmpPush(requestBody);
+            return;
+        }
+        Futures.addCallback(snmpPushManager.doSnmpPushAsync(requestBody), new FutureCallback<List<? extends VariableBinding>>() {
+            @Override
+            public void onSuccess(List<? extends VariableBinding> variableBindings) {
+                FromDeviceRpcResponse response = new FromDeviceRpcResponse(requestId, SnmpUtility.toJson(variableBindings, oidRegistryService::getMetadata), null);
+                deviceRpcService.processResponseToServerSideRPCRequestFromRuleEngine(requestOriginAddress, response);
+            }
+
+            // The regular device response or timeout completes the request
+            @Override
+            public void onFailure(Throwable t) {
+                log.debug("[{}] SNMP push did not complete the rpc request", requestId, t);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private Optional<ServerAddress> resolveOwner(String agent) {
+        return routingService.resolveByUuid(UUID.nameUUIDFromBytes(agent.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Agent address of the request in the form used by the per-agent state of the push manager, e.g. 10.0.0.1/161.
+     */
+    private static Optional<String> getAgent(String requestBody) {
+        try {
+            JsonNode params = json.readTree(json.readTree(requestBody).get("params").asText());
+            return Optional.of(new UdpAddress(params.get("agentHost").asText() + "/" + params.get("agentPort").asText()).toString());
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+}
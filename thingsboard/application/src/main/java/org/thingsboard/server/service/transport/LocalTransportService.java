@@ -164,6 +164,11 @@ public class LocalTransportService extends AbstractTransportService implements R
         }
     }
 
+    @Override
+    public void process(CredentialsUpdateNotificationProto msg) {
+        // Local transports validate device credentials on every connection and cache none
+    }
+
     private void forwardToDeviceActor(TransportToDeviceActorMsg toDeviceActorMsg, TransportServiceCallback<Void> callback) {
         TransportToDeviceActorMsgWrapper wrapper = new TransportToDeviceActorMsgWrapper(toDeviceActorMsg);
         Optional<ServerAddress> address = routingService.resolveById(wrapper.getDeviceId());
@@ -36,6 +36,7 @@ import org.springframework.stereotype.Service;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.service.ActorService;
 import org.thingsboard.server.common.msg.cluster.ServerAddress;
+import org.thingsboard.server.gen.transport.TransportProtos.CredentialsUpdateNotificationProto;
 import org.thingsboard.server.gen.transport.TransportProtos.DeviceActorToTransportMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ToTransportMsg;
@@ -53,6 +54,8 @@ import org.thingsboard.server.service.transport.msg.TransportToDeviceActorMsgWra
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
@@ -145,21 +148,33 @@ public class RemoteRuleEngineTransportService implements RuleEngineTransportServ
             while (!stopped) {
                 try {
                     ConsumerRecords<String, byte[]> records = ruleEngineConsumer.poll(Duration.ofMillis(pollDuration));
-                    int recordsCount = records.count();
-                    if (recordsCount > 0) {
-                        while (!blockingPollRateBucket.tryConsume(recordsCount, TimeUnit.SECONDS.toNanos(5))) {
-                            log.info("Rule Engine consumer is busy. Required tokens: [{}]. Available tokens: [{}].", recordsCount, pollRateBucket.getAvailableTokens());
+                    List<ToRuleEngineMsg> toRuleEngineMsgs = new ArrayList<>(records.count());
+                    records.forEach(record -> {
+                        try {
+                            toRuleEngineMsgs.add(ruleEngineConsumer.decode(record));
+                        } catch (Throwable e) {
+                            log.warn("Failed to decode the notification.", e);
+                        }
+                    });
+                    // Transports may batch several messages of a device into one record, the rate applies to the messages
+                    int msgsCount = 0;
+                    for (ToRuleEngineMsg toRuleEngineMsg : toRuleEngineMsgs) {
+                        msgsCount += toRuleEngineMsg.hasToDeviceActorMsg() ? 1 : toRuleEngineMsg.getToDeviceActorMsgBatchCount();
+                    }
+                    if (msgsCount > 0) {
+                        while (!blockingPollRateBucket.tryConsume(msgsCount, TimeUnit.SECONDS.toNanos(5))) {
+                            log.info("Rule Engine consumer is busy. Required tokens: [{}]. Available tokens: [{}].", msgsCount, pollRateBucket.getAvailableTokens());
                             Thread.sleep(TimeUnit.SECONDS.toMillis(1));
                         }
-                        log.trace("Processing {} records", recordsCount);
+                        log.trace("Processing {} records with {} messages", records.count(), msgsCount);
                     }
-                    records.forEach(record -> {
+                    toRuleEngineMsgs.forEach(toRuleEngineMsg -> {
                         try {
-                            ToRuleEngineMsg toRuleEngineMsg = ruleEngineConsumer.decode(record);
                             log.trace("Forwarding message to rule engine {}", toRuleEngineMsg);
                             if (toRuleEngineMsg.hasToDeviceActorMsg()) {
                                 forwardToDeviceActor(toRuleEngineMsg.getToDeviceActorMsg());
                             }
+                            toRuleEngineMsg.getToDeviceActorMsgBatchList().forEach(this::forwardToDeviceActor);
                         } catch (Throwable e) {
                             log.warn("Failed to process the notification.", e);
                         }
@@ -190,6 +205,16 @@ public class RemoteRuleEngineTransportService implements RuleEngineTransportServ
         notificationsProducer.send(topic, sessionId.toString(), transportMsg, new QueueCallbackAdaptor(onSuccess, onFailure));
     }
 
+    @Override
+    public void process(CredentialsUpdateNotificationProto msg) {
+        // Each transport node consumes the base topic in a consumer group of its own
+        String topic = notificationsTopic;
+        UUID deviceId = new UUID(msg.getDeviceIdMSB(), msg.getDeviceIdLSB());
+        ToTransportMsg transportMsg = ToTransportMsg.newBuilder().setCredentialsUpdateNotification(msg).build();
+        log.trace("[{}][{}] Pushing credentials update to topic", topic, deviceId);
+        notificationsProducer.send(topic, deviceId.toString(), transportMsg, new QueueCallbackAdaptor(null, null));
+    }
+
     private void forwardToDeviceActor(TransportToDeviceActorMsg toDeviceActorMsg) {
         TransportToDeviceActorMsgWrapper wrapper = new TransportToDeviceActorMsgWrapper(toDeviceActorMsg);
         Optional<ServerAddress> address = routingService.resolveById(wrapper.getDeviceId());
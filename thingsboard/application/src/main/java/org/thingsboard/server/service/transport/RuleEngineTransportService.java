@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.service.transport;
 
+import org.thingsboard.server.gen.transport.TransportProtos.CredentialsUpdateNotificationProto;
 import org.thingsboard.server.gen.transport.TransportProtos.DeviceActorToTransportMsg;
 
 import java.util.function.Consumer;
@@ -28,4 +29,9 @@ public interface RuleEngineTransportService {
 
     void process(String nodeId, DeviceActorToTransportMsg msg, Runnable onSuccess, Consumer<Throwable> onFailure);
 
+    /**
+     * Notifies every transport node, as any of them may have cached the credentials of the device.
+     */
+    void process(CredentialsUpdateNotificationProto msg);
+
 }
@@ -0,0 +1,154 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.snmp;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rpc.ToDeviceRpcRequestBody;
+import org.thingsboard.server.common.msg.cluster.ServerAddress;
+import org.thingsboard.server.common.msg.cluster.ServerType;
+import org.thingsboard.server.common.msg.rpc.ToDeviceRpcRequest;
+import org.thingsboard.server.gen.cluster.ClusterAPIProtos;
+import org.thingsboard.server.service.cluster.routing.ClusterRoutingService;
+import org.thingsboard.server.service.cluster.rpc.ClusterRpcService;
+import org.thingsboard.server.service.rpc.DeviceRpcService;
+import org.thingsboard.server.service.rpc.FromDeviceRpcResponse;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+import org.thingsboard.server.transport.snmp.push.SnmpPushManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultSnmpPushServiceTest {
+
+    private static final ServerAddress CURRENT_NODE = new ServerAddress("10.1.0.1", 9001, ServerType.CORE);
+    private static final ServerAddress OTHER_NODE = new ServerAddress("10.1.0.2", 9001, ServerType.CORE);
+    private static final String AGENT = "10.0.0.1/161";
+    private static final String OTHER_AGENT = "10.0.0.2/161";
+    private static final String BODY = "{\"method\":\"get\",\"params\":\"{\\\"agentHost\\\":\\\"10.0.0.1\\\",\\\"agentPort\\\":161}\"}";
+
+    private final ClusterRoutingService routingService = mock(ClusterRoutingService.class);
+    private final ClusterRpcService rpcService = mock(ClusterRpcService.class);
+    private final DeviceRpcService deviceRpcService = mock(DeviceRpcService.class);
+    private final SnmpPushManager pushManager = mock(SnmpPushManager.class);
+    private final DefaultSnmpPushService pushService = new DefaultSnmpPushService();
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(pushService, "routingService", routingService);
+        ReflectionTestUtils.setField(pushService, "rpcService", rpcService);
+        ReflectionTestUtils.setField(pushService, "deviceRpcService", deviceRpcService);
+        ReflectionTestUtils.setField(pushService, "snmpPushManager", pushManager);
+        ReflectionTestUtils.setField(pushService, "oidRegistryService", new SnmpOidRegistryService());
+        when(routingService.getCurrentServer()).thenReturn(CURRENT_NODE);
+    }
+
+    @Test
+    public void testPushIsForwardedToTheNodeOwningTheAgent() throws Exception {
+        owner(AGENT, Optional.of(OTHER_NODE));
+        ToDeviceRpcRequest request = request();
+
+        pushService.push(request, BODY);
+
+        ArgumentCaptor<byte[]> data = ArgumentCaptor.forClass(byte[].class);
+        verify(rpcService).tell(eq(OTHER_NODE), eq(ClusterAPIProtos.MessageType.CLUSTER_SNMP_PUSH_REQUEST_MESSAGE), data.capture());
+        ClusterAPIProtos.SnmpPushRequestProto proto = ClusterAPIProtos.SnmpPushRequestProto.parseFrom(data.getValue());
+        assertEquals(request.getId(), new UUID(proto.getRequestIdMSB(), proto.getRequestIdLSB()));
+        assertEquals(BODY, proto.getBody());
+        verify(pushManager, never()).doSnmpPushAsync(anyString());
+    }
+
+    @Test
+    public void testOwnerPushesAndAnswersTheNodeOfTheRequest() throws Exception {
+        SettableFuture<List<? extends VariableBinding>> response = SettableFuture.create();
+        when(pushManager.doSnmpPushAsync(BODY)).thenReturn(response);
+        UUID requestId = UUID.randomUUID();
+        ClusterAPIProtos.SnmpPushRequestProto proto = ClusterAPIProtos.SnmpPushRequestProto.newBuilder()
+                .setRequestIdMSB(requestId.getMostSignificantBits())
+                .setRequestIdLSB(requestId.getLeastSignificantBits())
+                .setBody(BODY)
+                .build();
+
+        pushService.onRemotePushRequest(OTHER_NODE, proto.toByteArray());
+        response.set(Collections.emptyList());
+
+        ArgumentCaptor<FromDeviceRpcResponse> answer = ArgumentCaptor.forClass(FromDeviceRpcResponse.class);
+        verify(deviceRpcService).processResponseToServerSideRPCRequestFromRuleEngine(eq(OTHER_NODE), answer.capture());
+        assertEquals(requestId, answer.getValue().getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAgentMovesWithTheClusterMembership() {
+        owner(AGENT, Optional.of(OTHER_NODE));
+        owner(OTHER_AGENT, Optional.empty());
+        pushService.push(request(), BODY);
+        verify(rpcService).tell(eq(OTHER_NODE), eq(ClusterAPIProtos.MessageType.CLUSTER_SNMP_PUSH_REQUEST_MESSAGE), any(byte[].class));
+
+        // The other node left, this node owns the agent now
+        owner(AGENT, Optional.empty());
+        owner(OTHER_AGENT, Optional.of(OTHER_NODE));
+        pushService.onClusterUpdate();
+        ArgumentCaptor<Predicate> retained = ArgumentCaptor.forClass(Predicate.class);
+        verify(pushManager).retainAgents(retained.capture());
+        assertTrue(retained.getValue().test(AGENT));
+        assertFalse(retained.getValue().test(OTHER_AGENT));
+
+        when(pushManager.doSnmpPushAsync(BODY)).thenReturn(SettableFuture.create());
+        pushService.push(request(), BODY);
+        verify(pushManager).doSnmpPushAsync(BODY);
+    }
+
+    @Test
+    public void testRequestWithoutAgentIsNotPushed() {
+        pushService.push(request(), "{\"method\":\"setLed\",\"params\":\"{\\\"enabled\\\":true}\"}");
+        pushService.onRemotePushRequest(OTHER_NODE, new byte[]{1, 2, 3});
+
+        verify(pushManager, never()).doSnmpPushAsync(anyString());
+        verify(pushManager, never()).doSnmpPush(anyString());
+        verify(rpcService, never()).tell(any(ServerAddress.class), any(ClusterAPIProtos.MessageType.class), any(byte[].class));
+    }
+
+    private void owner(String agent, Optional<ServerAddress> owner) {
+        when(routingService.resolveByUuid(UUID.nameUUIDFromBytes(agent.getBytes(StandardCharsets.UTF_8)))).thenReturn(owner);
+    }
+
+    private static ToDeviceRpcRequest request() {
+        return new ToDeviceRpcRequest(UUID.randomUUID(), new TenantId(UUID.randomUUID()), new DeviceId(UUID.randomUUID()),
+                false, System.currentTimeMillis() + 10000, new ToDeviceRpcRequestBody("get", "{}"));
+    }
+}
@@ -0,0 +1,104 @@
+package org.thingsboard.server.transport.snmp.jmh;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, e.g. the results of the last release and of the
+ * current build, and exits with status 1 if a benchmark got slower by more than the given percentage:
+ * <pre>
+ * java -cp benchmarks.jar org.thingsboard.server.transport.snmp.jmh.BenchmarkResultComparator baseline.json current.json 10
+ * </pre>
+ * Higher is better for throughput, lower for the other modes. Benchmarks missing from either file are listed but
+ * do not fail the comparison.
+ */
+public class BenchmarkResultComparator {
+
+    private static final double DEFAULT_THRESHOLD = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkResultComparator <baseline.json> <current.json> [threshold %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-80s %14s %14s %-10s %8s%n", "Benchmark", "Baseline", "Current", "Unit", "Change");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f %-10s %8s  new%n", entry.getKey(), "-", now.score, now.unit, "");
+                continue;
+            }
+            double change = (now.score - before.score) / before.score * 100;
+            // Positive when it got slower
+            double slowdown = "thrpt".equals(now.mode) ? -change : change;
+            boolean regression = slowdown > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f %14.3f %-10s %+7.1f%%%s%n", entry.getKey(), before.score, now.score, now.unit,
+                    change, regression ? "  REGRESSION" : "");
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf("%-80s  missing%n", name);
+            }
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmarks slower by more than %.1f%%%n", regressions, threshold);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return score of each benchmark and parameter combination, e.g. {@code TrapDecodeBenchmark.decodeInPlace:varbinds=20}
+     */
+    static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            String benchmark = run.get("benchmark").asText();
+            StringBuilder name = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+            JsonNode params = run.get("params");
+            if (params != null) {
+                Map<String, String> sorted = new TreeMap<>();
+                for (Iterator<Map.Entry<String, JsonNode>> it = params.fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    sorted.put(param.getKey(), param.getValue().asText());
+                }
+                String separator = ":";
+                for (Map.Entry<String, String> param : sorted.entrySet()) {
+                    name.append(separator).append(param.getKey()).append('=').append(param.getValue());
+                    separator = ",";
+                }
+            }
+            JsonNode metric = run.get("primaryMetric");
+            results.put(name.toString(), new Result(run.get("mode").asText(), metric.get("score").asDouble(),
+                    metric.get("scoreUnit").asText()));
+        }
+        return results;
+    }
+
+    static class Result {
+        final String mode;
+        final double score;
+        final String unit;
+
+        Result(String mode, double score, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.unit = unit;
+        }
+    }
+}
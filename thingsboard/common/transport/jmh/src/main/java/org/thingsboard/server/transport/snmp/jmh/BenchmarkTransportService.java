@@ -0,0 +1,53 @@
+package org.thingsboard.server.transport.snmp.jmh;
+
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport service standing in for the core: every device token is valid, and posted messages are counted and
+ * acknowledged at once.
+ */
+final class BenchmarkTransportService {
+
+    private final AtomicLong validations = new AtomicLong();
+    private final AtomicLong posted = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    TransportService create() {
+        return (TransportService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{TransportService.class}, (proxy, method, args) -> {
+            if (args == null || !"process".equals(method.getName())) {
+                return null;
+            }
+            Object msg = args.length == 3 ? args[1] : args[0];
+            if (msg instanceof TransportProtos.ValidateDeviceTokenRequestMsg) {
+                validations.incrementAndGet();
+                String token = ((TransportProtos.ValidateDeviceTokenRequestMsg) msg).getToken();
+                ((TransportServiceCallback<TransportProtos.ValidateDeviceCredentialsResponseMsg>) args[1]).onSuccess(
+                        TransportProtos.ValidateDeviceCredentialsResponseMsg.newBuilder()
+                                .setDeviceInfo(TransportProtos.DeviceInfoProto.newBuilder()
+                                        .setDeviceIdMSB(token.hashCode()).setDeviceName(token)).build());
+                return null;
+            }
+            posted.incrementAndGet();
+            if (args.length == 3 && args[2] != null) {
+                ((TransportServiceCallback<Void>) args[2]).onSuccess(null);
+            }
+            return null;
+        });
+    }
+
+    long getValidations() {
+        return validations.get();
+    }
+
+    /**
+     * @return telemetry, attribute and RPC messages posted so far
+     */
+    long getPosted() {
+        return posted.get();
+    }
+}
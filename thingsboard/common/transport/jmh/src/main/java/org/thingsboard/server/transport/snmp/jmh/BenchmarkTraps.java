@@ -0,0 +1,104 @@
+package org.thingsboard.server.transport.snmp.jmh;
+
+import org.snmp4j.PDU;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.transport.snmp.mapping.SnmpTrapMapping;
+import org.thingsboard.server.transport.snmp.mapping.SnmpTrapMappingService;
+import org.thingsboard.server.transport.snmp.mapping.SnmpTrapSource;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Traps and trap mappings shared by the benchmarks.
+ */
+final class BenchmarkTraps {
+
+    static final String MAPPED_COMMUNITY = "site-7";
+    static final String MAPPED_DEVICE_TOKEN = "SITE_7_TOKEN";
+
+    private BenchmarkTraps() {
+    }
+
+    /**
+     * @return mapping service mapping ifSpeed and ifHCInOctets to telemetry and ifDescr and sysUpTime to attributes
+     * for the traps of {@link #MAPPED_COMMUNITY}
+     */
+    static SnmpTrapMappingService mappingService() {
+        SnmpTrapMappingService service = new SnmpTrapMappingService();
+        ReflectionTestUtils.setField(service, "oidRegistryService", new SnmpOidRegistryService());
+        SnmpTrapMapping mapping = new SnmpTrapMapping();
+        mapping.setName("ifMib");
+        mapping.getTelemetry().put("1.3.6.1.2.1.2.2.1.5", "ifSpeed");
+        mapping.getTelemetry().put("1.3.6.1.2.1.31.1.1.1.6", "ifHCInOctets");
+        mapping.getAttributes().put("1.3.6.1.2.1.2.2.1.2", "ifDescr");
+        mapping.getAttributes().put("sysUpTime", "sysUpTime");
+        service.addMapping(mapping);
+        service.addSource(new SnmpTrapSource(MAPPED_DEVICE_TOKEN, null, MAPPED_COMMUNITY, null, "ifMib"));
+        return service;
+    }
+
+    /**
+     * @return linkUp trap with interface speed, octets and description of as many interfaces as fit in the varbinds
+     */
+    static PDU ifMibTrap(int varbinds) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(SnmpConstants.sysUpTime, new TimeTicks(4200)));
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, SnmpConstants.linkUp));
+        for (int i = 0; pdu.size() < varbinds; i++) {
+            pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.5." + i), new Gauge32(1000000000L)));
+            pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.31.1.1.1.6." + i), new Counter64(5000000000L + i)));
+            pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.2." + i), new OctetString("GigabitEthernet0/" + i)));
+        }
+        return pdu;
+    }
+
+    /**
+     * @return trap carrying a JSON payload in sysDescr, as sent by the SNMP device agent
+     */
+    static PDU jsonTrap(String payload) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(SnmpConstants.sysUpTime, new TimeTicks(4200)));
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, new OID("1.3.6.1.2.1.1.6")));
+        pdu.add(new VariableBinding(SnmpConstants.sysDescr, new OctetString(payload)));
+        return pdu;
+    }
+
+    /**
+     * @return JSON payload posting the agent address and {@code params} numeric attributes for the device
+     */
+    static String attributesPayload(String deviceToken, int params) {
+        StringBuilder json = new StringBuilder("{\"deviceToken\":\"").append(deviceToken)
+                .append("\",\"method\":\"cxSysAttributes\",\"params\":{\"agentHost\":\"10.0.0.1\",\"agentPort\":\"161\"");
+        for (int i = 0; i < params; i++) {
+            json.append(",\"speed").append(i).append("\":").append(10000 + i * 17);
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * @return SNMPv2c message of the PDU as sent on the wire
+     */
+    static byte[] encode(String community, PDU pdu) throws IOException {
+        Integer32 version = new Integer32(SnmpConstants.version2c);
+        OctetString communityString = new OctetString(community);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BER.encodeHeader(out, BER.SEQUENCE, version.getBERLength() + communityString.getBERLength() + pdu.getBERLength());
+        version.encodeBER(out);
+        communityString.encodeBER(out);
+        pdu.encodeBER(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,123 @@
+package org.thingsboard.server.transport.snmp.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snmp4j.smi.OID;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.transport.snmp.mib.SnmpMibStore;
+import org.thingsboard.server.transport.snmp.mib.SnmpOidMetadata;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistry;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up names and MIB metadata of OIDs: registry names of the standard OIDs, and the MIB store entry an
+ * instance OID of a received varbind belongs to, in a store of {@code mibObjects} enterprise columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OidLookupBenchmark {
+
+    private static final OID ENTERPRISE = new OID("1.3.6.1.4.1.99999.1");
+    private static final int COLUMNS_PER_TABLE = 20;
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "100000"})
+    private int mibObjects;
+
+    private Path storeFile;
+    private SnmpOidRegistryService registryService;
+    private SnmpOidRegistry registry;
+    private final OID[] standardOids = new OID[LOOKUPS];
+    private final OID[] instanceOids = new OID[LOOKUPS];
+    private final int[][] instanceInts = new int[LOOKUPS][];
+    private final String[] names = new String[LOOKUPS];
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        List<SnmpOidMetadata> objects = new ArrayList<>(mibObjects);
+        for (int i = 0; i < mibObjects; i++) {
+            SnmpOidMetadata column = new SnmpOidMetadata();
+            column.setOid(column(i));
+            column.setName("vendorColumn" + i);
+            column.setModule("VENDOR-MIB");
+            column.setKind(SnmpOidMetadata.Kind.COLUMN);
+            column.setSyntax(SnmpOidMetadata.Syntax.COUNTER32);
+            objects.add(column);
+        }
+        storeFile = Files.createTempFile("snmp-jmh", ".mibstore");
+        SnmpMibStore.write(storeFile, objects);
+
+        registryService = new SnmpOidRegistryService();
+        ReflectionTestUtils.setField(registryService, "mibStoreFile", storeFile.toString());
+        registryService.init();
+        registry = registryService.getRegistry();
+
+        OID[] standard = {new OID("1.3.6.1.2.1.1.3.0"), new OID("1.3.6.1.2.1.1.5.0"), new OID("1.3.6.1.6.3.1.1.4.1.0"),
+                new OID("1.3.6.1.6.3.1.1.5.4"), new OID("1.3.6.1.2.1.2.2.1.10.7")};
+        for (int i = 0; i < LOOKUPS; i++) {
+            // Spread over the store, so lookups do not all hit the same cache lines
+            int object = (int) ((i * 2654435761L) % mibObjects);
+            standardOids[i] = standard[i % standard.length];
+            instanceOids[i] = new OID(column(object)).append(1 + i % 48);
+            instanceInts[i] = instanceOids[i].getValue();
+            names[i] = "vendorColumn" + object;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(storeFile);
+    }
+
+    private static OID column(int i) {
+        return new OID(ENTERPRISE).append(i / COLUMNS_PER_TABLE + 1).append(1).append(i % COLUMNS_PER_TABLE + 1);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public String resolveRegistryName() {
+        return registry.resolve(standardOids[nextIndex()]);
+    }
+
+    @Benchmark
+    public SnmpOidMetadata findMibObject() {
+        return registryService.getMetadata(instanceOids[nextIndex()]);
+    }
+
+    @Benchmark
+    public SnmpOidMetadata findMibObjectOfDecodedOid() {
+        int[] oid = instanceInts[nextIndex()];
+        return registryService.getMetadata(oid, oid.length);
+    }
+
+    @Benchmark
+    public OID findOidByName() {
+        return registryService.getOid(names[nextIndex()]);
+    }
+}
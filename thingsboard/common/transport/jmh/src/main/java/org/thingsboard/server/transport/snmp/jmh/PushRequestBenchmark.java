@@ -0,0 +1,110 @@
+package org.thingsboard.server.transport.snmp.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.PDU;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.VariableBinding;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+import org.thingsboard.server.transport.snmp.push.SnmpGetBatcher;
+import org.thingsboard.server.transport.snmp.push.SnmpPushDaemon;
+import org.thingsboard.server.transport.snmp.push.SnmpSessionPool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a device RPC into an SNMP GET: parsing the request, building the target and the PDU and encoding the
+ * message. The session pool answers at once instead of sending, so no socket is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PushRequestBenchmark {
+
+    // The OID of the request, or empty to look up the OID of the method name
+    @Param({"1.3.6.1.2.1.1.3.0", ""})
+    private String trapOid;
+
+    private String message;
+    private SnmpGetBatcher getBatcher;
+    private SnmpOidRegistryService oidRegistry;
+    private OID oid;
+
+    @Setup
+    public void setup() {
+        message = "{\"method\":\"cxSysGetUptime\",\"params\":\"{\\\"trapOid\\\":\\\"" + trapOid + "\\\",\\\"methodName\\\":" +
+                "\\\"sysUpTime\\\",\\\"requestId\\\":2881405,\\\"agentHost\\\":\\\"10.0.0.1\\\",\\\"agentPort\\\":\\\"161\\\"}\"," +
+                "\"timeout\":500}";
+        // No batching window, every request is sent as its own PDU
+        getBatcher = new SnmpGetBatcher(new EncodingSessionPool(), null, 0, 1, 1472);
+        oidRegistry = new SnmpOidRegistryService();
+        oid = new OID("1.3.6.1.2.1.1.3.0");
+    }
+
+    @Benchmark
+    public List<? extends VariableBinding> pushRequest() throws ExecutionException, InterruptedException {
+        SnmpPushDaemon daemon = new SnmpPushDaemon(message, 2, 1000, getBatcher, oidRegistry, null);
+        daemon.run();
+        return daemon.getFuture().get();
+    }
+
+    @Benchmark
+    public byte[] encodeGet() throws IOException {
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(oid));
+        pdu.setType(PDU.GET);
+        pdu.setRequestID(new Integer32(2881405));
+        return BenchmarkTraps.encode("public", pdu);
+    }
+
+    /**
+     * Encodes the request as SNMP4J would before sending it, and answers it with sysUpTime.
+     */
+    private static class EncodingSessionPool extends SnmpSessionPool {
+        private int requestId;
+
+        EncodingSessionPool() {
+            super(1, 1);
+        }
+
+        @Override
+        public boolean send(PDU pdu, Target target, Object userHandle, ResponseListener listener) {
+            pdu.setRequestID(new Integer32(++requestId));
+            try {
+                BenchmarkTraps.encode(((CommunityTarget) target).getCommunity().toString(), pdu);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            PDU response = new PDU();
+            response.setType(PDU.RESPONSE);
+            response.setRequestID(pdu.getRequestID());
+            for (VariableBinding vb : pdu.getVariableBindings()) {
+                response.add(new VariableBinding(vb.getOid(), new TimeTicks(4200)));
+            }
+            listener.onResponse(new ResponseEvent(this, target.getAddress(), pdu, response, userHandle));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.thingsboard.server.transport.snmp.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snmp4j.PDU;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.thingsboard.server.transport.snmp.mapping.SnmpMappedTrap;
+import org.thingsboard.server.transport.snmp.mapping.SnmpTrapMappingService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding and mapping a received trap, through the SNMP4J PDU or in place from the datagram.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrapDecodeBenchmark {
+
+    private static final UdpAddress PEER = new UdpAddress("10.0.0.1/162");
+
+    @Param({"4", "20"})
+    private int varbinds;
+
+    private SnmpTrapMappingService mappingService;
+    private byte[] message;
+    private ByteBuffer directMessage;
+
+    @Setup
+    public void setup() throws IOException {
+        mappingService = BenchmarkTraps.mappingService();
+        message = BenchmarkTraps.encode(BenchmarkTraps.MAPPED_COMMUNITY, BenchmarkTraps.ifMibTrap(varbinds));
+        directMessage = ByteBuffer.allocateDirect(message.length);
+        directMessage.put(message).flip();
+    }
+
+    @Benchmark
+    public PDU decodePdu() throws IOException {
+        BERInputStream in = new BERInputStream(ByteBuffer.wrap(message));
+        BER.decodeHeader(in, new BER.MutableByte());
+        BER.decodeInteger(in, new BER.MutableByte());
+        new OctetString().decodeBER(in);
+        PDU pdu = new PDU();
+        pdu.decodeBER(in);
+        return pdu;
+    }
+
+    @Benchmark
+    public SnmpMappedTrap decodePduAndMap() throws IOException {
+        BERInputStream in = new BERInputStream(ByteBuffer.wrap(message));
+        BER.decodeHeader(in, new BER.MutableByte());
+        BER.decodeInteger(in, new BER.MutableByte());
+        OctetString community = new OctetString();
+        community.decodeBER(in);
+        PDU pdu = new PDU();
+        pdu.decodeBER(in);
+        return mappingService.map(PEER, community.getValue(), pdu);
+    }
+
+    @Benchmark
+    public SnmpMappedTrap decodeInPlace() {
+        return mappingService.map(PEER, directMessage);
+    }
+}
@@ -0,0 +1,138 @@
+package org.thingsboard.server.transport.snmp.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.transport.snmp.SnmpDeviceSessionCache;
+import org.thingsboard.server.transport.snmp.SnmpTransportContext;
+import org.thingsboard.server.transport.snmp.SnmpTransportReceiverListener;
+import org.thingsboard.server.transport.snmp.ingest.SnmpOverflowPolicy;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Traps from the UDP socket to the transport service: receiving, decoding, the ingest queue, the device session
+ * cache and the messages posted to a transport service that acknowledges them at once. Each invocation sends a
+ * batch of traps over loopback and waits until all of them were posted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TrapIngestBenchmark {
+
+    // Small enough to fit the default socket receive buffer, so no trap is lost
+    private static final int BATCH = 100;
+    private static final int DEVICES = 10;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * json: payload of the SNMP device agent posted as attributes; mapped: varbinds mapped to telemetry and
+     * attributes through SNMP4J; mappedInPlace: the same decoded in place on the receive thread.
+     */
+    @Param({"json", "mapped", "mappedInPlace"})
+    private String trapPath;
+
+    private final BenchmarkTransportService transportService = new BenchmarkTransportService();
+    private SnmpDeviceSessionCache sessionCache;
+    private SnmpTransportReceiverListener listener;
+    private DatagramChannel sender;
+    private ByteBuffer[] traps;
+    private int postsPerTrap;
+
+    @Setup
+    public void setup() throws IOException {
+        SnmpTransportContext context = new SnmpTransportContext() {
+            @Override
+            public String getNodeId() {
+                return "jmh";
+            }
+        };
+        context.setTransportService(transportService.create());
+        sessionCache = new SnmpDeviceSessionCache();
+        ReflectionTestUtils.setField(sessionCache, "snmpTransportContext", context);
+        ReflectionTestUtils.setField(sessionCache, "maxSize", 1000L);
+        ReflectionTestUtils.setField(sessionCache, "ttl", 600000L);
+        sessionCache.init();
+
+        int port;
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        listener = new SnmpTransportReceiverListener();
+        ReflectionTestUtils.setField(listener, "snmpTransportContext", context);
+        ReflectionTestUtils.setField(listener, "deviceSessionCache", sessionCache);
+        ReflectionTestUtils.setField(listener, "trapMappingService", BenchmarkTraps.mappingService());
+        ReflectionTestUtils.setField(listener, "bindAddress", "127.0.0.1");
+        ReflectionTestUtils.setField(listener, "listenPort", port);
+        ReflectionTestUtils.setField(listener, "dispatcherPoolSize", 4);
+        ReflectionTestUtils.setField(listener, "receiverSockets", 1);
+        ReflectionTestUtils.setField(listener, "fastDecode", "mappedInPlace".equals(trapPath));
+        ReflectionTestUtils.setField(listener, "queueCapacity", 100000);
+        ReflectionTestUtils.setField(listener, "overflowPolicy", SnmpOverflowPolicy.DROP_OLDEST);
+        ReflectionTestUtils.setField(listener, "queueWorkers", 2);
+        ReflectionTestUtils.setField(listener, "maxPending", 10000);
+        listener.startSnmpListener();
+
+        traps = new ByteBuffer[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            byte[] trap;
+            if ("json".equals(trapPath)) {
+                trap = BenchmarkTraps.encode("public", BenchmarkTraps.jsonTrap(
+                        BenchmarkTraps.attributesPayload("JMH_TOKEN_" + (i % DEVICES), 4)));
+            } else {
+                trap = BenchmarkTraps.encode(BenchmarkTraps.MAPPED_COMMUNITY, BenchmarkTraps.ifMibTrap(8));
+            }
+            traps[i] = ByteBuffer.wrap(trap);
+        }
+        // Mapped traps post telemetry and attributes
+        postsPerTrap = "json".equals(trapPath) ? 1 : 2;
+        sender = DatagramChannel.open();
+        sender.connect(new InetSocketAddress("127.0.0.1", port));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sender.close();
+        listener.stop();
+        sessionCache.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long ingestTraps() throws IOException {
+        long expected = transportService.getPosted() + (long) BATCH * postsPerTrap;
+        for (ByteBuffer trap : traps) {
+            sender.write(trap);
+            trap.rewind();
+        }
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        long posted;
+        while ((posted = transportService.getPosted()) < expected) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException((expected - posted) + " messages of the batch were not posted, traps lost");
+            }
+            LockSupport.parkNanos(10000);
+        }
+        return posted;
+    }
+}
@@ -0,0 +1,60 @@
+package org.thingsboard.server.transport.snmp.jmh;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snmp4j.smi.OctetString;
+import org.thingsboard.server.common.transport.adaptor.JsonConverter;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the JSON payload of a trap and converting its params to the attributes message posted to the transport
+ * service, the way the receiver does for the traps of the SNMP device agent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrapPayloadBenchmark {
+
+    @Param({"2", "20"})
+    private int params;
+
+    private OctetString payload;
+    private JsonObject parsed;
+
+    @Setup
+    public void setup() {
+        payload = new OctetString(BenchmarkTraps.attributesPayload("A1_TEST_TOKEN", params));
+        parsed = parse();
+    }
+
+    @Benchmark
+    public JsonObject parse() {
+        return new JsonParser().parse(payload.toString()).getAsJsonObject();
+    }
+
+    @Benchmark
+    public TransportProtos.PostAttributeMsg convert() {
+        return JsonConverter.convertToAttributesProto(parsed.getAsJsonObject("params"));
+    }
+
+    @Benchmark
+    public TransportProtos.PostAttributeMsg parseAndConvert() {
+        return JsonConverter.convertToAttributesProto(parse().getAsJsonObject("params"));
+    }
+}
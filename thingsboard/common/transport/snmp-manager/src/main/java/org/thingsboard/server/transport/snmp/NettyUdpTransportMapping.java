@@ -0,0 +1,197 @@
+package org.thingsboard.server.transport.snmp;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.TransportStateReference;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.transport.UdpTransportMapping;
+import org.thingsboard.server.transport.snmp.ingest.SnmpReceiveLoopStats;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UDP transport mapping on Netty. With native epoll, one channel per event loop is bound to the address with
+ * SO_REUSEPORT, so the kernel spreads the datagrams across the loops; elsewhere a single NIO channel receives them.
+ * Datagrams are read into pooled direct buffers and offered to the
+ * {@link ReusePortUdpTransportMapping.RawMessageHandler} on the event loop before they are copied for SNMP4J.
+ */
+@Slf4j
+public class NettyUdpTransportMapping extends UdpTransportMapping {
+
+    private final int eventLoops;
+    private final int receiveBufferSize;
+    private final ReusePortUdpTransportMapping.RawMessageHandler rawMessageHandler;
+    private final List<Channel> channels = new ArrayList<>();
+    private final List<LoopHandler> handlers = new ArrayList<>();
+    private EventLoopGroup group;
+
+    /**
+     * @param eventLoops number of event loops and channels, 0 for twice the number of cores
+     */
+    public NettyUdpTransportMapping(UdpAddress udpAddress, int eventLoops, int receiveBufferSize,
+                                    ReusePortUdpTransportMapping.RawMessageHandler rawMessageHandler) {
+        super(udpAddress);
+        this.eventLoops = eventLoops > 0 ? eventLoops : Runtime.getRuntime().availableProcessors() * 2;
+        this.receiveBufferSize = receiveBufferSize;
+        this.rawMessageHandler = rawMessageHandler;
+    }
+
+    public static boolean isEpollAvailable() {
+        return Epoll.isAvailable();
+    }
+
+    @Override
+    public synchronized void listen() throws IOException {
+        if (group != null) {
+            throw new SocketException("Port already listening");
+        }
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory("SnmpReceiver-" + udpAddress.getPort(), true);
+        Bootstrap bootstrap = new Bootstrap()
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(getMaxInboundMessageSize()));
+        if (receiveBufferSize > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        }
+        int channelCount;
+        if (Epoll.isAvailable()) {
+            group = new EpollEventLoopGroup(eventLoops, threadFactory);
+            bootstrap.group(group).channel(EpollDatagramChannel.class).option(EpollChannelOption.SO_REUSEPORT, true);
+            channelCount = eventLoops;
+        } else {
+            log.warn("Native epoll is not available, receiving SNMP traps on a single channel: {}",
+                    Epoll.unavailabilityCause().getMessage());
+            group = new NioEventLoopGroup(1, threadFactory);
+            bootstrap.group(group).channel(NioDatagramChannel.class);
+            channelCount = 1;
+        }
+        try {
+            int port = udpAddress.getPort();
+            for (int i = 0; i < channelCount; i++) {
+                LoopHandler handler = new LoopHandler("SnmpReceiver-" + udpAddress.getPort() + "-" + i);
+                Channel channel = bootstrap.clone().handler(handler).bind(udpAddress.getInetAddress(), port).sync().channel();
+                // The other channels share the port the first one got
+                port = ((InetSocketAddress) channel.localAddress()).getPort();
+                channels.add(channel);
+                handlers.add(handler);
+            }
+        } catch (Exception e) {
+            close();
+            throw new IOException("Failed to bind " + udpAddress, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channels.forEach(Channel::close);
+        channels.clear();
+        if (group != null) {
+            group.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+            group = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isListening() {
+        return group != null;
+    }
+
+    @Override
+    public synchronized UdpAddress getListenAddress() {
+        if (channels.isEmpty()) {
+            return udpAddress;
+        }
+        InetSocketAddress address = (InetSocketAddress) channels.get(0).localAddress();
+        return new UdpAddress(address.getAddress(), address.getPort());
+    }
+
+    /**
+     * Sends from the channel that received the message being answered, if any.
+     */
+    @Override
+    public void sendMessage(UdpAddress targetAddress, byte[] message, TransportStateReference tmStateReference) throws IOException {
+        Channel channel = null;
+        if (tmStateReference != null && tmStateReference.getSessionID() instanceof Channel) {
+            channel = (Channel) tmStateReference.getSessionID();
+        } else {
+            synchronized (this) {
+                if (!channels.isEmpty()) {
+                    channel = channels.get(0);
+                }
+            }
+        }
+        if (channel == null) {
+            throw new SocketException("Not listening");
+        }
+        channel.writeAndFlush(new DatagramPacket(Unpooled.wrappedBuffer(message),
+                new InetSocketAddress(targetAddress.getInetAddress(), targetAddress.getPort())));
+    }
+
+    public synchronized List<SnmpReceiveLoopStats> getLoopStats() {
+        List<SnmpReceiveLoopStats> stats = new ArrayList<>(handlers.size());
+        for (LoopHandler handler : handlers) {
+            stats.add(new SnmpReceiveLoopStats(handler.name, handler.received.get(), handler.bytes.get(), handler.decodedInPlace.get()));
+        }
+        return stats;
+    }
+
+    /**
+     * Receives the datagrams of one channel, always on the same event loop.
+     */
+    private class LoopHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+        private final String name;
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong decodedInPlace = new AtomicLong();
+
+        LoopHandler(String name) {
+            this.name = name;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+            ByteBuf content = packet.content();
+            received.incrementAndGet();
+            bytes.addAndGet(content.readableBytes());
+            UdpAddress source = new UdpAddress(packet.sender().getAddress(), packet.sender().getPort());
+            try {
+                if (rawMessageHandler != null && rawMessageHandler.process(source, content.nioBuffer())) {
+                    decodedInPlace.incrementAndGet();
+                    return;
+                }
+                // The dispatcher may process the message on another thread, so it gets its own copy
+                byte[] copy = new byte[content.readableBytes()];
+                content.getBytes(content.readerIndex(), copy);
+                TransportStateReference stateReference = new TransportStateReference(NettyUdpTransportMapping.this, source,
+                        null, SecurityLevel.undefined, SecurityLevel.undefined, false, ctx.channel());
+                fireProcessMessage(source, ByteBuffer.wrap(copy), stateReference);
+            } catch (RuntimeException e) {
+                log.warn("[{}] Failed to process SNMP message", udpAddress, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.thingsboard.server.transport.snmp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.TransportStateReference;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.transport.UdpTransportMapping;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * UDP transport mapping whose socket is bound with SO_REUSEPORT, so that several of them can listen on the same port
+ * and the kernel spreads the incoming datagrams across their receive threads.
+ * SO_REUSEPORT is only exposed from Java 9 on; use {@link #isSupported()} before creating more than one mapping.
+ * Datagrams are received into a direct buffer reused by the receive thread, and offered to the {@link RawMessageHandler}
+ * in place before they are copied for SNMP4J.
+ */
+@Slf4j
+public class ReusePortUdpTransportMapping extends UdpTransportMapping {
+
+    private static final SocketOption<Boolean> SO_REUSEPORT = lookupReusePort();
+
+    private final DatagramChannel channel;
+    private final DatagramSocket socket;
+    private final RawMessageHandler rawMessageHandler;
+    private Thread listenThread;
+    private volatile boolean listening;
+
+    public ReusePortUdpTransportMapping(UdpAddress udpAddress, int receiveBufferSize) throws IOException {
+        this(udpAddress, receiveBufferSize, null);
+    }
+
+    public ReusePortUdpTransportMapping(UdpAddress udpAddress, int receiveBufferSize, RawMessageHandler rawMessageHandler) throws IOException {
+        super(udpAddress);
+        this.rawMessageHandler = rawMessageHandler;
+        channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        if (SO_REUSEPORT != null) {
+            channel.setOption(SO_REUSEPORT, true);
+        }
+        if (receiveBufferSize > 0) {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+        }
+        channel.bind(new InetSocketAddress(udpAddress.getInetAddress(), udpAddress.getPort()));
+        socket = channel.socket();
+    }
+
+    public static boolean isSupported() {
+        return SO_REUSEPORT != null;
+    }
+
+    @Override
+    public synchronized void listen() throws IOException {
+        if (listening) {
+            throw new SocketException("Port already listening");
+        }
+        listening = true;
+        listenThread = new Thread(this::receive, "SnmpReceiver-" + udpAddress + "-" + System.identityHashCode(this));
+        listenThread.setDaemon(true);
+        listenThread.start();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        listening = false;
+        channel.close();
+        if (listenThread != null) {
+            listenThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isListening() {
+        return listening;
+    }
+
+    @Override
+    public UdpAddress getListenAddress() {
+        return new UdpAddress(socket.getLocalAddress(), socket.getLocalPort());
+    }
+
+    @Override
+    public void sendMessage(UdpAddress targetAddress, byte[] message, TransportStateReference tmStateReference) throws IOException {
+        socket.send(new DatagramPacket(message, message.length, targetAddress.getInetAddress(), targetAddress.getPort()));
+    }
+
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(getMaxInboundMessageSize());
+        while (listening) {
+            try {
+                buffer.clear();
+                InetSocketAddress sender = (InetSocketAddress) channel.receive(buffer);
+                buffer.flip();
+                UdpAddress source = new UdpAddress(sender.getAddress(), sender.getPort());
+                if (rawMessageHandler != null && rawMessageHandler.process(source, buffer)) {
+                    continue;
+                }
+                // The dispatcher may process the message on another thread, so it gets its own copy
+                byte[] copy = new byte[buffer.remaining()];
+                buffer.get(copy);
+                ByteBuffer message = ByteBuffer.wrap(copy);
+                TransportStateReference stateReference = new TransportStateReference(this, source, null,
+                        SecurityLevel.undefined, SecurityLevel.undefined, false, socket);
+                fireProcessMessage(source, message, stateReference);
+            } catch (IOException e) {
+                if (!listening || socket.isClosed()) {
+                    break;
+                }
+                log.warn("[{}] Failed to receive SNMP message", udpAddress, e);
+            } catch (RuntimeException e) {
+                log.warn("[{}] Failed to process SNMP message", udpAddress, e);
+            }
+        }
+    }
+
+    /**
+     * Processes datagrams on the receive thread, before SNMP4J decodes them.
+     */
+    public interface RawMessageHandler {
+
+        /**
+         * @param message the datagram, only valid during the call; its position must be left unchanged
+         * @return true if the message was processed and is not to be passed to SNMP4J
+         */
+        boolean process(UdpAddress source, ByteBuffer message);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> lookupReusePort() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
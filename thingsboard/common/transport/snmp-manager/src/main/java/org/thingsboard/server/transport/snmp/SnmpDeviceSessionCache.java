@@ -0,0 +1,223 @@
+package org.thingsboard.server.transport.snmp;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.transport.SessionMsgListener;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.service.AbstractTransportService;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.metrics.SnmpMetrics;
+import org.thingsboard.server.transport.snmp.push.SnmpDeviceRpcHandler;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * One transport session per SNMP device, keyed by access token. The token is validated only when a device has no
+ * cached session; the session is registered with the transport service so that a credentials update or deletion of
+ * the device closes it and drops it from the cache, and it is subscribed to the RPC requests of the device.
+ */
+@Slf4j
+@Component
+public class SnmpDeviceSessionCache {
+
+    @Value("${transport.snmp.deviceSessions.maxSize}")
+    private long maxSize;
+
+    @Value("${transport.snmp.deviceSessions.ttl}")
+    private long ttl;
+
+    @Autowired
+    private SnmpTransportContext snmpTransportContext;
+
+    @Autowired(required = false)
+    private SnmpDeviceRpcHandler rpcHandler;
+
+    @Autowired(required = false)
+    private SnmpMetrics metrics;
+
+    private Cache<String, DeviceSession> sessions;
+
+    @PostConstruct
+    public void init() {
+        sessions = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(ttl, TimeUnit.MILLISECONDS)
+                .removalListener(this::onRemoval)
+                .build();
+        if (metrics != null) {
+            metrics.gauge("deviceSessions", sessions::size);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (sessions != null) {
+            sessions.invalidateAll();
+        }
+    }
+
+    /**
+     * Passes the session of the device to the consumer, validating the token first if the device is not cached.
+     * Concurrent calls for a token that is being validated share one validation request.
+     */
+    public void process(String deviceToken, Consumer<TransportProtos.SessionInfoProto> onSuccess) {
+        process(deviceToken, onSuccess, t -> log.debug("[{}] No session for device: {}", deviceToken, t.getMessage()));
+    }
+
+    /**
+     * Same as {@link #process(String, Consumer)}, with the failure passed to {@code onFailure} when the device has
+     * no valid session.
+     */
+    public void process(String deviceToken, Consumer<TransportProtos.SessionInfoProto> onSuccess, Consumer<Throwable> onFailure) {
+        DeviceSession session;
+        try {
+            session = sessions.get(deviceToken, () -> new DeviceSession(deviceToken));
+        } catch (ExecutionException e) {
+            log.warn("[{}] Failed to create device session", deviceToken, e);
+            onFailure.accept(e.getCause());
+            return;
+        }
+        if (session.validationStarted.compareAndSet(false, true)) {
+            validate(session);
+        } else if (session.sessionInfo.isDone()) {
+            snmpTransportContext.getTransportService().reportActivity(Futures.getUnchecked(session.sessionInfo));
+        }
+        Futures.addCallback(session.sessionInfo, new FutureCallback<TransportProtos.SessionInfoProto>() {
+            @Override
+            public void onSuccess(TransportProtos.SessionInfoProto sessionInfo) {
+                onSuccess.accept(sessionInfo);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                onFailure.accept(t);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    public void invalidate(String deviceToken) {
+        sessions.invalidate(deviceToken);
+    }
+
+    public long size() {
+        return sessions.size();
+    }
+
+    private void validate(DeviceSession session) {
+        long started = System.nanoTime();
+        snmpTransportContext.getTransportService().process(
+                TransportProtos.ValidateDeviceTokenRequestMsg.newBuilder().setToken(session.deviceToken).build(),
+                new TransportServiceCallback<TransportProtos.ValidateDeviceCredentialsResponseMsg>() {
+                    @Override
+                    public void onSuccess(TransportProtos.ValidateDeviceCredentialsResponseMsg msg) {
+                        recordValidation();
+                        if (!msg.hasDeviceInfo()) {
+                            fail(new IllegalArgumentException("Unknown device token"));
+                            return;
+                        }
+                        UUID sessionId = UUID.randomUUID();
+                        TransportProtos.DeviceInfoProto deviceInfoProto = msg.getDeviceInfo();
+                        TransportProtos.SessionInfoProto sessionInfo = TransportProtos.SessionInfoProto.newBuilder()
+                                .setNodeId(snmpTransportContext.getNodeId())
+                                .setTenantIdMSB(deviceInfoProto.getTenantIdMSB())
+                                .setTenantIdLSB(deviceInfoProto.getTenantIdLSB())
+                                .setDeviceIdMSB(deviceInfoProto.getDeviceIdMSB())
+                                .setDeviceIdLSB(deviceInfoProto.getDeviceIdLSB())
+                                .setSessionIdMSB(sessionId.getMostSignificantBits())
+                                .setSessionIdLSB(sessionId.getLeastSignificantBits())
+                                .build();
+                        TransportService transportService = snmpTransportContext.getTransportService();
+                        transportService.registerAsyncSession(sessionInfo, session);
+                        transportService.process(sessionInfo, AbstractTransportService.getSessionEventMsg(TransportProtos.SessionEvent.OPEN), null);
+                        if (rpcHandler != null) {
+                            transportService.process(sessionInfo, TransportProtos.SubscribeToRPCMsg.getDefaultInstance(), null);
+                        }
+                        session.sessionInfo.set(sessionInfo);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        recordValidation();
+                        fail(e);
+                    }
+
+                    private void recordValidation() {
+                        if (metrics != null) {
+                            metrics.recordValidation(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                        }
+                    }
+
+                    private void fail(Throwable e) {
+                        // Not cached, the next packet from the device validates the token again
+                        sessions.asMap().remove(session.deviceToken, session);
+                        session.sessionInfo.setException(e);
+                    }
+                });
+    }
+
+    private void onRemoval(RemovalNotification<String, DeviceSession> notification) {
+        DeviceSession session = notification.getValue();
+        if (session == null || !session.sessionInfo.isDone()) {
+            return;
+        }
+        try {
+            TransportProtos.SessionInfoProto sessionInfo = Futures.getUnchecked(session.sessionInfo);
+            TransportService transportService = snmpTransportContext.getTransportService();
+            transportService.process(sessionInfo, AbstractTransportService.getSessionEventMsg(TransportProtos.SessionEvent.CLOSED), null);
+            transportService.deregisterSession(sessionInfo);
+        } catch (RuntimeException e) {
+            // Validation failed, nothing was registered
+        }
+    }
+
+    private class DeviceSession implements SessionMsgListener {
+        private final String deviceToken;
+        private final SettableFuture<TransportProtos.SessionInfoProto> sessionInfo = SettableFuture.create();
+        private final AtomicBoolean validationStarted = new AtomicBoolean();
+
+        DeviceSession(String deviceToken) {
+            this.deviceToken = deviceToken;
+        }
+
+        @Override
+        public void onRemoteSessionCloseCommand(TransportProtos.SessionCloseNotificationProto sessionCloseNotification) {
+            log.debug("[{}] Device session closed by the server", deviceToken);
+            sessions.asMap().remove(deviceToken, this);
+        }
+
+        @Override
+        public void onGetAttributesResponse(TransportProtos.GetAttributeResponseMsg getAttributesResponse) {
+        }
+
+        @Override
+        public void onAttributeUpdate(TransportProtos.AttributeUpdateNotificationMsg attributeUpdateNotification) {
+        }
+
+        @Override
+        public void onToDeviceRpcRequest(TransportProtos.ToDeviceRpcRequestMsg toDeviceRequest) {
+            if (rpcHandler != null && sessionInfo.isDone()) {
+                rpcHandler.onToDeviceRpcRequest(Futures.getUnchecked(sessionInfo), toDeviceRequest);
+            }
+        }
+
+        @Override
+        public void onToServerRpcResponse(TransportProtos.ToServerRpcResponseMsg toServerResponse) {
+        }
+    }
+}
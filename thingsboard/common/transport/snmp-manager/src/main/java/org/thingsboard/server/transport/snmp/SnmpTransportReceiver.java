@@ -31,6 +31,6 @@ public class SnmpTransportReceiver {
 
     @PreDestroy
     public void destroy() {
-        transportReceiverListener.interrupt();
+        transportReceiverListener.stop();
     }
 }
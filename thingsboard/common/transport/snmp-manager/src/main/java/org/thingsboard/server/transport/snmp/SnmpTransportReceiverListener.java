@@ -1,17 +1,15 @@
 package org.thingsboard.server.transport.snmp;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.snmp4j.*;
-import org.snmp4j.log.LogFactory;
+import org.snmp4j.event.CounterListener;
 import org.snmp4j.mp.*;
-import org.snmp4j.security.Priv3DES;
-import org.snmp4j.security.SecurityProtocols;
 import org.snmp4j.smi.*;
-import org.snmp4j.tools.console.SnmpRequest;
-import org.snmp4j.transport.AbstractTransportMapping;
 import org.snmp4j.transport.DefaultTcpTransportMapping;
 import org.snmp4j.transport.DefaultUdpTransportMapping;
 import org.snmp4j.util.MultiThreadedMessageDispatcher;
@@ -19,15 +17,34 @@ import org.snmp4j.util.ThreadPool;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.thingsboard.server.common.transport.TransportContext;
 import org.thingsboard.server.common.transport.TransportService;
 import org.thingsboard.server.common.transport.TransportServiceCallback;
 import org.thingsboard.server.common.transport.adaptor.JsonConverter;
 import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.ingest.SnmpAttributeCoalescer;
+import org.thingsboard.server.transport.snmp.ingest.SnmpIngestQueue;
+import org.thingsboard.server.transport.snmp.ingest.SnmpOverflowPolicy;
+import org.thingsboard.server.transport.snmp.ingest.SnmpReceiveLoopStats;
+import org.thingsboard.server.transport.snmp.ingest.SnmpTrapMsg;
+import org.thingsboard.server.transport.snmp.ingest.SnmpTrapStormGuard;
+import org.thingsboard.server.transport.snmp.ingest.UdpSocketStats;
+import org.thingsboard.server.transport.snmp.mapping.SnmpMappedTrap;
+import org.thingsboard.server.transport.snmp.metrics.SnmpMetrics;
+import org.thingsboard.server.transport.snmp.mapping.SnmpTrapMappingService;
+import org.thingsboard.server.transport.snmp.security.SnmpUsmService;
+import org.thingsboard.server.transport.snmp.util.SnmpUtility;
 
 import java.io.IOException;
-import java.util.UUID;
-import java.util.function.Consumer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.thingsboard.server.transport.snmp.util.SnmpUtility.nextRequestId;
 
@@ -36,197 +53,609 @@ import static org.thingsboard.server.transport.snmp.util.SnmpUtility.nextRequest
 //@ConditionalOnExpression("'${transport.type:null}'=='null' || ('${transport.type}'=='local' && '${transport.snmp.enabled}'=='true')")
 public class SnmpTransportReceiverListener implements CommandResponder {
 
+    @Value("${transport.snmp.bindAddress}")
+    private String bindAddress;
+
     @Getter
     @Value("${transport.snmp.listenPort}")
     private int listenPort;
 
-    private static final String listenAddress = "127.0.0.1";
+    @Getter
+    @Value("${transport.snmp.receiver.dispatcherPoolSize}")
+    private int dispatcherPoolSize;
+
+    @Getter
+    @Value("${transport.snmp.receiver.sockets}")
+    private int receiverSockets;
+
+    @Getter
+    @Value("${transport.snmp.receiver.receiveBufferSize}")
+    private int receiveBufferSize;
+
+    @Getter
+    @Value("${transport.snmp.receiver.netty.enabled}")
+    private boolean nettyEnabled;
+
+    @Getter
+    @Value("${transport.snmp.receiver.netty.eventLoops}")
+    private int nettyEventLoops;
+
+    @Getter
+    @Value("${transport.snmp.receiver.fastDecode}")
+    private boolean fastDecode;
+
+    @Getter
+    @Value("${transport.snmp.receiver.queue.capacity}")
+    private int queueCapacity;
+
+    @Getter
+    @Value("${transport.snmp.receiver.queue.overflowPolicy}")
+    private SnmpOverflowPolicy overflowPolicy;
+
+    @Getter
+    @Value("${transport.snmp.receiver.queue.workers}")
+    private int queueWorkers;
+
+    @Getter
+    @Value("${transport.snmp.receiver.queue.maxPending}")
+    private int maxPending;
+
+    @Getter
+    @Value("${transport.snmp.receiver.queue.statsInterval}")
+    private long statsInterval;
+
+    @Getter
+    @Value("${transport.snmp.receiver.coalesce.enabled}")
+    private boolean coalesceEnabled;
+
+    @Getter
+    @Value("${transport.snmp.receiver.coalesce.window}")
+    private long coalesceWindow;
+
+    @Getter
+    @Value("${transport.snmp.receiver.storm.enabled}")
+    private boolean stormEnabled;
+
+    @Getter
+    @Value("${transport.snmp.receiver.storm.rateLimit}")
+    private String stormRateLimit;
+
+    @Getter
+    @Value("${transport.snmp.receiver.storm.window}")
+    private long stormWindow;
+
+    @Getter
+    @Value("${transport.snmp.receiver.storm.maxDistinct}")
+    private int stormMaxDistinct;
+
+    // Key of the number of identical traps a trap summarized during a storm stands for
+    static final String TRAP_REPEAT_COUNT = "trapRepeatCount";
+
+    // Method of traps whose varbinds are mapped to telemetry and attributes
+    private static final String MAPPED_METHOD = "varbinds";
 
     @Autowired
     private SnmpTransportContext snmpTransportContext;
 
+    @Autowired
+    private SnmpDeviceSessionCache deviceSessionCache;
+
+    @Autowired
+    private SnmpTrapMappingService trapMappingService;
+
+    @Autowired(required = false)
+    private SnmpUsmService usmService;
+
+    @Autowired(required = false)
+    private SnmpMetrics metrics;
+
+    private Snmp snmp;
+    private ThreadPool threadPool;
+    private SnmpIngestQueue<SnmpTrapMsg> ingestQueue;
+    private SnmpAttributeCoalescer attributeCoalescer;
+    private SnmpTrapStormGuard stormGuard;
+    private Semaphore pending;
+    private ExecutorService ingestExecutor;
+    private ScheduledExecutorService statsExecutor;
+    private volatile boolean running;
+
+    private final AtomicLong trapsReceived = new AtomicLong();
+    private final AtomicLong trapsRejected = new AtomicLong();
+    private final AtomicLong trapsDecodedInPlace = new AtomicLong();
+    private final AtomicLong decodeFailures = new AtomicLong();
+    // Messages SNMP4J could not decode, counted for all sessions of the JVM
+    private final CounterListener decodeFailureListener = event -> {
+        if (SnmpConstants.snmpInASNParseErrs.equals(event.getOid()) || SnmpConstants.snmpInBadVersions.equals(event.getOid())) {
+            decodeFailures.incrementAndGet();
+        }
+    };
+    private long lastDropped;
+    private long lastOverruns;
+
     public SnmpTransportReceiverListener() {}
 
     public void startSnmpListener() {
         try {
             log.info("Initializing SNMP Transport Receiver... ");
-            this.listen(new UdpAddress(listenAddress + "/" + listenPort));
+            startIngest();
+            this.listen(new UdpAddress(bindAddress + "/" + listenPort));
             log.info("Initialized SNMP Transport Receiver... ");
         } catch (IOException e) {
-            e.printStackTrace();
-            System.err.println("Error in Listening for Trap");
-            System.err.println("Exception Message = " + e.getMessage());
+            log.error("Failed to listen for SNMP traps on port {}", listenPort, e);
         }
     }
 
     /**
-     * This method will listen for traps and response pdu's from SNMP agent.
+     * Starts the workers that move decoded traps from the ingest queue to the transport service. A worker stops taking
+     * traps while {@code maxPending} messages are waiting for the transport service to acknowledge them, so a slow
+     * core fills the queue and its overflow policy decides what is lost instead of memory growing without bound.
      */
-    protected synchronized void listen(TransportIpAddress address) throws IOException {
-        AbstractTransportMapping transport;
-        if (address instanceof TcpAddress) {
-            transport = new DefaultTcpTransportMapping((TcpAddress) address);
-        } else {
-            transport = new DefaultUdpTransportMapping((UdpAddress) address);
+    private void startIngest() {
+        ingestQueue = new SnmpIngestQueue<>(queueCapacity, overflowPolicy);
+        pending = new Semaphore(Math.max(1, maxPending));
+        running = true;
+        ingestExecutor = Executors.newFixedThreadPool(Math.max(1, queueWorkers));
+        for (int i = 0; i < Math.max(1, queueWorkers); i++) {
+            ingestExecutor.submit(this::drainIngestQueue);
+        }
+        if (coalesceEnabled) {
+            attributeCoalescer = new SnmpAttributeCoalescer(coalesceWindow, this::postCoalescedAttributes);
+            attributeCoalescer.start();
+            log.info("Coalescing SNMP attribute updates per device every {} ms", coalesceWindow);
+        }
+        if (stormEnabled) {
+            stormGuard = new SnmpTrapStormGuard(stormRateLimit, stormWindow, stormMaxDistinct, this::processTrap);
+            stormGuard.start();
+            log.info("Summarizing the SNMP traps of agents over the {} trap rate limit every {} ms", stormRateLimit, stormWindow);
+        }
+        CounterSupport.getInstance().addCounterListener(decodeFailureListener);
+        if (metrics != null) {
+            registerMetrics();
+        }
+        if (statsInterval > 0) {
+            statsExecutor = Executors.newSingleThreadScheduledExecutor();
+            statsExecutor.scheduleAtFixedRate(this::logStats, statsInterval, statsInterval, TimeUnit.MILLISECONDS);
+        }
+        log.info("SNMP trap ingest queue of {} with {} policy, {} workers and {} pending messages",
+                queueCapacity, overflowPolicy, queueWorkers, maxPending);
+    }
+
+    private void registerMetrics() {
+        metrics.gauge("traps.received", trapsReceived::get);
+        metrics.gauge("traps.rejected", trapsRejected::get);
+        metrics.gauge("traps.decodedInPlace", trapsDecodedInPlace::get);
+        metrics.gauge("traps.decodeFailures", decodeFailures::get);
+        metrics.gauge("traps.receiveBufferOverruns", this::getReceiveBufferOverruns);
+        SnmpIngestQueue<SnmpTrapMsg> queue = ingestQueue;
+        metrics.gauge("ingest.queued", queue::size);
+        metrics.gauge("ingest.dropped", queue::getDropped);
+        metrics.gauge("ingest.coalesced", queue::getCoalesced);
+        Semaphore permits = pending;
+        metrics.gauge("ingest.pending", () -> Math.max(1, maxPending) - permits.availablePermits());
+        SnmpTrapStormGuard guard = stormGuard;
+        if (guard != null) {
+            metrics.gauge("storms.detected", guard::getStormsDetected);
+            metrics.gauge("storms.trapsHeld", guard::getTrapsHeld);
+            metrics.gauge("storms.trapsDropped", guard::getTrapsDropped);
+            metrics.gauge("storms.agents", () -> guard.getStormingSources().size());
         }
+    }
 
-        ThreadPool threadPool = ThreadPool.create("DispatcherPool", 10);
+    /**
+     * This method will listen for traps and response pdu's from SNMP agent.
+     * UDP traps are received on {@code receiverSockets} sockets bound to the same port with SO_REUSEPORT when the
+     * JVM supports it, or with Netty on one SO_REUSEPORT channel per event loop when native epoll is available;
+     * decoding and processing happen on the dispatcher pool.
+     */
+    protected synchronized void listen(TransportIpAddress address) throws IOException {
+        threadPool = ThreadPool.create("DispatcherPool", dispatcherPoolSize);
         MessageDispatcher mtDispatcher = new MultiThreadedMessageDispatcher(threadPool, new MessageDispatcherImpl());
 
         // add message processing models
         mtDispatcher.addMessageProcessingModel(new MPv1());
         mtDispatcher.addMessageProcessingModel(new MPv2c());
 
-        // add all security protocols
-        SecurityProtocols.getInstance().addDefaultProtocols();
-        SecurityProtocols.getInstance().addPrivacyProtocol(new Priv3DES());
-
-        //Create Target
-        CommunityTarget target = new CommunityTarget();
-        target.setCommunity( new OctetString("public"));
+        // add all security protocols, SNMPv3 traps are authenticated with the users of the manager
+        SnmpUsmService.initSecurityProtocols();
+        if (usmService != null) {
+            mtDispatcher.addMessageProcessingModel(new MPv3(usmService.getUsm()));
+        }
 
-        Snmp snmp = new Snmp(mtDispatcher, transport);
+        snmp = new Snmp(mtDispatcher);
+        if (address instanceof TcpAddress) {
+            snmp.addTransportMapping(new DefaultTcpTransportMapping((TcpAddress) address));
+        } else if (nettyEnabled) {
+            snmp.addTransportMapping(new NettyUdpTransportMapping((UdpAddress) address, nettyEventLoops, receiveBufferSize,
+                    fastDecode ? this::processRawTrap : null));
+        } else {
+            int sockets = receiverSockets;
+            if (sockets > 1 && !ReusePortUdpTransportMapping.isSupported()) {
+                log.warn("SO_REUSEPORT is not supported by this JVM, receiving SNMP traps on a single socket");
+                sockets = 1;
+            }
+            if (sockets > 1 || fastDecode) {
+                for (int i = 0; i < sockets; i++) {
+                    snmp.addTransportMapping(new ReusePortUdpTransportMapping((UdpAddress) address, receiveBufferSize,
+                            fastDecode ? this::processRawTrap : null));
+                }
+            } else {
+                DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping((UdpAddress) address);
+                if (receiveBufferSize > 0) {
+                    transport.setReceiveBufferSize(receiveBufferSize);
+                }
+                snmp.addTransportMapping(transport);
+            }
+        }
         snmp.addCommandResponder(this);
+        snmp.listen();
+        log.info("Listening for SNMP traps on {} with {} sockets and {} dispatcher threads",
+                address, nettyEnabled ? getReceiveLoopStats().size() : snmp.getMessageDispatcher().getTransportMappings().size(),
+                dispatcherPoolSize);
+    }
 
-        transport.listen();
-        System.out.println("Listening on " + address);
+    /**
+     * This method will be called whenever a pdu is received on the given port specified in the listen() method.
+     * It is called concurrently from the dispatcher pool.
+     */
+    public void processPdu(CommandResponderEvent cmdRespEvent) {
+        PDU pdu = cmdRespEvent.getPDU();
+        if (pdu == null) {
+            return;
+        }
+        int pduType = pdu.getType();
+        if (log.isTraceEnabled()) {
+            log.trace("[{}] Received PDU type {} with {}", cmdRespEvent.getPeerAddress(), pduType, pdu.getVariableBindings());
+        }
+        if ((pduType == PDU.TRAP) || (pduType == PDU.NOTIFICATION) || (pduType == PDU.INFORM)) {
+            trapsReceived.incrementAndGet();
+            if (metrics != null) {
+                metrics.trapReceived(PDU.getTypeString(pduType));
+            }
+            if (stormGuard == null || stormGuard.offer(cmdRespEvent.getPeerAddress(), cmdRespEvent.getSecurityName(), pdu)) {
+                processTrap(cmdRespEvent.getPeerAddress(), cmdRespEvent.getSecurityName(), pdu, 1);
+            }
+        } else {
+            log.debug("[{}] Unsupported SNMP request type {}", cmdRespEvent.getPeerAddress(), pduType);
+        }
+        // Traps and notifications are unconfirmed, only informs and requests expect an answer
+        if (!pdu.isConfirmedPdu()) {
+            return;
+        }
 
+        // The inform may still be held by the storm guard or queued for ingest, it is answered with a copy
+        PDU response = (PDU) pdu.clone();
+        response.setErrorIndex(0);
+        response.setErrorStatus(0);
+        response.setType(PDU.RESPONSE);
+        StatusInformation statusInformation = new StatusInformation();
+        StateReference ref = cmdRespEvent.getStateReference();
         try {
-            this.wait();
-        } catch (InterruptedException ex) {
-            log.warn("startSnmpListener:: interrupted... now closing...");
-            if (snmp!=null) {snmp.close();};
+            cmdRespEvent.getMessageDispatcher().returnResponsePdu(cmdRespEvent.getMessageProcessingModel(),
+                    cmdRespEvent.getSecurityModel(), cmdRespEvent.getSecurityName(), cmdRespEvent.getSecurityLevel(),
+                    response, cmdRespEvent.getMaxSizeResponsePDU(), ref, statusInformation);
+        } catch (MessageException ex) {
+            log.warn("[{}] Error while sending response: {}", cmdRespEvent.getPeerAddress(), ex.getMessage());
         }
     }
 
     /**
-     * This method will be called whenever a pdu is received on the given port specified in the listen() method
+     * Decodes traps of mapped sources on the receive thread, straight from the received datagram. Anything else,
+     * including traps with values of SMI types the in place decoder does not handle, is left to SNMP4J. So are the
+     * traps of agents in a storm, which have to be decoded to be summarized.
      */
-    public synchronized void processPdu(CommandResponderEvent cmdRespEvent) {
-        System.out.println("Received PDU...");
-        PDU pdu = cmdRespEvent.getPDU();
-        if (pdu != null) {
-
-            System.out.println("Trap Type = " + pdu.getType());
-            System.out.println("Variable Bindings = " + pdu.getVariableBindings());
-            int pduType = pdu.getType();
-
-            Variable payloadVar = pdu.getVariable(SnmpConstants.sysDescr);
-            String payload = payloadVar.toString();
-            System.out.println("payload = " + payload);
-            if ((pduType == PDU.TRAP) || (pduType == PDU.NOTIFICATION)) {
-                JsonObject jsonObject = new JsonParser().parse(payload).getAsJsonObject();
-                String deviceToken = jsonObject.get("deviceToken").getAsString();
-                String method = jsonObject.get("method").getAsString();
-                if ("cxSysUptime".equalsIgnoreCase(method)) {
-                    this.postToServerRpcRequest(payload, deviceToken);
-                } else {
-                    this.postDeviceAttributes(payload, deviceToken);
-                }
+    private boolean processRawTrap(UdpAddress peerAddress, ByteBuffer message) {
+        if (!trapMappingService.hasSources()) {
+            return false;
+        }
+        SnmpMappedTrap mapped = trapMappingService.map(peerAddress, message);
+        if (mapped == null || (stormGuard != null && !stormGuard.admit(peerAddress))) {
+            return false;
+        }
+        trapsReceived.incrementAndGet();
+        trapsDecodedInPlace.incrementAndGet();
+        if (metrics != null) {
+            // SNMPv1 traps are decoded in place too, but rare enough to be counted with the v2c ones
+            metrics.trapReceived(PDU.getTypeString(PDU.TRAP));
+        }
+        offerMappedTrap(peerAddress, mapped);
+        return true;
+    }
 
-            } else {
-                System.out.println("Unsupported snmp request type...");
+    /**
+     * @param repeatCount number of identical traps received, more than one for traps summarized during a storm
+     */
+    private void processTrap(Address peerAddress, byte[] securityName, PDU pdu, int repeatCount) {
+        if (trapMappingService.hasSources()) {
+            SnmpMappedTrap mapped = trapMappingService.map(peerAddress, securityName, pdu);
+            if (mapped != null) {
+                offerMappedTrap(peerAddress, repeatCount > 1 ? withRepeatCount(mapped, repeatCount) : mapped);
+                return;
             }
+        }
+        Variable payloadVar = pdu.getVariable(SnmpConstants.sysDescr);
+        if (payloadVar == null) {
+            trapsRejected.incrementAndGet();
+            log.debug("[{}] Trap without payload", peerAddress);
+            return;
+        }
+        JsonObject payload;
+        try {
+            JsonElement json = new JsonParser().parse(payloadVar.toString());
+            payload = json.isJsonObject() ? json.getAsJsonObject() : null;
+        } catch (JsonSyntaxException e) {
+            payload = null;
+        }
+        if (payload == null || !payload.has("deviceToken") || !payload.has("method")) {
+            trapsRejected.incrementAndGet();
+            log.debug("[{}] Invalid trap payload: {}", peerAddress, payloadVar);
+            return;
+        }
+        if (repeatCount > 1 && payload.get("params") != null && payload.get("params").isJsonObject()) {
+            payload.getAsJsonObject("params").addProperty(TRAP_REPEAT_COUNT, repeatCount);
+        }
+        String deviceToken = payload.get("deviceToken").getAsString();
+        String method = payload.get("method").getAsString();
+        ingestQueue.offer(deviceToken + "/" + method, new SnmpTrapMsg(deviceToken, method, payload));
+    }
+
+    /**
+     * @return the mapped trap with its repeat count added to the telemetry
+     */
+    private static SnmpMappedTrap withRepeatCount(SnmpMappedTrap mapped, int repeatCount) {
+        TransportProtos.KeyValueProto repeatCountKv = SnmpUtility.toKeyValueProto(TRAP_REPEAT_COUNT, repeatCount, null);
+        TransportProtos.PostTelemetryMsg.Builder telemetry;
+        if (mapped.getTelemetry() != null && mapped.getTelemetry().getTsKvListCount() > 0) {
+            telemetry = mapped.getTelemetry().toBuilder();
+            telemetry.setTsKvList(0, telemetry.getTsKvList(0).toBuilder().addKv(repeatCountKv));
+        } else {
+            telemetry = TransportProtos.PostTelemetryMsg.newBuilder().addTsKvList(TransportProtos.TsKvListProto.newBuilder()
+                    .setTs(System.currentTimeMillis()).addKv(repeatCountKv));
+        }
+        return new SnmpMappedTrap(mapped.getDeviceToken(), telemetry.build(), mapped.getAttributes());
+    }
 
-            pdu.setErrorIndex(0);
-            pdu.setErrorStatus(0);
-            pdu.setType(PDU.RESPONSE);
-            StatusInformation statusInformation = new StatusInformation();
-            StateReference ref = cmdRespEvent.getStateReference();
+    private void offerMappedTrap(Address peerAddress, SnmpMappedTrap mapped) {
+        if (mapped.getTelemetry() == null && mapped.getAttributes() == null) {
+            trapsRejected.incrementAndGet();
+            log.debug("[{}] No mapped varbinds in trap", peerAddress);
+            return;
+        }
+        ingestQueue.offer(mapped.getDeviceToken() + "/" + MAPPED_METHOD, new SnmpTrapMsg(mapped.getDeviceToken(),
+                MAPPED_METHOD, null, mapped.getTelemetry(), mapped.getAttributes()));
+    }
+
+    private void drainIngestQueue() {
+        while (running) {
             try {
-                System.out.println("PDU =" + cmdRespEvent.getPDU());
-                cmdRespEvent.getMessageDispatcher().returnResponsePdu(cmdRespEvent.getMessageProcessingModel(),
-                        cmdRespEvent.getSecurityModel(), cmdRespEvent.getSecurityName(), cmdRespEvent.getSecurityLevel(),
-                        pdu, cmdRespEvent.getMaxSizeResponsePDU(), ref, statusInformation);
-            } catch (MessageException ex) {
-                System.err.println("Error while sending response: " + ex.getMessage());
-                LogFactory.getLogger(SnmpRequest.class).error(ex);
+                SnmpTrapMsg msg = ingestQueue.poll(1, TimeUnit.SECONDS);
+                if (msg == null) {
+                    continue;
+                }
+                pending.acquire();
+                post(msg);
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Failed to process SNMP trap", e);
+            }
+        }
+    }
+
+    private void post(SnmpTrapMsg msg) {
+        try {
+            if (msg.getPayload() == null) {
+                this.postMappedValues(msg);
+            } else if ("cxSysUptime".equalsIgnoreCase(msg.getMethod())) {
+                this.postToServerRpcRequest(msg.getPayload(), msg.getDeviceToken());
+            } else if (attributeCoalescer != null && msg.getPayload().get("params") != null
+                    && msg.getPayload().get("params").isJsonObject()) {
+                // The update that starts a coalesced message keeps its pending slot for it, the others are done
+                if (!attributeCoalescer.add(msg.getDeviceToken(), msg.getPayload().getAsJsonObject("params"))) {
+                    pending.release();
+                }
+            } else {
+                this.postDeviceAttributes(msg.getPayload(), msg.getDeviceToken());
             }
+        } catch (RuntimeException e) {
+            pending.release();
+            throw e;
         }
     }
 
     /**
-     *
-     * @param json
+     * Runs on the flush thread of the coalescer, with the pending slot taken when the message was started.
      */
-    protected void postToServerRpcRequest(final String json, final String deviceToken) {
-        JsonObject jsonObject = new JsonParser().parse(json).getAsJsonObject();
-        snmpTransportContext.getTransportService().process(TransportProtos.ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
-            new SnmpTransportCallback(snmpTransportContext, (TransportProtos.SessionInfoProto sessionInfo) -> {
-                JsonObject request = new JsonParser().parse(json).getAsJsonObject();
-                TransportService transportService = snmpTransportContext.getTransportService();
-                transportService.process(sessionInfo, TransportProtos.ToServerRpcRequestMsg.newBuilder().setRequestId(nextRequestId())
-                                .setMethodName(request.get("method").getAsString())
-                                .setParams(request.get("params").toString()).build(),
-                        new SessionCloseOnErrorCallback(transportService, sessionInfo));
-            }));
+    private void postCoalescedAttributes(String deviceToken, JsonObject attributes) {
+        JsonObject request = new JsonObject();
+        request.add("params", attributes);
+        try {
+            this.postDeviceAttributes(request, deviceToken);
+        } catch (RuntimeException e) {
+            pending.release();
+            throw e;
+        }
     }
 
-    public void postDeviceAttributes(final String json, final String deviceToken) {
-        JsonObject jsonObject = new JsonParser().parse(json).getAsJsonObject();
-        snmpTransportContext.getTransportService().process(TransportProtos.ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
-                new SnmpTransportCallback(snmpTransportContext, sessionInfo -> {
-                    TransportService transportService = snmpTransportContext.getTransportService();
-                    transportService.process(sessionInfo, JsonConverter.convertToAttributesProto(jsonObject.getAsJsonObject("params")),
-                            new SessionCloseOnErrorCallback(transportService, sessionInfo));
-                }));
+    private void postMappedValues(SnmpTrapMsg msg) {
+        deviceSessionCache.process(msg.getDeviceToken(), sessionInfo -> {
+            TransportService transportService = snmpTransportContext.getTransportService();
+            IngestCallback callback = new IngestCallback(msg.getDeviceToken(),
+                    (msg.getTelemetry() != null ? 1 : 0) + (msg.getAttributes() != null ? 1 : 0));
+            if (msg.getTelemetry() != null) {
+                transportService.process(sessionInfo, msg.getTelemetry(), callback);
+            }
+            if (msg.getAttributes() != null) {
+                transportService.process(sessionInfo, msg.getAttributes(), callback);
+            }
+        }, t -> pending.release());
     }
 
-    public void interrupt() {
-        Thread.currentThread().interrupt();
+    protected void postToServerRpcRequest(final JsonObject request, final String deviceToken) {
+        deviceSessionCache.process(deviceToken, sessionInfo -> {
+            TransportService transportService = snmpTransportContext.getTransportService();
+            transportService.process(sessionInfo, TransportProtos.ToServerRpcRequestMsg.newBuilder().setRequestId(nextRequestId())
+                            .setMethodName(request.get("method").getAsString())
+                            .setParams(request.get("params").toString()).build(),
+                    new IngestCallback(deviceToken, 1));
+        }, t -> pending.release());
     }
 
-    private static class SnmpTransportCallback implements TransportServiceCallback<TransportProtos.ValidateDeviceCredentialsResponseMsg> {
-            private final TransportContext transportContext;
-            private final Consumer<TransportProtos.SessionInfoProto> onSuccess;
+    public void postDeviceAttributes(final JsonObject request, final String deviceToken) {
+        deviceSessionCache.process(deviceToken, sessionInfo -> {
+            TransportService transportService = snmpTransportContext.getTransportService();
+            transportService.process(sessionInfo, JsonConverter.convertToAttributesProto(request.getAsJsonObject("params")),
+                    new IngestCallback(deviceToken, 1));
+        }, t -> pending.release());
+    }
 
-        public SnmpTransportCallback(TransportContext transportContext, Consumer<TransportProtos.SessionInfoProto> onSuccess) {
-                this.transportContext = transportContext;
-                this.onSuccess = onSuccess;
+    private void logStats() {
+        long dropped = ingestQueue.getDropped();
+        long overruns = getReceiveBufferOverruns();
+        if (dropped > lastDropped || overruns > lastOverruns) {
+            log.warn("SNMP traps lost: {} dropped by the ingest queue, {} by the socket receive buffer overrun; " +
+                            "received {}, accepted {}, coalesced {}, queued {}",
+                    dropped - lastDropped, Math.max(0, overruns - lastOverruns), trapsReceived.get(),
+                    ingestQueue.getAccepted(), ingestQueue.getCoalesced(), ingestQueue.size());
+        } else if (log.isDebugEnabled()) {
+            log.debug("SNMP traps received {}, decoded in place {}, rejected {}, accepted {}, coalesced {}, queued {}",
+                    trapsReceived.get(), trapsDecodedInPlace.get(), trapsRejected.get(), ingestQueue.getAccepted(),
+                    ingestQueue.getCoalesced(), ingestQueue.size());
+        }
+        if (log.isDebugEnabled()) {
+            for (SnmpReceiveLoopStats loop : getReceiveLoopStats()) {
+                log.debug("[{}] SNMP datagrams received {}, bytes {}, decoded in place {}",
+                        loop.getLoop(), loop.getReceived(), loop.getBytes(), loop.getDecodedInPlace());
+            }
+        }
+        if (attributeCoalescer != null && log.isDebugEnabled()) {
+            log.debug("SNMP attribute updates received {}, values coalesced {}, messages posted {}",
+                    attributeCoalescer.getUpdatesReceived(), attributeCoalescer.getValuesCoalesced(),
+                    attributeCoalescer.getMessagesFlushed());
+        }
+        if (stormGuard != null && log.isDebugEnabled()) {
+            log.debug("SNMP trap storms detected {}, traps held {}, dropped {}, summaries posted {}, agents storming {}",
+                    stormGuard.getStormsDetected(), stormGuard.getTrapsHeld(), stormGuard.getTrapsDropped(),
+                    stormGuard.getSummariesPosted(), stormGuard.getStormingSources());
         }
+        lastDropped = dropped;
+        lastOverruns = overruns;
+    }
 
-        @Override
-        public void onSuccess(TransportProtos.ValidateDeviceCredentialsResponseMsg msg) {
-            if (msg.hasDeviceInfo()) {
-                UUID sessionId = UUID.randomUUID();
-                TransportProtos.DeviceInfoProto deviceInfoProto = msg.getDeviceInfo();
-                TransportProtos.SessionInfoProto sessionInfo = TransportProtos.SessionInfoProto.newBuilder()
-                        .setNodeId(transportContext.getNodeId())
-                        .setTenantIdMSB(deviceInfoProto.getTenantIdMSB())
-                        .setTenantIdLSB(deviceInfoProto.getTenantIdLSB())
-                        .setDeviceIdMSB(deviceInfoProto.getDeviceIdMSB())
-                        .setDeviceIdLSB(deviceInfoProto.getDeviceIdLSB())
-                        .setSessionIdMSB(sessionId.getMostSignificantBits())
-                        .setSessionIdLSB(sessionId.getLeastSignificantBits())
-                        .build();
-                onSuccess.accept(sessionInfo);
-            } else {
-                log.info("onSuccess:: no device info");
+    public long getTrapsReceived() {
+        return trapsReceived.get();
+    }
+
+    public long getTrapsRejected() {
+        return trapsRejected.get();
+    }
+
+    public long getTrapsDecodedInPlace() {
+        return trapsDecodedInPlace.get();
+    }
+
+    public long getDecodeFailures() {
+        return decodeFailures.get();
+    }
+
+    public SnmpIngestQueue<SnmpTrapMsg> getIngestQueue() {
+        return ingestQueue;
+    }
+
+    public SnmpAttributeCoalescer getAttributeCoalescer() {
+        return attributeCoalescer;
+    }
+
+    public SnmpTrapStormGuard getStormGuard() {
+        return stormGuard;
+    }
+
+    /**
+     * @return datagrams received per event loop of the Netty transport mapping, empty if it is not used
+     */
+    public List<SnmpReceiveLoopStats> getReceiveLoopStats() {
+        List<SnmpReceiveLoopStats> stats = new ArrayList<>();
+        Snmp current = snmp;
+        if (current != null) {
+            for (TransportMapping<?> mapping : current.getMessageDispatcher().getTransportMappings()) {
+                if (mapping instanceof NettyUdpTransportMapping) {
+                    stats.addAll(((NettyUdpTransportMapping) mapping).getLoopStats());
+                }
             }
         }
+        return stats;
+    }
 
-        @Override
-        public void onError(Throwable e) {
-            log.error("****** Failed to process request ****** ", e);
+    /**
+     * @return number of traps the kernel discarded because the receive buffer of a listening socket was full,
+     * or -1 where the OS does not report it
+     */
+    public long getReceiveBufferOverruns() {
+        return UdpSocketStats.getReceiveBufferDrops(listenPort);
+    }
+
+    public synchronized void stop() {
+        CounterSupport.getInstance().removeCounterListener(decodeFailureListener);
+        if (snmp != null) {
+            try {
+                snmp.close();
+            } catch (IOException e) {
+                log.warn("Failed to close SNMP trap listener", e);
+            }
+            snmp = null;
+        }
+        if (threadPool != null) {
+            threadPool.cancel();
+            threadPool = null;
+        }
+        if (stormGuard != null) {
+            // Summaries go through the coalescer and the ingest queue
+            stormGuard.stop();
+            stormGuard = null;
+        }
+        if (attributeCoalescer != null) {
+            // Hand over the last window while the transport service is still up
+            attributeCoalescer.stop();
+            attributeCoalescer = null;
+        }
+        running = false;
+        if (ingestExecutor != null) {
+            ingestExecutor.shutdownNow();
+            ingestExecutor = null;
+        }
+        if (statsExecutor != null) {
+            statsExecutor.shutdownNow();
+            statsExecutor = null;
         }
     }
 
-    private static class SessionCloseOnErrorCallback implements TransportServiceCallback<Void> {
-        private final TransportService transportService;
-        private final TransportProtos.SessionInfoProto sessionInfo;
+    /**
+     * Frees the pending slot of the trap once the transport service answered for all of its messages, and closes
+     * the device session if the transport service failed to process one.
+     */
+    private class IngestCallback implements TransportServiceCallback<Void> {
+        private final String deviceToken;
+        private final AtomicInteger remaining;
 
-        SessionCloseOnErrorCallback(TransportService transportService, TransportProtos.SessionInfoProto sessionInfo) {
-            this.transportService = transportService;
-            this.sessionInfo = sessionInfo;
+        IngestCallback(String deviceToken, int messages) {
+            this.deviceToken = deviceToken;
+            this.remaining = new AtomicInteger(messages);
         }
 
         @Override
         public void onSuccess(Void msg) {
+            done();
         }
 
         @Override
         public void onError(Throwable e) {
-            transportService.deregisterSession(sessionInfo);
+            deviceSessionCache.invalidate(deviceToken);
+            done();
+        }
+
+        private void done() {
+            if (remaining.decrementAndGet() == 0) {
+                pending.release();
+            }
         }
     }
 
@@ -0,0 +1,111 @@
+package org.thingsboard.server.transport.snmp.cluster;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.smi.Address;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.thingsboard.server.transport.snmp.SnmpTransportContext;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads the polled agents over the SNMP transport instances with a consistent hash ring of the configured node
+ * IDs, so that every agent is polled by exactly one instance and adding an instance only moves a share of the agents.
+ * Without configured nodes this instance owns all agents, unless the nodes are set by a membership source such as the
+ * cluster discovery of the core. Listeners are told whenever the nodes change, so that ownership is re-evaluated.
+ */
+@Slf4j
+@Component
+public class SnmpAgentSharding {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    @Value("${transport.snmp.sharding.nodes}")
+    private String nodes;
+
+    @Value("${transport.snmp.sharding.virtualNodes}")
+    private int virtualNodes;
+
+    @Autowired(required = false)
+    private SnmpTransportContext snmpTransportContext;
+
+    private volatile NavigableMap<Long, String> ring = new TreeMap<>();
+    private volatile String currentNode;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        currentNode = snmpTransportContext != null ? snmpTransportContext.getNodeId() : null;
+        if (!StringUtils.isEmpty(nodes)) {
+            setNodes(currentNode, Arrays.stream(nodes.split(",")).map(String::trim).filter(node -> !node.isEmpty())
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * @return whether the nodes are configured rather than left to a membership source
+     */
+    public boolean isConfigured() {
+        return !StringUtils.isEmpty(nodes);
+    }
+
+    /**
+     * Registers a listener called after the nodes of the ring changed.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Replaces the nodes of the ring and notifies the listeners if they changed.
+     */
+    public synchronized void setNodes(String currentNode, Iterable<String> nodeIds) {
+        NavigableMap<Long, String> newRing = new TreeMap<>();
+        for (String nodeId : nodeIds) {
+            for (int i = 0; i < virtualNodes; i++) {
+                newRing.put(HASH_FUNCTION.newHasher().putString(nodeId, StandardCharsets.UTF_8).putInt(i).hash().asLong(), nodeId);
+            }
+        }
+        if (newRing.equals(ring) && currentNode != null && currentNode.equals(this.currentNode)) {
+            return;
+        }
+        List<String> distinctNodes = newRing.values().stream().distinct().collect(Collectors.toList());
+        if (!newRing.isEmpty() && !newRing.containsValue(currentNode)) {
+            log.warn("SNMP transport node {} is not one of the sharding nodes {}, it owns no agents", currentNode, distinctNodes);
+        }
+        this.currentNode = currentNode;
+        this.ring = newRing;
+        log.info("Sharding SNMP agents over nodes {}", distinctNodes);
+        listeners.forEach(Runnable::run);
+    }
+
+    /**
+     * ID of the node that owns the agent, or null if agents are not sharded.
+     */
+    public String getOwner(Address address) {
+        NavigableMap<Long, String> current = ring;
+        if (current.isEmpty()) {
+            return null;
+        }
+        long hash = HASH_FUNCTION.newHasher().putString(address.toString(), StandardCharsets.UTF_8).hash().asLong();
+        Map.Entry<Long, String> owner = current.ceilingEntry(hash);
+        return owner != null ? owner.getValue() : current.firstEntry().getValue();
+    }
+
+    public boolean isLocal(Address address) {
+        String owner = getOwner(address);
+        return owner == null || owner.equals(currentNode);
+    }
+}
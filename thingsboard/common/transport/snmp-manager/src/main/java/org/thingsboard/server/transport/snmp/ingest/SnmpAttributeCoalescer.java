@@ -0,0 +1,108 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Collects attribute updates per device and hands them over once per flush window, so a device that reports the same
+ * keys many times within a window produces a single message with the newest value of every key.
+ */
+@Slf4j
+public class SnmpAttributeCoalescer {
+
+    private final long window;
+    private final BiConsumer<String, JsonObject> flushHandler;
+    private final ConcurrentMap<String, JsonObject> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong updatesReceived = new AtomicLong();
+    private final AtomicLong valuesCoalesced = new AtomicLong();
+    private final AtomicLong messagesFlushed = new AtomicLong();
+
+    /**
+     * @param flushHandler receives the device token and the merged attributes of the device
+     */
+    public SnmpAttributeCoalescer(long window, BiConsumer<String, JsonObject> flushHandler) {
+        this.window = window;
+        this.flushHandler = flushHandler;
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the flush timer and hands over whatever is still pending.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        flush();
+    }
+
+    /**
+     * @return true if the update starts a new message of the device, false if it is merged into a pending one
+     */
+    public boolean add(String deviceToken, JsonObject attributes) {
+        updatesReceived.incrementAndGet();
+        boolean[] created = new boolean[1];
+        pending.compute(deviceToken, (token, merged) -> {
+            if (merged == null) {
+                merged = new JsonObject();
+                created[0] = true;
+            }
+            for (Map.Entry<String, JsonElement> attribute : attributes.entrySet()) {
+                if (merged.has(attribute.getKey())) {
+                    valuesCoalesced.incrementAndGet();
+                }
+                merged.add(attribute.getKey(), attribute.getValue());
+            }
+            return merged;
+        });
+        return created[0];
+    }
+
+    public void flush() {
+        for (String deviceToken : pending.keySet()) {
+            JsonObject attributes = pending.remove(deviceToken);
+            if (attributes == null) {
+                continue;
+            }
+            messagesFlushed.incrementAndGet();
+            try {
+                flushHandler.accept(deviceToken, attributes);
+            } catch (RuntimeException e) {
+                log.warn("[{}] Failed to post coalesced attributes", deviceToken, e);
+            }
+        }
+    }
+
+    public int getPendingDevices() {
+        return pending.size();
+    }
+
+    public long getUpdatesReceived() {
+        return updatesReceived.get();
+    }
+
+    public long getValuesCoalesced() {
+        return valuesCoalesced.get();
+    }
+
+    public long getMessagesFlushed() {
+        return messagesFlushed.get();
+    }
+}
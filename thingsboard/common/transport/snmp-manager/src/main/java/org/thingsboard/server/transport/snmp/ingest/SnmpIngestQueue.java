@@ -0,0 +1,135 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue between trap decoding and the transport service. Producers never block: when the queue is full the
+ * overflow policy decides which trap is lost, and every outcome is counted.
+ */
+public class SnmpIngestQueue<T> {
+
+    private final int capacity;
+    private final SnmpOverflowPolicy overflowPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Deque<Entry<T>> entries = new ArrayDeque<>();
+    // Queued entries by key, only maintained for COALESCE_LATEST
+    private final Map<String, Entry<T>> latest = new HashMap<>();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public SnmpIngestQueue(int capacity, SnmpOverflowPolicy overflowPolicy) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * @return false if the message was dropped
+     */
+    public boolean offer(String key, T msg) {
+        lock.lock();
+        try {
+            if (overflowPolicy == SnmpOverflowPolicy.COALESCE_LATEST) {
+                Entry<T> queued = latest.get(key);
+                if (queued != null) {
+                    queued.msg = msg;
+                    coalesced.incrementAndGet();
+                    return true;
+                }
+            }
+            if (entries.size() >= capacity) {
+                if (overflowPolicy == SnmpOverflowPolicy.DROP_NEWEST) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                Entry<T> evicted = entries.pollFirst();
+                if (evicted != null) {
+                    latest.remove(evicted.key, evicted);
+                }
+                dropped.incrementAndGet();
+            }
+            Entry<T> entry = new Entry<>(key, msg);
+            entries.addLast(entry);
+            if (overflowPolicy == SnmpOverflowPolicy.COALESCE_LATEST) {
+                latest.put(key, entry);
+            }
+            accepted.incrementAndGet();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to the timeout for a message.
+     *
+     * @return the oldest queued message or null if none arrived in time
+     */
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (entries.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            Entry<T> entry = entries.pollFirst();
+            latest.remove(entry.key, entry);
+            return entry.msg;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public SnmpOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    private static class Entry<T> {
+        private final String key;
+        private T msg;
+
+        Entry(String key, T msg) {
+            this.key = key;
+            this.msg = msg;
+        }
+    }
+}
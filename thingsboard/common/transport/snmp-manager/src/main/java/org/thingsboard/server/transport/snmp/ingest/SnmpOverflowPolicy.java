@@ -0,0 +1,24 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+/**
+ * What the ingest queue does with a trap that arrives while it is full.
+ */
+public enum SnmpOverflowPolicy {
+
+    /**
+     * Evict the oldest queued trap to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Reject the new trap.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Keep only the latest queued trap per key (device and method): a newer trap replaces the queued one in place,
+     * whether the queue is full or not. A trap with nothing to replace evicts the oldest one when the queue is full.
+     */
+    COALESCE_LATEST
+
+}
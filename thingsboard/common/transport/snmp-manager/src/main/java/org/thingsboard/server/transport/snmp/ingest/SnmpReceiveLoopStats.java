@@ -0,0 +1,19 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Datagrams received by one event loop of a {@link org.thingsboard.server.transport.snmp.NettyUdpTransportMapping}.
+ */
+@Data
+@AllArgsConstructor
+public class SnmpReceiveLoopStats {
+
+    private String loop;
+    private long received;
+    private long bytes;
+    // Handled by the raw message handler, the others are passed to SNMP4J
+    private long decodedInPlace;
+
+}
@@ -0,0 +1,25 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+import com.google.gson.JsonObject;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+/**
+ * Decoded trap waiting in the ingest queue. Traps carry either a JSON payload or values mapped from their varbinds.
+ */
+@Data
+@AllArgsConstructor
+public class SnmpTrapMsg {
+
+    private final String deviceToken;
+    private final String method;
+    private final JsonObject payload;
+    private final TransportProtos.PostTelemetryMsg telemetry;
+    private final TransportProtos.PostAttributeMsg attributes;
+
+    public SnmpTrapMsg(String deviceToken, String method, JsonObject payload) {
+        this(deviceToken, method, payload, null, null);
+    }
+
+}
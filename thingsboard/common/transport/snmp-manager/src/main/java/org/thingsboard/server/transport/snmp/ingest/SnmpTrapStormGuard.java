@@ -0,0 +1,274 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.IpAddress;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.VariableBinding;
+import org.thingsboard.server.common.msg.tools.TbRateLimits;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts the trap rate of every source address in a {@link TbRateLimits} token bucket. A source that exceeds its
+ * rate is in a storm until it stays within the rate for a whole window: meanwhile its traps are held instead of
+ * forwarded, identical ones (same trap OID and varbinds, apart from sysUpTime) counted once, and at the end of every
+ * window each distinct trap is handed over once with the number of times it was received.
+ */
+@Slf4j
+public class SnmpTrapStormGuard {
+
+    private static final long IDLE_WINDOWS = 6;
+
+    private final String rateLimits;
+    private final long window;
+    private final int maxDistinct;
+    private final SummaryHandler summaryHandler;
+    private final ConcurrentMap<String, Source> sources = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong stormsDetected = new AtomicLong();
+    private final AtomicLong trapsHeld = new AtomicLong();
+    private final AtomicLong trapsDropped = new AtomicLong();
+    private final AtomicLong summariesPosted = new AtomicLong();
+
+    /**
+     * Receives a trap held during a storm and the number of identical traps it stands for.
+     */
+    public interface SummaryHandler {
+        void accept(Address peerAddress, byte[] securityName, PDU pdu, int repeatCount);
+    }
+
+    /**
+     * @param rateLimits  trap rate of a source before it is in a storm, in the {@link TbRateLimits} format, e.g. {@code 100:1,1000:60}
+     * @param window      milliseconds identical traps are summarized for, and a storm lasts past the last trap over the rate
+     * @param maxDistinct distinct traps held per source and window, the others are dropped
+     */
+    public SnmpTrapStormGuard(String rateLimits, long window, int maxDistinct, SummaryHandler summaryHandler) {
+        // Fails on a malformed rate here rather than on the first trap
+        new TbRateLimits(rateLimits);
+        this.rateLimits = rateLimits;
+        this.window = window;
+        this.maxDistinct = maxDistinct;
+        this.summaryHandler = summaryHandler;
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the flush timer and hands over the traps still held.
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        flush();
+    }
+
+    /**
+     * Accounts a trap that is not decoded to a {@link PDU}.
+     *
+     * @return true if the trap is to be forwarded, false if its source is in a storm and the trap has to be offered
+     * as a PDU with {@link #offer(Address, byte[], PDU)}, which then accounts it
+     */
+    public boolean admit(Address peerAddress) {
+        Source source = source(peerAddress);
+        synchronized (source) {
+            long now = System.currentTimeMillis();
+            source.lastSeen = now;
+            if (source.isStorming(now) || !source.limits.tryConsume()) {
+                return false;
+            }
+            source.received++;
+            return true;
+        }
+    }
+
+    /**
+     * Accounts a trap.
+     *
+     * @return true if the trap is to be forwarded, false if it is held until the end of the window or dropped
+     */
+    public boolean offer(Address peerAddress, byte[] securityName, PDU pdu) {
+        Source source = source(peerAddress);
+        synchronized (source) {
+            long now = System.currentTimeMillis();
+            source.lastSeen = now;
+            source.received++;
+            boolean withinRate = source.limits.tryConsume();
+            if (!source.isStorming(now)) {
+                if (withinRate) {
+                    return true;
+                }
+                stormsDetected.incrementAndGet();
+                source.stormStarted = now;
+                source.receivedBeforeStorm = source.received - 1;
+                log.warn("[{}] SNMP trap storm detected, summarizing identical traps every {} ms", source.address, window);
+            }
+            if (!withinRate) {
+                source.stormUntil = now + window;
+            }
+            String fingerprint = fingerprint(securityName, pdu);
+            Held held = source.held.get(fingerprint);
+            if (held != null) {
+                held.repeatCount++;
+            } else if (source.held.size() < maxDistinct) {
+                source.held.put(fingerprint, new Held(peerAddress, securityName, pdu));
+            } else {
+                trapsDropped.incrementAndGet();
+                return false;
+            }
+            trapsHeld.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Hands over the traps held in the last window, ends the storms of the sources that stayed within their rate and
+     * forgets the sources that sent nothing for a while.
+     */
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Source> it = sources.values().iterator(); it.hasNext(); ) {
+            Source source = it.next();
+            Map<String, Held> held;
+            synchronized (source) {
+                held = source.held;
+                if (!held.isEmpty()) {
+                    source.held = new LinkedHashMap<>();
+                }
+                if (source.stormStarted > 0 && !source.isStorming(now)) {
+                    log.warn("[{}] SNMP trap storm ended after {} s and {} traps", source.address,
+                            (now - source.stormStarted) / 1000, source.received - source.receivedBeforeStorm);
+                    source.stormStarted = 0;
+                }
+                if (held.isEmpty() && source.stormStarted == 0 && now - source.lastSeen > IDLE_WINDOWS * window) {
+                    it.remove();
+                }
+            }
+            for (Held trap : held.values()) {
+                summariesPosted.incrementAndGet();
+                try {
+                    summaryHandler.accept(trap.peerAddress, trap.securityName, trap.pdu, trap.repeatCount);
+                } catch (RuntimeException e) {
+                    log.warn("[{}] Failed to post summarized trap", source.address, e);
+                }
+            }
+        }
+    }
+
+    private Source source(Address peerAddress) {
+        // Agents may send from any port
+        String address = peerAddress instanceof IpAddress ? ((IpAddress) peerAddress).getInetAddress().getHostAddress()
+                : peerAddress.toString();
+        return sources.computeIfAbsent(address, Source::new);
+    }
+
+    /**
+     * @return the community, the trap identity and the varbinds of the trap, except sysUpTime which differs anyway
+     */
+    private static String fingerprint(byte[] securityName, PDU pdu) {
+        StringBuilder fingerprint = new StringBuilder(64 + pdu.size() * 32);
+        if (securityName != null) {
+            fingerprint.append(new OctetString(securityName)).append('|');
+        }
+        if (pdu instanceof PDUv1) {
+            PDUv1 v1 = (PDUv1) pdu;
+            fingerprint.append(v1.getEnterprise()).append('.').append(v1.getGenericTrap()).append('.')
+                    .append(v1.getSpecificTrap()).append('|');
+        }
+        for (int i = 0; i < pdu.size(); i++) {
+            VariableBinding vb = pdu.get(i);
+            if (!SnmpConstants.sysUpTime.equals(vb.getOid())) {
+                fingerprint.append(vb.getOid()).append('=').append(vb.getVariable()).append('|');
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * @return addresses of the sources currently in a storm
+     */
+    public List<String> getStormingSources() {
+        long now = System.currentTimeMillis();
+        List<String> storming = new ArrayList<>();
+        for (Source source : sources.values()) {
+            synchronized (source) {
+                if (source.isStorming(now)) {
+                    storming.add(source.address);
+                }
+            }
+        }
+        return storming;
+    }
+
+    public int getSources() {
+        return sources.size();
+    }
+
+    public long getStormsDetected() {
+        return stormsDetected.get();
+    }
+
+    public long getTrapsHeld() {
+        return trapsHeld.get();
+    }
+
+    public long getTrapsDropped() {
+        return trapsDropped.get();
+    }
+
+    public long getSummariesPosted() {
+        return summariesPosted.get();
+    }
+
+    private class Source {
+        private final String address;
+        private final TbRateLimits limits = new TbRateLimits(rateLimits);
+        private Map<String, Held> held = new LinkedHashMap<>();
+        private long received;
+        private long receivedBeforeStorm;
+        private long lastSeen;
+        // 0 unless in a storm
+        private long stormStarted;
+        private long stormUntil;
+
+        Source(String address) {
+            this.address = address;
+        }
+
+        boolean isStorming(long now) {
+            return stormStarted > 0 && now < stormUntil;
+        }
+    }
+
+    private static class Held {
+        private final Address peerAddress;
+        private final byte[] securityName;
+        private final PDU pdu;
+        private int repeatCount = 1;
+
+        Held(Address peerAddress, byte[] securityName, PDU pdu) {
+            this.peerAddress = peerAddress;
+            this.securityName = securityName;
+            this.pdu = pdu;
+        }
+    }
+}
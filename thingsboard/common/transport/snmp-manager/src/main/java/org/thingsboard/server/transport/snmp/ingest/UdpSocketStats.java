@@ -0,0 +1,57 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Reads the number of datagrams the kernel dropped on full receive buffers for the UDP sockets bound to a port,
+ * from the drops column of /proc/net/udp and /proc/net/udp6. Only available on Linux.
+ */
+@Slf4j
+public final class UdpSocketStats {
+
+    private static final Path[] PROC_FILES = {Paths.get("/proc/net/udp"), Paths.get("/proc/net/udp6")};
+
+    private UdpSocketStats() {
+    }
+
+    public static boolean isSupported() {
+        return Files.isReadable(PROC_FILES[0]);
+    }
+
+    /**
+     * @return total receive buffer drops of the sockets bound to the port, or -1 if not available
+     */
+    public static long getReceiveBufferDrops(int port) {
+        if (!isSupported()) {
+            return -1;
+        }
+        String localPort = String.format(":%04X", port);
+        long drops = 0;
+        for (Path file : PROC_FILES) {
+            if (!Files.isReadable(file)) {
+                continue;
+            }
+            try {
+                List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+                // Header: sl local_address rem_address st tx_queue:rx_queue tr:tm->when retrnsmt uid timeout inode ref pointer drops
+                for (int i = 1; i < lines.size(); i++) {
+                    String[] columns = lines.get(i).trim().split("\\s+");
+                    if (columns.length > 12 && columns[1].endsWith(localPort)) {
+                        drops += Long.parseLong(columns[columns.length - 1]);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                log.debug("Failed to read UDP socket stats from {}", file, e);
+                return -1;
+            }
+        }
+        return drops;
+    }
+}
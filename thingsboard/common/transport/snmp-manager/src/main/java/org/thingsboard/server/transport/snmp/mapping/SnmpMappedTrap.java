@@ -0,0 +1,16 @@
+package org.thingsboard.server.transport.snmp.mapping;
+
+import lombok.Data;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+/**
+ * Values of a trap mapped by {@link SnmpTrapMappingService}; either message is null if no varbind mapped to it.
+ */
+@Data
+public class SnmpMappedTrap {
+
+    private final String deviceToken;
+    private final TransportProtos.PostTelemetryMsg telemetry;
+    private final TransportProtos.PostAttributeMsg attributes;
+
+}
@@ -0,0 +1,22 @@
+package org.thingsboard.server.transport.snmp.mapping;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Varbinds of the traps sent by one type of device, mapped to the keys their values are posted under.
+ * An OID also matches its instances: with 1.3.6.1.2.1.2.2.1.10 mapped to ifInOctets, the varbind
+ * 1.3.6.1.2.1.2.2.1.10.3 is posted as ifInOctets.3.
+ */
+@Data
+public class SnmpTrapMapping {
+
+    private String name;
+    // Dotted OID to telemetry key
+    private Map<String, String> telemetry = new LinkedHashMap<>();
+    // Dotted OID to client attribute key
+    private Map<String, String> attributes = new LinkedHashMap<>();
+
+}
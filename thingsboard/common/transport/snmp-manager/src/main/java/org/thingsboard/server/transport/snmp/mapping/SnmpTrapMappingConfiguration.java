@@ -0,0 +1,17 @@
+package org.thingsboard.server.transport.snmp.mapping;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content of the JSON file referenced by transport.snmp.receiver.mappings.
+ */
+@Data
+public class SnmpTrapMappingConfiguration {
+
+    private List<SnmpTrapMapping> mappings = new ArrayList<>();
+    private List<SnmpTrapSource> sources = new ArrayList<>();
+
+}
@@ -0,0 +1,346 @@
+package org.thingsboard.server.transport.snmp.mapping;
+
+import com.google.gson.Gson;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.ScopedPDU;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.IpAddress;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistry;
+import org.thingsboard.server.transport.snmp.util.SnmpBerReader;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.thingsboard.server.transport.snmp.util.SnmpUtility.toDisplayString;
+import static org.thingsboard.server.transport.snmp.util.SnmpUtility.toDottedString;
+import static org.thingsboard.server.transport.snmp.util.SnmpUtility.toKeyValueProto;
+
+/**
+ * Turns the varbinds of traps from known sources into telemetry and attributes, using the OID to key table of the
+ * mapping assigned to the source. Traps from unknown sources are left to the JSON payload handling.
+ */
+@Slf4j
+@Component
+public class SnmpTrapMappingService {
+
+    // SNMP limits OIDs to 128 sub-identifiers
+    private static final int MAX_OID_SIZE = 128;
+    private static final ThreadLocal<int[]> OID_BUFFER = ThreadLocal.withInitial(() -> new int[MAX_OID_SIZE]);
+
+    @Value("${transport.snmp.receiver.mappings}")
+    private String mappingsFile;
+
+    @Autowired
+    private SnmpOidRegistryService oidRegistryService;
+
+    private final Map<String, CompiledMapping> mappings = new ConcurrentHashMap<>();
+    private final Map<String, Source> sourcesByEngineId = new ConcurrentHashMap<>();
+    private final Map<String, Source> sourcesByCommunity = new ConcurrentHashMap<>();
+    private final Map<String, Source> sourcesByAddress = new ConcurrentHashMap<>();
+
+    private final AtomicLong trapsMapped = new AtomicLong();
+    private final AtomicLong varbindsIgnored = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (StringUtils.isEmpty(mappingsFile)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(Paths.get(mappingsFile), StandardCharsets.UTF_8)) {
+            SnmpTrapMappingConfiguration configuration = new Gson().fromJson(reader, SnmpTrapMappingConfiguration.class);
+            configuration.getMappings().forEach(this::addMapping);
+            configuration.getSources().forEach(this::addSource);
+            log.info("Loaded {} SNMP trap mappings for {} sources", mappings.size(), configuration.getSources().size());
+        } catch (IOException e) {
+            log.error("Failed to load SNMP trap mappings from {}", mappingsFile, e);
+        }
+    }
+
+    /**
+     * Adds a mapping; its OIDs may be given dotted or by a name known to the OID registry.
+     */
+    public void addMapping(SnmpTrapMapping mapping) {
+        mappings.put(mapping.getName(), new CompiledMapping(compile(mapping.getName(), mapping.getTelemetry()),
+                compile(mapping.getName(), mapping.getAttributes())));
+    }
+
+    public void addSource(SnmpTrapSource source) {
+        CompiledMapping mapping = mappings.get(source.getMapping());
+        if (mapping == null) {
+            log.warn("[{}] Unknown SNMP trap mapping {}", source.getDeviceToken(), source.getMapping());
+            return;
+        }
+        Source compiled = new Source(source.getDeviceToken(), mapping);
+        if (!StringUtils.isEmpty(source.getEngineId())) {
+            sourcesByEngineId.put(source.getEngineId().toLowerCase(), compiled);
+        } else if (!StringUtils.isEmpty(source.getCommunity())) {
+            sourcesByCommunity.put(source.getCommunity(), compiled);
+        } else if (!StringUtils.isEmpty(source.getAddress())) {
+            sourcesByAddress.put(source.getAddress(), compiled);
+        } else {
+            log.warn("[{}] SNMP trap source has neither engine ID, community nor address", source.getDeviceToken());
+        }
+    }
+
+    public boolean hasSources() {
+        return !sourcesByEngineId.isEmpty() || !sourcesByCommunity.isEmpty() || !sourcesByAddress.isEmpty();
+    }
+
+    /**
+     * @param securityName community of SNMPv1/v2c traps
+     * @return the mapped values, or null if the trap does not come from a known source
+     */
+    public SnmpMappedTrap map(Address peerAddress, byte[] securityName, PDU pdu) {
+        Source source = findSource(peerAddress, securityName, pdu);
+        if (source == null) {
+            return null;
+        }
+        TransportProtos.TsKvListProto.Builder telemetry = null;
+        TransportProtos.PostAttributeMsg.Builder attributes = null;
+        for (int i = 0; i < pdu.size(); i++) {
+            VariableBinding vb = pdu.get(i);
+            if (vb.isException()) {
+                continue;
+            }
+            OID oid = vb.getOid();
+            String key = source.mapping.telemetry.resolve(oid);
+            if (key != null) {
+                if (telemetry == null) {
+                    telemetry = TransportProtos.TsKvListProto.newBuilder().setTs(System.currentTimeMillis());
+                }
+                telemetry.addKv(toKeyValueProto(key, vb.getVariable(), oidRegistryService.getMetadata(oid)));
+                continue;
+            }
+            key = source.mapping.attributes.resolve(oid);
+            if (key != null) {
+                if (attributes == null) {
+                    attributes = TransportProtos.PostAttributeMsg.newBuilder();
+                }
+                attributes.addKv(toKeyValueProto(key, vb.getVariable(), oidRegistryService.getMetadata(oid)));
+            } else {
+                varbindsIgnored.incrementAndGet();
+            }
+        }
+        trapsMapped.incrementAndGet();
+        return new SnmpMappedTrap(source.deviceToken,
+                telemetry != null ? TransportProtos.PostTelemetryMsg.newBuilder().addTsKvList(telemetry).build() : null,
+                attributes != null ? attributes.build() : null);
+    }
+
+    /**
+     * Maps an SNMPv1 or SNMPv2c trap straight from its BER encoding, without decoding it to a {@link PDU} first.
+     * Only the varbinds of mapped OIDs are converted, and from the wire format directly.
+     *
+     * @return the mapped values, or null if the message is not such a trap from a known source or holds a value of
+     * an SMI type this decoder leaves to SNMP4J; the message is then to be processed by SNMP4J
+     */
+    public SnmpMappedTrap map(Address peerAddress, ByteBuffer message) {
+        try {
+            return decode(peerAddress, new SnmpBerReader(message));
+        } catch (IllegalArgumentException e) {
+            log.trace("[{}] Trap not decoded in place: {}", peerAddress, e.getMessage());
+            return null;
+        }
+    }
+
+    private SnmpMappedTrap decode(Address peerAddress, SnmpBerReader reader) {
+        reader.expect(BER.SEQUENCE);
+        long version = reader.readInteger(reader.expect(BER.INTEGER));
+        if (version != SnmpConstants.version1 && version != SnmpConstants.version2c) {
+            return null;
+        }
+        int communityLength = reader.expect(BER.OCTETSTRING);
+        String community = null;
+        if (!sourcesByCommunity.isEmpty()) {
+            community = new String(reader.readBytes(communityLength), StandardCharsets.UTF_8);
+        } else {
+            reader.skip(communityLength);
+        }
+        Source source = findSource(peerAddress, community);
+        if (source == null) {
+            return null;
+        }
+        // PDU types are signed in SNMP4J
+        int pduType = (byte) reader.readTag();
+        reader.readLength();
+        if (pduType == PDU.V1TRAP) {
+            // enterprise, agent-addr, generic-trap, specific-trap, time-stamp
+            for (int i = 0; i < 5; i++) {
+                reader.skipElement();
+            }
+        } else if (pduType == PDU.TRAP) {
+            // request-id, error-status, error-index
+            for (int i = 0; i < 3; i++) {
+                reader.skipElement();
+            }
+        } else {
+            // Informs are answered by SNMP4J
+            return null;
+        }
+
+        int[] oid = OID_BUFFER.get();
+        TransportProtos.TsKvListProto.Builder telemetry = null;
+        TransportProtos.PostAttributeMsg.Builder attributes = null;
+        int ignored = 0;
+        int end = reader.enter(BER.SEQUENCE);
+        while (reader.position() < end) {
+            reader.expect(BER.SEQUENCE);
+            int size = reader.readOid(reader.expect(BER.OID), oid);
+            int type = reader.readTag();
+            int length = reader.readLength();
+            if (type == BER.NOSUCHOBJECT || type == BER.NOSUCHINSTANCE || type == BER.ENDOFMIBVIEW) {
+                reader.skip(length);
+                continue;
+            }
+            String key = source.mapping.telemetry.resolve(oid, size);
+            boolean isTelemetry = key != null;
+            if (key == null) {
+                key = source.mapping.attributes.resolve(oid, size);
+            }
+            if (key == null) {
+                ignored++;
+                reader.skip(length);
+                continue;
+            }
+            TransportProtos.KeyValueProto kv = readValue(reader, key, type, length, oid, size);
+            if (kv == null) {
+                return null;
+            }
+            if (isTelemetry) {
+                if (telemetry == null) {
+                    telemetry = TransportProtos.TsKvListProto.newBuilder().setTs(System.currentTimeMillis());
+                }
+                telemetry.addKv(kv);
+            } else {
+                if (attributes == null) {
+                    attributes = TransportProtos.PostAttributeMsg.newBuilder();
+                }
+                attributes.addKv(kv);
+            }
+        }
+        varbindsIgnored.addAndGet(ignored);
+        trapsMapped.incrementAndGet();
+        return new SnmpMappedTrap(source.deviceToken,
+                telemetry != null ? TransportProtos.PostTelemetryMsg.newBuilder().addTsKvList(telemetry).build() : null,
+                attributes != null ? attributes.build() : null);
+    }
+
+    /**
+     * Converts a value like {@link org.thingsboard.server.transport.snmp.util.SnmpUtility#toKeyValueProto(String,
+     * org.snmp4j.smi.Variable, org.thingsboard.server.transport.snmp.mib.SnmpOidMetadata)} does for the decoded variable.
+     *
+     * @return the key value, or null for types left to SNMP4J
+     */
+    private TransportProtos.KeyValueProto readValue(SnmpBerReader reader, String key, int type, int length, int[] oid, int size) {
+        switch (type) {
+            case BER.INTEGER:
+                return toKeyValueProto(key, reader.readInteger(length), oidRegistryService.getMetadata(oid, size));
+            case BER.COUNTER32:
+            case BER.GAUGE32:
+            case BER.TIMETICKS:
+                return toKeyValueProto(key, reader.readUnsigned(length) & 0xFFFFFFFFL, oidRegistryService.getMetadata(oid, size));
+            case BER.COUNTER64:
+                return TransportProtos.KeyValueProto.newBuilder().setKey(key)
+                        .setType(TransportProtos.KeyValueType.LONG_V).setLongV(reader.readUnsigned(length)).build();
+            case BER.OCTETSTRING:
+                return TransportProtos.KeyValueProto.newBuilder().setKey(key)
+                        .setType(TransportProtos.KeyValueType.STRING_V).setStringV(toDisplayString(reader.readBytes(length))).build();
+            case BER.OID:
+                // The OID of the varbind is no longer needed
+                return TransportProtos.KeyValueProto.newBuilder().setKey(key)
+                        .setType(TransportProtos.KeyValueType.STRING_V).setStringV(toDottedString(oid, reader.readOid(length, oid))).build();
+            default:
+                return null;
+        }
+    }
+
+    public long getTrapsMapped() {
+        return trapsMapped.get();
+    }
+
+    public long getVarbindsIgnored() {
+        return varbindsIgnored.get();
+    }
+
+    /**
+     * Keys are looked up like OID names, so an instance of a mapped OID resolves to the key followed by the instance.
+     */
+    private SnmpOidRegistry compile(String mappingName, Map<String, String> oids) {
+        SnmpOidRegistry.Builder keys = SnmpOidRegistry.builder();
+        if (oids != null) {
+            oids.forEach((nameOrOid, key) -> {
+                OID oid = oidRegistryService.toOid(nameOrOid);
+                if (oid == null) {
+                    log.warn("[{}] Unknown OID {} in SNMP trap mapping", mappingName, nameOrOid);
+                } else {
+                    keys.add(oid, key);
+                }
+            });
+        }
+        return keys.build();
+    }
+
+    private Source findSource(Address peerAddress, byte[] securityName, PDU pdu) {
+        if (!sourcesByEngineId.isEmpty() && pdu instanceof ScopedPDU) {
+            OctetString engineId = ((ScopedPDU) pdu).getContextEngineID();
+            if (engineId != null && engineId.length() > 0) {
+                Source source = sourcesByEngineId.get(engineId.toHexString().toLowerCase());
+                if (source != null) {
+                    return source;
+                }
+            }
+        }
+        return findSource(peerAddress, securityName != null ? new String(securityName, StandardCharsets.UTF_8) : null);
+    }
+
+    private Source findSource(Address peerAddress, String community) {
+        Source source = null;
+        if (!sourcesByCommunity.isEmpty() && community != null) {
+            source = sourcesByCommunity.get(community);
+        }
+        if (source == null && !sourcesByAddress.isEmpty() && peerAddress instanceof IpAddress) {
+            source = sourcesByAddress.get(((IpAddress) peerAddress).getInetAddress().getHostAddress());
+        }
+        return source;
+    }
+
+    private static class Source {
+        private final String deviceToken;
+        private final CompiledMapping mapping;
+
+        Source(String deviceToken, CompiledMapping mapping) {
+            this.deviceToken = deviceToken;
+            this.mapping = mapping;
+        }
+    }
+
+    private static class CompiledMapping {
+        private final SnmpOidRegistry telemetry;
+        private final SnmpOidRegistry attributes;
+
+        CompiledMapping(SnmpOidRegistry telemetry, SnmpOidRegistry attributes) {
+            this.telemetry = telemetry;
+            this.attributes = attributes;
+        }
+    }
+}
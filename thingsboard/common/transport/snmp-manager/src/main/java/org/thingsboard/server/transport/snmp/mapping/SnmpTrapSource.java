@@ -0,0 +1,24 @@
+package org.thingsboard.server.transport.snmp.mapping;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Device sending traps with plain varbinds. The device is recognized by the first of engine ID, community and source
+ * address that is set, and its traps are posted with its access token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnmpTrapSource {
+
+    private String deviceToken;
+    // SNMPv3 context engine ID as hex string, e.g. 80001f8880e9630000d61ff449
+    private String engineId;
+    private String community;
+    // Source IP address, e.g. 10.0.0.1
+    private String address;
+    private String mapping;
+
+}
@@ -0,0 +1,90 @@
+package org.thingsboard.server.transport.snmp.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * MBean whose read-only attributes are read from the components at the time they are queried, so that counters
+ * the components keep anyway are exposed without being copied.
+ */
+class SnmpGauges implements DynamicMBean {
+
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param gauge value of the attribute, reported as a Double if it is a floating point number and as a Long otherwise
+     */
+    void add(String name, Supplier<? extends Number> gauge) {
+        gauges.put(name, () -> {
+            Number value = gauge.get();
+            return value instanceof Double || value instanceof Float ? (Number) value.doubleValue() : (Number) value.longValue();
+        });
+    }
+
+    void remove(String name) {
+        gauges.remove(name);
+    }
+
+    Number get(String name) {
+        Supplier<? extends Number> gauge = gauges.get(name);
+        return gauge != null ? gauge.get() : null;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Supplier<? extends Number> gauge = gauges.get(attribute);
+        if (gauge == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return gauge.get();
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Supplier<? extends Number> gauge = gauges.get(attribute);
+            if (gauge != null) {
+                list.add(new Attribute(attribute, gauge.get()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+        throw new UnsupportedOperationException("SNMP metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        gauges.forEach((name, gauge) -> {
+            String type = gauge.get() instanceof Double ? Double.class.getName() : Long.class.getName();
+            attributes.add(new MBeanAttributeInfo(name, type, name, true, false, false));
+        });
+        return new MBeanInfo(getClass().getName(), "SNMP transport counters and gauges",
+                attributes.toArray(new MBeanAttributeInfo[0]), null,
+                new MBeanOperationInfo[0], null);
+    }
+}
@@ -0,0 +1,74 @@
+package org.thingsboard.server.transport.snmp.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records latencies into the histogram of the current interval and reports the one of the last completed interval.
+ */
+public class SnmpLatency implements SnmpLatencyMXBean {
+
+    private final SnmpLatencyHistogram histogram = new SnmpLatencyHistogram();
+    private final AtomicLong totalCount = new AtomicLong();
+    private volatile SnmpLatencyHistogram.Snapshot last = SnmpLatencyHistogram.Snapshot.EMPTY;
+
+    public void record(long latency, TimeUnit unit) {
+        histogram.record(latency, unit);
+        totalCount.incrementAndGet();
+    }
+
+    /**
+     * Completes the current interval.
+     */
+    void rotate() {
+        last = histogram.snapshotAndReset();
+    }
+
+    SnmpLatencyHistogram.Snapshot getSnapshot() {
+        return last;
+    }
+
+    @Override
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    @Override
+    public long getCount() {
+        return last.getCount();
+    }
+
+    @Override
+    public double getMean() {
+        return last.getMean() / 1000;
+    }
+
+    @Override
+    public double getP50() {
+        return percentile(50);
+    }
+
+    @Override
+    public double getP90() {
+        return percentile(90);
+    }
+
+    @Override
+    public double getP99() {
+        return percentile(99);
+    }
+
+    @Override
+    public double getP999() {
+        return percentile(99.9);
+    }
+
+    @Override
+    public double getMax() {
+        return percentile(100);
+    }
+
+    private double percentile(double percentile) {
+        return last.getPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,109 @@
+package org.thingsboard.server.transport.snmp.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of latencies in microseconds up to about 9 hours, recorded from any number of threads without
+ * allocating. Every power of two is split into 16 linear buckets, so percentiles are within about 6% of the exact
+ * value, the same relative precision an HdrHistogram with one significant digit offers.
+ */
+public class SnmpLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDES = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+
+    public void record(long latency, TimeUnit unit) {
+        counts.incrementAndGet(index(Math.max(0, unit.toMicros(latency))));
+    }
+
+    /**
+     * @return the latencies recorded so far, after which the histogram starts empty
+     */
+    public Snapshot snapshotAndReset() {
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(snapshot);
+    }
+
+    private static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        // The five highest bits select the sub-bucket of the power of two
+        int shift = 64 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS - 1;
+        int magnitude = shift + 1;
+        if (magnitude >= MAGNITUDES) {
+            return MAGNITUDES * SUB_BUCKETS - 1;
+        }
+        return magnitude * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestValue(int index) {
+        int magnitude = index / SUB_BUCKETS;
+        int subBucket = index % SUB_BUCKETS;
+        if (magnitude == 0) {
+            return subBucket;
+        }
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (magnitude - 1)) - 1;
+    }
+
+    /**
+     * Latencies recorded in one interval.
+     */
+    public static class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new long[0]);
+
+        private final long[] counts;
+        private final long count;
+        private final double mean;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                total += counts[i];
+                sum += counts[i] * (double) highestValue(i);
+            }
+            this.count = total;
+            this.mean = total > 0 ? sum / total : 0;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return mean latency in microseconds, from the upper bounds of the buckets
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return latency in microseconds the percentile of the recorded latencies does not exceed, 0 if none
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValue(i);
+                }
+            }
+            return highestValue(counts.length - 1);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.thingsboard.server.transport.snmp.metrics;
+
+/**
+ * Latency distribution of one kind of operation over the last completed interval, in milliseconds.
+ */
+public interface SnmpLatencyMXBean {
+
+    // Since the start of the transport
+    long getTotalCount();
+
+    long getCount();
+
+    double getMean();
+
+    double getP50();
+
+    double getP90();
+
+    double getP99();
+
+    double getP999();
+
+    double getMax();
+
+}
@@ -0,0 +1,250 @@
+package org.thingsboard.server.transport.snmp.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.IpAddress;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Operational metrics of the SNMP transport, exposed over JMX under {@value #DOMAIN}:
+ * <ul>
+ * <li>{@code type=Transport}: counters and gauges registered by the components, e.g. requests in flight or traps
+ * received per second of each PDU type</li>
+ * <li>{@code type=RequestLatency,group=<agent group>}: round trip times of the requests to the agents of a group</li>
+ * <li>{@code type=ValidationLatency}: time the core takes to validate the token of a device</li>
+ * <li>{@code type=Agents}: round trip time estimate, timeout and circuit state of each agent, as a table keyed by
+ * agent address</li>
+ * </ul>
+ * Latency percentiles and rates are those of the last completed interval. Agents are grouped by the address ranges
+ * of {@code transport.snmp.metrics.agentGroups}, which keeps the number of histograms bounded however many agents
+ * there are.
+ */
+@Slf4j
+@Component
+public class SnmpMetrics {
+
+    public static final String DOMAIN = "org.thingsboard.server.transport.snmp";
+    static final String DEFAULT_GROUP = "default";
+
+    @Value("${transport.snmp.metrics.enabled}")
+    private boolean enabled;
+
+    @Value("${transport.snmp.metrics.interval}")
+    private long interval;
+
+    @Value("${transport.snmp.metrics.agentGroups}")
+    private String agentGroups;
+
+    private final List<AgentGroup> groups = new ArrayList<>();
+    private final Map<String, SnmpLatency> requestLatencies = new LinkedHashMap<>();
+    private final SnmpLatency validationLatency = new SnmpLatency();
+    private final ConcurrentMap<String, TrapCounter> trapCounters = new ConcurrentHashMap<>();
+    private final SnmpGauges gauges = new SnmpGauges();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (!StringUtils.isEmpty(agentGroups)) {
+            for (String group : agentGroups.split(",")) {
+                String[] nameAndRange = group.trim().split("=");
+                if (nameAndRange.length != 2) {
+                    throw new IllegalArgumentException("Invalid SNMP agent group, expected name=address/prefix: " + group);
+                }
+                groups.add(new AgentGroup(nameAndRange[0].trim(), nameAndRange[1].trim()));
+            }
+        }
+        groups.forEach(group -> requestLatencies.putIfAbsent(group.name, new SnmpLatency()));
+        requestLatencies.put(DEFAULT_GROUP, new SnmpLatency());
+
+        register(DOMAIN + ":type=Transport", gauges);
+        register(DOMAIN + ":type=ValidationLatency", validationLatency);
+        requestLatencies.forEach((group, latency) ->
+                register(DOMAIN + ":type=RequestLatency,group=" + ObjectName.quote(group), latency));
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(this::rotate, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Exposing SNMP transport metrics over JMX under {} every {} ms", DOMAIN, interval);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                log.debug("Failed to unregister {}", name, e);
+            }
+        }
+        registered.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records the time from sending a request to the agent to receiving its response.
+     */
+    public void recordRequest(Address agent, long latency, TimeUnit unit) {
+        if (enabled) {
+            getRequestLatency(agent).record(latency, unit);
+        }
+    }
+
+    public void recordValidation(long latency, TimeUnit unit) {
+        if (enabled) {
+            validationLatency.record(latency, unit);
+        }
+    }
+
+    /**
+     * Counts a trap received of the given PDU type, such as TRAP or INFORM.
+     */
+    public void trapReceived(String type) {
+        if (enabled) {
+            trapCounters.computeIfAbsent(type, this::addTrapCounter).total.incrementAndGet();
+        }
+    }
+
+    /**
+     * Exposes a value that a component keeps, read each time the metrics are queried.
+     */
+    public void gauge(String name, Supplier<? extends Number> gauge) {
+        if (enabled) {
+            gauges.add(name, gauge);
+        }
+    }
+
+    /**
+     * Exposes an MBean or MXBean that a component keeps under {@code type=<type>}.
+     */
+    public void mBean(String type, Object mBean) {
+        if (enabled) {
+            register(DOMAIN + ":type=" + type, mBean);
+        }
+    }
+
+    SnmpLatency getRequestLatency(Address agent) {
+        if (!groups.isEmpty() && agent instanceof IpAddress) {
+            byte[] address = ((IpAddress) agent).getInetAddress().getAddress();
+            for (AgentGroup group : groups) {
+                if (group.contains(address)) {
+                    return requestLatencies.get(group.name);
+                }
+            }
+        }
+        return requestLatencies.get(DEFAULT_GROUP);
+    }
+
+    SnmpLatency getValidationLatency() {
+        return validationLatency;
+    }
+
+    Number getGauge(String name) {
+        return gauges.get(name);
+    }
+
+    /**
+     * Completes the interval of the latency histograms and of the trap rates.
+     */
+    void rotate() {
+        requestLatencies.values().forEach(SnmpLatency::rotate);
+        validationLatency.rotate();
+        trapCounters.values().forEach(counter -> {
+            long total = counter.total.get();
+            counter.perSecond = (total - counter.lastTotal) * 1000.0 / interval;
+            counter.lastTotal = total;
+        });
+    }
+
+    private TrapCounter addTrapCounter(String type) {
+        TrapCounter counter = new TrapCounter();
+        String name = type.toLowerCase();
+        gauges.add("traps." + name, counter.total::get);
+        gauges.add("traps." + name + ".perSecond", () -> counter.perSecond);
+        return counter;
+    }
+
+    private void register(String name, Object mBean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mBean, objectName);
+            registered.add(objectName);
+        } catch (JMException e) {
+            log.warn("Failed to register SNMP transport metrics {}", name, e);
+        }
+    }
+
+    private static class TrapCounter {
+        private final AtomicLong total = new AtomicLong();
+        private long lastTotal;
+        private volatile double perSecond;
+    }
+
+    /**
+     * Named range of agent addresses in CIDR notation, e.g. core=10.0.0.0/16.
+     */
+    private static class AgentGroup {
+        private final String name;
+        private final byte[] network;
+        private final int prefix;
+
+        AgentGroup(String name, String range) {
+            this.name = name;
+            int slash = range.indexOf('/');
+            try {
+                this.network = InetAddress.getByName(slash >= 0 ? range.substring(0, slash) : range).getAddress();
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Invalid SNMP agent group address: " + range, e);
+            }
+            this.prefix = slash >= 0 ? Integer.parseInt(range.substring(slash + 1)) : network.length * 8;
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            for (int bit = 0; bit < prefix; bit += 8) {
+                int mask = prefix - bit >= 8 ? 0xFF : (0xFF << (8 - (prefix - bit))) & 0xFF;
+                if ((address[bit / 8] & mask) != (network[bit / 8] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
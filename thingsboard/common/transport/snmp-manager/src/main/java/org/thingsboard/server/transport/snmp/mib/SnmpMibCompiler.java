@@ -0,0 +1,597 @@
+package org.thingsboard.server.transport.snmp.mib;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.smi.OID;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles SMIv1/SMIv2 MIB modules into {@link SnmpOidMetadata}. Only what is needed to name, type and label
+ * values is kept: OIDs, syntax, display hint scaling, units, enumerations and table indexes. Descriptions,
+ * conformance statements and macro definitions are skipped.
+ * <p>
+ * Modules may reference each other in any order; names are resolved once every module is loaded. The base
+ * SNMPv2-SMI/SNMPv2-TC definitions are built in, so they do not need to be loaded.
+ * <p>
+ * Run from the command line to write a store: {@code SnmpMibCompiler <store file> <MIB file or directory>...}
+ */
+@Slf4j
+public class SnmpMibCompiler {
+
+    private static final Map<String, OID> WELL_KNOWN_OIDS = new HashMap<>();
+    private static final Map<String, TypeDef> BUILTIN_TYPES = new HashMap<>();
+    private static final Set<String> MACROS = new HashSet<>();
+
+    static {
+        WELL_KNOWN_OIDS.put("ccitt", new OID("0"));
+        WELL_KNOWN_OIDS.put("zeroDotZero", new OID("0.0"));
+        WELL_KNOWN_OIDS.put("iso", new OID("1"));
+        WELL_KNOWN_OIDS.put("joint-iso-ccitt", new OID("2"));
+        WELL_KNOWN_OIDS.put("org", new OID("1.3"));
+        WELL_KNOWN_OIDS.put("dod", new OID("1.3.6"));
+        WELL_KNOWN_OIDS.put("internet", new OID("1.3.6.1"));
+        WELL_KNOWN_OIDS.put("directory", new OID("1.3.6.1.1"));
+        WELL_KNOWN_OIDS.put("mgmt", new OID("1.3.6.1.2"));
+        WELL_KNOWN_OIDS.put("mib-2", new OID("1.3.6.1.2.1"));
+        WELL_KNOWN_OIDS.put("transmission", new OID("1.3.6.1.2.1.10"));
+        WELL_KNOWN_OIDS.put("experimental", new OID("1.3.6.1.3"));
+        WELL_KNOWN_OIDS.put("private", new OID("1.3.6.1.4"));
+        WELL_KNOWN_OIDS.put("enterprises", new OID("1.3.6.1.4.1"));
+        WELL_KNOWN_OIDS.put("security", new OID("1.3.6.1.5"));
+        WELL_KNOWN_OIDS.put("snmpV2", new OID("1.3.6.1.6"));
+        WELL_KNOWN_OIDS.put("snmpDomains", new OID("1.3.6.1.6.1"));
+        WELL_KNOWN_OIDS.put("snmpProxys", new OID("1.3.6.1.6.2"));
+        WELL_KNOWN_OIDS.put("snmpModules", new OID("1.3.6.1.6.3"));
+
+        builtin("INTEGER", SnmpOidMetadata.Syntax.INTEGER);
+        builtin("Integer32", SnmpOidMetadata.Syntax.INTEGER);
+        builtin("TimeInterval", SnmpOidMetadata.Syntax.INTEGER);
+        builtin("Unsigned32", SnmpOidMetadata.Syntax.GAUGE32);
+        builtin("Gauge32", SnmpOidMetadata.Syntax.GAUGE32);
+        builtin("Gauge", SnmpOidMetadata.Syntax.GAUGE32);
+        builtin("Counter32", SnmpOidMetadata.Syntax.COUNTER32);
+        builtin("Counter", SnmpOidMetadata.Syntax.COUNTER32);
+        builtin("Counter64", SnmpOidMetadata.Syntax.COUNTER64);
+        builtin("TimeTicks", SnmpOidMetadata.Syntax.TIMETICKS);
+        builtin("TimeStamp", SnmpOidMetadata.Syntax.TIMETICKS);
+        builtin("IpAddress", SnmpOidMetadata.Syntax.IP_ADDRESS);
+        builtin("NetworkAddress", SnmpOidMetadata.Syntax.IP_ADDRESS);
+        builtin("Opaque", SnmpOidMetadata.Syntax.OPAQUE);
+        builtin("OCTET STRING", SnmpOidMetadata.Syntax.OCTET_STRING);
+        builtin("DisplayString", SnmpOidMetadata.Syntax.OCTET_STRING);
+        builtin("PhysAddress", SnmpOidMetadata.Syntax.OCTET_STRING);
+        builtin("MacAddress", SnmpOidMetadata.Syntax.OCTET_STRING);
+        builtin("DateAndTime", SnmpOidMetadata.Syntax.OCTET_STRING);
+        builtin("OBJECT IDENTIFIER", SnmpOidMetadata.Syntax.OBJECT_IDENTIFIER);
+        builtin("AutonomousType", SnmpOidMetadata.Syntax.OBJECT_IDENTIFIER);
+        builtin("BITS", SnmpOidMetadata.Syntax.BITS);
+        builtin("TruthValue", SnmpOidMetadata.Syntax.INTEGER, "true", "false");
+        builtin("RowStatus", SnmpOidMetadata.Syntax.INTEGER,
+                "active", "notInService", "notReady", "createAndGo", "createAndWait", "destroy");
+        builtin("StorageType", SnmpOidMetadata.Syntax.INTEGER, "other", "volatile", "nonVolatile", "permanent", "readOnly");
+
+        Collections.addAll(MACROS, "OBJECT-TYPE", "MODULE-IDENTITY", "OBJECT-IDENTITY", "NOTIFICATION-TYPE", "TRAP-TYPE",
+                "OBJECT-GROUP", "NOTIFICATION-GROUP", "MODULE-COMPLIANCE", "AGENT-CAPABILITIES");
+    }
+
+    // Definitions by module, then by name
+    private final Map<String, Map<String, ValueDef>> values = new LinkedHashMap<>();
+    private final Map<String, Map<String, TypeDef>> types = new HashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SnmpMibCompiler <store file> <MIB file or directory>...");
+            System.exit(1);
+        }
+        SnmpMibCompiler compiler = new SnmpMibCompiler();
+        for (int i = 1; i < args.length; i++) {
+            compiler.load(Paths.get(args[i]));
+        }
+        List<SnmpOidMetadata> objects = compiler.compile();
+        SnmpMibStore.write(Paths.get(args[0]), objects);
+        System.out.println("Compiled " + objects.size() + " OIDs to " + args[0]);
+    }
+
+    /**
+     * Loads a MIB file, or every file of a directory.
+     */
+    public void load(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            List<Path> files;
+            try (Stream<Path> list = Files.list(path)) {
+                files = list.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                load(file);
+            }
+        } else {
+            load(new String(Files.readAllBytes(path), StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /**
+     * Loads the modules defined in the text of a MIB file.
+     */
+    public void load(String mib) {
+        List<String> tokens = tokenize(mib);
+        int i = 0;
+        while (i + 2 < tokens.size()) {
+            if ("DEFINITIONS".equals(tokens.get(i + 1))) {
+                String module = tokens.get(i);
+                i = indexOf(tokens, "BEGIN", i) + 1;
+                i = parseModule(module, tokens, i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Resolves the OIDs of all loaded definitions.
+     *
+     * @return metadata of every resolved OID, sorted by OID
+     */
+    public List<SnmpOidMetadata> compile() {
+        Map<OID, SnmpOidMetadata> objects = new HashMap<>();
+        Map<ValueDef, OID> resolved = new HashMap<>();
+        for (Map<String, ValueDef> moduleValues : values.values()) {
+            for (ValueDef def : moduleValues.values()) {
+                OID oid = resolve(def, resolved, new HashSet<>());
+                if (oid == null) {
+                    log.warn("[{}] Failed to resolve the OID of {}", def.module, def.name);
+                    continue;
+                }
+                objects.put(oid, toMetadata(def, oid));
+            }
+        }
+        for (SnmpOidMetadata object : objects.values()) {
+            if (object.getOid().size() > 1) {
+                SnmpOidMetadata parent = objects.get(new OID(object.getOid().getValue(), 0, object.getOid().size() - 1));
+                if (parent != null && parent.getKind() == SnmpOidMetadata.Kind.ROW && object.getKind() == SnmpOidMetadata.Kind.SCALAR) {
+                    object.setKind(SnmpOidMetadata.Kind.COLUMN);
+                }
+            }
+        }
+        // A row that augments another one has the same indexes
+        for (Map<String, ValueDef> moduleValues : values.values()) {
+            for (ValueDef def : moduleValues.values()) {
+                if (def.augments != null) {
+                    ValueDef augmented = find(def.module, def.augments);
+                    OID oid = resolved.get(def);
+                    if (augmented != null && oid != null) {
+                        objects.get(oid).setIndexes(new ArrayList<>(augmented.indexes));
+                    }
+                }
+            }
+        }
+        List<SnmpOidMetadata> result = new ArrayList<>(objects.values());
+        result.sort((a, b) -> a.getOid().compareTo(b.getOid()));
+        return result;
+    }
+
+    private SnmpOidMetadata toMetadata(ValueDef def, OID oid) {
+        SnmpOidMetadata metadata = new SnmpOidMetadata();
+        metadata.setOid(oid);
+        metadata.setName(def.name);
+        metadata.setModule(def.module);
+        metadata.setKind(def.kind);
+        metadata.setUnits(def.units);
+        metadata.setIndexes(def.indexes);
+        if (def.kind == SnmpOidMetadata.Kind.SCALAR && def.syntax != null) {
+            TypeDef type = resolveType(def.module, def.syntax.type, new HashSet<>());
+            metadata.setSyntax(type.syntax);
+            metadata.setScale(scaleOf(type.syntax, type.hint));
+            metadata.setEnums(!def.syntax.enums.isEmpty() ? def.syntax.enums : type.enums);
+        }
+        return metadata;
+    }
+
+    private static int scaleOf(SnmpOidMetadata.Syntax syntax, String hint) {
+        if (hint == null || !hint.startsWith("d-")) {
+            return 0;
+        }
+        if (syntax != SnmpOidMetadata.Syntax.INTEGER && syntax != SnmpOidMetadata.Syntax.GAUGE32) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(hint.substring(2));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private OID resolve(ValueDef def, Map<ValueDef, OID> resolved, Set<ValueDef> resolving) {
+        OID oid = resolved.get(def);
+        if (oid != null || !resolving.add(def)) {
+            return oid;
+        }
+        List<String> components = def.oid;
+        if (components.isEmpty()) {
+            return null;
+        }
+        String first = components.get(0);
+        if (isNumber(first)) {
+            oid = new OID(new int[]{Integer.parseInt(first)});
+        } else {
+            ValueDef parent = find(def.module, first);
+            if (parent != null) {
+                oid = resolve(parent, resolved, resolving);
+            } else {
+                oid = WELL_KNOWN_OIDS.get(first);
+            }
+        }
+        if (oid == null) {
+            return null;
+        }
+        oid = new OID(oid);
+        for (int i = 1; i < components.size(); i++) {
+            if (!isNumber(components.get(i))) {
+                return null;
+            }
+            oid.append(Integer.parseInt(components.get(i)));
+        }
+        resolved.put(def, oid);
+        return oid;
+    }
+
+    private ValueDef find(String module, String name) {
+        Map<String, ValueDef> moduleValues = values.get(module);
+        ValueDef def = moduleValues != null ? moduleValues.get(name) : null;
+        if (def != null) {
+            return def;
+        }
+        for (Map<String, ValueDef> other : values.values()) {
+            def = other.get(name);
+            if (def != null) {
+                return def;
+            }
+        }
+        return null;
+    }
+
+    private TypeDef resolveType(String module, String name, Set<String> resolving) {
+        TypeDef type = null;
+        Map<String, TypeDef> moduleTypes = types.get(module);
+        if (moduleTypes != null) {
+            type = moduleTypes.get(name);
+        }
+        if (type == null) {
+            type = BUILTIN_TYPES.get(name);
+        }
+        if (type == null) {
+            for (Map<String, TypeDef> other : types.values()) {
+                type = other.get(name);
+                if (type != null) {
+                    break;
+                }
+            }
+        }
+        if (type == null || type.syntax != null || !resolving.add(name)) {
+            return type != null && type.syntax != null ? type : new TypeDef(SnmpOidMetadata.Syntax.NONE, null, new LinkedHashMap<>());
+        }
+        // Textual convention or type assignment based on another type
+        TypeDef base = resolveType(type.module, type.base.type, resolving);
+        return new TypeDef(base.syntax, type.hint != null ? type.hint : base.hint,
+                !type.base.enums.isEmpty() ? type.base.enums : base.enums);
+    }
+
+    private int parseModule(String module, List<String> t, int i) {
+        Map<String, ValueDef> moduleValues = values.computeIfAbsent(module, k -> new LinkedHashMap<>());
+        while (i < t.size()) {
+            String token = t.get(i);
+            if ("END".equals(token)) {
+                return i + 1;
+            }
+            if ("IMPORTS".equals(token) || "EXPORTS".equals(token)) {
+                i = indexOf(t, ";", i) + 1;
+                continue;
+            }
+            if (i + 1 >= t.size()) {
+                break;
+            }
+            String next = t.get(i + 1);
+            if ("MACRO".equals(next)) {
+                i = indexOf(t, "END", i) + 1;
+            } else if ("::=".equals(next)) {
+                i = parseTypeAssignment(module, token, t, i + 2);
+            } else if ("OBJECT".equals(next) && i + 3 < t.size() && "IDENTIFIER".equals(t.get(i + 2)) && "::=".equals(t.get(i + 3))) {
+                ValueDef def = new ValueDef(module, token);
+                i = parseOidValue(def, t, i + 4);
+                moduleValues.put(token, def);
+            } else if (MACROS.contains(next)) {
+                ValueDef def = new ValueDef(module, token);
+                i = parseMacroValue(def, next, t, i + 2);
+                moduleValues.put(token, def);
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private int parseTypeAssignment(String module, String name, List<String> t, int i) {
+        TypeDef type = new TypeDef(null, null, null);
+        type.module = module;
+        if ("TEXTUAL-CONVENTION".equals(t.get(i))) {
+            i++;
+            while (i < t.size() && !"SYNTAX".equals(t.get(i))) {
+                if ("DISPLAY-HINT".equals(t.get(i))) {
+                    type.hint = unquote(t.get(++i));
+                }
+                i++;
+            }
+            i++;
+        } else if ("SEQUENCE".equals(t.get(i)) && "{".equals(t.get(i + 1))) {
+            // Row type of a table
+            return skipBraces(t, i + 1);
+        } else if ("[".equals(t.get(i))) {
+            i = indexOf(t, "]", i) + 1;
+            if ("IMPLICIT".equals(t.get(i))) {
+                i++;
+            }
+        }
+        SyntaxRef base = new SyntaxRef();
+        i = parseSyntax(base, t, i);
+        type.base = base;
+        types.computeIfAbsent(module, k -> new HashMap<>()).put(name, type);
+        return i;
+    }
+
+    private int parseMacroValue(ValueDef def, String macro, List<String> t, int i) {
+        boolean conformance = "MODULE-COMPLIANCE".equals(macro) || "AGENT-CAPABILITIES".equals(macro);
+        String enterprise = null;
+        while (i < t.size() && !"::=".equals(t.get(i))) {
+            String token = t.get(i);
+            if (conformance) {
+                i++;
+            } else if ("SYNTAX".equals(token)) {
+                def.syntax = new SyntaxRef();
+                i = parseSyntax(def.syntax, t, i + 1);
+            } else if ("UNITS".equals(token)) {
+                def.units = unquote(t.get(i + 1));
+                i += 2;
+            } else if ("INDEX".equals(token)) {
+                int end = skipBraces(t, i + 1);
+                for (int j = i + 2; j < end - 1; j++) {
+                    String index = t.get(j);
+                    if (!",".equals(index) && !"IMPLIED".equals(index)) {
+                        def.indexes.add(index);
+                    }
+                }
+                i = end;
+            } else if ("AUGMENTS".equals(token)) {
+                def.augments = t.get(i + 2);
+                i = skipBraces(t, i + 1);
+            } else if ("ENTERPRISE".equals(token)) {
+                enterprise = t.get(i + 1);
+                i += 2;
+            } else if ("{".equals(token)) {
+                i = skipBraces(t, i);
+            } else {
+                i++;
+            }
+        }
+        i++;
+        if ("TRAP-TYPE".equals(macro)) {
+            // SMIv1 trap: enterprise.0.specific-trap
+            def.kind = SnmpOidMetadata.Kind.NOTIFICATION;
+            if (enterprise != null) {
+                Collections.addAll(def.oid, enterprise, "0", t.get(i));
+            }
+            return i + 1;
+        }
+        if ("OBJECT-TYPE".equals(macro)) {
+            if (def.syntax != null && def.syntax.sequenceOf) {
+                def.kind = SnmpOidMetadata.Kind.TABLE;
+            } else if (!def.indexes.isEmpty() || def.augments != null) {
+                def.kind = SnmpOidMetadata.Kind.ROW;
+            } else {
+                def.kind = SnmpOidMetadata.Kind.SCALAR;
+            }
+        } else if ("NOTIFICATION-TYPE".equals(macro)) {
+            def.kind = SnmpOidMetadata.Kind.NOTIFICATION;
+        }
+        return parseOidValue(def, t, i);
+    }
+
+    /**
+     * Parses a syntax such as {@code INTEGER { up(1), down(2) }}, {@code OCTET STRING (SIZE (0..255))} or
+     * {@code SEQUENCE OF IfEntry}.
+     */
+    private int parseSyntax(SyntaxRef syntax, List<String> t, int i) {
+        String type = t.get(i++);
+        if ("OCTET".equals(type) || "OBJECT".equals(type)) {
+            type = type + " " + t.get(i++);
+        } else if ("SEQUENCE".equals(type) && "OF".equals(t.get(i))) {
+            syntax.sequenceOf = true;
+            type = t.get(i + 1);
+            i += 2;
+        }
+        syntax.type = type;
+        if (i < t.size() && "{".equals(t.get(i))) {
+            int end = skipBraces(t, i);
+            for (int j = i + 1; j + 3 < end; j++) {
+                if ("(".equals(t.get(j + 1)) && ")".equals(t.get(j + 3)) && isNumber(t.get(j + 2))) {
+                    syntax.enums.put(Integer.parseInt(t.get(j + 2)), t.get(j));
+                    j += 3;
+                }
+            }
+            i = end;
+        } else if (i < t.size() && "(".equals(t.get(i))) {
+            i = skipParens(t, i);
+        }
+        return i;
+    }
+
+    /**
+     * Parses {@code { parent 3 }} or {@code { iso org(3) dod(6) 1 }}.
+     */
+    private int parseOidValue(ValueDef def, List<String> t, int i) {
+        if (!"{".equals(t.get(i))) {
+            return i + 1;
+        }
+        i++;
+        while (i < t.size() && !"}".equals(t.get(i))) {
+            String token = t.get(i);
+            if (i + 3 < t.size() && "(".equals(t.get(i + 1)) && ")".equals(t.get(i + 3))) {
+                // name(number), only the number counts
+                def.oid.add(t.get(i + 2));
+                i += 4;
+            } else {
+                def.oid.add(token);
+                i++;
+            }
+        }
+        return i + 1;
+    }
+
+    private static int skipBraces(List<String> t, int i) {
+        return skipBalanced(t, i, "{", "}");
+    }
+
+    private static int skipParens(List<String> t, int i) {
+        return skipBalanced(t, i, "(", ")");
+    }
+
+    private static int skipBalanced(List<String> t, int i, String open, String close) {
+        int depth = 0;
+        for (; i < t.size(); i++) {
+            if (open.equals(t.get(i))) {
+                depth++;
+            } else if (close.equals(t.get(i)) && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return i;
+    }
+
+    private static int indexOf(List<String> t, String token, int from) {
+        for (int i = from; i < t.size(); i++) {
+            if (token.equals(t.get(i))) {
+                return i;
+            }
+        }
+        return t.size();
+    }
+
+    private static boolean isNumber(String token) {
+        if (token.isEmpty()) {
+            return false;
+        }
+        for (int i = token.charAt(0) == '-' && token.length() > 1 ? 1 : 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String unquote(String token) {
+        return token.startsWith("\"") ? token.substring(1, token.length() - 1) : token;
+    }
+
+    /**
+     * Splits MIB text into identifiers, numbers, quoted strings and ::=, .., and single character symbols,
+     * dropping comments.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < n && text.charAt(i + 1) == '-') {
+                // Comment up to the end of the line or the next --
+                i += 2;
+                while (i < n && text.charAt(i) != '\n' && !(text.charAt(i) == '-' && i + 1 < n && text.charAt(i + 1) == '-')) {
+                    i++;
+                }
+                i = i < n && text.charAt(i) == '-' ? i + 2 : i;
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                end = end < 0 ? n - 1 : end;
+                tokens.add(text.substring(i, end + 1));
+                i = end + 1;
+            } else if (text.startsWith("::=", i)) {
+                tokens.add("::=");
+                i += 3;
+            } else if (text.startsWith("..", i)) {
+                tokens.add("..");
+                i += 2;
+            } else if (Character.isLetterOrDigit(c) || c == '-' || c == '_') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_'
+                        || (text.charAt(i) == '-' && !(i + 1 < n && text.charAt(i + 1) == '-')))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, Math.max(i, start + 1)));
+                i = Math.max(i, start + 1);
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static void builtin(String name, SnmpOidMetadata.Syntax syntax, String... enumLabels) {
+        Map<Integer, String> enums = new LinkedHashMap<>();
+        for (int i = 0; i < enumLabels.length; i++) {
+            enums.put(i + 1, enumLabels[i]);
+        }
+        BUILTIN_TYPES.put(name, new TypeDef(syntax, "DisplayString".equals(name) ? "255a" : null, enums));
+    }
+
+    private static class SyntaxRef {
+        private String type;
+        private boolean sequenceOf;
+        private final Map<Integer, String> enums = new LinkedHashMap<>();
+    }
+
+    private static class TypeDef {
+        private String module;
+        // Resolved syntax of built-in types, null while the type is defined by its base
+        private final SnmpOidMetadata.Syntax syntax;
+        private String hint;
+        private final Map<Integer, String> enums;
+        private SyntaxRef base;
+
+        TypeDef(SnmpOidMetadata.Syntax syntax, String hint, Map<Integer, String> enums) {
+            this.syntax = syntax;
+            this.hint = hint;
+            this.enums = enums;
+        }
+    }
+
+    private static class ValueDef {
+        private final String module;
+        private final String name;
+        private final List<String> oid = new ArrayList<>();
+        private SnmpOidMetadata.Kind kind = SnmpOidMetadata.Kind.NODE;
+        private SyntaxRef syntax;
+        private String units;
+        private final List<String> indexes = new ArrayList<>();
+        private String augments;
+
+        ValueDef(String module, String name) {
+            this.module = module;
+            this.name = name;
+        }
+    }
+}
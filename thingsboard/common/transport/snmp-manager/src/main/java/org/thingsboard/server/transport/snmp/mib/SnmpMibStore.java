@@ -0,0 +1,293 @@
+package org.thingsboard.server.transport.snmp.mib;
+
+import org.snmp4j.smi.OID;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compiled MIB metadata in a binary file that is memory-mapped and searched in place, so opening it costs nothing
+ * but the mapping and only the entries that are looked up get decoded.
+ * <p>
+ * Layout, big endian: magic, version, entry count, offset of the OID index, offset of the name index, the entries,
+ * then both indexes as entry offsets sorted by OID and by name. An entry is its OID (sub-identifier count and values),
+ * name, module, kind, syntax, scale, units, enumerations and index names; strings are length-prefixed UTF-8.
+ */
+public final class SnmpMibStore {
+
+    private static final int MAGIC = 0x54424D49;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int oidIndex;
+    private final int nameIndex;
+    private final ConcurrentMap<Integer, SnmpOidMetadata> decoded = new ConcurrentHashMap<>();
+
+    private SnmpMibStore(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled MIB store");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported MIB store version " + buffer.getInt(4));
+        }
+        this.count = buffer.getInt(8);
+        this.oidIndex = buffer.getInt(12);
+        this.nameIndex = buffer.getInt(16);
+    }
+
+    public static SnmpMibStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SnmpMibStore(buffer);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the metadata of exactly this OID, or null
+     */
+    public SnmpOidMetadata get(OID oid) {
+        int offset = findOid(oid.getValue(), oid.size());
+        return offset >= 0 ? decode(offset) : null;
+    }
+
+    /**
+     * @return the metadata of the longest defined OID the given one starts with, e.g. the column of a table cell
+     */
+    public SnmpOidMetadata findPrefix(OID oid) {
+        return findPrefix(oid.getValue(), oid.size());
+    }
+
+    /**
+     * Same as {@link #findPrefix(OID)} for the OID made of the first {@code size} sub-identifiers of {@code oid}.
+     */
+    public SnmpOidMetadata findPrefix(int[] oid, int size) {
+        for (int length = size; length > 0; length--) {
+            int offset = findOid(oid, length);
+            if (offset >= 0) {
+                return decode(offset);
+            }
+        }
+        return null;
+    }
+
+    public OID getOid(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = buffer.getInt(nameIndex + mid * 4);
+            int cmp = compareName(offset, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return readOid(offset);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return all entries in OID order
+     */
+    public List<SnmpOidMetadata> getAll() {
+        List<SnmpOidMetadata> all = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            all.add(decode(buffer.getInt(oidIndex + i * 4)));
+        }
+        return all;
+    }
+
+    public static void write(Path file, List<SnmpOidMetadata> objects) throws IOException {
+        List<SnmpOidMetadata> byOid = new ArrayList<>(objects);
+        byOid.sort(Comparator.comparing(SnmpOidMetadata::getOid));
+        Map<SnmpOidMetadata, Integer> offsets = new LinkedHashMap<>();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(byOid.size());
+            out.writeInt(0);
+            out.writeInt(0);
+            for (SnmpOidMetadata object : byOid) {
+                offsets.put(object, out.size());
+                writeEntry(out, object);
+            }
+            int oidIndex = out.size();
+            for (SnmpOidMetadata object : byOid) {
+                out.writeInt(offsets.get(object));
+            }
+            int nameIndex = out.size();
+            List<SnmpOidMetadata> byName = new ArrayList<>(byOid);
+            byName.sort(Comparator.comparing(o -> new String(o.getName().getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1)));
+            for (SnmpOidMetadata object : byName) {
+                out.writeInt(offsets.get(object));
+            }
+            out.flush();
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(8);
+                header.putInt(oidIndex).putInt(nameIndex).flip();
+                channel.write(header, 12);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeEntry(DataOutputStream out, SnmpOidMetadata object) throws IOException {
+        int[] oid = object.getOid().getValue();
+        out.writeShort(oid.length);
+        for (int arc : oid) {
+            out.writeInt(arc);
+        }
+        writeString(out, object.getName());
+        writeString(out, object.getModule());
+        out.writeByte(object.getKind().ordinal());
+        out.writeByte(object.getSyntax().ordinal());
+        out.writeByte(object.getScale());
+        writeString(out, object.getUnits());
+        Map<Integer, String> enums = object.getEnums();
+        out.writeShort(enums != null ? enums.size() : 0);
+        if (enums != null) {
+            for (Map.Entry<Integer, String> e : enums.entrySet()) {
+                out.writeInt(e.getKey());
+                writeString(out, e.getValue());
+            }
+        }
+        List<String> indexes = object.getIndexes();
+        out.writeShort(indexes != null ? indexes.size() : 0);
+        if (indexes != null) {
+            for (String index : indexes) {
+                writeString(out, index);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private int findOid(int[] oid, int length) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = buffer.getInt(oidIndex + mid * 4);
+            int cmp = compareOid(offset, oid, length);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the OID of the entry with the first {@code length} sub-identifiers, as unsigned values like {@link OID}.
+     */
+    private int compareOid(int offset, int[] oid, int length) {
+        int size = buffer.getShort(offset);
+        int common = Math.min(size, length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Long.compare(buffer.getInt(offset + 2 + i * 4) & 0xFFFFFFFFL, oid[i] & 0xFFFFFFFFL);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(size, length);
+    }
+
+    private int compareName(int offset, byte[] name) {
+        int nameOffset = offset + 2 + buffer.getShort(offset) * 4;
+        int size = buffer.getShort(nameOffset);
+        int common = Math.min(size, name.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(nameOffset + 2 + i) & 0xFF, name[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(size, name.length);
+    }
+
+    private OID readOid(int offset) {
+        int[] value = new int[buffer.getShort(offset)];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = buffer.getInt(offset + 2 + i * 4);
+        }
+        return new OID(value);
+    }
+
+    private SnmpOidMetadata decode(int offset) {
+        return decoded.computeIfAbsent(offset, this::read);
+    }
+
+    private SnmpOidMetadata read(int offset) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(offset);
+        int[] oid = new int[in.getShort()];
+        for (int i = 0; i < oid.length; i++) {
+            oid[i] = in.getInt();
+        }
+        SnmpOidMetadata metadata = new SnmpOidMetadata();
+        metadata.setOid(new OID(oid));
+        metadata.setName(readString(in));
+        metadata.setModule(readString(in));
+        metadata.setKind(SnmpOidMetadata.Kind.values()[in.get()]);
+        metadata.setSyntax(SnmpOidMetadata.Syntax.values()[in.get()]);
+        metadata.setScale(in.get());
+        metadata.setUnits(readString(in));
+        int enums = in.getShort();
+        for (int i = 0; i < enums; i++) {
+            metadata.getEnums().put(in.getInt(), readString(in));
+        }
+        int indexes = in.getShort();
+        for (int i = 0; i < indexes; i++) {
+            metadata.getIndexes().add(readString(in));
+        }
+        return metadata;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,42 @@
+package org.thingsboard.server.transport.snmp.mib;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.snmp4j.smi.OID;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a MIB defines for one OID, as much as is needed to type and label the values of its instances.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnmpOidMetadata {
+
+    public enum Kind {
+        NODE, SCALAR, TABLE, ROW, COLUMN, NOTIFICATION
+    }
+
+    public enum Syntax {
+        NONE, INTEGER, OCTET_STRING, OBJECT_IDENTIFIER, BITS, IP_ADDRESS, COUNTER32, GAUGE32, TIMETICKS, OPAQUE, COUNTER64
+    }
+
+    private OID oid;
+    private String name;
+    private String module;
+    private Kind kind = Kind.NODE;
+    private Syntax syntax = Syntax.NONE;
+    // Decimal places of integer values, from a DISPLAY-HINT such as d-2
+    private int scale;
+    private String units;
+    // Labels of enumerated INTEGER values
+    private Map<Integer, String> enums = new LinkedHashMap<>();
+    // Index objects of a row
+    private List<String> indexes = new ArrayList<>();
+
+}
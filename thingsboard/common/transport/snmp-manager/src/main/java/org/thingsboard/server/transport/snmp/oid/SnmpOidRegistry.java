@@ -0,0 +1,208 @@
+package org.thingsboard.server.transport.snmp.oid;
+
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OID;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of named OIDs with constant time lookup by name and trie lookup by OID. It is built once and shared,
+ * see {@link SnmpOidRegistryService}.
+ */
+public final class SnmpOidRegistry {
+
+    private static final SnmpOidRegistry STANDARD = addStandardOids(new Builder()).build();
+
+    private final Map<String, OID> oidsByName;
+    private final SnmpOidTrie<String> namesByOid;
+
+    private SnmpOidRegistry(Map<String, OID> oidsByName, SnmpOidTrie<String> namesByOid) {
+        this.oidsByName = oidsByName;
+        this.namesByOid = namesByOid;
+    }
+
+    /**
+     * @return registry of the SNMP and SNMP4J OIDs defined in {@link SnmpConstants}
+     */
+    public static SnmpOidRegistry standard() {
+        return STANDARD;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return builder already holding the OIDs of {@link #standard()}
+     */
+    public static Builder standardBuilder() {
+        return new Builder().addAll(STANDARD);
+    }
+
+    private static Builder addStandardOids(Builder builder) {
+        builder.add(SnmpConstants.usmNoAuthProtocol, "usmNoAuthProtocol");
+        builder.add(SnmpConstants.usmHMACMD5AuthProtocol, "usmHMACMD5AuthProtocol");
+        builder.add(SnmpConstants.usmHMACSHAAuthProtocol, "usmHMACSHAAuthProtocol");
+        builder.add(SnmpConstants.usmNoPrivProtocol, "usmNoPrivProtocol");
+        builder.add(SnmpConstants.usmDESPrivProtocol, "usmDESPrivProtocol");
+        builder.add(SnmpConstants.usm3DESEDEPrivProtocol, "usm3DESEDEPrivProtocol");
+        builder.add(SnmpConstants.usmAesCfb128Protocol, "usmAesCfb128Protocol");
+        builder.add(SnmpConstants.oosnmpUsmAesCfb192Protocol, "oosnmpUsmAesCfb192Protocol");
+        builder.add(SnmpConstants.oosnmpUsmAesCfb256Protocol, "oosnmpUsmAesCfb256Protocol");
+        builder.add(SnmpConstants.oosnmpUsmAesCfb192ProtocolWith3DESKeyExtension, "oosnmpUsmAesCfb192ProtocolWith3DESKeyExtension");
+        builder.add(SnmpConstants.oosnmpUsmAesCfb256ProtocolWith3DESKeyExtension, "oosnmpUsmAesCfb256ProtocolWith3DESKeyExtension");
+        builder.add(SnmpConstants.usmStatsUnsupportedSecLevels, "usmStatsUnsupportedSecLevels");
+        builder.add(SnmpConstants.usmStatsNotInTimeWindows, "usmStatsNotInTimeWindows");
+        builder.add(SnmpConstants.usmStatsUnknownUserNames, "usmStatsUnknownUserNames");
+        builder.add(SnmpConstants.usmStatsUnknownEngineIDs, "usmStatsUnknownEngineIDs");
+        builder.add(SnmpConstants.usmStatsWrongDigests, "usmStatsWrongDigests");
+        builder.add(SnmpConstants.usmStatsDecryptionErrors, "usmStatsDecryptionErrors");
+        builder.add(SnmpConstants.snmpEngineID, "snmpEngineID");
+        builder.add(SnmpConstants.snmpUnknownSecurityModels, "snmpUnknownSecurityModels");
+        builder.add(SnmpConstants.snmpInvalidMsgs, "snmpInvalidMsgs");
+        builder.add(SnmpConstants.snmpUnknownPDUHandlers, "snmpUnknownPDUHandlers");
+        builder.add(SnmpConstants.snmpInPkts, "snmpInPkts");
+        builder.add(SnmpConstants.snmpInBadVersions, "snmpInBadVersions");
+        builder.add(SnmpConstants.snmpInBadCommunityNames, "snmpInBadCommunityNames");
+        builder.add(SnmpConstants.snmpInBadCommunityUses, "snmpInBadCommunityUses");
+        builder.add(SnmpConstants.snmpInASNParseErrs, "snmpInASNParseErrs");
+        builder.add(SnmpConstants.snmpSilentDrops, "snmpSilentDrops");
+        builder.add(SnmpConstants.snmpProxyDrops, "snmpProxyDrops");
+        builder.add(SnmpConstants.snmpTrapOID, "snmpTrapOID");
+        builder.add(SnmpConstants.snmpTrapEnterprise, "snmpTrapEnterprise");
+        builder.add(SnmpConstants.snmpTraps, "snmpTraps");
+        builder.add(SnmpConstants.coldStart, "coldStart");
+        builder.add(SnmpConstants.warmStart, "warmStart");
+        builder.add(SnmpConstants.authenticationFailure, "authenticationFailure");
+        builder.add(SnmpConstants.linkDown, "linkDown");
+        builder.add(SnmpConstants.linkUp, "linkUp");
+        builder.add(SnmpConstants.sysDescr, "sysDescr");
+        builder.add(SnmpConstants.sysObjectID, "sysObjectID");
+        builder.add(SnmpConstants.sysUpTime, "sysUpTime");
+        builder.add(SnmpConstants.sysContact, "sysContact");
+        builder.add(SnmpConstants.sysName, "sysName");
+        builder.add(SnmpConstants.sysLocation, "sysLocation");
+        builder.add(SnmpConstants.sysServices, "sysServices");
+        builder.add(SnmpConstants.sysOREntry, "sysOREntry");
+        builder.add(SnmpConstants.system, "system");
+        builder.add(SnmpConstants.snmpUnavailableContexts, "snmpUnavailableContexts");
+        builder.add(SnmpConstants.snmpUnknownContexts, "snmpUnknownContexts");
+        builder.add(SnmpConstants.snmpTrapAddress, "snmpTrapAddress");
+        builder.add(SnmpConstants.snmpTrapCommunity, "snmpTrapCommunity");
+        builder.add(SnmpConstants.zeroDotZero, "zeroDotZero");
+        builder.add(SnmpConstants.snmpTsmInvalidCaches, "snmpTsmInvalidCaches");
+        builder.add(SnmpConstants.snmpTsmInadequateSecurityLevels, "snmpTsmInadequateSecurityLevels");
+        builder.add(SnmpConstants.snmpTsmUnknownPrefixes, "snmpTsmUnknownPrefixes");
+        builder.add(SnmpConstants.snmpTsmInvalidPrefixes, "snmpTsmInvalidPrefixes");
+        builder.add(SnmpConstants.snmpTsmConfigurationUsePrefix, "snmpTsmConfigurationUsePrefix");
+        builder.add(SnmpConstants.snmpTlstmSessionOpens, "snmpTlstmSessionOpens");
+        builder.add(SnmpConstants.snmpTlstmSessionClientCloses, "snmpTlstmSessionClientCloses");
+        builder.add(SnmpConstants.snmpTlstmSessionOpenErrors, "snmpTlstmSessionOpenErrors");
+        builder.add(SnmpConstants.snmpTlstmSessionAccepts, "snmpTlstmSessionAccepts");
+        builder.add(SnmpConstants.snmpTlstmSessionServerCloses, "snmpTlstmSessionServerCloses");
+        builder.add(SnmpConstants.snmpTlstmSessionNoSessions, "snmpTlstmSessionNoSessions");
+        builder.add(SnmpConstants.snmpTlstmSessionInvalidClientCertificates, "snmpTlstmSessionInvalidClientCertificates");
+        builder.add(SnmpConstants.snmpTlstmSessionUnknownServerCertificate, "snmpTlstmSessionUnknownServerCertificate");
+        builder.add(SnmpConstants.snmpTlstmSessionInvalidServerCertificates, "snmpTlstmSessionInvalidServerCertificates");
+        builder.add(SnmpConstants.snmpTlstmSessionInvalidCaches, "snmpTlstmSessionInvalidCaches");
+        builder.add(SnmpConstants.snmpSshtmSessionOpens, "snmpSshtmSessionOpens");
+        builder.add(SnmpConstants.snmpSshtmSessionCloses, "snmpSshtmSessionCloses");
+        builder.add(SnmpConstants.snmpSshtmSessionOpenErrors, "snmpSshtmSessionOpenErrors");
+        builder.add(SnmpConstants.snmpSshtmSessionUserAuthFailures, "snmpSshtmSessionUserAuthFailures");
+        builder.add(SnmpConstants.snmpSshtmSessionNoChannels, "snmpSshtmSessionNoChannels");
+        builder.add(SnmpConstants.snmpSshtmSessionNoSubsystems, "snmpSshtmSessionNoSubsystems");
+        builder.add(SnmpConstants.snmpSshtmSessionNoSessions, "snmpSshtmSessionNoSessions");
+        builder.add(SnmpConstants.snmpSshtmSessionInvalidCaches, "snmpSshtmSessionInvalidCaches");
+        builder.add(SnmpConstants.snmp4jStatsRequestTimeouts, "snmp4jStatsRequestTimeouts");
+        builder.add(SnmpConstants.snmp4jStatsRequestRetries, "snmp4jStatsRequestRetries");
+        builder.add(SnmpConstants.snmp4jStatsRequestWaitTime, "snmp4jStatsRequestWaitTime");
+        builder.add(SnmpConstants.snmp4jStatsRequestRuntime, "snmp4jStatsRequestRuntime");
+        builder.add(SnmpConstants.snmp4jStatsReqTableTimeouts, "snmp4jStatsReqTableTimeouts");
+        builder.add(SnmpConstants.snmp4jStatsReqTableRetries, "snmp4jStatsReqTableRetries");
+        builder.add(SnmpConstants.snmp4jStatsReqTableWaitTime, "snmp4jStatsReqTableWaitTime");
+        builder.add(SnmpConstants.snmp4jStatsReqTableRuntime, "snmp4jStatsReqTableRuntime");
+        builder.add(SnmpConstants.snmp4jStatsResponseTimeouts, "snmp4jStatsResponseTimeouts");
+        builder.add(SnmpConstants.snmp4jStatsResponseIgnoredRetries, "snmp4jStatsResponseIgnoredRetries");
+        builder.add(SnmpConstants.snmp4jStatsResponseProcessTime, "snmp4jStatsResponseProcessTime");
+        builder.add(SnmpConstants.snmpSetSerialNo, "snmpSetSerialNo");
+        return builder;
+    }
+
+    public int size() {
+        return oidsByName.size();
+    }
+
+    public OID getOid(String name) {
+        return oidsByName.get(name);
+    }
+
+    /**
+     * @return the name of exactly this OID, or null
+     */
+    public String getName(OID oid) {
+        return namesByOid.get(oid);
+    }
+
+    /**
+     * Names an instance or table cell by its closest named parent, e.g. 1.3.6.1.2.1.1.3.0 becomes sysUpTime.0.
+     *
+     * @return the name of the longest named prefix followed by the remaining sub-identifiers, or null if no prefix is named
+     */
+    public String resolve(OID oid) {
+        int length = namesByOid.findPrefixLength(oid);
+        if (length < 0) {
+            return null;
+        }
+        String name = namesByOid.findPrefix(oid);
+        if (length == oid.size()) {
+            return name;
+        }
+        return name + "." + new OID(oid.getValue(), length, oid.size() - length);
+    }
+
+    /**
+     * Same as {@link #resolve(OID)} for the OID made of the first {@code size} sub-identifiers of {@code oid},
+     * without creating an {@link OID}.
+     */
+    public String resolve(int[] oid, int size) {
+        int length = namesByOid.findPrefixLength(oid, size);
+        if (length < 0) {
+            return null;
+        }
+        String name = namesByOid.findPrefix(oid, length);
+        if (length == size) {
+            return name;
+        }
+        StringBuilder resolved = new StringBuilder(name.length() + (size - length) * 4).append(name);
+        for (int i = length; i < size; i++) {
+            // Sub-identifiers are unsigned
+            resolved.append('.').append(oid[i] & 0xFFFFFFFFL);
+        }
+        return resolved.toString();
+    }
+
+    public static final class Builder {
+        private final Map<String, OID> oidsByName = new HashMap<>();
+        private final SnmpOidTrie.Builder<String> namesByOid = SnmpOidTrie.builder();
+
+        private Builder() {
+        }
+
+        public Builder add(OID oid, String name) {
+            oidsByName.put(name, oid);
+            namesByOid.put(oid, name);
+            return this;
+        }
+
+        public Builder addAll(SnmpOidRegistry registry) {
+            registry.oidsByName.forEach((name, oid) -> add(oid, name));
+            return this;
+        }
+
+        public SnmpOidRegistry build() {
+            return new SnmpOidRegistry(Collections.unmodifiableMap(new HashMap<>(oidsByName)), namesByOid.build());
+        }
+    }
+}
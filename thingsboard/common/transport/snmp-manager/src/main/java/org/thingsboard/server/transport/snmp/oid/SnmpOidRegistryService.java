@@ -0,0 +1,152 @@
+package org.thingsboard.server.transport.snmp.oid;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.smi.OID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.thingsboard.server.transport.snmp.mib.SnmpMibCompiler;
+import org.thingsboard.server.transport.snmp.mib.SnmpMibStore;
+import org.thingsboard.server.transport.snmp.mib.SnmpOidMetadata;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Holds the OID registry shared by the push, poll and trap paths: the standard OIDs plus the enterprise OIDs
+ * of transport.snmp.oids.definitions, backed by the compiled MIB store for names, types and labels of vendor OIDs.
+ * The store is recompiled at startup only when a MIB file is newer than it.
+ */
+@Slf4j
+@Component
+public class SnmpOidRegistryService {
+
+    @Value("${transport.snmp.oids.definitions}")
+    private String definitionsFile;
+
+    @Value("${transport.snmp.oids.mibs}")
+    private String mibsPath;
+
+    @Value("${transport.snmp.oids.mibStore}")
+    private String mibStoreFile;
+
+    private volatile SnmpOidRegistry registry = SnmpOidRegistry.standard();
+    private volatile SnmpMibStore mibStore;
+
+    @PostConstruct
+    public void init() {
+        loadDefinitions();
+        loadMibStore();
+    }
+
+    private void loadDefinitions() {
+        if (StringUtils.isEmpty(definitionsFile)) {
+            return;
+        }
+        SnmpOidRegistry.Builder builder = SnmpOidRegistry.standardBuilder();
+        try (Reader reader = Files.newBufferedReader(Paths.get(definitionsFile), StandardCharsets.UTF_8)) {
+            // name=dotted OID per line
+            Properties definitions = new Properties();
+            definitions.load(reader);
+            for (String name : definitions.stringPropertyNames()) {
+                builder.add(new OID(definitions.getProperty(name).trim()), name);
+            }
+        } catch (IOException e) {
+            log.error("Failed to load OID definitions from {}", definitionsFile, e);
+            return;
+        }
+        registry = builder.build();
+        log.info("Loaded {} OIDs, {} from {}", registry.size(), registry.size() - SnmpOidRegistry.standard().size(), definitionsFile);
+    }
+
+    private void loadMibStore() {
+        if (StringUtils.isEmpty(mibStoreFile)) {
+            return;
+        }
+        Path storeFile = Paths.get(mibStoreFile);
+        try {
+            if (!StringUtils.isEmpty(mibsPath) && isStale(storeFile, Paths.get(mibsPath))) {
+                long started = System.currentTimeMillis();
+                SnmpMibCompiler compiler = new SnmpMibCompiler();
+                compiler.load(Paths.get(mibsPath));
+                List<SnmpOidMetadata> objects = compiler.compile();
+                SnmpMibStore.write(storeFile, objects);
+                log.info("Compiled {} OIDs from {} in {} ms", objects.size(), mibsPath, System.currentTimeMillis() - started);
+            }
+            if (Files.exists(storeFile)) {
+                mibStore = SnmpMibStore.open(storeFile);
+                log.info("Opened MIB store {} with {} OIDs", storeFile, mibStore.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to load the MIB store {}", storeFile, e);
+        }
+    }
+
+    private static boolean isStale(Path storeFile, Path mibs) throws IOException {
+        if (!Files.exists(storeFile)) {
+            return true;
+        }
+        FileTime compiled = Files.getLastModifiedTime(storeFile);
+        try (Stream<Path> files = Files.walk(mibs)) {
+            return files.filter(Files::isRegularFile).anyMatch(file -> {
+                try {
+                    return Files.getLastModifiedTime(file).compareTo(compiled) > 0;
+                } catch (IOException e) {
+                    return true;
+                }
+            });
+        }
+    }
+
+    public SnmpOidRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return the OID of a name from the registry or the MIB store, or null
+     */
+    public OID getOid(String name) {
+        OID oid = registry.getOid(name);
+        if (oid == null && mibStore != null) {
+            oid = mibStore.getOid(name);
+        }
+        return oid;
+    }
+
+    /**
+     * @return what the MIB store defines for the OID or the object it is an instance of, or null
+     */
+    public SnmpOidMetadata getMetadata(OID oid) {
+        SnmpMibStore store = mibStore;
+        return store != null ? store.findPrefix(oid) : null;
+    }
+
+    /**
+     * Same as {@link #getMetadata(OID)} for the OID made of the first {@code size} sub-identifiers of {@code oid}.
+     */
+    public SnmpOidMetadata getMetadata(int[] oid, int size) {
+        SnmpMibStore store = mibStore;
+        return store != null ? store.findPrefix(oid, size) : null;
+    }
+
+    /**
+     * Parses a dotted OID, or looks up a name such as sysUpTime.
+     *
+     * @return the OID, or null if the name is unknown
+     */
+    public OID toOid(String nameOrOid) {
+        if (!nameOrOid.isEmpty() && Character.isDigit(nameOrOid.charAt(0))) {
+            return new OID(nameOrOid);
+        }
+        return getOid(nameOrOid);
+    }
+}
@@ -0,0 +1,154 @@
+package org.thingsboard.server.transport.snmp.oid;
+
+import org.snmp4j.smi.OID;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable trie of OIDs, one level per sub-identifier. Children are kept in sorted arrays, so a lookup costs one
+ * binary search per sub-identifier and allocates nothing.
+ */
+public final class SnmpOidTrie<V> {
+
+    private final Node<V> root;
+    private final int size;
+
+    private SnmpOidTrie(Node<V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the value of exactly this OID, or null
+     */
+    public V get(OID oid) {
+        Node<V> node = root;
+        int[] value = oid.getValue();
+        for (int i = 0; i < value.length && node != null; i++) {
+            node = node.child(value[i]);
+        }
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * @return the value of the longest OID in the trie that the given OID starts with, or null
+     */
+    public V findPrefix(OID oid) {
+        return findPrefix(oid.getValue(), oid.size());
+    }
+
+    /**
+     * Same as {@link #findPrefix(OID)} for the OID made of the first {@code size} sub-identifiers of {@code value}.
+     */
+    public V findPrefix(int[] value, int size) {
+        Node<V> node = root;
+        V found = root.value;
+        for (int i = 0; i < size; i++) {
+            node = node.child(value[i]);
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                found = node.value;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the number of sub-identifiers of the longest OID in the trie that the given OID starts with,
+     * or -1 if there is none
+     */
+    public int findPrefixLength(OID oid) {
+        return findPrefixLength(oid.getValue(), oid.size());
+    }
+
+    /**
+     * Same as {@link #findPrefixLength(OID)} for the OID made of the first {@code size} sub-identifiers of {@code value}.
+     */
+    public int findPrefixLength(int[] value, int size) {
+        Node<V> node = root;
+        int found = root.value != null ? 0 : -1;
+        for (int i = 0; i < size; i++) {
+            node = node.child(value[i]);
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                found = i + 1;
+            }
+        }
+        return found;
+    }
+
+    private static final class Node<V> {
+        private final int[] arcs;
+        private final Node<V>[] children;
+        private final V value;
+
+        Node(int[] arcs, Node<V>[] children, V value) {
+            this.arcs = arcs;
+            this.children = children;
+            this.value = value;
+        }
+
+        Node<V> child(int arc) {
+            int i = Arrays.binarySearch(arcs, arc);
+            return i >= 0 ? children[i] : null;
+        }
+    }
+
+    public static final class Builder<V> {
+        private final BuildNode<V> root = new BuildNode<>();
+        private int size;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds or replaces the value of the OID.
+         */
+        public Builder<V> put(OID oid, V value) {
+            BuildNode<V> node = root;
+            for (int arc : oid.getValue()) {
+                node = node.children.computeIfAbsent(arc, k -> new BuildNode<>());
+            }
+            if (node.value == null) {
+                size++;
+            }
+            node.value = value;
+            return this;
+        }
+
+        public SnmpOidTrie<V> build() {
+            return new SnmpOidTrie<>(root.freeze(), size);
+        }
+    }
+
+    private static final class BuildNode<V> {
+        private final TreeMap<Integer, BuildNode<V>> children = new TreeMap<>();
+        private V value;
+
+        @SuppressWarnings("unchecked")
+        Node<V> freeze() {
+            int[] arcs = new int[children.size()];
+            Node<V>[] frozen = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Integer, BuildNode<V>> child : children.entrySet()) {
+                arcs[i] = child.getKey();
+                frozen[i++] = child.getValue().freeze();
+            }
+            return new Node<>(arcs, frozen, value);
+        }
+    }
+}
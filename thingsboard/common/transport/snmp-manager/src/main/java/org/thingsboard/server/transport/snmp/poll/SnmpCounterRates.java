@@ -0,0 +1,78 @@
+package org.thingsboard.server.transport.snmp.poll;
+
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Variable;
+
+import java.util.Arrays;
+
+/**
+ * Turns successive samples of the Counter32 and Counter64 values of one agent into rates per second. Samples are
+ * timed by the sysUpTime of the agent rather than by their arrival, so network delays do not skew the rates.
+ * <p>
+ * A Counter32 lower than its previous sample wrapped once; a counter that went back while sysUpTime did too was
+ * reset by a restart of the agent, and a Counter64 that went back was reset otherwise. No rate is computed across
+ * a reset, the counter starts over from the new sample. The poll interval must therefore stay below the time a
+ * Counter32 takes to wrap twice, about 34 s for the octets of a 1 Gbit/s interface; faster ones need Counter64.
+ * <p>
+ * The previous samples are kept in primitive arrays indexed by the position of the counter in the poll.
+ */
+public class SnmpCounterRates {
+
+    private static final long COUNTER32_RANGE = 1L << 32;
+    private static final long NOT_SAMPLED = -1;
+
+    private final long[] values;
+    private final long[] upTimes;
+    private long wraps;
+    private long discontinuities;
+
+    public SnmpCounterRates(int counters) {
+        values = new long[counters];
+        upTimes = new long[counters];
+        Arrays.fill(upTimes, NOT_SAMPLED);
+    }
+
+    /**
+     * @param counter  position of the counter
+     * @param value    sampled value, rates are computed for Counter32 and Counter64 only
+     * @param upTime   sysUpTime of the agent when it was sampled, in milliseconds
+     * @return change of the counter per second since its previous sample, or NaN if there is none to compare with
+     */
+    public synchronized double rate(int counter, Variable value, long upTime) {
+        boolean counter32 = value instanceof Counter32;
+        if (!counter32 && !(value instanceof Counter64)) {
+            return Double.NaN;
+        }
+        long current = value.toLong();
+        long previous = values[counter];
+        long previousUpTime = upTimes[counter];
+        values[counter] = current;
+        upTimes[counter] = upTime;
+        if (previousUpTime == NOT_SAMPLED || upTime == previousUpTime) {
+            return Double.NaN;
+        }
+        if (upTime < previousUpTime) {
+            discontinuities++;
+            return Double.NaN;
+        }
+        // Counter64 values above 2^63 are negative longs, their difference is right as long as it is below 2^63
+        long delta = current - previous;
+        if (counter32 && current < previous) {
+            wraps++;
+            delta += COUNTER32_RANGE;
+        } else if (delta < 0) {
+            discontinuities++;
+            return Double.NaN;
+        }
+        return delta * 1000.0 / (upTime - previousUpTime);
+    }
+
+    public synchronized long getWraps() {
+        return wraps;
+    }
+
+    public synchronized long getDiscontinuities() {
+        return discontinuities;
+    }
+}
@@ -0,0 +1,17 @@
+package org.thingsboard.server.transport.snmp.poll;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content of the JSON file referenced by transport.snmp.poll.profiles.
+ */
+@Data
+public class SnmpPollConfiguration {
+
+    private List<SnmpPollProfile> profiles = new ArrayList<>();
+    private List<SnmpPollDevice> devices = new ArrayList<>();
+
+}
@@ -0,0 +1,27 @@
+package org.thingsboard.server.transport.snmp.poll;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Device polled over SNMP, identified in Thingsboard by its access token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnmpPollDevice {
+
+    private String deviceToken;
+    // Agent address, e.g. udp:10.0.0.1/161
+    private String address;
+    private String community;
+    private String profile;
+    // SNMPv3 user, the community is used when empty
+    private String usmUser;
+
+    public SnmpPollDevice(String deviceToken, String address, String community, String profile) {
+        this(deviceToken, address, community, profile, null);
+    }
+
+}
@@ -0,0 +1,26 @@
+package org.thingsboard.server.transport.snmp.poll;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * OIDs polled for one type of device, mapped to the telemetry keys their values, or the rates of counters, are
+ * posted under, and table columns walked along with them.
+ */
+@Data
+public class SnmpPollProfile {
+
+    private String name;
+    // Poll interval in milliseconds
+    private long interval;
+    // Dotted OID to telemetry key
+    private Map<String, String> oids = new LinkedHashMap<>();
+    // Dotted OID of a Counter32 or Counter64 to the telemetry key its rate per second is posted under
+    private Map<String, String> rates = new LinkedHashMap<>();
+    // Dotted OID of a table column to the telemetry key of its rows, walked with GETBULK and posted per row as
+    // <key>.<row index>, e.g. ifInOctets.3
+    private Map<String, String> tables = new LinkedHashMap<>();
+
+}
@@ -0,0 +1,534 @@
+package org.thingsboard.server.transport.snmp.poll;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gson.Gson;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.PDU;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.GenericAddress;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.SnmpDeviceSessionCache;
+import org.thingsboard.server.transport.snmp.SnmpTransportContext;
+import org.thingsboard.server.transport.snmp.cluster.SnmpAgentSharding;
+import org.thingsboard.server.transport.snmp.mib.SnmpOidMetadata;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+import org.thingsboard.server.transport.snmp.push.SnmpPushManager;
+import org.thingsboard.server.transport.snmp.security.SnmpUsmService;
+import org.thingsboard.server.transport.snmp.walk.SnmpTableTelemetryListener;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.thingsboard.server.transport.snmp.util.SnmpUtility.toKeyValueProto;
+
+/**
+ * Polls registered devices with SNMP GET at the interval of their profile and posts the values, typed and labeled as
+ * the MIB defines them, and the rates of counters computed against the sysUpTime polled along with them, as telemetry. Table columns of the profile are walked
+ * with GETBULK on the same interval, their rows posted as telemetry while the walk goes on.
+ * Polls are spread over the interval on a timing wheel, and a poll is skipped rather than queued when its agent
+ * or the whole node already has too many requests outstanding.
+ * <p>
+ * Only the devices whose agent is owned by this node are polled. Ownership is evaluated again for all registered
+ * devices whenever the sharding nodes change.
+ */
+@Slf4j
+@Component
+public class SnmpPollService {
+
+    // Golden ratio conjugate, consecutive multiples of it are spread evenly over [0, 1) for any number of devices
+    private static final double PHASE_STEP = 0.6180339887498949;
+
+    @Value("${transport.snmp.poll.enabled}")
+    private boolean enabled;
+
+    @Value("${transport.snmp.poll.profiles}")
+    private String profilesFile;
+
+    @Getter
+    @Value("${transport.snmp.poll.tickDuration}")
+    private long tickDuration;
+
+    @Getter
+    @Value("${transport.snmp.poll.wheelSize}")
+    private int wheelSize;
+
+    @Getter
+    @Value("${transport.snmp.poll.timeout}")
+    private long pollTimeout;
+
+    @Getter
+    @Value("${transport.snmp.poll.retries}")
+    private int pollRetries;
+
+    @Getter
+    @Value("${transport.snmp.poll.maxInFlight}")
+    private int maxInFlight;
+
+    @Getter
+    @Value("${transport.snmp.poll.maxInFlightPerAgent}")
+    private int maxInFlightPerAgent;
+
+    @Autowired
+    private SnmpTransportContext snmpTransportContext;
+
+    @Autowired
+    private SnmpPushManager snmpPushManager;
+
+    @Autowired
+    private SnmpDeviceSessionCache deviceSessionCache;
+
+    @Autowired(required = false)
+    private SnmpUsmService usmService;
+
+    @Autowired(required = false)
+    private SnmpAgentSharding agentSharding;
+
+    @Autowired(required = false)
+    private SnmpOidRegistryService oidRegistryService;
+
+    private final Map<String, SnmpPollProfile> profiles = new ConcurrentHashMap<>();
+    // All registered devices by token, whether or not their agent is owned by this node
+    private final ConcurrentMap<String, SnmpPollDevice> registrations = new ConcurrentHashMap<>();
+    // Devices polled by this node
+    private final ConcurrentMap<String, PolledDevice> devices = new ConcurrentHashMap<>();
+    // By agent address, removed with the last polled device of the agent
+    private final ConcurrentMap<String, AgentRequests> agentInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong registeredDevices = new AtomicLong();
+    private Semaphore inFlight;
+    private SnmpTimingWheel wheel;
+
+    private final AtomicLong pollsSent = new AtomicLong();
+    private final AtomicLong pollsSkipped = new AtomicLong();
+    private final AtomicLong pollsFailed = new AtomicLong();
+    private final AtomicLong valuesPosted = new AtomicLong();
+    private final AtomicLong ratesPosted = new AtomicLong();
+    private final AtomicLong tableRowsPosted = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationEvent(ApplicationReadyEvent applicationReadyEvent) {
+        if (!enabled) {
+            return;
+        }
+        start();
+        if (!StringUtils.isEmpty(profilesFile)) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(profilesFile), StandardCharsets.UTF_8)) {
+                SnmpPollConfiguration configuration = new Gson().fromJson(reader, SnmpPollConfiguration.class);
+                configuration.getProfiles().forEach(this::addProfile);
+                configuration.getDevices().forEach(this::registerDevice);
+            } catch (IOException e) {
+                log.error("Failed to load SNMP poll profiles from {}", profilesFile, e);
+            }
+        }
+        log.info("Started SNMP polling of {} devices", devices.size());
+    }
+
+    void start() {
+        inFlight = new Semaphore(maxInFlight);
+        wheel = new SnmpTimingWheel(tickDuration, wheelSize);
+        wheel.start();
+        if (agentSharding != null) {
+            agentSharding.addListener(this::onOwnershipChange);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    public void addProfile(SnmpPollProfile profile) {
+        profiles.put(profile.getName(), profile);
+    }
+
+    /**
+     * Starts polling the device, unless polling is disabled or its agent is owned by another SNMP transport instance.
+     * The first poll is placed at a phase of the interval that keeps all devices evenly spread.
+     */
+    public void registerDevice(SnmpPollDevice device) {
+        if (wheel == null) {
+            log.warn("[{}] SNMP polling is not enabled, device is not polled", device.getDeviceToken());
+            return;
+        }
+        SnmpPollProfile profile = profiles.get(device.getProfile());
+        if (profile == null) {
+            log.warn("[{}] Unknown SNMP poll profile {}", device.getDeviceToken(), device.getProfile());
+            return;
+        }
+        registrations.put(device.getDeviceToken(), device);
+        if (isLocal(device)) {
+            startPolling(device, profile);
+        } else {
+            log.debug("[{}] Agent {} is polled by node {}", device.getDeviceToken(), device.getAddress(),
+                    agentSharding.getOwner(GenericAddress.parse(device.getAddress())));
+            stopPolling(device.getDeviceToken());
+        }
+    }
+
+    public void unregisterDevice(String deviceToken) {
+        registrations.remove(deviceToken);
+        stopPolling(deviceToken);
+    }
+
+    /**
+     * Starts polling the registered devices whose agent this node took over and stops polling those it handed over.
+     */
+    void onOwnershipChange() {
+        int started = 0;
+        int stopped = 0;
+        for (SnmpPollDevice device : registrations.values()) {
+            boolean polled = devices.containsKey(device.getDeviceToken());
+            SnmpPollProfile profile = profiles.get(device.getProfile());
+            if (isLocal(device)) {
+                if (!polled && profile != null) {
+                    startPolling(device, profile);
+                    started++;
+                }
+            } else if (polled) {
+                stopPolling(device.getDeviceToken());
+                stopped++;
+            }
+        }
+        if (started > 0 || stopped > 0) {
+            log.info("SNMP agent ownership changed, started polling {} devices and stopped polling {}", started, stopped);
+        }
+    }
+
+    private SnmpOidMetadata getMetadata(OID oid) {
+        return oidRegistryService != null ? oidRegistryService.getMetadata(oid) : null;
+    }
+
+    private boolean isLocal(SnmpPollDevice device) {
+        return agentSharding == null || agentSharding.isLocal(GenericAddress.parse(device.getAddress()));
+    }
+
+    private void startPolling(SnmpPollDevice device, SnmpPollProfile profile) {
+        PolledDevice polled = new PolledDevice(device, profile);
+        PolledDevice previous = devices.put(device.getDeviceToken(), polled);
+        if (previous != null) {
+            previous.cancel();
+        }
+        double phase = (registeredDevices.getAndIncrement() * PHASE_STEP) % 1;
+        wheel.schedule(polled, (long) (phase * profile.getInterval()));
+    }
+
+    private void stopPolling(String deviceToken) {
+        PolledDevice polled = devices.remove(deviceToken);
+        if (polled != null) {
+            polled.cancel();
+        }
+    }
+
+    public int getDeviceCount() {
+        return devices.size();
+    }
+
+    public long getPollsSent() {
+        return pollsSent.get();
+    }
+
+    public long getPollsSkipped() {
+        return pollsSkipped.get();
+    }
+
+    public long getPollsFailed() {
+        return pollsFailed.get();
+    }
+
+    public long getValuesPosted() {
+        return valuesPosted.get();
+    }
+
+    public long getRatesPosted() {
+        return ratesPosted.get();
+    }
+
+    public long getTableRowsPosted() {
+        return tableRowsPosted.get();
+    }
+
+    /**
+     * @return number of Counter32 wraps the rates of the polled devices were corrected for
+     */
+    public long getCounterWraps() {
+        return devices.values().stream().filter(d -> d.rates != null).mapToLong(d -> d.rates.getWraps()).sum();
+    }
+
+    /**
+     * @return number of counter resets, mostly agent restarts, no rate was computed across
+     */
+    public long getCounterDiscontinuities() {
+        return devices.values().stream().filter(d -> d.rates != null).mapToLong(d -> d.rates.getDiscontinuities()).sum();
+    }
+
+    /**
+     * Poll requests in flight to one agent, shared by the polled devices of the agent.
+     */
+    private static class AgentRequests {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // Only changed within the compute functions of the map
+        private int devices;
+    }
+
+    private class PolledDevice implements Runnable, ResponseListener {
+        private final SnmpPollDevice device;
+        private final SnmpPollProfile profile;
+        private final Address address;
+        private final CommunityTarget target;
+        private final OID[] oids;
+        // Telemetry key of the value and of the rate of each OID, or null
+        private final String[] keys;
+        private final String[] rateKeys;
+        // What the MIB defines for each OID, looked up once
+        private final SnmpOidMetadata[] metadata;
+        // Position of sysUpTime in the poll and the counters sampled against it, null and -1 without rates
+        private final SnmpCounterRates rates;
+        private final int upTimeIndex;
+        private final AtomicInteger agentRequests;
+        // Walked table columns and their telemetry keys; a walk still running when the next poll is due is not repeated
+        private final List<OID> tableColumns = new ArrayList<>();
+        private final List<String> tableKeys = new ArrayList<>();
+        private final List<SnmpOidMetadata> tableMetadata = new ArrayList<>();
+        private final AtomicBoolean walking = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        PolledDevice(SnmpPollDevice device, SnmpPollProfile profile) {
+            this.device = device;
+            this.profile = profile;
+            this.address = GenericAddress.parse(device.getAddress());
+            this.target = new CommunityTarget();
+            target.setCommunity(new OctetString(device.getCommunity() != null ? device.getCommunity() : "public"));
+            target.setVersion(SnmpConstants.version2c);
+            target.setAddress(address);
+            target.setRetries(pollRetries);
+            target.setTimeout(pollTimeout);
+            Map<String, Integer> positions = new LinkedHashMap<>();
+            profile.getOids().keySet().forEach(oid -> positions.putIfAbsent(oid, positions.size()));
+            profile.getRates().keySet().forEach(oid -> positions.putIfAbsent(oid, positions.size()));
+            if (!profile.getRates().isEmpty()) {
+                positions.putIfAbsent(SnmpConstants.sysUpTime.toDottedString(), positions.size());
+            }
+            this.oids = new OID[positions.size()];
+            this.keys = new String[oids.length];
+            this.rateKeys = new String[oids.length];
+            this.metadata = new SnmpOidMetadata[oids.length];
+            positions.forEach((oid, i) -> {
+                oids[i] = new OID(oid);
+                metadata[i] = getMetadata(oids[i]);
+            });
+            profile.getOids().forEach((oid, key) -> keys[positions.get(oid)] = key);
+            profile.getRates().forEach((oid, key) -> rateKeys[positions.get(oid)] = key);
+            this.rates = profile.getRates().isEmpty() ? null : new SnmpCounterRates(oids.length);
+            this.upTimeIndex = profile.getRates().isEmpty() ? -1 : positions.get(SnmpConstants.sysUpTime.toDottedString());
+            this.agentRequests = agentInFlight.compute(address.toString(), (k, agent) -> {
+                if (agent == null) {
+                    agent = new AgentRequests();
+                }
+                agent.devices++;
+                return agent;
+            }).inFlight;
+            profile.getTables().forEach((oid, key) -> {
+                OID column = new OID(oid);
+                tableColumns.add(column);
+                tableKeys.add(key);
+                tableMetadata.add(getMetadata(column));
+            });
+        }
+
+        /**
+         * Stops polling the device, and forgets its agent if no other device of the agent is polled.
+         */
+        synchronized void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            agentInFlight.computeIfPresent(address.toString(), (k, agent) -> --agent.devices > 0 ? agent : null);
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            wheel.schedule(this, profile.getInterval());
+            deviceSessionCache.process(device.getDeviceToken(), this::poll);
+        }
+
+        private void poll(TransportProtos.SessionInfoProto sessionInfo) {
+            Target pollTarget = getTarget();
+            if (pollTarget == null) {
+                pollsSkipped.incrementAndGet();
+                return;
+            }
+            if (!tableColumns.isEmpty()) {
+                walkTables(pollTarget, sessionInfo);
+            }
+            if (oids.length == 0) {
+                return;
+            }
+            if (agentRequests.incrementAndGet() > maxInFlightPerAgent) {
+                agentRequests.decrementAndGet();
+                pollsSkipped.incrementAndGet();
+                return;
+            }
+            if (!inFlight.tryAcquire()) {
+                agentRequests.decrementAndGet();
+                pollsSkipped.incrementAndGet();
+                return;
+            }
+            PDU pdu = new PDU();
+            pdu.setType(PDU.GET);
+            for (OID oid : oids) {
+                pdu.add(new VariableBinding(oid));
+            }
+            pollsSent.incrementAndGet();
+            if (!snmpPushManager.getSessionPool().send(pdu, pollTarget, sessionInfo, this)) {
+                release();
+                pollsSkipped.incrementAndGet();
+            }
+        }
+
+        private void walkTables(Target pollTarget, TransportProtos.SessionInfoProto sessionInfo) {
+            if (!walking.compareAndSet(false, true)) {
+                pollsSkipped.incrementAndGet();
+                return;
+            }
+            SnmpTableTelemetryListener listener = new SnmpTableTelemetryListener(snmpTransportContext.getTransportService(),
+                    sessionInfo, tableKeys, tableMetadata);
+            Futures.addCallback(snmpPushManager.walkTable(pollTarget, tableColumns, listener), new FutureCallback<Integer>() {
+                @Override
+                public void onSuccess(Integer rows) {
+                    walking.set(false);
+                    tableRowsPosted.addAndGet(rows);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    walking.set(false);
+                    pollsFailed.incrementAndGet();
+                    log.debug("[{}] Table walk of {} failed", device.getDeviceToken(), device.getAddress(), t);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        /**
+         * SNMPv3 targets are looked up on every poll, they are null until the engine ID of the agent is discovered.
+         */
+        private Target getTarget() {
+            if (StringUtils.isEmpty(device.getUsmUser()) || usmService == null) {
+                return target;
+            }
+            Target userTarget = usmService.getTarget(address, device.getUsmUser());
+            if (userTarget != null) {
+                userTarget.setRetries(pollRetries);
+                userTarget.setTimeout(pollTimeout);
+            }
+            return userTarget;
+        }
+
+        @Override
+        public void onResponse(ResponseEvent event) {
+            release();
+            PDU response = event.getResponse();
+            if (response == null || response.getErrorStatus() != PDU.noError) {
+                pollsFailed.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Poll of {} failed: {}", device.getDeviceToken(), device.getAddress(),
+                            response == null ? "timeout" : response.getErrorStatusText(), event.getError());
+                }
+                return;
+            }
+            TransportProtos.TsKvListProto.Builder tsKvList = TransportProtos.TsKvListProto.newBuilder().setTs(System.currentTimeMillis());
+            long upTime = getUpTime(response);
+            int ratesAdded = 0;
+            for (int i = 0; i < response.size() && i < keys.length; i++) {
+                VariableBinding vb = response.get(i);
+                if (vb.isException()) {
+                    continue;
+                }
+                if (keys[i] != null) {
+                    tsKvList.addKv(toKeyValueProto(keys[i], vb.getVariable(), metadata[i]));
+                }
+                if (rateKeys[i] != null && upTime >= 0) {
+                    double rate = rates.rate(i, vb.getVariable(), upTime);
+                    if (!Double.isNaN(rate)) {
+                        tsKvList.addKv(TransportProtos.KeyValueProto.newBuilder().setKey(rateKeys[i])
+                                .setType(TransportProtos.KeyValueType.DOUBLE_V).setDoubleV(rate));
+                        ratesAdded++;
+                    }
+                }
+            }
+            if (tsKvList.getKvCount() == 0) {
+                return;
+            }
+            valuesPosted.addAndGet(tsKvList.getKvCount() - ratesAdded);
+            ratesPosted.addAndGet(ratesAdded);
+            TransportProtos.SessionInfoProto sessionInfo = (TransportProtos.SessionInfoProto) event.getUserObject();
+            TransportService transportService = snmpTransportContext.getTransportService();
+            transportService.process(sessionInfo, TransportProtos.PostTelemetryMsg.newBuilder().addTsKvList(tsKvList).build(),
+                    new TransportServiceCallback<Void>() {
+                        @Override
+                        public void onSuccess(Void msg) {
+                        }
+
+                        @Override
+                        public void onError(Throwable e) {
+                            log.warn("[{}] Failed to post polled telemetry", device.getDeviceToken(), e);
+                        }
+                    });
+        }
+
+        /**
+         * @return sysUpTime of the agent in milliseconds, or -1 if it was not polled or not answered
+         */
+        private long getUpTime(PDU response) {
+            if (upTimeIndex < 0 || upTimeIndex >= response.size()) {
+                return -1;
+            }
+            Variable upTime = response.get(upTimeIndex).getVariable();
+            return upTime instanceof TimeTicks ? upTime.toLong() * 10 : -1;
+        }
+
+        private void release() {
+            inFlight.release();
+            agentRequests.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.thingsboard.server.transport.snmp.poll;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel driving the SNMP polls. Scheduling is O(1) whatever the number of polled devices,
+ * and all tasks run on the single wheel thread, so they must only start asynchronous work.
+ */
+@Slf4j
+public class SnmpTimingWheel {
+
+    private final long tickMs;
+    private final Queue<Timeout>[] buckets;
+    // Tasks are handed over to the wheel thread, which is the only one touching the buckets
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService ticker;
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public SnmpTimingWheel(long tickMs, int wheelSize) {
+        this.tickMs = Math.max(1, tickMs);
+        this.buckets = new Queue[Math.max(1, wheelSize)];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    public void start() {
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snmp-poll-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the task once after the given delay, rounded up to the wheel tick.
+     */
+    public void schedule(Runnable task, long delayMs) {
+        long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        scheduled.add(new Timeout(task, currentTick + ticks));
+    }
+
+    void tick() {
+        long tick = currentTick + 1;
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            buckets[bucketIndex(Math.max(timeout.deadline, tick))].add(timeout);
+        }
+        // Advanced before running the tasks, so the ones rescheduling themselves count their delay from this tick
+        currentTick = tick;
+        Iterator<Timeout> it = buckets[bucketIndex(tick)].iterator();
+        while (it.hasNext()) {
+            timeout = it.next();
+            if (timeout.deadline <= tick) {
+                it.remove();
+                try {
+                    timeout.task.run();
+                } catch (Exception e) {
+                    log.warn("Failed to run scheduled SNMP task", e);
+                }
+            }
+        }
+    }
+
+    private int bucketIndex(long tick) {
+        return (int) (tick % buckets.length);
+    }
+
+    private static class Timeout {
+        private final Runnable task;
+        private final long deadline;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import org.snmp4j.TimeoutModel;
+
+/**
+ * Doubles the timeout on every retry of a request, so that a congested or distant agent gets more time instead of
+ * more packets.
+ */
+public class ExponentialBackoffTimeoutModel implements TimeoutModel {
+
+    private final long maxTimeout;
+
+    public ExponentialBackoffTimeoutModel(long maxTimeout) {
+        this.maxTimeout = maxTimeout;
+    }
+
+    @Override
+    public long getRetryTimeout(int retryCount, int totalNumberOfRetries, long targetTimeout) {
+        return Math.min(maxTimeout, targetTimeout << Math.min(retryCount, 30));
+    }
+
+    @Override
+    public long getRequestTimeout(int totalNumberOfRetries, long targetTimeout) {
+        long timeout = 0;
+        for (int i = 0; i <= totalNumberOfRetries; i++) {
+            timeout += getRetryTimeout(i, totalNumberOfRetries, targetTimeout);
+        }
+        return timeout;
+    }
+}
@@ -0,0 +1,29 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Snapshot of the round trip time estimate and circuit breaker of one agent.
+ */
+@Data
+@AllArgsConstructor
+public class SnmpAgentStats {
+
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private String address;
+    // Smoothed round trip time and its mean deviation in milliseconds, 0 until the first sample
+    private double smoothedRtt;
+    private double rttVariance;
+    // Timeout of the first attempt of the next request in milliseconds, 0 until the first sample or timeout
+    private long retransmissionTimeout;
+    private CircuitState circuitState;
+    private int consecutiveFailures;
+    private long responses;
+    private long timeouts;
+    private long rejected;
+
+}
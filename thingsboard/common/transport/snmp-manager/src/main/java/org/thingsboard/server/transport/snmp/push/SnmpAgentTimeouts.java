@@ -0,0 +1,170 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.snmp4j.smi.Address;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Per-agent request timeouts derived from measured round trip times, and a circuit breaker per agent.
+ * <p>
+ * The timeout follows RFC 6298: a smoothed RTT plus four times its mean deviation, clamped to
+ * [{@code minTimeout}, {@code maxTimeout}] and doubled after every timeout. Responses that may belong to a retry are
+ * not sampled (Karn's algorithm). After {@code failureThreshold} timeouts in a row the circuit of the agent opens and
+ * its requests are rejected without being sent; after {@code openDuration} one probe request is let through, and the
+ * circuit closes again when it is answered.
+ */
+public class SnmpAgentTimeouts implements SnmpAgentTimeoutsMXBean {
+
+    // Clock granularity of the timeout in milliseconds, keeps the timeout above the RTT of a perfectly stable agent
+    private static final long GRANULARITY = 10;
+
+    private final long minTimeout;
+    private final long maxTimeout;
+    private final int failureThreshold;
+    private final long openDuration;
+    private final Cache<String, AgentState> agents;
+
+    public SnmpAgentTimeouts(long minTimeout, long maxTimeout, int failureThreshold, long openDuration, long maxAgents) {
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = openDuration;
+        this.agents = CacheBuilder.newBuilder().maximumSize(maxAgents).build();
+    }
+
+    /**
+     * Timeout of the first attempt of a request to the agent, or -1 if its circuit is open and the request must not
+     * be sent. Every request that is allowed must be followed by {@link #onResponse} or {@link #onTimeout}.
+     *
+     * @param defaultTimeout timeout used until the agent has been measured
+     */
+    public long acquire(Address address, long defaultTimeout) {
+        AgentState state = getState(address);
+        synchronized (state) {
+            if (state.circuitState == SnmpAgentStats.CircuitState.OPEN) {
+                if (System.currentTimeMillis() - state.openedAt < openDuration) {
+                    state.rejected++;
+                    return -1;
+                }
+                state.circuitState = SnmpAgentStats.CircuitState.HALF_OPEN;
+            } else if (state.circuitState == SnmpAgentStats.CircuitState.HALF_OPEN && state.probeInFlight) {
+                state.rejected++;
+                return -1;
+            }
+            state.probeInFlight = state.circuitState == SnmpAgentStats.CircuitState.HALF_OPEN;
+            return state.rto > 0 ? state.rto : clamp(defaultTimeout);
+        }
+    }
+
+    /**
+     * @param rtt     time in milliseconds from sending the request to receiving the response
+     * @param timeout timeout of the first attempt of the request, as returned by {@link #acquire}
+     */
+    public void onResponse(Address address, long rtt, long timeout) {
+        AgentState state = getState(address);
+        synchronized (state) {
+            state.responses++;
+            state.consecutiveFailures = 0;
+            state.circuitState = SnmpAgentStats.CircuitState.CLOSED;
+            state.probeInFlight = false;
+            if (rtt > timeout) {
+                // Answer to a retry or a late answer to the first attempt, the RTT is ambiguous
+                return;
+            }
+            if (state.srtt == 0) {
+                state.srtt = rtt;
+                state.rttvar = rtt / 2.0;
+            } else {
+                state.rttvar = 0.75 * state.rttvar + 0.25 * Math.abs(state.srtt - rtt);
+                state.srtt = 0.875 * state.srtt + 0.125 * rtt;
+            }
+            state.rto = clamp((long) Math.ceil(state.srtt + Math.max(GRANULARITY, 4 * state.rttvar)));
+        }
+    }
+
+    /**
+     * @param timeout timeout of the first attempt of the request, as returned by {@link #acquire}
+     */
+    public void onTimeout(Address address, long timeout) {
+        AgentState state = getState(address);
+        synchronized (state) {
+            state.timeouts++;
+            state.consecutiveFailures++;
+            state.rto = clamp(Math.max(state.rto, timeout) * 2);
+            if (state.circuitState == SnmpAgentStats.CircuitState.HALF_OPEN || state.consecutiveFailures >= failureThreshold) {
+                state.circuitState = SnmpAgentStats.CircuitState.OPEN;
+                state.openedAt = System.currentTimeMillis();
+            }
+            state.probeInFlight = false;
+        }
+    }
+
+    public long getMaxTimeout() {
+        return maxTimeout;
+    }
+
+    public SnmpAgentStats getStats(Address address) {
+        AgentState state = agents.getIfPresent(address.toString());
+        return state != null ? state.toStats(address.toString()) : null;
+    }
+
+    /**
+     * Stats of all tracked agents, by agent address.
+     */
+    @Override
+    public Map<String, SnmpAgentStats> getAgents() {
+        Map<String, SnmpAgentStats> stats = new TreeMap<>();
+        agents.asMap().forEach((address, state) -> stats.put(address, state.toStats(address)));
+        return stats;
+    }
+
+    /**
+     * Forgets the agents that do not match, e.g. when they are taken over by another node.
+     *
+     * @return number of agents forgotten
+     */
+    public int retainAgents(Predicate<String> agents) {
+        int size = this.agents.asMap().size();
+        this.agents.asMap().keySet().removeIf(agents.negate());
+        return size - this.agents.asMap().size();
+    }
+
+    @Override
+    public long getOpenCircuits() {
+        return agents.asMap().values().stream().filter(state -> state.circuitState != SnmpAgentStats.CircuitState.CLOSED).count();
+    }
+
+    private AgentState getState(Address address) {
+        try {
+            return agents.get(address.toString(), AgentState::new);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private long clamp(long timeout) {
+        return Math.max(minTimeout, Math.min(maxTimeout, timeout));
+    }
+
+    private static class AgentState {
+        private double srtt;
+        private double rttvar;
+        private long rto;
+        private SnmpAgentStats.CircuitState circuitState = SnmpAgentStats.CircuitState.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean probeInFlight;
+        private long responses;
+        private long timeouts;
+        private long rejected;
+
+        synchronized SnmpAgentStats toStats(String address) {
+            return new SnmpAgentStats(address, srtt, rttvar, rto, circuitState, consecutiveFailures, responses, timeouts, rejected);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import java.util.Map;
+
+/**
+ * Round trip time estimates and circuit breakers of the agents the transport sends requests to.
+ */
+public interface SnmpAgentTimeoutsMXBean {
+
+    // By agent address, such as 10.0.0.1/161
+    Map<String, SnmpAgentStats> getAgents();
+
+    long getOpenCircuits();
+
+}
@@ -0,0 +1,82 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.SnmpTransportContext;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+import org.thingsboard.server.transport.snmp.util.SnmpUtility;
+
+import java.util.List;
+
+/**
+ * Executes RPC requests delivered to SNMP device sessions by the device actors, whether the transport runs in the
+ * core or as a remote transport consuming its notifications topic, and answers them with the agent response.
+ * <p>
+ * With direct push the core node owning the agent has already pushed the request and answered it, so the session
+ * leaves it alone instead of pushing it a second time. The request tells whether the core pushes directly, so the
+ * transport never has to be configured to match the core.
+ */
+@Slf4j
+@Component
+public class SnmpDeviceRpcHandler {
+
+    @Autowired
+    private SnmpTransportContext snmpTransportContext;
+
+    @Autowired
+    private SnmpPushManager snmpPushManager;
+
+    @Autowired
+    private SnmpOidRegistryService oidRegistryService;
+
+    public void onToDeviceRpcRequest(TransportProtos.SessionInfoProto sessionInfo, TransportProtos.ToDeviceRpcRequestMsg request) {
+        if (request.getSnmpPushDirect()) {
+            log.trace("[{}] Rpc request {} is pushed by the core", request.getRequestId(), request.getMethodName());
+            return;
+        }
+        Futures.addCallback(snmpPushManager.doSnmpPushAsync(toPushMessage(request)), new FutureCallback<List<? extends VariableBinding>>() {
+            @Override
+            public void onSuccess(List<? extends VariableBinding> variableBindings) {
+                snmpTransportContext.getTransportService().process(sessionInfo, TransportProtos.ToDeviceRpcResponseMsg.newBuilder()
+                        .setRequestId(request.getRequestId())
+                        .setPayload(SnmpUtility.toJson(variableBindings, oidRegistryService::getMetadata))
+                        .build(), null);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // Not answered, the device actor times the request out
+                log.debug("[{}] SNMP push of rpc request {} failed", request.getRequestId(), request.getMethodName(), t);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Converts the request to the body accepted by {@link SnmpPushManager#doSnmpPush}, whose params are a JSON string.
+     */
+    public static String toPushMessage(TransportProtos.ToDeviceRpcRequestMsg request) {
+        String params = request.getParams();
+        try {
+            JsonElement element = new JsonParser().parse(params);
+            if (element.isJsonPrimitive()) {
+                params = element.getAsString();
+            }
+        } catch (JsonSyntaxException e) {
+            // Passed on as is, the push fails on the invalid params
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("method", request.getMethodName());
+        json.addProperty("params", params);
+        return json.toString();
+    }
+}
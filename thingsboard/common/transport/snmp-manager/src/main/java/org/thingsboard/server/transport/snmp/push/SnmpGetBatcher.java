@@ -0,0 +1,298 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.ScopedPDU;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces single-OID GET requests addressed to the same agent with the same credentials into one multi-varbind GET.
+ * A request to an agent without outstanding requests is sent at once. Otherwise it is batched until the outstanding
+ * request is answered, its time window elapses or the batch reaches the varbind count or PDU size limit;
+ * the response bindings are then handed back to each caller by position.
+ * <p>
+ * An error of the agent only fails the callers of the binding it points at, the rest of the batch is sent again.
+ * A batch whose response would be too big for the agent is split in halves.
+ */
+@Slf4j
+public class SnmpGetBatcher {
+
+    private final SnmpSessionPool sessionPool;
+    private final ScheduledExecutorService scheduler;
+    private final long windowMs;
+    private final int maxVarbinds;
+    private final int maxPduSize;
+
+    // Batching state by agent and credentials, removed while the agent has nothing outstanding
+    private final ConcurrentMap<String, AgentBatches> agents = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestsBatched = new AtomicLong();
+    private final AtomicLong pdusSent = new AtomicLong();
+    private final AtomicLong pdusResent = new AtomicLong();
+
+    public SnmpGetBatcher(SnmpSessionPool sessionPool, ScheduledExecutorService scheduler, long windowMs, int maxVarbinds, int maxPduSize) {
+        this.sessionPool = sessionPool;
+        this.scheduler = scheduler;
+        this.windowMs = windowMs;
+        this.maxVarbinds = Math.max(1, maxVarbinds);
+        this.maxPduSize = maxPduSize;
+    }
+
+    public ListenableFuture<List<? extends VariableBinding>> get(Target target, OID oid) {
+        PendingGet get = new PendingGet(oid);
+        requestsBatched.incrementAndGet();
+        String key = getKey(target);
+        PendingBatch[] ready = new PendingBatch[1];
+        PendingBatch[] started = new PendingBatch[1];
+        agents.compute(key, (k, agent) -> {
+            if (agent == null) {
+                agent = new AgentBatches();
+            }
+            if (agent.pending == null) {
+                agent.pending = new PendingBatch(k, target);
+                started[0] = agent.pending;
+            }
+            PendingBatch batch = agent.pending;
+            batch.add(get);
+            boolean full = batch.gets.size() >= maxVarbinds || batch.berLength >= maxPduSize;
+            if (full || agent.inFlight == 0 || windowMs <= 0) {
+                agent.pending = null;
+                agent.inFlight++;
+                ready[0] = batch;
+            }
+            return agent;
+        });
+        if (ready[0] != null) {
+            send(ready[0]);
+        } else if (started[0] != null) {
+            PendingBatch batch = started[0];
+            scheduler.schedule(() -> flush(batch), windowMs, TimeUnit.MILLISECONDS);
+        }
+        return get.future;
+    }
+
+    public long getRequestsBatched() {
+        return requestsBatched.get();
+    }
+
+    public long getPdusSent() {
+        return pdusSent.get();
+    }
+
+    /**
+     * @return number of PDUs sent again with the bindings of a batch the agent answered with an error
+     */
+    public long getPdusResent() {
+        return pdusResent.get();
+    }
+
+    /**
+     * Only requests that would go out identically share a batch, as it is sent with the target of its first request.
+     */
+    private static String getKey(Target target) {
+        return target.getAddress() + "|" + target.getVersion() + "|" + target.getSecurityModel() + "|"
+                + target.getSecurityLevel() + "|" + target.getSecurityName();
+    }
+
+    /**
+     * Sends the batch at the end of its window, unless it was sent already.
+     */
+    private void flush(PendingBatch batch) {
+        boolean[] ready = new boolean[1];
+        agents.computeIfPresent(batch.key, (k, agent) -> {
+            if (agent.pending == batch) {
+                agent.pending = null;
+                agent.inFlight++;
+                ready[0] = true;
+            }
+            return agent;
+        });
+        if (ready[0]) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Accounts the answered batch and sends the batches to resend its bindings with, and the requests batched meanwhile.
+     */
+    private void onDone(PendingBatch batch, List<PendingBatch> resends) {
+        List<PendingBatch> ready = new ArrayList<>(resends);
+        agents.computeIfPresent(batch.key, (k, agent) -> {
+            agent.inFlight += resends.size() - 1;
+            if (agent.pending != null) {
+                ready.add(agent.pending);
+                agent.pending = null;
+                agent.inFlight++;
+            }
+            return agent.inFlight > 0 ? agent : null;
+        });
+        pdusResent.addAndGet(resends.size());
+        for (PendingBatch next : ready) {
+            send(next);
+        }
+    }
+
+    private void send(PendingBatch batch) {
+        PDU pdu = batch.target.getVersion() == SnmpConstants.version3 ? new ScopedPDU() : new PDU();
+        for (OID oid : batch.gets.keySet()) {
+            pdu.add(new VariableBinding(oid));
+        }
+        pdu.setType(PDU.GET);
+        if (log.isTraceEnabled()) {
+            log.trace("[{}] Sending GET with {} variable bindings", batch.key, pdu.size());
+        }
+        pdusSent.incrementAndGet();
+        if (!sessionPool.send(pdu, batch.target, null, batch)) {
+            log.warn("[{}] Request rejected, {} SNMP requests already in flight", batch.key, sessionPool.getInFlight());
+            batch.fail(new RejectedExecutionException("Too many SNMP requests in flight"));
+            onDone(batch, Collections.emptyList());
+        }
+    }
+
+    private static class AgentBatches {
+        private int inFlight;
+        private PendingBatch pending;
+    }
+
+    private static class PendingGet {
+        private final OID oid;
+        private final SettableFuture<List<? extends VariableBinding>> future = SettableFuture.create();
+
+        PendingGet(OID oid) {
+            this.oid = oid;
+        }
+    }
+
+    private class PendingBatch implements ResponseListener {
+        private final String key;
+        private final Target target;
+        // Callers asking for the same OID share one variable binding
+        private final Map<OID, List<PendingGet>> gets = new LinkedHashMap<>();
+        private int berLength;
+
+        PendingBatch(String key, Target target) {
+            this.key = key;
+            this.target = target;
+        }
+
+        void add(PendingGet get) {
+            List<PendingGet> sameOid = gets.get(get.oid);
+            if (sameOid == null) {
+                sameOid = new ArrayList<>(1);
+                gets.put(get.oid, sameOid);
+                berLength += new VariableBinding(get.oid).getBERLength();
+            }
+            sameOid.add(get);
+        }
+
+        @Override
+        public void onResponse(ResponseEvent event) {
+            List<PendingBatch> resends = new ArrayList<>();
+            try {
+                processResponse(event, resends);
+            } finally {
+                onDone(this, resends);
+            }
+        }
+
+        private void processResponse(ResponseEvent event, List<PendingBatch> resends) {
+            if (event.getError() != null) {
+                log.error("[{}] Failed to send request", key, event.getError());
+                fail(event.getError());
+                return;
+            }
+            PDU response = event.getResponse();
+            if (response == null) {
+                log.error("[{}] Agent timeout", key);
+                fail(new TimeoutException("SNMP agent " + key + " did not respond"));
+                return;
+            }
+            if (response.getErrorStatus() == PDU.tooBig && gets.size() > 1) {
+                log.debug("[{}] Response to {} variable bindings too big, sending them in halves", key, gets.size());
+                resends.add(copy(0, gets.size() / 2));
+                resends.add(copy(gets.size() / 2, gets.size()));
+                return;
+            }
+            if (response.getErrorStatus() != PDU.noError) {
+                log.warn("[{}] Request failed Error Status={}, Error Index={}, Error Status Text={}",
+                        key, response.getErrorStatus(), response.getErrorIndex(), response.getErrorStatusText());
+                IllegalStateException error = new IllegalStateException("SNMP request failed: " + response.getErrorStatusText());
+                int errorIndex = response.getErrorIndex();
+                if (errorIndex < 1 || errorIndex > gets.size() || gets.size() == 1) {
+                    fail(error);
+                    return;
+                }
+                // The error index is 1-based, the other bindings are sent again without the failed one
+                int index = 1;
+                PendingBatch rest = new PendingBatch(key, target);
+                for (List<PendingGet> sameOid : gets.values()) {
+                    for (PendingGet get : sameOid) {
+                        if (index == errorIndex) {
+                            get.future.setException(error);
+                        } else {
+                            rest.add(get);
+                        }
+                    }
+                    index++;
+                }
+                resends.add(rest);
+                return;
+            }
+            int index = 0;
+            for (List<PendingGet> sameOid : gets.values()) {
+                VariableBinding vb = index < response.size() ? response.get(index) : null;
+                for (PendingGet get : sameOid) {
+                    if (vb != null) {
+                        get.future.set(Collections.singletonList(vb));
+                    } else {
+                        get.future.setException(new IllegalStateException("No variable binding in response for " + get.oid));
+                    }
+                }
+                index++;
+            }
+        }
+
+        /**
+         * @return a batch with the bindings from the first index to the last index, exclusive
+         */
+        private PendingBatch copy(int from, int to) {
+            PendingBatch copy = new PendingBatch(key, target);
+            int index = 0;
+            for (List<PendingGet> sameOid : gets.values()) {
+                if (index >= from && index < to) {
+                    sameOid.forEach(copy::add);
+                }
+                index++;
+            }
+            return copy;
+        }
+
+        void fail(Throwable t) {
+            for (List<PendingGet> sameOid : gets.values()) {
+                for (PendingGet get : sameOid) {
+                    get.future.setException(t);
+                }
+            }
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package org.thingsboard.server.transport.snmp.push;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.Target;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.thingsboard.server.transport.snmp.metrics.SnmpMetrics;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+import org.thingsboard.server.transport.snmp.security.SnmpUsmService;
+import org.thingsboard.server.transport.snmp.walk.SnmpTableRowListener;
+import org.thingsboard.server.transport.snmp.walk.SnmpTableWalker;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 @Slf4j
 @Component
@@ -27,18 +45,165 @@ public class SnmpPushManager {
     @Value("${transport.snmp.push.sendRetries}")
     private int sendRetries;
 
+    @Getter
+    @Value("${transport.snmp.push.sessions.poolSize}")
+    private int sessionPoolSize;
+
+    @Getter
+    @Value("${transport.snmp.push.sessions.maxInFlight}")
+    private int maxInFlightRequests;
+
+    @Getter
+    @Value("${transport.snmp.push.batch.window}")
+    private long batchWindow;
+
+    @Getter
+    @Value("${transport.snmp.push.batch.maxVarbinds}")
+    private int batchMaxVarbinds;
+
+    @Getter
+    @Value("${transport.snmp.push.batch.maxPduSize}")
+    private int batchMaxPduSize;
+
+    @Getter
+    @Value("${transport.snmp.walk.maxRepetitions}")
+    private int walkMaxRepetitions;
+
+    @Getter
+    @Value("${transport.snmp.walk.maxWalksPerAgent}")
+    private int maxWalksPerAgent;
+
+    @Value("${transport.snmp.push.adaptive.enabled}")
+    private boolean adaptiveTimeouts;
+
+    @Value("${transport.snmp.push.adaptive.minTimeout}")
+    private long minTimeout;
+
+    @Value("${transport.snmp.push.adaptive.maxTimeout}")
+    private long maxTimeout;
+
+    @Value("${transport.snmp.push.adaptive.failureThreshold}")
+    private int failureThreshold;
+
+    @Value("${transport.snmp.push.adaptive.openDuration}")
+    private long openDuration;
+
+    @Value("${transport.snmp.push.adaptive.maxAgents}")
+    private long maxAgents;
+
+    @Autowired
+    private SnmpOidRegistryService oidRegistryService;
+
+    @Autowired
+    private SnmpUsmService usmService;
+
+    @Autowired(required = false)
+    private SnmpMetrics metrics;
+
     private ThreadPoolExecutor snmpThreadPoolExecutor;
 
+    private ScheduledExecutorService batchScheduler;
+
+    @Getter
+    private SnmpSessionPool sessionPool;
+
+    @Getter
+    private SnmpGetBatcher getBatcher;
+
+    @Getter
+    private SnmpTableWalker tableWalker;
+
+    private final AtomicLong pushRequests = new AtomicLong();
+    private final AtomicLong pushFailures = new AtomicLong();
+
     @PostConstruct
-    public void init() {
+    public void init() throws IOException {
         snmpThreadPoolExecutor =
                 (ThreadPoolExecutor) Executors.newFixedThreadPool(pushPoolSize);
+        SnmpAgentTimeouts agentTimeouts = adaptiveTimeouts
+                ? new SnmpAgentTimeouts(minTimeout, maxTimeout, failureThreshold, openDuration, maxAgents) : null;
+        sessionPool = new SnmpSessionPool(sessionPoolSize, maxInFlightRequests, usmService.getUsm(), agentTimeouts);
+        sessionPool.init();
+        batchScheduler = Executors.newSingleThreadScheduledExecutor();
+        getBatcher = new SnmpGetBatcher(sessionPool, batchScheduler, batchWindow, batchMaxVarbinds, batchMaxPduSize);
+        tableWalker = new SnmpTableWalker(sessionPool, walkMaxRepetitions, maxWalksPerAgent);
+        if (metrics != null) {
+            registerMetrics(agentTimeouts);
+        }
+    }
+
+    private void registerMetrics(SnmpAgentTimeouts agentTimeouts) {
+        sessionPool.setMetrics(metrics);
+        metrics.gauge("push.requests", pushRequests::get);
+        metrics.gauge("push.failures", pushFailures::get);
+        metrics.gauge("push.executor.queued", () -> snmpThreadPoolExecutor.getQueue().size());
+        metrics.gauge("push.executor.active", snmpThreadPoolExecutor::getActiveCount);
+        metrics.gauge("requests.inFlight", sessionPool::getInFlight);
+        metrics.gauge("requests.sent", sessionPool::getRequestsSent);
+        metrics.gauge("requests.rejected", sessionPool::getRequestsRejected);
+        metrics.gauge("requests.shortCircuited", sessionPool::getRequestsShortCircuited);
+        metrics.gauge("requests.responses", sessionPool::getResponsesReceived);
+        metrics.gauge("requests.responsesAfterRetry", sessionPool::getResponsesAfterRetry);
+        metrics.gauge("requests.timeouts", sessionPool::getRequestsTimedOut);
+        metrics.gauge("requests.batched", getBatcher::getRequestsBatched);
+        metrics.gauge("requests.batchPdus", getBatcher::getPdusSent);
+        metrics.gauge("requests.batchResends", getBatcher::getPdusResent);
+        if (agentTimeouts != null) {
+            metrics.gauge("agents.openCircuits", agentTimeouts::getOpenCircuits);
+            metrics.mBean("Agents", agentTimeouts);
+        }
     }
 
     public void doSnmpPush(final String message) {
-        if (snmpThreadPoolExecutor!=null) {
-            snmpThreadPoolExecutor.submit(new SnmpPushDaemon(message, sendRetries, rpcRequestTimeout));
+        doSnmpPushAsync(message);
+    }
+
+    /**
+     * Sends the SNMP GET described by the RPC request body without blocking the caller.
+     * The returned future is completed from the session pool once the agent responds or the request times out.
+     */
+    public ListenableFuture<List<? extends VariableBinding>> doSnmpPushAsync(final String message) {
+        if (snmpThreadPoolExecutor == null) {
+            return Futures.immediateFailedFuture(new IllegalStateException("SNMP push manager is not initialized"));
+        }
+        SnmpPushDaemon daemon = new SnmpPushDaemon(message, sendRetries, rpcRequestTimeout, getBatcher, oidRegistryService, usmService);
+        pushRequests.incrementAndGet();
+        snmpThreadPoolExecutor.submit(daemon);
+        Futures.addCallback(daemon.getFuture(), new FutureCallback<List<? extends VariableBinding>>() {
+            @Override
+            public void onSuccess(List<? extends VariableBinding> result) {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                pushFailures.incrementAndGet();
+            }
+        }, MoreExecutors.directExecutor());
+        return daemon.getFuture();
+    }
+
+    /**
+     * Walks the given table columns with GETBULK, reporting rows to the listener as they arrive.
+     */
+    public ListenableFuture<Integer> walkTable(Target target, List<OID> columns, SnmpTableRowListener listener) {
+        if (tableWalker == null) {
+            return Futures.immediateFailedFuture(new IllegalStateException("SNMP push manager is not initialized"));
         }
+        return tableWalker.walk(target, columns, listener);
+    }
+
+    /**
+     * Drops the per-agent state of the agents that do not match, keyed by agent address such as 10.0.0.1/161.
+     *
+     * @return number of agents whose state was dropped
+     */
+    public int retainAgents(Predicate<String> agents) {
+        int dropped = usmService.retainAgents(agents);
+        SnmpAgentTimeouts agentTimeouts = sessionPool != null ? sessionPool.getAgentTimeouts() : null;
+        if (agentTimeouts != null) {
+            dropped = Math.max(dropped, agentTimeouts.retainAgents(agents));
+        }
+        return dropped;
     }
 
     @PreDestroy
@@ -51,5 +216,11 @@ public class SnmpPushManager {
         } catch (InterruptedException e) {
 
         }
+        if (batchScheduler != null) {
+            batchScheduler.shutdownNow();
+        }
+        if (sessionPool != null) {
+            sessionPool.destroy();
+        }
     }
 }
@@ -0,0 +1,241 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.security.USM;
+import org.snmp4j.smi.Address;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.thingsboard.server.transport.snmp.metrics.SnmpMetrics;
+import org.thingsboard.server.transport.snmp.security.SnmpUsmService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed set of long-lived {@link Snmp} sessions, each bound to its own UDP socket.
+ * Requests are spread round-robin over the sessions and sent asynchronously; snmp4j
+ * correlates responses by request ID, so no thread waits for an agent to answer.
+ */
+@Slf4j
+public class SnmpSessionPool {
+
+    @Getter
+    private final int poolSize;
+    @Getter
+    private final int maxInFlight;
+
+    private final USM usm;
+    @Getter
+    private final SnmpAgentTimeouts agentTimeouts;
+    private final List<Snmp> sessions = new ArrayList<>();
+    private final Semaphore inFlightPermits;
+    private final AtomicInteger nextSession = new AtomicInteger();
+
+    private final AtomicLong socketsOpened = new AtomicLong();
+    private final AtomicLong requestsSent = new AtomicLong();
+    private final AtomicLong requestsRejected = new AtomicLong();
+    private final AtomicLong responsesReceived = new AtomicLong();
+    private final AtomicLong requestsTimedOut = new AtomicLong();
+    private final AtomicLong requestsShortCircuited = new AtomicLong();
+    private final AtomicLong responsesAfterRetry = new AtomicLong();
+    private SnmpMetrics metrics;
+
+    public SnmpSessionPool(int poolSize, int maxInFlight) {
+        this(poolSize, maxInFlight, null);
+    }
+
+    /**
+     * @param usm user-based security model shared by the sessions for SNMPv3 targets, or null for v1/v2c only
+     */
+    public SnmpSessionPool(int poolSize, int maxInFlight, USM usm) {
+        this(poolSize, maxInFlight, usm, null);
+    }
+
+    /**
+     * @param agentTimeouts per-agent timeouts and circuit breakers that replace the timeout of the targets, or null to
+     *                      use the targets as they are
+     */
+    public SnmpSessionPool(int poolSize, int maxInFlight, USM usm, SnmpAgentTimeouts agentTimeouts) {
+        this.poolSize = Math.max(1, poolSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlightPermits = new Semaphore(this.maxInFlight);
+        this.usm = usm;
+        this.agentTimeouts = agentTimeouts;
+    }
+
+    public void init() throws IOException {
+        for (int i = 0; i < poolSize; i++) {
+            DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping();
+            Snmp snmp = new Snmp(transport);
+            if (agentTimeouts != null) {
+                snmp.setTimeoutModel(new ExponentialBackoffTimeoutModel(agentTimeouts.getMaxTimeout()));
+            }
+            if (usm != null) {
+                SnmpUsmService.installUsm(snmp, usm);
+            }
+            snmp.listen();
+            sessions.add(snmp);
+            socketsOpened.incrementAndGet();
+        }
+        log.info("Initialized SNMP session pool with {} sessions and {} max in-flight requests", poolSize, maxInFlight);
+    }
+
+    /**
+     * Sends the request on one of the pooled sessions. The listener is always called exactly once:
+     * with the response, with a null response on timeout, or with an error if the request could not be sent or the
+     * circuit of the agent is open.
+     *
+     * @return false if the in-flight limit is reached and the request was rejected without being sent
+     */
+    public boolean send(PDU pdu, Target target, Object userHandle, ResponseListener listener) {
+        if (!inFlightPermits.tryAcquire()) {
+            requestsRejected.incrementAndGet();
+            return false;
+        }
+        Snmp snmp = sessions.get(Math.floorMod(nextSession.getAndIncrement(), sessions.size()));
+        long timeout = target.getTimeout();
+        if (agentTimeouts != null) {
+            timeout = agentTimeouts.acquire(target.getAddress(), target.getTimeout());
+            if (timeout < 0) {
+                inFlightPermits.release();
+                requestsShortCircuited.incrementAndGet();
+                listener.onResponse(new ResponseEvent(snmp, target.getAddress(), pdu, null, userHandle,
+                        new IOException("SNMP agent " + target.getAddress() + " is unavailable")));
+                return true;
+            }
+            // Targets are shared by the callers, the adapted timeout only applies to this request
+            target = (Target) target.clone();
+            target.setTimeout(timeout);
+        }
+        ResponseListener pooledListener = new PooledResponseListener(listener, target.getAddress(), timeout);
+        try {
+            snmp.send(pdu, target, userHandle, pooledListener);
+            requestsSent.incrementAndGet();
+        } catch (IOException e) {
+            inFlightPermits.release();
+            if (agentTimeouts != null) {
+                agentTimeouts.onTimeout(target.getAddress(), timeout);
+            }
+            listener.onResponse(new ResponseEvent(snmp, target.getAddress(), pdu, null, userHandle, e));
+        }
+        return true;
+    }
+
+    /**
+     * @param metrics records the round trip time of every answered request
+     */
+    public void setMetrics(SnmpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlightPermits.availablePermits();
+    }
+
+    public long getSocketsOpened() {
+        return socketsOpened.get();
+    }
+
+    public long getRequestsSent() {
+        return requestsSent.get();
+    }
+
+    public long getRequestsRejected() {
+        return requestsRejected.get();
+    }
+
+    public long getResponsesReceived() {
+        return responsesReceived.get();
+    }
+
+    public long getRequestsTimedOut() {
+        return requestsTimedOut.get();
+    }
+
+    /**
+     * Number of requests that were not sent because the circuit of their agent was open.
+     */
+    public long getRequestsShortCircuited() {
+        return requestsShortCircuited.get();
+    }
+
+    /**
+     * Number of requests that were answered only after their first attempt timed out.
+     */
+    public long getResponsesAfterRetry() {
+        return responsesAfterRetry.get();
+    }
+
+    /**
+     * Number of requests that were served by an already opened socket instead of a new one.
+     */
+    public long getSocketReuseCount() {
+        return Math.max(0, requestsSent.get() - socketsOpened.get());
+    }
+
+    public void destroy() {
+        for (Snmp snmp : sessions) {
+            try {
+                snmp.close();
+            } catch (IOException e) {
+                log.warn("Failed to close SNMP session", e);
+            }
+        }
+        sessions.clear();
+    }
+
+    private class PooledResponseListener implements ResponseListener {
+        private final ResponseListener delegate;
+        private final Address address;
+        private final long timeout;
+        private final long sentAt = System.nanoTime();
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        PooledResponseListener(ResponseListener delegate, Address address, long timeout) {
+            this.delegate = delegate;
+            this.address = address;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void onResponse(ResponseEvent event) {
+            // Async requests stay registered in the session until cancelled explicitly
+            ((Snmp) event.getSource()).cancel(event.getRequest(), this);
+            // Late duplicates of a retried request may still reach the listener before it is cancelled
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            inFlightPermits.release();
+            if (event.getResponse() != null) {
+                responsesReceived.incrementAndGet();
+                long rtt = System.nanoTime() - sentAt;
+                if (TimeUnit.NANOSECONDS.toMillis(rtt) > timeout) {
+                    responsesAfterRetry.incrementAndGet();
+                }
+                if (agentTimeouts != null) {
+                    agentTimeouts.onResponse(address, TimeUnit.NANOSECONDS.toMillis(rtt), timeout);
+                }
+                if (metrics != null) {
+                    metrics.recordRequest(address, rtt, TimeUnit.NANOSECONDS);
+                }
+            } else {
+                requestsTimedOut.incrementAndGet();
+                if (agentTimeouts != null) {
+                    agentTimeouts.onTimeout(address, timeout);
+                }
+            }
+            delegate.onResponse(event);
+        }
+    }
+}
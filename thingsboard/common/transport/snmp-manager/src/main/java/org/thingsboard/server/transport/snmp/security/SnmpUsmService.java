@@ -0,0 +1,396 @@
+package org.thingsboard.server.transport.snmp.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.Snmp;
+import org.snmp4j.MessageDispatcher;
+import org.snmp4j.UserTarget;
+import org.snmp4j.mp.MessageProcessingModel;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.AuthHMAC128SHA224;
+import org.snmp4j.security.AuthHMAC192SHA256;
+import org.snmp4j.security.AuthHMAC256SHA384;
+import org.snmp4j.security.AuthHMAC384SHA512;
+import org.snmp4j.security.AuthMD5;
+import org.snmp4j.security.AuthSHA;
+import org.snmp4j.security.Priv3DES;
+import org.snmp4j.security.PrivAES128;
+import org.snmp4j.security.PrivAES192;
+import org.snmp4j.security.PrivAES256;
+import org.snmp4j.security.PrivDES;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityProtocols;
+import org.snmp4j.security.USM;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * SNMPv3 user-based security shared by all manager sessions. Each agent costs one engine ID discovery and one key
+ * localization per user: discovered engine IDs and the users localized for them are cached, so requests carry the
+ * authoritative engine ID and go out without a discovery round trip or password hashing.
+ * <p>
+ * Discoveries block a thread of a bounded pool until the agent answers or the discovery times out, so that an
+ * unreachable agent only holds up one thread. Requests to an agent whose discovery is in flight share it, and an agent
+ * that did not answer is not asked again before the backoff expires, so unreachable agents can not pile up
+ * discoveries. Localized user keys expire with the engine ID they were localized for.
+ */
+@Slf4j
+@Component
+public class SnmpUsmService {
+
+    private static final Map<String, OID> AUTH_PROTOCOLS = new HashMap<>();
+    private static final Map<String, OID> PRIV_PROTOCOLS = new HashMap<>();
+    private static volatile boolean securityProtocolsInitialized;
+
+    static {
+        AUTH_PROTOCOLS.put("MD5", AuthMD5.ID);
+        AUTH_PROTOCOLS.put("SHA", AuthSHA.ID);
+        AUTH_PROTOCOLS.put("SHA224", AuthHMAC128SHA224.ID);
+        AUTH_PROTOCOLS.put("SHA256", AuthHMAC192SHA256.ID);
+        AUTH_PROTOCOLS.put("SHA384", AuthHMAC256SHA384.ID);
+        AUTH_PROTOCOLS.put("SHA512", AuthHMAC384SHA512.ID);
+        PRIV_PROTOCOLS.put("DES", PrivDES.ID);
+        PRIV_PROTOCOLS.put("3DES", Priv3DES.ID);
+        PRIV_PROTOCOLS.put("AES", PrivAES128.ID);
+        PRIV_PROTOCOLS.put("AES128", PrivAES128.ID);
+        PRIV_PROTOCOLS.put("AES192", PrivAES192.ID);
+        PRIV_PROTOCOLS.put("AES256", PrivAES256.ID);
+    }
+
+    @Value("${transport.snmp.usm.users}")
+    private String usersFile;
+
+    @Value("${transport.snmp.usm.maxAgents}")
+    private long maxAgents;
+
+    @Value("${transport.snmp.usm.engineIdTtl}")
+    private long engineIdTtl;
+
+    @Value("${transport.snmp.usm.discoveryTimeout}")
+    private long discoveryTimeout;
+
+    @Value("${transport.snmp.usm.discoveryBackoff}")
+    private long discoveryBackoff;
+
+    @Value("${transport.snmp.usm.discoveryPoolSize}")
+    private int discoveryPoolSize;
+
+    private final Map<String, SnmpUsmUser> users = new ConcurrentHashMap<>();
+    private USM usm;
+    private Snmp discoverySession;
+    private ListeningExecutorService discoveryExecutor;
+    // Engine ID by agent address
+    private Cache<String, OctetString> engineIds;
+    private final ConcurrentMap<String, ListenableFuture<OctetString>> discoveriesInFlight = new ConcurrentHashMap<>();
+    // Failure of the last discovery by agent address, until the agent may be asked again
+    private Cache<String, IllegalStateException> failedDiscoveries;
+    // Users localized into the USM, by engine ID and user name
+    private Cache<LocalizedUserKey, Boolean> localizedUsers;
+
+    private final AtomicLong discoveries = new AtomicLong();
+    private final AtomicLong discoveryFailures = new AtomicLong();
+    private final AtomicLong localizations = new AtomicLong();
+
+    /**
+     * Registers the security protocols once per JVM, including 3DES which is not a default protocol.
+     */
+    public static void initSecurityProtocols() {
+        if (securityProtocolsInitialized) {
+            return;
+        }
+        synchronized (SnmpUsmService.class) {
+            if (!securityProtocolsInitialized) {
+                SecurityProtocols.getInstance().addDefaultProtocols();
+                SecurityProtocols.getInstance().addPrivacyProtocol(new Priv3DES());
+                securityProtocolsInitialized = true;
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        initSecurityProtocols();
+        usm = new USM(SecurityProtocols.getInstance(), new OctetString(MPv3.createLocalEngineID()), 0);
+        engineIds = CacheBuilder.newBuilder()
+                .maximumSize(maxAgents)
+                .expireAfterWrite(engineIdTtl, TimeUnit.MILLISECONDS)
+                .build();
+        failedDiscoveries = CacheBuilder.newBuilder()
+                .maximumSize(maxAgents)
+                .expireAfterWrite(discoveryBackoff, TimeUnit.MILLISECONDS)
+                .build();
+        localizedUsers = CacheBuilder.newBuilder()
+                .maximumSize(maxAgents)
+                .expireAfterWrite(engineIdTtl, TimeUnit.MILLISECONDS)
+                .removalListener(this::onLocalizedUserRemoval)
+                .build();
+        discoverySession = new Snmp(new DefaultUdpTransportMapping());
+        installUsm(discoverySession, usm);
+        discoverySession.listen();
+        discoveryExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(Math.max(1, discoveryPoolSize)));
+        if (!StringUtils.isEmpty(usersFile)) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(usersFile), StandardCharsets.UTF_8)) {
+                List<SnmpUsmUser> loaded = new Gson().fromJson(reader, new TypeToken<List<SnmpUsmUser>>() {}.getType());
+                loaded.forEach(this::addUser);
+                log.info("Loaded {} SNMPv3 users from {}", loaded.size(), usersFile);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (discoveryExecutor != null) {
+            discoveryExecutor.shutdownNow();
+        }
+        if (discoverySession != null) {
+            try {
+                discoverySession.close();
+            } catch (IOException e) {
+                log.warn("Failed to close SNMP engine discovery session", e);
+            }
+        }
+    }
+
+    /**
+     * Makes the session process SNMPv3 messages with the given USM instead of the one of its default MPv3 model,
+     * which the dispatcher would keep if another model with the same ID was simply added.
+     */
+    public static void installUsm(Snmp snmp, USM usm) {
+        MessageDispatcher dispatcher = snmp.getMessageDispatcher();
+        MessageProcessingModel current = dispatcher.getMessageProcessingModel(MPv3.ID);
+        if (current != null) {
+            dispatcher.removeMessageProcessingModel(current);
+        }
+        dispatcher.addMessageProcessingModel(new MPv3(usm));
+    }
+
+    public USM getUsm() {
+        return usm;
+    }
+
+    public void addUser(SnmpUsmUser user) {
+        if (user.getAuthProtocol() != null && !user.getAuthProtocol().isEmpty() && !AUTH_PROTOCOLS.containsKey(user.getAuthProtocol())) {
+            throw new IllegalArgumentException("Unknown SNMPv3 authentication protocol " + user.getAuthProtocol());
+        }
+        if (user.getPrivProtocol() != null && !user.getPrivProtocol().isEmpty() && !PRIV_PROTOCOLS.containsKey(user.getPrivProtocol())) {
+            throw new IllegalArgumentException("Unknown SNMPv3 privacy protocol " + user.getPrivProtocol());
+        }
+        users.put(user.getName(), user);
+    }
+
+    public boolean hasUser(String name) {
+        return users.containsKey(name);
+    }
+
+    /**
+     * Target for the agent if its engine ID is known; otherwise starts the discovery in the background and returns
+     * null, so that callers on latency sensitive threads can skip the request instead of waiting.
+     */
+    public UserTarget getTarget(Address address, String userName) {
+        OctetString engineId = engineIds.getIfPresent(address.toString());
+        if (engineId == null) {
+            discoverEngineId(address);
+            return null;
+        }
+        return createTarget(address, getUser(userName), engineId);
+    }
+
+    /**
+     * Target for the agent, completed once its engine ID is discovered if it is not known yet.
+     *
+     * @return a future failed with an {@link IllegalStateException} if the agent did not answer the discovery
+     * @throws IllegalArgumentException if the user is unknown
+     */
+    public ListenableFuture<UserTarget> getTargetAsync(Address address, String userName) {
+        SnmpUsmUser user = getUser(userName);
+        return Futures.transform(discoverEngineId(address), engineId -> createTarget(address, user, engineId),
+                MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Forgets the engine IDs of the agents that do not match; they are discovered again on their next request.
+     *
+     * @return number of agents forgotten
+     */
+    public int retainAgents(Predicate<String> agents) {
+        int size = engineIds.asMap().size();
+        engineIds.asMap().keySet().removeIf(agents.negate());
+        failedDiscoveries.asMap().keySet().removeIf(agents.negate());
+        return size - engineIds.asMap().size();
+    }
+
+    public long getDiscoveries() {
+        return discoveries.get();
+    }
+
+    public long getDiscoveryFailures() {
+        return discoveryFailures.get();
+    }
+
+    public long getLocalizations() {
+        return localizations.get();
+    }
+
+    private SnmpUsmUser getUser(String userName) {
+        SnmpUsmUser user = users.get(userName);
+        if (user == null) {
+            throw new IllegalArgumentException("Unknown SNMPv3 user " + userName);
+        }
+        return user;
+    }
+
+    private ListenableFuture<OctetString> discoverEngineId(Address address) {
+        String agent = address.toString();
+        OctetString engineId = engineIds.getIfPresent(agent);
+        if (engineId != null) {
+            return Futures.immediateFuture(engineId);
+        }
+        IllegalStateException failure = failedDiscoveries.getIfPresent(agent);
+        if (failure != null) {
+            return Futures.immediateFailedFuture(failure);
+        }
+        return discoveriesInFlight.computeIfAbsent(agent, k -> discoveryExecutor.submit(() -> discover(address)));
+    }
+
+    /**
+     * Caches the outcome before the discovery is no longer in flight, so that no request finds neither.
+     */
+    private OctetString discover(Address address) {
+        String agent = address.toString();
+        try {
+            OctetString engineId = engineIds.getIfPresent(agent);
+            if (engineId == null) {
+                discoveries.incrementAndGet();
+                byte[] discovered = discoverySession.discoverAuthoritativeEngineID(address, discoveryTimeout);
+                if (discovered == null) {
+                    discoveryFailures.incrementAndGet();
+                    IllegalStateException failure = new IllegalStateException("No engine ID reported by " + address);
+                    failedDiscoveries.put(agent, failure);
+                    log.debug("[{}] SNMP engine ID discovery failed, retried in {} ms", address, discoveryBackoff);
+                    throw failure;
+                }
+                engineId = new OctetString(discovered);
+                engineIds.put(agent, engineId);
+            }
+            return engineId;
+        } finally {
+            discoveriesInFlight.remove(agent);
+        }
+    }
+
+    private UserTarget createTarget(Address address, SnmpUsmUser user, OctetString engineId) {
+        localize(user, engineId);
+        UserTarget target = new UserTarget();
+        target.setAddress(address);
+        target.setVersion(SnmpConstants.version3);
+        target.setSecurityName(new OctetString(user.getSecurityName()));
+        target.setAuthoritativeEngineID(engineId.getValue());
+        target.setSecurityLevel(getAuthProtocol(user) == null ? SecurityLevel.NOAUTH_NOPRIV
+                : getPrivProtocol(user) == null ? SecurityLevel.AUTH_NOPRIV : SecurityLevel.AUTH_PRIV);
+        return target;
+    }
+
+    /**
+     * Hashes the passphrases into the keys of the agent once and hands them to the USM, so it never localizes
+     * them itself.
+     */
+    private void localize(SnmpUsmUser user, OctetString engineId) {
+        LocalizedUserKey key = new LocalizedUserKey(engineId, user.getName());
+        if (localizedUsers.getIfPresent(key) != null) {
+            return;
+        }
+        try {
+            localizedUsers.get(key, () -> {
+                localizations.incrementAndGet();
+                SecurityProtocols protocols = SecurityProtocols.getInstance();
+                OID authProtocol = getAuthProtocol(user);
+                OID privProtocol = getPrivProtocol(user);
+                byte[] authKey = authProtocol == null ? null
+                        : protocols.passwordToKey(authProtocol, new OctetString(user.getAuthPassphrase()), engineId.getValue());
+                byte[] privKey = authProtocol == null || privProtocol == null ? null
+                        : protocols.passwordToKey(privProtocol, authProtocol, new OctetString(user.getPrivPassphrase()), engineId.getValue());
+                usm.addLocalizedUser(engineId.getValue(), new OctetString(user.getSecurityName()),
+                        authProtocol, authKey, privProtocol, privKey);
+                return Boolean.TRUE;
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new IllegalStateException("Failed to localize SNMPv3 keys of " + user.getName(), e.getCause());
+        }
+    }
+
+    private void onLocalizedUserRemoval(RemovalNotification<LocalizedUserKey, Boolean> notification) {
+        LocalizedUserKey key = notification.getKey();
+        SnmpUsmUser user = users.get(key.userName);
+        if (user != null) {
+            usm.removeAllUsers(new OctetString(user.getSecurityName()), key.engineId);
+        }
+    }
+
+    private static OID getAuthProtocol(SnmpUsmUser user) {
+        return StringUtils.isEmpty(user.getAuthProtocol()) ? null : AUTH_PROTOCOLS.get(user.getAuthProtocol());
+    }
+
+    private static OID getPrivProtocol(SnmpUsmUser user) {
+        return StringUtils.isEmpty(user.getPrivProtocol()) ? null : PRIV_PROTOCOLS.get(user.getPrivProtocol());
+    }
+
+    private static final class LocalizedUserKey {
+        private final OctetString engineId;
+        private final String userName;
+
+        LocalizedUserKey(OctetString engineId, String userName) {
+            this.engineId = engineId;
+            this.userName = userName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LocalizedUserKey)) {
+                return false;
+            }
+            LocalizedUserKey other = (LocalizedUserKey) o;
+            return engineId.equals(other.engineId) && userName.equals(other.userName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * engineId.hashCode() + userName.hashCode();
+        }
+    }
+}
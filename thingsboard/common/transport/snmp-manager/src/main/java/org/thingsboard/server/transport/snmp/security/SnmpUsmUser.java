@@ -0,0 +1,24 @@
+package org.thingsboard.server.transport.snmp.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * SNMPv3 user shared by the agents of a device profile. The protocols are named as in net-snmp:
+ * MD5, SHA, SHA224, SHA256, SHA384 or SHA512 for authentication and DES, 3DES, AES (AES128), AES192 or AES256
+ * for privacy; leave a protocol empty for noAuth or noPriv.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnmpUsmUser {
+
+    private String name;
+    private String securityName;
+    private String authProtocol;
+    private String authPassphrase;
+    private String privProtocol;
+    private String privPassphrase;
+
+}
@@ -0,0 +1,185 @@
+package org.thingsboard.server.transport.snmp.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads BER encoded SNMP messages in place, with absolute gets that leave the position of the buffer untouched, so
+ * heap and direct buffers are read without copying. Malformed input fails with {@link IllegalArgumentException}.
+ * Not thread safe.
+ */
+public final class SnmpBerReader {
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+
+    public SnmpBerReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return the identifier octet of the next element
+     */
+    public int readTag() {
+        check(1);
+        return buffer.get(position++) & 0xFF;
+    }
+
+    /**
+     * @return the content length of the current element, checked against the end of the buffer
+     */
+    public int readLength() {
+        check(1);
+        int length = buffer.get(position++) & 0xFF;
+        if ((length & 0x80) != 0) {
+            int octets = length & 0x7F;
+            if (octets == 0 || octets > 3) {
+                throw new IllegalArgumentException("Unsupported BER length of " + octets + " octets");
+            }
+            check(octets);
+            length = 0;
+            for (int i = 0; i < octets; i++) {
+                length = (length << 8) | (buffer.get(position++) & 0xFF);
+            }
+        }
+        check(length);
+        return length;
+    }
+
+    /**
+     * Reads the header of an element that must have the given tag.
+     *
+     * @return the content length
+     */
+    public int expect(int tag) {
+        int actual = readTag();
+        if (actual != tag) {
+            throw new IllegalArgumentException("Expected BER tag " + tag + " but got " + actual);
+        }
+        return readLength();
+    }
+
+    /**
+     * Reads the header of a constructed element with the given tag, its content is read next.
+     *
+     * @return the position right after the element
+     */
+    public int enter(int tag) {
+        int length = expect(tag);
+        return position + length;
+    }
+
+    public void skip(int length) {
+        check(length);
+        position += length;
+    }
+
+    /**
+     * Skips the next element, whatever its tag.
+     */
+    public void skipElement() {
+        readTag();
+        skip(readLength());
+    }
+
+    /**
+     * Reads the content of an INTEGER as a signed value.
+     */
+    public long readInteger(int length) {
+        if (length == 0 || length > 8) {
+            throw new IllegalArgumentException("Unsupported BER integer of " + length + " octets");
+        }
+        check(length);
+        long value = buffer.get(position++);
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (buffer.get(position++) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the content of an unsigned application type such as Counter32 or Counter64. A value above
+     * {@link Long#MAX_VALUE} wraps to a negative long.
+     */
+    public long readUnsigned(int length) {
+        check(length);
+        if (length == 0 || length > 9 || (length == 9 && buffer.get(position) != 0)) {
+            throw new IllegalArgumentException("Unsupported BER unsigned integer of " + length + " octets");
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (buffer.get(position++) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the content of an OBJECT IDENTIFIER into {@code oid}.
+     *
+     * @return the number of sub-identifiers read
+     */
+    public int readOid(int length, int[] oid) {
+        check(length);
+        int end = position + length;
+        if (length == 0) {
+            return 0;
+        }
+        int size = 0;
+        long subIdentifier = 0;
+        boolean first = true;
+        while (position < end) {
+            int octet = buffer.get(position++) & 0xFF;
+            subIdentifier = (subIdentifier << 7) | (octet & 0x7F);
+            if (subIdentifier > 0xFFFFFFFFL) {
+                throw new IllegalArgumentException("BER sub-identifier out of range");
+            }
+            if ((octet & 0x80) != 0) {
+                continue;
+            }
+            if (first) {
+                // The first octets hold the first two sub-identifiers as 40 * X + Y
+                if (oid.length < 2) {
+                    throw new IllegalArgumentException("OID too long");
+                }
+                int x = subIdentifier < 80 ? (int) (subIdentifier / 40) : 2;
+                oid[size++] = x;
+                oid[size++] = (int) (subIdentifier - 40L * x);
+                first = false;
+            } else {
+                if (size == oid.length) {
+                    throw new IllegalArgumentException("OID too long");
+                }
+                oid[size++] = (int) subIdentifier;
+            }
+            subIdentifier = 0;
+        }
+        if (subIdentifier != 0 || (buffer.get(end - 1) & 0x80) != 0) {
+            throw new IllegalArgumentException("Truncated BER sub-identifier");
+        }
+        return size;
+    }
+
+    /**
+     * Copies the content of an OCTET STRING.
+     */
+    public byte[] readBytes(int length) {
+        check(length);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position++);
+        }
+        return bytes;
+    }
+
+    private void check(int length) {
+        if (length < 0 || position + length > limit) {
+            throw new IllegalArgumentException("BER element exceeds the message");
+        }
+    }
+}
@@ -1,5 +1,19 @@
 package org.thingsboard.server.transport.snmp.util;
 
+import com.google.gson.JsonObject;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UnsignedInteger32;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.mib.SnmpOidMetadata;
+
+import java.util.List;
+import java.util.function.Function;
+
 /**
  *
  */
@@ -7,4 +21,100 @@ public class SnmpUtility {
     public static int nextRequestId() {
         return org.apache.commons.lang3.RandomUtils.nextInt(100000, 999999);
     }
+
+    /**
+     * Renders variable bindings as a JSON object keyed by dotted OID, suitable as an RPC response payload. Values are
+     * typed like {@link #toKeyValueProto(String, Variable, SnmpOidMetadata)}: numbers, labels of enumerated integers
+     * and scaled decimals as defined by the MIB, strings otherwise.
+     *
+     * @param metadata what the MIB defines for the OID of a binding, or null
+     */
+    public static String toJson(List<? extends VariableBinding> variableBindings, Function<OID, SnmpOidMetadata> metadata) {
+        JsonObject json = new JsonObject();
+        for (VariableBinding vb : variableBindings) {
+            String key = vb.getOid().toDottedString();
+            TransportProtos.KeyValueProto kv = toKeyValueProto(key, vb.getVariable(), metadata.apply(vb.getOid()));
+            switch (kv.getType()) {
+                case LONG_V:
+                    json.addProperty(key, kv.getLongV());
+                    break;
+                case DOUBLE_V:
+                    json.addProperty(key, kv.getDoubleV());
+                    break;
+                default:
+                    json.addProperty(key, kv.getStringV());
+            }
+        }
+        return json.toString();
+    }
+
+    /**
+     * Maps an SNMP value to a telemetry key value: numeric SMI types become longs, everything else is sent as a string.
+     */
+    public static TransportProtos.KeyValueProto toKeyValueProto(String key, Variable variable) {
+        TransportProtos.KeyValueProto.Builder builder = TransportProtos.KeyValueProto.newBuilder().setKey(key);
+        if (variable instanceof Integer32 || variable instanceof UnsignedInteger32 || variable instanceof Counter64) {
+            builder.setType(TransportProtos.KeyValueType.LONG_V).setLongV(variable.toLong());
+        } else {
+            builder.setType(TransportProtos.KeyValueType.STRING_V).setStringV(variable.toString());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Same as {@link #toKeyValueProto(String, Variable)}, with enumerated integers sent as their label and integers
+     * with a decimal display hint scaled to doubles, as defined by the MIB.
+     */
+    public static TransportProtos.KeyValueProto toKeyValueProto(String key, Variable variable, SnmpOidMetadata metadata) {
+        if (metadata != null && (variable instanceof Integer32 || variable instanceof UnsignedInteger32)) {
+            return toKeyValueProto(key, variable.toLong(), metadata);
+        }
+        return toKeyValueProto(key, variable);
+    }
+
+    /**
+     * Maps the value of an Integer32 or of an unsigned 32 bit SMI type like {@link #toKeyValueProto(String, Variable, SnmpOidMetadata)}.
+     */
+    public static TransportProtos.KeyValueProto toKeyValueProto(String key, long value, SnmpOidMetadata metadata) {
+        TransportProtos.KeyValueProto.Builder builder = TransportProtos.KeyValueProto.newBuilder().setKey(key);
+        if (metadata != null) {
+            if (!metadata.getEnums().isEmpty()) {
+                String label = metadata.getEnums().get((int) value);
+                if (label != null) {
+                    return builder.setType(TransportProtos.KeyValueType.STRING_V).setStringV(label).build();
+                }
+            } else if (metadata.getScale() > 0) {
+                return builder.setType(TransportProtos.KeyValueType.DOUBLE_V).setDoubleV(value / Math.pow(10, metadata.getScale())).build();
+            }
+        }
+        return builder.setType(TransportProtos.KeyValueType.LONG_V).setLongV(value).build();
+    }
+
+    /**
+     * Renders an OCTET STRING like {@link OctetString#toString()}: as text if printable, as colon separated hex otherwise.
+     */
+    public static String toDisplayString(byte[] value) {
+        for (byte octet : value) {
+            char c = (char) octet;
+            if ((Character.isISOControl(c) || (octet & 0xFF) >= 0x80)
+                    && (!Character.isWhitespace(c) || ((octet & 0xFF) >= 0x1C && (octet & 0xFF) <= 0x1F))) {
+                return new OctetString(value).toHexString();
+            }
+        }
+        return new String(value);
+    }
+
+    /**
+     * Renders the first {@code size} sub-identifiers of an OID like {@link OID#toDottedString()}.
+     */
+    public static String toDottedString(int[] oid, int size) {
+        StringBuilder dotted = new StringBuilder(size * 4);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                dotted.append('.');
+            }
+            dotted.append(oid[i] & 0xFFFFFFFFL);
+        }
+        return dotted.toString();
+    }
 }
@@ -0,0 +1,17 @@
+package org.thingsboard.server.transport.snmp.walk;
+
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Receives table rows while a walk is still in progress.
+ */
+public interface SnmpTableRowListener {
+
+    /**
+     * @param index   row index, i.e. the OID suffix after the column OID
+     * @param columns bindings in the order of the walked columns; null for columns the row has no value in
+     */
+    void onRow(OID index, VariableBinding[] columns);
+
+}
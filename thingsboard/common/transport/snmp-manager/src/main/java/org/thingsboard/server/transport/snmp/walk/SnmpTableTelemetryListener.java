@@ -0,0 +1,57 @@
+package org.thingsboard.server.transport.snmp.walk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.mib.SnmpOidMetadata;
+
+import java.util.List;
+
+import static org.thingsboard.server.transport.snmp.util.SnmpUtility.toKeyValueProto;
+
+/**
+ * Posts every walked row as device telemetry, one key per column named {@code <column>.<row index>}, e.g. ifInOctets.3.
+ * Values are typed and labeled as the MIB defines the column.
+ */
+@Slf4j
+public class SnmpTableTelemetryListener implements SnmpTableRowListener {
+
+    private final TransportService transportService;
+    private final TransportProtos.SessionInfoProto sessionInfo;
+    private final List<String> columnNames;
+    // What the MIB defines for each column, or null
+    private final List<SnmpOidMetadata> columnMetadata;
+
+    public SnmpTableTelemetryListener(TransportService transportService, TransportProtos.SessionInfoProto sessionInfo,
+                                      List<String> columnNames, List<SnmpOidMetadata> columnMetadata) {
+        this.transportService = transportService;
+        this.sessionInfo = sessionInfo;
+        this.columnNames = columnNames;
+        this.columnMetadata = columnMetadata;
+    }
+
+    @Override
+    public void onRow(OID index, VariableBinding[] columns) {
+        String suffix = "." + index.toDottedString();
+        TransportProtos.TsKvListProto.Builder tsKvList = TransportProtos.TsKvListProto.newBuilder().setTs(System.currentTimeMillis());
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] != null) {
+                tsKvList.addKv(toKeyValueProto(columnNames.get(i) + suffix, columns[i].getVariable(), columnMetadata.get(i)));
+            }
+        }
+        transportService.process(sessionInfo, TransportProtos.PostTelemetryMsg.newBuilder().addTsKvList(tsKvList).build(),
+                new TransportServiceCallback<Void>() {
+                    @Override
+                    public void onSuccess(Void msg) {
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        log.warn("Failed to post table row {}", index, e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,263 @@
+package org.thingsboard.server.transport.snmp.walk;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.snmp4j.PDU;
+import org.snmp4j.ScopedPDU;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.VariableBinding;
+import org.thingsboard.server.transport.snmp.push.SnmpSessionPool;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Walks SNMP tables column-wise with GETBULK over the shared session pool.
+ * Rows are reported as soon as every column still being walked has moved past them, so large tables
+ * are never buffered as a whole. Walks against the same agent are run in parallel up to a limit; the rest are queued.
+ */
+@Slf4j
+public class SnmpTableWalker {
+
+    private final SnmpSessionPool sessionPool;
+    @Getter
+    private final int maxRepetitions;
+    @Getter
+    private final int maxWalksPerAgent;
+
+    private final ConcurrentMap<String, AgentWalks> agents = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestsSent = new AtomicLong();
+    private final AtomicLong rowsReceived = new AtomicLong();
+
+    public SnmpTableWalker(SnmpSessionPool sessionPool, int maxRepetitions, int maxWalksPerAgent) {
+        this.sessionPool = sessionPool;
+        this.maxRepetitions = Math.max(1, maxRepetitions);
+        this.maxWalksPerAgent = Math.max(1, maxWalksPerAgent);
+    }
+
+    /**
+     * Walks the given table columns, e.g. ifDescr and ifInOctets of ifTable.
+     *
+     * @return completed with the number of reported rows once every column is exhausted
+     */
+    public ListenableFuture<Integer> walk(Target target, List<OID> columns, SnmpTableRowListener listener) {
+        TableWalk walk = new TableWalk(target, columns.toArray(new OID[0]), listener);
+        boolean[] start = new boolean[1];
+        agents.compute(walk.key, (k, agentWalks) -> {
+            if (agentWalks == null) {
+                agentWalks = new AgentWalks();
+            }
+            start[0] = agentWalks.active < maxWalksPerAgent;
+            if (start[0]) {
+                agentWalks.active++;
+            } else {
+                agentWalks.queued.add(walk);
+            }
+            return agentWalks;
+        });
+        if (start[0]) {
+            walk.requestNext();
+        }
+        return walk.future;
+    }
+
+    public long getRequestsSent() {
+        return requestsSent.get();
+    }
+
+    public long getRowsReceived() {
+        return rowsReceived.get();
+    }
+
+    /**
+     * Starts the next queued walk of the agent, or forgets the agent once it has no walk left.
+     */
+    private void onWalkDone(TableWalk walk) {
+        TableWalk[] next = new TableWalk[1];
+        agents.computeIfPresent(walk.key, (k, agentWalks) -> {
+            next[0] = agentWalks.queued.poll();
+            if (next[0] == null) {
+                agentWalks.active--;
+            }
+            return agentWalks.active > 0 ? agentWalks : null;
+        });
+        if (next[0] != null) {
+            next[0].requestNext();
+        }
+    }
+
+    int getAgentCount() {
+        return agents.size();
+    }
+
+    private static class AgentWalks {
+        private int active;
+        private final Queue<TableWalk> queued = new ArrayDeque<>();
+    }
+
+    private class TableWalk implements ResponseListener {
+        private final String key;
+        private final Target target;
+        private final OID[] columns;
+        private final OID[] lastOids;
+        private final boolean[] finished;
+        private final SnmpTableRowListener listener;
+        private final NavigableMap<OID, VariableBinding[]> pendingRows = new TreeMap<>();
+        private final SettableFuture<Integer> future = SettableFuture.create();
+        private int rowCount;
+
+        TableWalk(Target target, OID[] columns, SnmpTableRowListener listener) {
+            this.key = target.getAddress().toString();
+            this.target = target;
+            this.columns = columns;
+            this.lastOids = new OID[columns.length];
+            this.finished = new boolean[columns.length];
+            this.listener = listener;
+            for (int i = 0; i < columns.length; i++) {
+                lastOids[i] = columns[i];
+            }
+        }
+
+        void requestNext() {
+            PDU pdu = target.getVersion() == SnmpConstants.version3 ? new ScopedPDU() : new PDU();
+            pdu.setType(PDU.GETBULK);
+            pdu.setNonRepeaters(0);
+            pdu.setMaxRepetitions(maxRepetitions);
+            for (int i = 0; i < columns.length; i++) {
+                if (!finished[i]) {
+                    pdu.add(new VariableBinding(lastOids[i]));
+                }
+            }
+            requestsSent.incrementAndGet();
+            if (!sessionPool.send(pdu, target, null, this)) {
+                complete(new RejectedExecutionException("Too many SNMP requests in flight"));
+            }
+        }
+
+        @Override
+        public void onResponse(ResponseEvent event) {
+            try {
+                if (event.getError() != null) {
+                    complete(event.getError());
+                } else if (event.getResponse() == null) {
+                    complete(new TimeoutException("SNMP agent " + key + " did not respond"));
+                } else if (event.getResponse().getErrorStatus() != PDU.noError) {
+                    complete(new IllegalStateException("SNMP table walk failed: " + event.getResponse().getErrorStatusText()));
+                } else {
+                    processResponse(event.getResponse());
+                    if (hasActiveColumns()) {
+                        requestNext();
+                    } else {
+                        complete(null);
+                    }
+                }
+            } catch (RuntimeException e) {
+                complete(e);
+            }
+        }
+
+        private void processResponse(PDU response) {
+            int[] active = activeColumns();
+            if (response.size() == 0) {
+                // Nothing after any of the columns, e.g. agents that omit endOfMibView at the end of their MIB
+                for (int col : active) {
+                    finished[col] = true;
+                }
+            }
+            for (int i = 0; i < response.size(); i++) {
+                int col = active[i % active.length];
+                if (finished[col]) {
+                    continue;
+                }
+                VariableBinding vb = response.get(i);
+                OID oid = vb.getOid();
+                if (vb.isException() || !oid.startsWith(columns[col]) || oid.compareTo(lastOids[col]) <= 0) {
+                    finished[col] = true;
+                    continue;
+                }
+                lastOids[col] = oid;
+                OID index = new OID(oid.getValue(), columns[col].size(), oid.size() - columns[col].size());
+                VariableBinding[] row = pendingRows.get(index);
+                if (row == null) {
+                    row = new VariableBinding[columns.length];
+                    pendingRows.put(index, row);
+                }
+                row[col] = vb;
+            }
+            OID bound = null;
+            for (int i = 0; i < columns.length; i++) {
+                if (!finished[i]) {
+                    OID index = new OID(lastOids[i].getValue(), columns[i].size(), lastOids[i].size() - columns[i].size());
+                    if (bound == null || index.compareTo(bound) < 0) {
+                        bound = index;
+                    }
+                }
+            }
+            emitRows(bound == null ? pendingRows : pendingRows.headMap(bound, true));
+        }
+
+        private void emitRows(Map<OID, VariableBinding[]> rows) {
+            Iterator<Map.Entry<OID, VariableBinding[]>> it = rows.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<OID, VariableBinding[]> row = it.next();
+                it.remove();
+                rowCount++;
+                rowsReceived.incrementAndGet();
+                listener.onRow(row.getKey(), row.getValue());
+            }
+        }
+
+        private int[] activeColumns() {
+            int count = 0;
+            for (boolean done : finished) {
+                if (!done) {
+                    count++;
+                }
+            }
+            int[] active = new int[count];
+            for (int i = 0, j = 0; i < finished.length; i++) {
+                if (!finished[i]) {
+                    active[j++] = i;
+                }
+            }
+            return active;
+        }
+
+        private boolean hasActiveColumns() {
+            for (boolean done : finished) {
+                if (!done) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void complete(Throwable error) {
+            if (error == null) {
+                emitRows(pendingRows);
+                future.set(rowCount);
+            } else {
+                log.warn("[{}] SNMP table walk failed after {} rows", key, rowCount, error);
+                future.setException(error);
+            }
+            onWalkDone(this);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.thingsboard.server.transport.snmp;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.transport.SessionMsgListener;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.push.SnmpDeviceRpcHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SnmpDeviceSessionCacheTest {
+
+    private static final String TOKEN = "A1_TEST_TOKEN";
+
+    private TransportService transportService;
+    private SnmpDeviceSessionCache cache;
+    private final List<TransportServiceCallback<TransportProtos.ValidateDeviceCredentialsResponseMsg>> validations = new ArrayList<>();
+
+    @Before
+    public void before() {
+        transportService = mock(TransportService.class);
+        doAnswer(invocation -> {
+            validations.add((TransportServiceCallback<TransportProtos.ValidateDeviceCredentialsResponseMsg>) invocation.getArguments()[1]);
+            return null;
+        }).when(transportService).process(any(TransportProtos.ValidateDeviceTokenRequestMsg.class), any(TransportServiceCallback.class));
+        SnmpTransportContext context = mock(SnmpTransportContext.class);
+        when(context.getTransportService()).thenReturn(transportService);
+        when(context.getNodeId()).thenReturn("test");
+
+        cache = new SnmpDeviceSessionCache();
+        ReflectionTestUtils.setField(cache, "snmpTransportContext", context);
+        ReflectionTestUtils.setField(cache, "maxSize", 10L);
+        ReflectionTestUtils.setField(cache, "ttl", 60000L);
+        cache.init();
+    }
+
+    @Test
+    public void testKnownDeviceReusesOneSession() {
+        List<TransportProtos.SessionInfoProto> sessions = new ArrayList<>();
+        cache.process(TOKEN, sessions::add);
+        cache.process(TOKEN, sessions::add);
+        assertEquals(1, validations.size());
+        validations.get(0).onSuccess(validResponse());
+        cache.process(TOKEN, sessions::add);
+
+        assertEquals(3, sessions.size());
+        assertEquals(sessions.get(0), sessions.get(1));
+        assertEquals(sessions.get(0), sessions.get(2));
+        assertEquals(1, validations.size());
+        verify(transportService, times(1)).registerAsyncSession(eq(sessions.get(0)), any(SessionMsgListener.class));
+        verify(transportService, times(1)).reportActivity(sessions.get(0));
+    }
+
+    @Test
+    public void testSessionCloseNotificationInvalidatesDevice() {
+        cache.process(TOKEN, sessionInfo -> {
+        });
+        validations.get(0).onSuccess(validResponse());
+        ArgumentCaptor<SessionMsgListener> listener = ArgumentCaptor.forClass(SessionMsgListener.class);
+        verify(transportService).registerAsyncSession(any(TransportProtos.SessionInfoProto.class), listener.capture());
+
+        // Sent by the device actor when the credentials of the device are updated
+        listener.getValue().onRemoteSessionCloseCommand(TransportProtos.SessionCloseNotificationProto.getDefaultInstance());
+        assertEquals(0, cache.size());
+        verify(transportService).deregisterSession(any(TransportProtos.SessionInfoProto.class));
+
+        cache.process(TOKEN, sessionInfo -> {
+        });
+        assertEquals(2, validations.size());
+    }
+
+    @Test
+    public void testDeviceRpcIsDeliveredThroughSession() {
+        SnmpDeviceRpcHandler rpcHandler = mock(SnmpDeviceRpcHandler.class);
+        ReflectionTestUtils.setField(cache, "rpcHandler", rpcHandler);
+        cache.process(TOKEN, sessionInfo -> {
+        });
+        validations.get(0).onSuccess(validResponse());
+        verify(transportService).process(any(TransportProtos.SessionInfoProto.class), eq(TransportProtos.SubscribeToRPCMsg.getDefaultInstance()),
+                isNull(TransportServiceCallback.class));
+        ArgumentCaptor<SessionMsgListener> listener = ArgumentCaptor.forClass(SessionMsgListener.class);
+        verify(transportService).registerAsyncSession(any(TransportProtos.SessionInfoProto.class), listener.capture());
+
+        TransportProtos.ToDeviceRpcRequestMsg request = TransportProtos.ToDeviceRpcRequestMsg.newBuilder()
+                .setRequestId(7).setMethodName("getSysDescr").setParams("\"{\\\"trapOid\\\": \\\"1.3.6.1.2.1.1.1.0\\\"}\"").build();
+        listener.getValue().onToDeviceRpcRequest(request);
+        verify(rpcHandler).onToDeviceRpcRequest(any(TransportProtos.SessionInfoProto.class), eq(request));
+        assertEquals("{\"method\":\"getSysDescr\",\"params\":\"{\\\"trapOid\\\": \\\"1.3.6.1.2.1.1.1.0\\\"}\"}",
+                SnmpDeviceRpcHandler.toPushMessage(request));
+    }
+
+    @Test
+    public void testUnknownTokenIsNotCached() {
+        List<TransportProtos.SessionInfoProto> sessions = new ArrayList<>();
+        cache.process(TOKEN, sessions::add);
+        validations.get(0).onSuccess(TransportProtos.ValidateDeviceCredentialsResponseMsg.getDefaultInstance());
+
+        assertEquals(0, sessions.size());
+        assertEquals(0, cache.size());
+        cache.process(TOKEN, sessions::add);
+        assertEquals(2, validations.size());
+    }
+
+    private static TransportProtos.ValidateDeviceCredentialsResponseMsg validResponse() {
+        return TransportProtos.ValidateDeviceCredentialsResponseMsg.newBuilder()
+                .setDeviceInfo(TransportProtos.DeviceInfoProto.newBuilder().setDeviceIdMSB(1).setDeviceIdLSB(2)).build();
+    }
+}
@@ -0,0 +1,255 @@
+package org.thingsboard.server.transport.snmp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.PDU;
+import org.snmp4j.MessageDispatcher;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.MessageProcessingModel;
+import org.snmp4j.mp.PduHandle;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.mp.StateReference;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.ingest.SnmpOverflowPolicy;
+import org.thingsboard.server.transport.snmp.ingest.SnmpReceiveLoopStats;
+import org.thingsboard.server.transport.snmp.ingest.UdpSocketStats;
+import org.thingsboard.server.transport.snmp.mapping.SnmpTrapMapping;
+import org.thingsboard.server.transport.snmp.mapping.SnmpTrapMappingService;
+import org.thingsboard.server.transport.snmp.mapping.SnmpTrapSource;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+
+import java.net.DatagramSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SnmpTransportReceiverListenerTest {
+
+    private final TransportServiceStub transportService = new TransportServiceStub();
+    private final SnmpTrapMappingService trapMappingService = new SnmpTrapMappingService();
+    private SnmpTransportReceiverListener listener;
+    private Snmp sender;
+    private int port;
+
+    @Before
+    public void before() throws Exception {
+        SnmpTransportContext context = mock(SnmpTransportContext.class);
+        when(context.getTransportService()).thenReturn(transportService.create());
+        when(context.getNodeId()).thenReturn("test");
+        SnmpDeviceSessionCache sessionCache = new SnmpDeviceSessionCache();
+        ReflectionTestUtils.setField(sessionCache, "snmpTransportContext", context);
+        ReflectionTestUtils.setField(sessionCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(sessionCache, "ttl", 60000L);
+        sessionCache.init();
+
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        listener = new SnmpTransportReceiverListener();
+        ReflectionTestUtils.setField(listener, "snmpTransportContext", context);
+        ReflectionTestUtils.setField(listener, "deviceSessionCache", sessionCache);
+        ReflectionTestUtils.setField(trapMappingService, "oidRegistryService", new SnmpOidRegistryService());
+        ReflectionTestUtils.setField(listener, "trapMappingService", trapMappingService);
+        ReflectionTestUtils.setField(listener, "bindAddress", "127.0.0.1");
+        ReflectionTestUtils.setField(listener, "listenPort", port);
+        ReflectionTestUtils.setField(listener, "dispatcherPoolSize", 4);
+        ReflectionTestUtils.setField(listener, "receiverSockets", 1);
+        ReflectionTestUtils.setField(listener, "queueCapacity", 100000);
+        ReflectionTestUtils.setField(listener, "overflowPolicy", SnmpOverflowPolicy.DROP_OLDEST);
+        ReflectionTestUtils.setField(listener, "queueWorkers", 2);
+        ReflectionTestUtils.setField(listener, "maxPending", 10000);
+        listener.startSnmpListener();
+
+        sender = new Snmp(new DefaultUdpTransportMapping());
+        sender.listen();
+    }
+
+    @After
+    public void after() throws Exception {
+        sender.close();
+        listener.stop();
+    }
+
+    @Test
+    public void testTrapsArePostedWithOneValidationPerDevice() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            sendTrap("{\"deviceToken\":\"TOKEN_" + (i % 10) + "\",\"method\":\"cxSysAttributes\",\"params\":{\"upSpeed\":" + i + "}}");
+        }
+        sendTrap("{\"deviceToken\":\"TOKEN_0\",\"method\":\"cxSysUptime\",\"params\":{\"sysUpTime\":1}}");
+        sendTrap("not json");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (transportService.attributes.get() + transportService.rpcRequests.get() < 101 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(102, listener.getTrapsReceived());
+        assertEquals(1, listener.getTrapsRejected());
+        assertEquals(100, transportService.attributes.get());
+        assertEquals(1, transportService.rpcRequests.get());
+        assertEquals(10, transportService.validations.get());
+        assertEquals(101, listener.getIngestQueue().getAccepted());
+        assertEquals(0, listener.getIngestQueue().getDropped());
+        assertEquals(UdpSocketStats.isSupported() ? 0 : -1, listener.getReceiveBufferOverruns());
+    }
+
+    @Test
+    public void testMappedVarbindsArePostedAsTelemetryAndAttributes() throws Exception {
+        SnmpTrapMapping mapping = new SnmpTrapMapping();
+        mapping.setName("ifMib");
+        mapping.getTelemetry().put("1.3.6.1.2.1.2.2.1.10", "ifInOctets");
+        mapping.getAttributes().put("1.3.6.1.2.1.1.5.0", "sysName");
+        trapMappingService.addMapping(mapping);
+        trapMappingService.addSource(new SnmpTrapSource("SITE_7_TOKEN", null, "site-7", null, "ifMib"));
+
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.10.3"), new Counter32(1234)));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.1.5.0"), new OctetString("router-7")));
+        sendTrap(pdu, "site-7");
+        pdu = new PDU();
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.10.4"), new Counter32(5678)));
+        sendTrap(pdu, "site-7");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (transportService.telemetry.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, transportService.telemetry.get());
+        assertEquals(1, transportService.attributes.get());
+        assertEquals(1, transportService.validations.get());
+        assertEquals(2, trapMappingService.getTrapsMapped());
+    }
+
+    @Test
+    public void testTrapsAreReceivedWithNettyAndMappedTrapsDecodedInPlace() throws Exception {
+        listener.stop();
+        ReflectionTestUtils.setField(listener, "nettyEnabled", true);
+        ReflectionTestUtils.setField(listener, "nettyEventLoops", 2);
+        ReflectionTestUtils.setField(listener, "fastDecode", true);
+        listener.startSnmpListener();
+        SnmpTrapMapping mapping = new SnmpTrapMapping();
+        mapping.setName("ifMib");
+        mapping.getTelemetry().put("1.3.6.1.2.1.2.2.1.10", "ifInOctets");
+        trapMappingService.addMapping(mapping);
+        trapMappingService.addSource(new SnmpTrapSource("SITE_7_TOKEN", null, "site-7", null, "ifMib"));
+
+        for (int i = 0; i < 10; i++) {
+            PDU pdu = new PDU();
+            pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.10." + i), new Counter32(i)));
+            sendTrap(pdu, "site-7");
+            sendTrap("{\"deviceToken\":\"TOKEN\",\"method\":\"cxSysAttributes\",\"params\":{\"upSpeed\":" + i + "}}");
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (transportService.telemetry.get() + transportService.attributes.get() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(10, transportService.telemetry.get());
+        assertEquals(10, transportService.attributes.get());
+        assertEquals(20, listener.getTrapsReceived());
+        assertEquals(10, listener.getTrapsDecodedInPlace());
+        List<SnmpReceiveLoopStats> loops = listener.getReceiveLoopStats();
+        assertEquals(NettyUdpTransportMapping.isEpollAvailable() ? 2 : 1, loops.size());
+        assertEquals(20, loops.stream().mapToLong(SnmpReceiveLoopStats::getReceived).sum());
+        assertEquals(10, loops.stream().mapToLong(SnmpReceiveLoopStats::getDecodedInPlace).sum());
+    }
+
+    @Test
+    public void testIdenticalTrapsOfAStormArePostedOnceWithTheirRepeatCount() throws Exception {
+        listener.stop();
+        ReflectionTestUtils.setField(listener, "fastDecode", true);
+        ReflectionTestUtils.setField(listener, "stormEnabled", true);
+        ReflectionTestUtils.setField(listener, "stormRateLimit", "5:60");
+        ReflectionTestUtils.setField(listener, "stormWindow", 60000L);
+        ReflectionTestUtils.setField(listener, "stormMaxDistinct", 100);
+        listener.startSnmpListener();
+        SnmpTrapMapping mapping = new SnmpTrapMapping();
+        mapping.setName("ifMib");
+        mapping.getTelemetry().put("1.3.6.1.2.1.2.2.1.8", "ifOperStatus");
+        trapMappingService.addMapping(mapping);
+        trapMappingService.addSource(new SnmpTrapSource("SITE_7_TOKEN", null, "site-7", null, "ifMib"));
+
+        for (int i = 0; i < 25; i++) {
+            PDU pdu = new PDU();
+            pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.8.1"), new Integer32(2)));
+            sendTrap(pdu, "site-7");
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((listener.getStormGuard().getTrapsHeld() < 20 || transportService.telemetry.get() < 5)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        listener.getStormGuard().flush();
+        while (transportService.telemetry.get() < 6 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(6, transportService.telemetry.get());
+        assertEquals(25, listener.getTrapsReceived());
+        assertEquals(5, listener.getTrapsDecodedInPlace());
+        assertEquals(1, listener.getStormGuard().getStormsDetected());
+        TransportProtos.TsKvListProto values = transportService.lastTelemetry.getTsKvList(0);
+        assertEquals("trapRepeatCount", values.getKv(1).getKey());
+        assertEquals(20, values.getKv(1).getLongV());
+    }
+
+    @Test
+    public void testInformIsAnsweredWithACopy() throws Exception {
+        PDU inform = new PDU();
+        inform.setType(PDU.INFORM);
+        inform.add(new VariableBinding(SnmpConstants.sysDescr,
+                new OctetString("{\"deviceToken\":\"TOKEN_1\",\"method\":\"cxSysAttributes\",\"params\":{\"upSpeed\":1}}")));
+        MessageDispatcher dispatcher = mock(MessageDispatcher.class);
+        listener.processPdu(new CommandResponderEvent(dispatcher, null, new UdpAddress("127.0.0.1/162"),
+                MessageProcessingModel.MPv2c, SecurityModel.SECURITY_MODEL_SNMPv2c, "public".getBytes(StandardCharsets.UTF_8),
+                SecurityLevel.NOAUTH_NOPRIV, new PduHandle(1), inform, 65535, new StateReference()));
+
+        ArgumentCaptor<PDU> response = ArgumentCaptor.forClass(PDU.class);
+        verify(dispatcher).returnResponsePdu(anyInt(), anyInt(), any(byte[].class), anyInt(), response.capture(), anyInt(),
+                any(StateReference.class), any(StatusInformation.class));
+        assertEquals(PDU.RESPONSE, response.getValue().getType());
+        assertEquals(inform.getVariableBindings(), response.getValue().getVariableBindings());
+        // The inform handed over for ingest is left as received
+        assertEquals(PDU.INFORM, inform.getType());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (transportService.attributes.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, transportService.attributes.get());
+    }
+
+    private void sendTrap(String payload) throws Exception {
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(SnmpConstants.sysDescr, new OctetString(payload)));
+        sendTrap(pdu, "public");
+    }
+
+    private void sendTrap(PDU pdu, String community) throws Exception {
+        pdu.setType(PDU.NOTIFICATION);
+        CommunityTarget target = new CommunityTarget();
+        target.setCommunity(new OctetString(community));
+        target.setVersion(SnmpConstants.version2c);
+        target.setAddress(new UdpAddress("127.0.0.1/" + port));
+        sender.send(pdu, target);
+    }
+}
@@ -0,0 +1,143 @@
+package org.thingsboard.server.transport.snmp;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.snmp4j.PDU;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.asn1.BEROutputStream;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.transport.snmp.ingest.SnmpOverflowPolicy;
+import org.thingsboard.server.transport.snmp.mapping.SnmpTrapMappingService;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Blasts pre-encoded v2c traps at the receiver from several threads and reports how many it processes per second
+ * with one dispatcher thread and socket, with one dispatcher thread per core, with one socket per core as well, and
+ * with one Netty epoll event loop per core.
+ * Run with {@code mvn test -Dtest=SnmpTrapReceiverLoadTest}; -Dsnmp.load.seconds and -Dsnmp.load.devices tune it.
+ */
+@Ignore("Load test, run manually")
+public class SnmpTrapReceiverLoadTest {
+
+    @Test
+    public void trapThroughputScalesWithCores() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int seconds = Integer.getInteger("snmp.load.seconds", 5);
+        int devices = Integer.getInteger("snmp.load.devices", 1000);
+        List<byte[]> traps = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            traps.add(encodeTrap("{\"deviceToken\":\"TOKEN_" + i + "\",\"method\":\"cxSysAttributes\",\"params\":{\"upSpeed\":" + i + ",\"downSpeed\":" + i + "}}"));
+        }
+        System.out.printf("%d cores, %d devices, %d s per run%n", cores, devices, seconds);
+        run(1, 1, false, traps, seconds);
+        if (cores > 1) {
+            run(cores, 1, false, traps, seconds);
+        }
+        if (cores > 1 && ReusePortUdpTransportMapping.isSupported()) {
+            run(cores, cores, false, traps, seconds);
+        } else {
+            System.out.println("SO_REUSEPORT is not supported by this JVM, skipping the multi-socket run");
+        }
+        if (NettyUdpTransportMapping.isEpollAvailable()) {
+            run(cores, cores, true, traps, seconds);
+        } else {
+            System.out.println("Native epoll is not available, skipping the Netty run");
+        }
+    }
+
+    private void run(int dispatcherThreads, int sockets, boolean netty, List<byte[]> traps, int seconds) throws Exception {
+        TransportServiceStub transportService = new TransportServiceStub();
+        SnmpTransportContext context = mock(SnmpTransportContext.class);
+        when(context.getTransportService()).thenReturn(transportService.create());
+        when(context.getNodeId()).thenReturn("load");
+        SnmpDeviceSessionCache sessionCache = new SnmpDeviceSessionCache();
+        ReflectionTestUtils.setField(sessionCache, "snmpTransportContext", context);
+        ReflectionTestUtils.setField(sessionCache, "maxSize", 100000L);
+        ReflectionTestUtils.setField(sessionCache, "ttl", 600000L);
+        sessionCache.init();
+
+        int port;
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        SnmpTransportReceiverListener listener = new SnmpTransportReceiverListener();
+        ReflectionTestUtils.setField(listener, "snmpTransportContext", context);
+        ReflectionTestUtils.setField(listener, "deviceSessionCache", sessionCache);
+        ReflectionTestUtils.setField(listener, "trapMappingService", new SnmpTrapMappingService());
+        ReflectionTestUtils.setField(listener, "bindAddress", "127.0.0.1");
+        ReflectionTestUtils.setField(listener, "listenPort", port);
+        ReflectionTestUtils.setField(listener, "dispatcherPoolSize", dispatcherThreads);
+        ReflectionTestUtils.setField(listener, "receiverSockets", sockets);
+        ReflectionTestUtils.setField(listener, "nettyEnabled", netty);
+        ReflectionTestUtils.setField(listener, "nettyEventLoops", sockets);
+        ReflectionTestUtils.setField(listener, "receiveBufferSize", 4 * 1024 * 1024);
+        ReflectionTestUtils.setField(listener, "queueCapacity", 100000);
+        ReflectionTestUtils.setField(listener, "overflowPolicy", SnmpOverflowPolicy.DROP_OLDEST);
+        ReflectionTestUtils.setField(listener, "queueWorkers", 2);
+        ReflectionTestUtils.setField(listener, "maxPending", 10000);
+        listener.startSnmpListener();
+
+        int senders = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < senders; s++) {
+            // Distinct source ports, so that SO_REUSEPORT hashes the senders to different sockets
+            Thread thread = new Thread(() -> {
+                try (DatagramSocket socket = new DatagramSocket()) {
+                    InetAddress target = InetAddress.getByName("127.0.0.1");
+                    int i = 0;
+                    while (System.currentTimeMillis() < end) {
+                        byte[] trap = traps.get(i++ % traps.size());
+                        socket.send(new DatagramPacket(trap, trap.length, target, port));
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long start = System.currentTimeMillis();
+        long before = transportService.attributes.get();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.currentTimeMillis() - start) / 1000.0;
+        long processed = transportService.attributes.get() - before;
+        listener.stop();
+        System.out.printf("dispatcher threads=%d, %s=%d: %.0f traps/s processed (%d received)%n",
+                dispatcherThreads, netty ? "event loops" : "sockets", sockets, processed / elapsed, listener.getTrapsReceived());
+    }
+
+    private static byte[] encodeTrap(String payload) throws Exception {
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(SnmpConstants.sysDescr, new OctetString(payload)));
+        pdu.setType(PDU.NOTIFICATION);
+        Integer32 version = new Integer32(SnmpConstants.version2c);
+        OctetString community = new OctetString("public");
+        int length = version.getBERLength() + community.getBERLength() + pdu.getBERLength();
+        BEROutputStream out = new BEROutputStream(ByteBuffer.allocate(length + 8));
+        BER.encodeHeader(out, BER.SEQUENCE, length);
+        version.encodeBER(out);
+        community.encodeBER(out);
+        pdu.encodeBER(out);
+        ByteBuffer buffer = out.getBuffer();
+        byte[] trap = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(trap);
+        return trap;
+    }
+}
@@ -0,0 +1,50 @@
+package org.thingsboard.server.transport.snmp;
+
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe transport service for receiver tests: every token is valid, and validations and posted messages
+ * are only counted and acknowledged at once, so it stays cheap under load unlike a Mockito mock.
+ */
+class TransportServiceStub {
+
+    final AtomicLong validations = new AtomicLong();
+    final AtomicLong attributes = new AtomicLong();
+    final AtomicLong telemetry = new AtomicLong();
+    final AtomicLong rpcRequests = new AtomicLong();
+    volatile TransportProtos.PostTelemetryMsg lastTelemetry;
+
+    @SuppressWarnings("unchecked")
+    TransportService create() {
+        return (TransportService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{TransportService.class}, (proxy, method, args) -> {
+            if (args == null || !"process".equals(method.getName())) {
+                return null;
+            }
+            Object msg = args.length == 3 ? args[1] : args[0];
+            if (msg instanceof TransportProtos.ValidateDeviceTokenRequestMsg) {
+                validations.incrementAndGet();
+                String token = ((TransportProtos.ValidateDeviceTokenRequestMsg) msg).getToken();
+                ((TransportServiceCallback<TransportProtos.ValidateDeviceCredentialsResponseMsg>) args[1]).onSuccess(
+                        TransportProtos.ValidateDeviceCredentialsResponseMsg.newBuilder()
+                                .setDeviceInfo(TransportProtos.DeviceInfoProto.newBuilder()
+                                        .setDeviceIdMSB(token.hashCode()).setDeviceName(token)).build());
+            } else if (msg instanceof TransportProtos.PostAttributeMsg) {
+                attributes.incrementAndGet();
+            } else if (msg instanceof TransportProtos.PostTelemetryMsg) {
+                lastTelemetry = (TransportProtos.PostTelemetryMsg) msg;
+                telemetry.incrementAndGet();
+            } else if (msg instanceof TransportProtos.ToServerRpcRequestMsg) {
+                rpcRequests.incrementAndGet();
+            }
+            if (args.length == 3 && args[2] != null) {
+                ((TransportServiceCallback<Void>) args[2]).onSuccess(null);
+            }
+            return null;
+        });
+    }
+}
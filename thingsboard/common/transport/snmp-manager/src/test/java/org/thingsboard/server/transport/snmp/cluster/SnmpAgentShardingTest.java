@@ -0,0 +1,65 @@
+package org.thingsboard.server.transport.snmp.cluster;
+
+import org.junit.Test;
+import org.snmp4j.smi.UdpAddress;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnmpAgentShardingTest {
+
+    private static final int AGENTS = 10000;
+
+    @Test
+    public void testAgentsAreSpreadAndMoveMinimallyOnScaleOut() {
+        SnmpAgentSharding sharding = newSharding();
+        sharding.setNodes("snmp-1", Arrays.asList("snmp-1", "snmp-2", "snmp-3"));
+        Map<String, String> owners = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < AGENTS; i++) {
+            UdpAddress agent = agent(i);
+            String owner = sharding.getOwner(agent);
+            owners.put(agent.toString(), owner);
+            counts.merge(owner, 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > AGENTS / 6));
+
+        sharding.setNodes("snmp-1", Arrays.asList("snmp-1", "snmp-2", "snmp-3", "snmp-4"));
+        int moved = 0;
+        for (int i = 0; i < AGENTS; i++) {
+            String owner = sharding.getOwner(agent(i));
+            if (!owner.equals(owners.get(agent(i).toString()))) {
+                // Only agents taken over by the new node move
+                assertEquals("snmp-4", owner);
+                moved++;
+            }
+        }
+        assertTrue(moved > AGENTS / 8 && moved < AGENTS / 2);
+    }
+
+    @Test
+    public void testAllAgentsAreLocalWithoutNodes() {
+        SnmpAgentSharding sharding = newSharding();
+        sharding.init();
+        assertNull(sharding.getOwner(agent(1)));
+        assertTrue(sharding.isLocal(agent(1)));
+    }
+
+    private static SnmpAgentSharding newSharding() {
+        SnmpAgentSharding sharding = new SnmpAgentSharding();
+        ReflectionTestUtils.setField(sharding, "nodes", "");
+        ReflectionTestUtils.setField(sharding, "virtualNodes", 64);
+        return sharding;
+    }
+
+    private static UdpAddress agent(int i) {
+        return new UdpAddress("10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255) + "/161");
+    }
+}
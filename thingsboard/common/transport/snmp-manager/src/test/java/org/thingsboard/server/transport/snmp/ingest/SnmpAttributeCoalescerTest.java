@@ -0,0 +1,60 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SnmpAttributeCoalescerTest {
+
+    private final Map<String, JsonObject> posted = new HashMap<>();
+    private final SnmpAttributeCoalescer coalescer = new SnmpAttributeCoalescer(1000, posted::put);
+
+    @Test
+    public void testUpdatesOfADeviceAreMergedWithTheNewestValues() {
+        for (int i = 0; i < 10; i++) {
+            coalescer.add("A", json("{\"upSpeed\":" + i + ",\"downSpeed\":" + (i * 10) + "}"));
+        }
+        coalescer.add("A", json("{\"firmware\":\"1.2\"}"));
+        coalescer.add("B", json("{\"upSpeed\":5}"));
+        coalescer.flush();
+
+        assertEquals(2, posted.size());
+        assertEquals(json("{\"upSpeed\":9,\"downSpeed\":90,\"firmware\":\"1.2\"}"), posted.get("A"));
+        assertEquals(json("{\"upSpeed\":5}"), posted.get("B"));
+        assertEquals(12, coalescer.getUpdatesReceived());
+        assertEquals(18, coalescer.getValuesCoalesced());
+        assertEquals(2, coalescer.getMessagesFlushed());
+    }
+
+    @Test
+    public void testNothingIsPostedTwice() {
+        coalescer.add("A", json("{\"upSpeed\":1}"));
+        coalescer.flush();
+        posted.clear();
+        coalescer.flush();
+
+        assertEquals(0, posted.size());
+        assertEquals(0, coalescer.getPendingDevices());
+    }
+
+    @Test
+    public void testOnlyTheFirstUpdateOfAMessageStartsIt() {
+        assertTrue(coalescer.add("A", json("{\"upSpeed\":1}")));
+        assertFalse(coalescer.add("A", json("{\"upSpeed\":2}")));
+        assertTrue(coalescer.add("B", json("{\"upSpeed\":3}")));
+        coalescer.flush();
+
+        assertTrue(coalescer.add("A", json("{\"upSpeed\":4}")));
+    }
+
+    private static JsonObject json(String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+}
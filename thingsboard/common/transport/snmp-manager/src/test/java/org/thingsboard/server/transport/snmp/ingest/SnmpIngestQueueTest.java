@@ -0,0 +1,65 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnmpIngestQueueTest {
+
+    @Test
+    public void testDropOldestEvictsTheHead() throws Exception {
+        SnmpIngestQueue<String> queue = new SnmpIngestQueue<>(2, SnmpOverflowPolicy.DROP_OLDEST);
+        assertTrue(queue.offer("A", "a1"));
+        assertTrue(queue.offer("B", "b1"));
+        assertTrue(queue.offer("C", "c1"));
+
+        assertEquals(3, queue.getAccepted());
+        assertEquals(1, queue.getDropped());
+        assertEquals("b1", poll(queue));
+        assertEquals("c1", poll(queue));
+        assertNull(poll(queue));
+    }
+
+    @Test
+    public void testDropNewestRejectsTheOffer() throws Exception {
+        SnmpIngestQueue<String> queue = new SnmpIngestQueue<>(2, SnmpOverflowPolicy.DROP_NEWEST);
+        assertTrue(queue.offer("A", "a1"));
+        assertTrue(queue.offer("B", "b1"));
+        assertFalse(queue.offer("C", "c1"));
+
+        assertEquals(2, queue.getAccepted());
+        assertEquals(1, queue.getDropped());
+        assertEquals("a1", poll(queue));
+        assertEquals("b1", poll(queue));
+        assertNull(poll(queue));
+    }
+
+    @Test
+    public void testCoalesceLatestKeepsOnePerKey() throws Exception {
+        SnmpIngestQueue<String> queue = new SnmpIngestQueue<>(2, SnmpOverflowPolicy.COALESCE_LATEST);
+        assertTrue(queue.offer("A", "a1"));
+        assertTrue(queue.offer("B", "b1"));
+        assertTrue(queue.offer("A", "a2"));
+        assertTrue(queue.offer("B", "b2"));
+        assertTrue(queue.offer("C", "c1"));
+
+        assertEquals(3, queue.getAccepted());
+        assertEquals(2, queue.getCoalesced());
+        assertEquals(1, queue.getDropped());
+        assertEquals("b2", poll(queue));
+        // A new trap for a device that was taken off the queue is queued again, not coalesced
+        assertTrue(queue.offer("B", "b3"));
+        assertEquals("c1", poll(queue));
+        assertEquals("b3", poll(queue));
+        assertEquals(2, queue.getCoalesced());
+    }
+
+    private static String poll(SnmpIngestQueue<String> queue) throws InterruptedException {
+        return queue.poll(10, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,91 @@
+package org.thingsboard.server.transport.snmp.ingest;
+
+import org.junit.Test;
+import org.snmp4j.PDU;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SnmpTrapStormGuardTest {
+
+    private static final byte[] COMMUNITY = "public".getBytes();
+    private static final OID LINK_DOWN = new OID("1.3.6.1.6.3.1.1.5.3");
+    private static final OID LINK_UP = new OID("1.3.6.1.6.3.1.1.5.4");
+
+    private final List<Integer> repeatCounts = new ArrayList<>();
+    private final List<PDU> summaries = new ArrayList<>();
+    private final SnmpTrapStormGuard guard = new SnmpTrapStormGuard("5:60", 60000, 2,
+            (peerAddress, securityName, pdu, repeatCount) -> {
+                summaries.add(pdu);
+                repeatCounts.add(repeatCount);
+            });
+
+    @Test
+    public void testIdenticalTrapsOverTheRateAreSummarized() {
+        Address agent = new UdpAddress("10.0.0.1/1024");
+        for (int i = 0; i < 5; i++) {
+            assertTrue(guard.offer(agent, COMMUNITY, trap(LINK_DOWN, i)));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertFalse(guard.offer(agent, COMMUNITY, trap(LINK_DOWN, 5 + i)));
+        }
+        assertFalse(guard.offer(agent, COMMUNITY, trap(LINK_UP, 30)));
+        assertEquals(Collections.singletonList("10.0.0.1"), guard.getStormingSources());
+        guard.flush();
+
+        assertEquals(2, summaries.size());
+        assertEquals(LINK_DOWN, summaries.get(0).getVariable(SnmpConstants.snmpTrapOID));
+        assertEquals(Integer.valueOf(20), repeatCounts.get(0));
+        assertEquals(LINK_UP, summaries.get(1).getVariable(SnmpConstants.snmpTrapOID));
+        assertEquals(Integer.valueOf(1), repeatCounts.get(1));
+        assertEquals(1, guard.getStormsDetected());
+        assertEquals(21, guard.getTrapsHeld());
+        assertEquals(2, guard.getSummariesPosted());
+    }
+
+    @Test
+    public void testRateIsAccountedPerAgentAddressAcrossPorts() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(guard.admit(new UdpAddress("10.0.0.1/" + (1024 + i))));
+        }
+        assertFalse(guard.admit(new UdpAddress("10.0.0.1/2000")));
+        assertTrue(guard.admit(new UdpAddress("10.0.0.2/1024")));
+        assertEquals(2, guard.getSources());
+    }
+
+    @Test
+    public void testDistinctTrapsOverTheLimitAreDropped() {
+        Address agent = new UdpAddress("10.0.0.1/1024");
+        for (int i = 0; i < 5; i++) {
+            guard.offer(agent, COMMUNITY, trap(LINK_DOWN, i));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertFalse(guard.offer(agent, COMMUNITY, trap(new OID(LINK_DOWN).append(i), 0)));
+        }
+        guard.flush();
+
+        assertEquals(2, summaries.size());
+        assertEquals(1, guard.getTrapsDropped());
+    }
+
+    private static PDU trap(OID trapOid, long upTime) {
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(SnmpConstants.sysUpTime, new TimeTicks(upTime)));
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, trapOid));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.1.1"), new OctetString("eth1")));
+        return pdu;
+    }
+}
@@ -0,0 +1,109 @@
+package org.thingsboard.server.transport.snmp.mapping;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.snmp4j.PDU;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.asn1.BERInputStream;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+/**
+ * Compares decoding mapped traps through SNMP4J with decoding them in place, in traps per second and bytes allocated
+ * per trap, e.g. {@code mvn test -Dtest=SnmpTrapDecodeBenchmark -Dsnmp.trap.varbinds=20}.
+ */
+@Ignore("Benchmark")
+public class SnmpTrapDecodeBenchmark {
+
+    private static final UdpAddress PEER = new UdpAddress("10.0.0.1/162");
+
+    @Test
+    public void decodeTraps() throws Exception {
+        int varbinds = Integer.getInteger("snmp.trap.varbinds", 20);
+        int iterations = Integer.getInteger("snmp.trap.iterations", 2000000);
+
+        SnmpTrapMappingService service = new SnmpTrapMappingService();
+        ReflectionTestUtils.setField(service, "oidRegistryService", new SnmpOidRegistryService());
+        SnmpTrapMapping mapping = new SnmpTrapMapping();
+        mapping.setName("ifMib");
+        mapping.getTelemetry().put("1.3.6.1.2.1.2.2.1.5", "ifSpeed");
+        mapping.getTelemetry().put("1.3.6.1.2.1.31.1.1.1.6", "ifHCInOctets");
+        mapping.getAttributes().put("1.3.6.1.2.1.2.2.1.2", "ifDescr");
+        mapping.getAttributes().put("sysUpTime", "sysUpTime");
+        service.addMapping(mapping);
+        service.addSource(new SnmpTrapSource("DEVICE", null, "public", null, "ifMib"));
+
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(SnmpConstants.sysUpTime, new TimeTicks(4200)));
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, SnmpConstants.linkUp));
+        for (int i = 0; pdu.size() < varbinds; i++) {
+            pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.5." + i), new Gauge32(1000000000L)));
+            pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.31.1.1.1.6." + i), new Counter64(5000000000L + i)));
+            pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.2." + i), new OctetString("GigabitEthernet0/" + i)));
+        }
+        byte[] message = encode(pdu);
+        ByteBuffer direct = ByteBuffer.allocateDirect(message.length);
+        direct.put(message).flip();
+
+        run("snmp4j", iterations, () -> {
+            try {
+                BERInputStream in = new BERInputStream(ByteBuffer.wrap(message));
+                BER.decodeHeader(in, new BER.MutableByte());
+                BER.decodeInteger(in, new BER.MutableByte());
+                OctetString community = new OctetString();
+                community.decodeBER(in);
+                PDU decoded = new PDU();
+                decoded.decodeBER(in);
+                return service.map(PEER, community.getValue(), decoded);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        run("in place", iterations, () -> service.map(PEER, direct));
+    }
+
+    private static void run(String name, int iterations, Supplier<SnmpMappedTrap> decoder) {
+        // Warm up
+        for (int i = 0; i < iterations / 10; i++) {
+            decoder.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        int mapped = 0;
+        for (int i = 0; i < iterations; i++) {
+            mapped += decoder.get().getTelemetry().getTsKvList(0).getKvCount();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        System.out.printf("%s: %.0f traps/s, %d bytes/trap, %d values%n",
+                name, iterations / seconds, allocated / iterations, mapped);
+    }
+
+    private static byte[] encode(PDU pdu) throws Exception {
+        Integer32 version = new Integer32(SnmpConstants.version2c);
+        OctetString community = new OctetString("public");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BER.encodeHeader(out, BER.SEQUENCE, version.getBERLength() + community.getBERLength() + pdu.getBERLength());
+        version.encodeBER(out);
+        community.encodeBER(out);
+        pdu.encodeBER(out);
+        return out.toByteArray();
+    }
+}
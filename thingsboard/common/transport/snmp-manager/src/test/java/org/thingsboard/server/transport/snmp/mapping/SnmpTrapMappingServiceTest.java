@@ -0,0 +1,169 @@
+package org.thingsboard.server.transport.snmp.mapping;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.asn1.BER;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.IpAddress;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.SMIConstants;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.oid.SnmpOidRegistryService;
+import org.thingsboard.server.transport.snmp.util.SnmpUtility;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SnmpTrapMappingServiceTest {
+
+    private final SnmpTrapMappingService service = new SnmpTrapMappingService();
+
+    @Before
+    public void before() {
+        ReflectionTestUtils.setField(service, "oidRegistryService", new SnmpOidRegistryService());
+        SnmpTrapMapping mapping = new SnmpTrapMapping();
+        mapping.setName("ifMib");
+        mapping.getTelemetry().put("1.3.6.1.2.1.2.2.1.5", "ifSpeed");
+        mapping.getTelemetry().put("1.3.6.1.2.1.31.1.1.1.6", "ifHCInOctets");
+        // By name from the OID registry
+        mapping.getAttributes().put("sysUpTime", "sysUpTime");
+        service.addMapping(mapping);
+        service.addSource(new SnmpTrapSource("BY_ADDRESS", null, null, "10.0.0.1", "ifMib"));
+        service.addSource(new SnmpTrapSource("BY_COMMUNITY", null, "site-7", null, "ifMib"));
+    }
+
+    @Test
+    public void testVarbindsAreMappedWithTypedValues() {
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(SnmpConstants.sysUpTime, new TimeTicks(4200)));
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, SnmpConstants.linkUp));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.5.2"), new Gauge32(1000000000L)));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.31.1.1.1.6.2"), new Counter64(5000000000L)));
+
+        SnmpMappedTrap trap = service.map(new UdpAddress("10.0.0.1/162"), "public".getBytes(StandardCharsets.UTF_8), pdu);
+
+        assertEquals("BY_ADDRESS", trap.getDeviceToken());
+        TransportProtos.TsKvListProto telemetry = trap.getTelemetry().getTsKvList(0);
+        assertEquals(2, telemetry.getKvCount());
+        assertEquals("ifSpeed.2", telemetry.getKv(0).getKey());
+        assertEquals(TransportProtos.KeyValueType.LONG_V, telemetry.getKv(0).getType());
+        assertEquals(1000000000L, telemetry.getKv(0).getLongV());
+        assertEquals("ifHCInOctets.2", telemetry.getKv(1).getKey());
+        assertEquals(5000000000L, telemetry.getKv(1).getLongV());
+        assertEquals("sysUpTime", trap.getAttributes().getKv(0).getKey());
+        assertEquals(4200, trap.getAttributes().getKv(0).getLongV());
+        assertEquals(1, service.getVarbindsIgnored());
+    }
+
+    @Test
+    public void testCommunityIsMatchedBeforeAddress() {
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.5.1"), new Gauge32(10)));
+
+        assertEquals("BY_COMMUNITY", service.map(new UdpAddress("10.0.0.1/162"), "site-7".getBytes(StandardCharsets.UTF_8), pdu).getDeviceToken());
+        assertNull(service.map(new UdpAddress("10.0.0.2/162"), "public".getBytes(StandardCharsets.UTF_8), pdu));
+    }
+
+    @Test
+    public void testTrapsAreMappedInPlaceLikeDecodedTraps() throws Exception {
+        SnmpTrapMapping mapping = new SnmpTrapMapping();
+        mapping.setName("types");
+        mapping.getTelemetry().put("1.3.6.1.4.1.9999.1", "integer");
+        mapping.getTelemetry().put("1.3.6.1.4.1.9999.2", "counter32");
+        mapping.getTelemetry().put("1.3.6.1.4.1.9999.3", "counter64");
+        mapping.getTelemetry().put("1.3.6.1.4.1.9999.4", "text");
+        mapping.getAttributes().put("1.3.6.1.4.1.9999.5", "oid");
+        mapping.getAttributes().put("sysUpTime", "sysUpTime");
+        service.addMapping(mapping);
+        service.addSource(new SnmpTrapSource("TYPES", null, "types", null, "types"));
+
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(SnmpConstants.sysUpTime, new TimeTicks(4294967295L)));
+        pdu.add(new VariableBinding(SnmpConstants.snmpTrapOID, SnmpConstants.linkUp));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.1.0"), new Integer32(-129)));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.2.4294967295"), new Counter32(4294967295L)));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.3.0"), new Counter64(-1L)));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.3.1"), new Null(SMIConstants.EXCEPTION_NO_SUCH_INSTANCE)));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.4.1"), new OctetString("eth0 uplink")));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.4.2"), new OctetString(new byte[]{0, 1, (byte) 0xFE})));
+        pdu.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.5.0"), new OID("1.3.6.1.4.1.2636.1.1.1.2.4294967295")));
+        UdpAddress peer = new UdpAddress("10.0.0.9/162");
+
+        SnmpMappedTrap decoded = service.map(peer, "types".getBytes(StandardCharsets.UTF_8), pdu);
+        SnmpMappedTrap inPlace = service.map(peer, encode(SnmpConstants.version2c, "types", pdu));
+
+        assertEquals("TYPES", inPlace.getDeviceToken());
+        assertEquals(5, inPlace.getTelemetry().getTsKvList(0).getKvCount());
+        assertEquals(decoded.getTelemetry().getTsKvList(0).getKvList(), inPlace.getTelemetry().getTsKvList(0).getKvList());
+        assertEquals(decoded.getAttributes(), inPlace.getAttributes());
+        assertEquals(2, service.getVarbindsIgnored());
+
+        PDUv1 v1 = new PDUv1();
+        v1.setEnterprise(new OID("1.3.6.1.4.1.9999"));
+        v1.setAgentAddress(new IpAddress("10.0.0.9"));
+        v1.setGenericTrap(PDUv1.ENTERPRISE_SPECIFIC);
+        v1.setSpecificTrap(7);
+        v1.add(new VariableBinding(new OID("1.3.6.1.4.1.9999.1.0"), new Integer32(42)));
+        assertEquals(42, service.map(peer, encode(SnmpConstants.version1, "types", v1)).getTelemetry().getTsKvList(0).getKv(0).getLongV());
+    }
+
+    @Test
+    public void testTrapsNotDecodedInPlaceAreLeftToSnmp4j() throws Exception {
+        UdpAddress peer = new UdpAddress("10.0.0.1/162");
+        PDU pdu = new PDU();
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.5.2"), new Gauge32(10)));
+        assertEquals(10, service.map(peer, encode(SnmpConstants.version2c, "public", pdu)).getTelemetry().getTsKvList(0).getKv(0).getLongV());
+
+        // Unknown source
+        assertNull(service.map(new UdpAddress("10.0.0.2/162"), encode(SnmpConstants.version2c, "public", pdu)));
+        // Truncated
+        ByteBuffer message = encode(SnmpConstants.version2c, "public", pdu);
+        message.limit(message.limit() - 1);
+        assertNull(service.map(peer, message));
+        // Informs are answered by SNMP4J
+        pdu.setType(PDU.INFORM);
+        assertNull(service.map(peer, encode(SnmpConstants.version2c, "public", pdu)));
+        // SMI types the decoder does not handle
+        pdu.setType(PDU.TRAP);
+        pdu.add(new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.5.3"), new IpAddress("10.0.0.1")));
+        assertNull(service.map(peer, encode(SnmpConstants.version2c, "public", pdu)));
+
+        for (int i = 0; i < 256; i++) {
+            byte[] value = {'a', (byte) i};
+            assertEquals(new OctetString(value).toString(), SnmpUtility.toDisplayString(value));
+        }
+    }
+
+    private static ByteBuffer encode(int version, String community, PDU pdu) throws Exception {
+        Integer32 versionValue = new Integer32(version);
+        OctetString communityValue = new OctetString(community);
+        int length = versionValue.getBERLength() + communityValue.getBERLength() + pdu.getBERLength();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BER.encodeHeader(out, BER.SEQUENCE, length);
+        versionValue.encodeBER(out);
+        communityValue.encodeBER(out);
+        pdu.encodeBER(out);
+        ByteBuffer message = ByteBuffer.allocateDirect(out.size());
+        message.put(out.toByteArray());
+        message.flip();
+        return message;
+    }
+}
@@ -0,0 +1,38 @@
+package org.thingsboard.server.transport.snmp.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SnmpLatencyHistogramTest {
+
+    private final SnmpLatencyHistogram histogram = new SnmpLatencyHistogram();
+
+    @Test
+    public void testPercentilesAreWithinTheBucketPrecision() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i, TimeUnit.MILLISECONDS);
+        }
+        SnmpLatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+
+        assertEquals(1000, snapshot.getCount());
+        assertWithin(500_000, snapshot.getPercentile(50));
+        assertWithin(990_000, snapshot.getPercentile(99));
+        assertWithin(1_000_000, snapshot.getPercentile(100));
+        assertWithin(500_500, (long) snapshot.getMean());
+    }
+
+    @Test
+    public void testSnapshotStartsANewInterval() {
+        histogram.record(5, TimeUnit.MICROSECONDS);
+        assertEquals(5, histogram.snapshotAndReset().getPercentile(100));
+        assertEquals(0, histogram.snapshotAndReset().getCount());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " is not within 6.25% above " + expected, actual >= expected && actual <= expected * 1.0625);
+    }
+}
@@ -0,0 +1,77 @@
+package org.thingsboard.server.transport.snmp.metrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.smi.UdpAddress;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class SnmpMetricsTest {
+
+    private final SnmpMetrics metrics = new SnmpMetrics();
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Before
+    public void before() {
+        ReflectionTestUtils.setField(metrics, "enabled", true);
+        ReflectionTestUtils.setField(metrics, "interval", 1000L);
+        ReflectionTestUtils.setField(metrics, "agentGroups", "core=10.0.0.0/16, edge=10.1.2.0/23");
+        metrics.init();
+    }
+
+    @After
+    public void after() {
+        metrics.destroy();
+    }
+
+    @Test
+    public void testRequestLatenciesAreRecordedPerAgentGroup() throws Exception {
+        metrics.recordRequest(new UdpAddress("10.0.3.4/161"), 2, TimeUnit.MILLISECONDS);
+        metrics.recordRequest(new UdpAddress("10.1.3.4/161"), 4, TimeUnit.MILLISECONDS);
+        metrics.recordRequest(new UdpAddress("10.1.4.4/161"), 8, TimeUnit.MILLISECONDS);
+        metrics.recordRequest(new UdpAddress("192.168.0.1/161"), 8, TimeUnit.MILLISECONDS);
+        metrics.rotate();
+
+        assertEquals(1L, server.getAttribute(latency("core"), "Count"));
+        assertEquals(2.0, (double) server.getAttribute(latency("core"), "Max"), 0.125);
+        assertEquals(1L, server.getAttribute(latency("edge"), "Count"));
+        assertEquals(4.0, (double) server.getAttribute(latency("edge"), "P99"), 0.25);
+        assertEquals(2L, server.getAttribute(latency(SnmpMetrics.DEFAULT_GROUP), "Count"));
+
+        // Percentiles are of the last interval, the total count of all of them
+        metrics.rotate();
+        assertEquals(0L, server.getAttribute(latency(SnmpMetrics.DEFAULT_GROUP), "Count"));
+        assertEquals(2L, server.getAttribute(latency(SnmpMetrics.DEFAULT_GROUP), "TotalCount"));
+    }
+
+    @Test
+    public void testGaugesAndTrapRatesAreReadOverJmx() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger(3);
+        metrics.gauge("requests.inFlight", inFlight::get);
+        for (int i = 0; i < 5; i++) {
+            metrics.trapReceived("TRAP");
+        }
+        metrics.trapReceived("INFORM");
+        metrics.rotate();
+        inFlight.set(7);
+
+        ObjectName transport = new ObjectName(SnmpMetrics.DOMAIN + ":type=Transport");
+        assertEquals(7L, server.getAttribute(transport, "requests.inFlight"));
+        assertEquals(5L, server.getAttribute(transport, "traps.trap"));
+        assertEquals(5.0, server.getAttribute(transport, "traps.trap.perSecond"));
+        assertEquals(1.0, server.getAttribute(transport, "traps.inform.perSecond"));
+        assertEquals(5, server.getMBeanInfo(transport).getAttributes().length);
+    }
+
+    private static ObjectName latency(String group) throws Exception {
+        return new ObjectName(SnmpMetrics.DOMAIN + ":type=RequestLatency,group=" + ObjectName.quote(group));
+    }
+}
@@ -0,0 +1,138 @@
+package org.thingsboard.server.transport.snmp.mib;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Integer32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.VariableBinding;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.thingsboard.server.transport.snmp.util.SnmpUtility.toJson;
+import static org.thingsboard.server.transport.snmp.util.SnmpUtility.toKeyValueProto;
+
+public class SnmpMibCompilerTest {
+
+    private static final String ACME_TC_MIB = "ACME-TC DEFINITIONS ::= BEGIN\n" +
+            "IMPORTS TEXTUAL-CONVENTION FROM SNMPv2-TC;\n" +
+            "-- Temperature in hundredths of a degree\n" +
+            "AcmeTemperature ::= TEXTUAL-CONVENTION\n" +
+            "    DISPLAY-HINT \"d-2\"\n" +
+            "    STATUS current\n" +
+            "    DESCRIPTION \"Temperature, e.g. 2150 is 21.50\"\n" +
+            "    SYNTAX Integer32 (-10000..10000)\n" +
+            "AcmeState ::= INTEGER { ok(1), warning(2), failed(3) }\n" +
+            "END\n";
+
+    // Uses the types of ACME-TC before that module is loaded
+    private static final String ACME_MIB = "ACME-MIB DEFINITIONS ::= BEGIN\n" +
+            "IMPORTS MODULE-IDENTITY, OBJECT-TYPE, NOTIFICATION-TYPE, Counter64, enterprises FROM SNMPv2-SMI\n" +
+            "        AcmeTemperature, AcmeState FROM ACME-TC;\n" +
+            "acme MODULE-IDENTITY\n" +
+            "    LAST-UPDATED \"202001010000Z\" ORGANIZATION \"Acme\" CONTACT-INFO \"-- not a comment --\"\n" +
+            "    DESCRIPTION \"Acme devices\"\n" +
+            "    ::= { enterprises 99999 }\n" +
+            "acmeObjects OBJECT IDENTIFIER ::= { acme 1 }\n" +
+            "acmeTemperature OBJECT-TYPE\n" +
+            "    SYNTAX AcmeTemperature UNITS \"celsius\" MAX-ACCESS read-only STATUS current\n" +
+            "    DESCRIPTION \"Board temperature\" ::= { acmeObjects 1 }\n" +
+            "acmePortTable OBJECT-TYPE\n" +
+            "    SYNTAX SEQUENCE OF AcmePortEntry MAX-ACCESS not-accessible STATUS current\n" +
+            "    DESCRIPTION \"Ports\" ::= { acmeObjects 2 }\n" +
+            "acmePortEntry OBJECT-TYPE\n" +
+            "    SYNTAX AcmePortEntry MAX-ACCESS not-accessible STATUS current\n" +
+            "    DESCRIPTION \"Port\" INDEX { acmePortSlot, IMPLIED acmePortName } ::= { acmePortTable 1 }\n" +
+            "AcmePortEntry ::= SEQUENCE { acmePortSlot Integer32, acmePortName OCTET STRING, acmePortState AcmeState, acmePortOctets Counter64 }\n" +
+            "acmePortState OBJECT-TYPE\n" +
+            "    SYNTAX AcmeState MAX-ACCESS read-only STATUS current\n" +
+            "    DESCRIPTION \"State\" ::= { acmePortEntry 3 }\n" +
+            "acmePortOctets OBJECT-TYPE\n" +
+            "    SYNTAX Counter64 MAX-ACCESS read-only STATUS current\n" +
+            "    DESCRIPTION \"Octets\" DEFVAL { 0 } ::= { acmePortEntry 4 }\n" +
+            "acmeFanMode OBJECT-TYPE\n" +
+            "    SYNTAX INTEGER { auto(1), manual(2) } MAX-ACCESS read-write STATUS current\n" +
+            "    DESCRIPTION \"Fan\" ::= { acmeObjects 3 }\n" +
+            "acmePortDown NOTIFICATION-TYPE\n" +
+            "    OBJECTS { acmePortState } STATUS current DESCRIPTION \"Port down\" ::= { acme 0 1 }\n" +
+            "acmeCompliance MODULE-COMPLIANCE\n" +
+            "    STATUS current DESCRIPTION \"c\" MODULE MANDATORY-GROUPS { acmeGroup }\n" +
+            "    OBJECT acmeFanMode SYNTAX INTEGER { auto(1) } DESCRIPTION \"d\" ::= { acme 2 1 }\n" +
+            "END\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testModulesAreCompiledIntoMetadata() {
+        List<SnmpOidMetadata> objects = compile();
+
+        SnmpOidMetadata temperature = find(objects, "acmeTemperature");
+        assertEquals(new OID("1.3.6.1.4.1.99999.1.1"), temperature.getOid());
+        assertEquals(SnmpOidMetadata.Kind.SCALAR, temperature.getKind());
+        assertEquals(SnmpOidMetadata.Syntax.INTEGER, temperature.getSyntax());
+        assertEquals(2, temperature.getScale());
+        assertEquals("celsius", temperature.getUnits());
+
+        assertEquals(SnmpOidMetadata.Kind.TABLE, find(objects, "acmePortTable").getKind());
+        SnmpOidMetadata entry = find(objects, "acmePortEntry");
+        assertEquals(SnmpOidMetadata.Kind.ROW, entry.getKind());
+        assertEquals(Arrays.asList("acmePortSlot", "acmePortName"), entry.getIndexes());
+
+        SnmpOidMetadata state = find(objects, "acmePortState");
+        assertEquals(SnmpOidMetadata.Kind.COLUMN, state.getKind());
+        assertEquals("failed", state.getEnums().get(3));
+        assertEquals(SnmpOidMetadata.Syntax.COUNTER64, find(objects, "acmePortOctets").getSyntax());
+        assertEquals("manual", find(objects, "acmeFanMode").getEnums().get(2));
+        assertEquals(new OID("1.3.6.1.4.1.99999.0.1"), find(objects, "acmePortDown").getOid());
+        assertEquals(SnmpOidMetadata.Kind.NOTIFICATION, find(objects, "acmePortDown").getKind());
+    }
+
+    @Test
+    public void testStoreIsSearchedInPlace() throws Exception {
+        Path file = folder.newFile("acme.mibstore").toPath();
+        SnmpMibStore.write(file, compile());
+        SnmpMibStore store = SnmpMibStore.open(file);
+
+        assertEquals(10, store.size());
+        assertEquals(new OID("1.3.6.1.4.1.99999.1.2.1.3"), store.getOid("acmePortState"));
+        assertNull(store.getOid("ifDescr"));
+        SnmpOidMetadata state = store.findPrefix(new OID("1.3.6.1.4.1.99999.1.2.1.3.1.4.101.116.104.48"));
+        assertEquals("acmePortState", state.getName());
+        assertNull(store.findPrefix(new OID("1.3.6.1.4.1.99998.1")));
+
+        TransportProtos.KeyValueProto kv = toKeyValueProto("state", new Integer32(2), state);
+        assertEquals("warning", kv.getStringV());
+        kv = toKeyValueProto("temperature", new Integer32(2150), store.get(new OID("1.3.6.1.4.1.99999.1.1")));
+        assertEquals(21.5, kv.getDoubleV(), 0.0001);
+        kv = toKeyValueProto("speed", new Gauge32(100), null);
+        assertEquals(100, kv.getLongV());
+
+        // RPC responses are typed the same way
+        String json = toJson(Arrays.asList(
+                new VariableBinding(new OID("1.3.6.1.4.1.99999.1.2.1.3.1"), new Integer32(3)),
+                new VariableBinding(new OID("1.3.6.1.4.1.99999.1.1.0"), new Integer32(-250)),
+                new VariableBinding(new OID("1.3.6.1.2.1.2.2.1.5.1"), new Gauge32(100)),
+                new VariableBinding(new OID("1.3.6.1.2.1.1.1.0"), new OctetString("router"))), store::findPrefix);
+        assertEquals("{\"1.3.6.1.4.1.99999.1.2.1.3.1\":\"failed\",\"1.3.6.1.4.1.99999.1.1.0\":-2.5,"
+                + "\"1.3.6.1.2.1.2.2.1.5.1\":100,\"1.3.6.1.2.1.1.1.0\":\"router\"}", json);
+    }
+
+    private static List<SnmpOidMetadata> compile() {
+        SnmpMibCompiler compiler = new SnmpMibCompiler();
+        compiler.load(ACME_MIB);
+        compiler.load(ACME_TC_MIB);
+        return compiler.compile();
+    }
+
+    private static SnmpOidMetadata find(List<SnmpOidMetadata> objects, String name) {
+        return objects.stream().filter(o -> name.equals(o.getName())).findFirst().orElseThrow(AssertionError::new);
+    }
+}
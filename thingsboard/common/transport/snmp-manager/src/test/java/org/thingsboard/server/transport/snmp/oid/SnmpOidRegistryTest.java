@@ -0,0 +1,38 @@
+package org.thingsboard.server.transport.snmp.oid;
+
+import org.junit.Test;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SnmpOidRegistryTest {
+
+    @Test
+    public void testStandardOidsAreFoundByNameAndOid() {
+        SnmpOidRegistry registry = SnmpOidRegistry.standard();
+
+        assertEquals(85, registry.size());
+        assertEquals(SnmpConstants.sysName, registry.getOid("sysName"));
+        assertEquals("sysName", registry.getName(SnmpConstants.sysName));
+        assertEquals("linkUp", registry.resolve(SnmpConstants.linkUp));
+        // sysOREntry is 1.3.6.1.2.1.1.9.1, its columns resolve against it
+        assertEquals("sysOREntry.3.2", registry.resolve(new OID("1.3.6.1.2.1.1.9.1.3.2")));
+        assertNull(registry.getName(new OID("1.3.6.1.2.1.1.9.1.3.2")));
+        assertNull(registry.resolve(new OID("1.3.6.1.4.1.9")));
+    }
+
+    @Test
+    public void testLongestPrefixWins() {
+        SnmpOidRegistry registry = SnmpOidRegistry.standardBuilder()
+                .add(new OID("1.3.6.1.4.1.9"), "cisco")
+                .add(new OID("1.3.6.1.4.1.9.9.13.1.3.1.3"), "ciscoEnvMonTemperatureStatusValue")
+                .build();
+
+        assertEquals("ciscoEnvMonTemperatureStatusValue.1", registry.resolve(new OID("1.3.6.1.4.1.9.9.13.1.3.1.3.1")));
+        assertEquals("cisco.9.13.1.4", registry.resolve(new OID("1.3.6.1.4.1.9.9.13.1.4")));
+        assertEquals(87, registry.size());
+        assertEquals(85, SnmpOidRegistry.standard().size());
+    }
+}
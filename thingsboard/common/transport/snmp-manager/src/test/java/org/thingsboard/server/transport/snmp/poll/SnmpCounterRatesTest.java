@@ -0,0 +1,51 @@
+package org.thingsboard.server.transport.snmp.poll;
+
+import org.junit.Test;
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Counter64;
+import org.snmp4j.smi.Gauge32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SnmpCounterRatesTest {
+
+    private final SnmpCounterRates rates = new SnmpCounterRates(2);
+
+    @Test
+    public void testRateIsTheChangePerSecondOfAgentUptime() {
+        assertTrue(Double.isNaN(rates.rate(0, new Counter32(1000), 10000)));
+        assertEquals(250.0, rates.rate(0, new Counter32(6000), 30000), 0);
+        // Counters are independent of each other
+        assertTrue(Double.isNaN(rates.rate(1, new Counter64(5), 30000)));
+        assertTrue(Double.isNaN(rates.rate(1, new Gauge32(5), 30000)));
+    }
+
+    @Test
+    public void testCounter32WrapIsCorrected() {
+        rates.rate(0, new Counter32(4294967000L), 0);
+        assertEquals(396.0, rates.rate(0, new Counter32(100), 1000), 0);
+        assertEquals(1, rates.getWraps());
+    }
+
+    @Test
+    public void testCounter64AboveTheRangeOfALongIsUnsigned() {
+        rates.rate(0, new Counter64(0xFFFFFFFFFFFFFF00L), 0);
+        assertEquals(512.0, rates.rate(0, new Counter64(0x100L), 1000), 0);
+        assertEquals(0, rates.getWraps());
+    }
+
+    @Test
+    public void testNoRateIsComputedAcrossAResetOrARestart() {
+        rates.rate(0, new Counter64(1000000), 50000);
+        assertTrue(Double.isNaN(rates.rate(0, new Counter64(10), 60000)));
+        assertEquals(100.0, rates.rate(0, new Counter64(110), 61000), 0);
+
+        rates.rate(1, new Counter32(1000000), 50000);
+        // The agent restarted: the counter went back along with sysUpTime, it did not wrap
+        assertTrue(Double.isNaN(rates.rate(1, new Counter32(10), 1000)));
+        assertEquals(100.0, rates.rate(1, new Counter32(110), 2000), 0);
+        assertEquals(2, rates.getDiscontinuities());
+        assertEquals(0, rates.getWraps());
+    }
+}
@@ -0,0 +1,280 @@
+package org.thingsboard.server.transport.snmp.poll;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.Target;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.transport.snmp.SnmpDeviceSessionCache;
+import org.thingsboard.server.transport.snmp.SnmpTransportContext;
+import org.thingsboard.server.transport.snmp.cluster.SnmpAgentSharding;
+import org.thingsboard.server.transport.snmp.push.SnmpPushManager;
+import org.thingsboard.server.transport.snmp.push.SnmpSessionPool;
+import org.thingsboard.server.transport.snmp.walk.SnmpTableRowListener;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SnmpPollServiceTest {
+
+    private SnmpSessionPool pool;
+    private Snmp agent;
+    private UdpAddress agentAddress;
+    private SnmpPollService pollService;
+    private TransportService transportService;
+    private SnmpPushManager pushManager;
+
+    @Before
+    public void before() throws Exception {
+        pool = new SnmpSessionPool(1, 100);
+        pool.init();
+
+        DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/0"));
+        agent = new Snmp(transport);
+        agent.addCommandResponder(new CounterResponder());
+        agent.listen();
+        agentAddress = transport.getListenAddress();
+
+        transportService = mock(TransportService.class);
+        doAnswer(invocation -> {
+            TransportServiceCallback<TransportProtos.ValidateDeviceCredentialsResponseMsg> callback =
+                    (TransportServiceCallback<TransportProtos.ValidateDeviceCredentialsResponseMsg>) invocation.getArguments()[1];
+            callback.onSuccess(TransportProtos.ValidateDeviceCredentialsResponseMsg.newBuilder()
+                    .setDeviceInfo(TransportProtos.DeviceInfoProto.newBuilder().setDeviceIdMSB(1).setDeviceIdLSB(2)).build());
+            return null;
+        }).when(transportService).process(any(TransportProtos.ValidateDeviceTokenRequestMsg.class), any(TransportServiceCallback.class));
+        SnmpTransportContext context = mock(SnmpTransportContext.class);
+        when(context.getTransportService()).thenReturn(transportService);
+        when(context.getNodeId()).thenReturn("test");
+        pushManager = mock(SnmpPushManager.class);
+        when(pushManager.getSessionPool()).thenReturn(pool);
+        SnmpDeviceSessionCache sessionCache = new SnmpDeviceSessionCache();
+        ReflectionTestUtils.setField(sessionCache, "snmpTransportContext", context);
+        ReflectionTestUtils.setField(sessionCache, "maxSize", 10L);
+        ReflectionTestUtils.setField(sessionCache, "ttl", 60000L);
+        sessionCache.init();
+
+        pollService = new SnmpPollService();
+        ReflectionTestUtils.setField(pollService, "snmpTransportContext", context);
+        ReflectionTestUtils.setField(pollService, "snmpPushManager", pushManager);
+        ReflectionTestUtils.setField(pollService, "deviceSessionCache", sessionCache);
+        ReflectionTestUtils.setField(pollService, "tickDuration", 10L);
+        ReflectionTestUtils.setField(pollService, "wheelSize", 64);
+        ReflectionTestUtils.setField(pollService, "pollTimeout", 1000L);
+        ReflectionTestUtils.setField(pollService, "maxInFlight", 100);
+        ReflectionTestUtils.setField(pollService, "maxInFlightPerAgent", 1);
+        pollService.start();
+    }
+
+    @After
+    public void after() throws Exception {
+        pollService.destroy();
+        agent.close();
+        pool.destroy();
+    }
+
+    @Test
+    public void testPolledValuesArePostedAsTelemetry() throws Exception {
+        SnmpPollProfile profile = new SnmpPollProfile();
+        profile.setName("router");
+        profile.setInterval(100);
+        profile.getOids().put("1.3.6.1.2.1.2.2.1.10.1", "ifInOctets");
+        profile.getOids().put("1.3.6.1.2.1.2.2.1.16.1", "ifOutOctets");
+        pollService.addProfile(profile);
+        pollService.registerDevice(new SnmpPollDevice("TOKEN", "udp:" + agentAddress, "public", "router"));
+
+        ArgumentCaptor<TransportProtos.PostTelemetryMsg> telemetry = ArgumentCaptor.forClass(TransportProtos.PostTelemetryMsg.class);
+        verify(transportService, timeout(5000).atLeastOnce())
+                .process(any(TransportProtos.SessionInfoProto.class), telemetry.capture(), any(TransportServiceCallback.class));
+        TransportProtos.TsKvListProto tsKvList = telemetry.getValue().getTsKvList(0);
+        assertEquals("ifInOctets", tsKvList.getKv(0).getKey());
+        assertEquals(10, tsKvList.getKv(0).getLongV());
+        assertEquals("ifOutOctets", tsKvList.getKv(1).getKey());
+        assertEquals(16, tsKvList.getKv(1).getLongV());
+
+        // The device is polled again on its interval, reusing the session of the first poll
+        Thread.sleep(500);
+        assertTrue(pollService.getPollsSent() >= 3);
+        verify(transportService, times(1)).process(eq(TransportProtos.ValidateDeviceTokenRequestMsg.newBuilder().setToken("TOKEN").build()),
+                any(TransportServiceCallback.class));
+    }
+
+    @Test
+    public void testRatesOfCountersArePostedFromTheSecondPoll() throws Exception {
+        SnmpPollProfile profile = new SnmpPollProfile();
+        profile.setName("router");
+        profile.setInterval(100);
+        profile.getRates().put("1.3.6.1.2.1.2.2.1.10.1", "ifInOctetsRate");
+        pollService.addProfile(profile);
+        pollService.registerDevice(new SnmpPollDevice("TOKEN", "udp:" + agentAddress, "public", "router"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pollService.getRatesPosted() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        ArgumentCaptor<TransportProtos.PostTelemetryMsg> telemetry = ArgumentCaptor.forClass(TransportProtos.PostTelemetryMsg.class);
+        // The rate is counted just before it is posted
+        verify(transportService, timeout(5000).atLeastOnce())
+                .process(any(TransportProtos.SessionInfoProto.class), telemetry.capture(), any(TransportServiceCallback.class));
+        // Only the rate is posted, the counter itself is not mapped to a key
+        TransportProtos.TsKvListProto tsKvList = telemetry.getValue().getTsKvList(0);
+        assertEquals(1, tsKvList.getKvCount());
+        assertEquals("ifInOctetsRate", tsKvList.getKv(0).getKey());
+        assertEquals(TransportProtos.KeyValueType.DOUBLE_V, tsKvList.getKv(0).getType());
+        assertEquals(0.0, tsKvList.getKv(0).getDoubleV(), 0);
+        assertEquals(0, pollService.getValuesPosted());
+    }
+
+    @Test
+    public void testWalkedTableRowsArePostedAsTelemetry() throws Exception {
+        OID ifInOctets = new OID("1.3.6.1.2.1.2.2.1.10");
+        when(pushManager.walkTable(any(Target.class), any(List.class), any(SnmpTableRowListener.class))).thenAnswer(invocation -> {
+            SnmpTableRowListener listener = (SnmpTableRowListener) invocation.getArguments()[2];
+            listener.onRow(new OID(new int[]{3}), new VariableBinding[]{new VariableBinding(new OID(ifInOctets).append(3), new Counter32(30))});
+            return Futures.immediateFuture(1);
+        });
+        SnmpPollProfile profile = new SnmpPollProfile();
+        profile.setName("router");
+        profile.setInterval(100);
+        profile.getTables().put(ifInOctets.toDottedString(), "ifInOctets");
+        pollService.addProfile(profile);
+        pollService.registerDevice(new SnmpPollDevice("TOKEN", "udp:" + agentAddress, "public", "router"));
+
+        ArgumentCaptor<TransportProtos.PostTelemetryMsg> telemetry = ArgumentCaptor.forClass(TransportProtos.PostTelemetryMsg.class);
+        verify(transportService, timeout(5000).atLeastOnce())
+                .process(any(TransportProtos.SessionInfoProto.class), telemetry.capture(), any(TransportServiceCallback.class));
+        TransportProtos.TsKvListProto tsKvList = telemetry.getValue().getTsKvList(0);
+        assertEquals("ifInOctets.3", tsKvList.getKv(0).getKey());
+        assertEquals(30, tsKvList.getKv(0).getLongV());
+        verify(pushManager, atLeastOnce()).walkTable(any(Target.class), eq(Collections.singletonList(ifInOctets)), any(SnmpTableRowListener.class));
+        // Only the table is polled, no GET is sent for the profile
+        assertEquals(0, pollService.getPollsSent());
+    }
+
+    @Test
+    public void testUnknownProfileIsIgnored() {
+        pollService.registerDevice(new SnmpPollDevice("TOKEN", "udp:" + agentAddress, "public", "missing"));
+        assertEquals(0, pollService.getDeviceCount());
+    }
+
+    @Test
+    public void testDeviceIsNotPolledWhenPollingIsDisabled() {
+        SnmpPollService disabled = new SnmpPollService();
+        SnmpPollProfile profile = new SnmpPollProfile();
+        profile.setName("router");
+        disabled.addProfile(profile);
+
+        disabled.registerDevice(new SnmpPollDevice("TOKEN", "udp:" + agentAddress, "public", "router"));
+
+        assertEquals(0, disabled.getDeviceCount());
+        disabled.destroy();
+    }
+
+    @Test
+    public void testAgentIsForgottenWithItsLastDevice() {
+        SnmpPollProfile profile = new SnmpPollProfile();
+        profile.setName("router");
+        profile.setInterval(60000);
+        pollService.addProfile(profile);
+        Map<?, ?> agents = (Map<?, ?>) ReflectionTestUtils.getField(pollService, "agentInFlight");
+
+        pollService.registerDevice(new SnmpPollDevice("TOKEN", "udp:" + agentAddress, "public", "router"));
+        pollService.registerDevice(new SnmpPollDevice("TOKEN2", "udp:" + agentAddress, "public", "router"));
+        // Registered again, the replaced device no longer counts
+        pollService.registerDevice(new SnmpPollDevice("TOKEN2", "udp:" + agentAddress, "public", "router"));
+        assertEquals(1, agents.size());
+
+        pollService.unregisterDevice("TOKEN");
+        assertEquals(1, agents.size());
+        pollService.unregisterDevice("TOKEN2");
+        pollService.unregisterDevice("TOKEN2");
+        assertEquals(0, agents.size());
+    }
+
+    @Test
+    public void testOwnershipIsEvaluatedAgainWhenNodesChange() {
+        SnmpAgentSharding sharding = new SnmpAgentSharding();
+        ReflectionTestUtils.setField(sharding, "nodes", "");
+        ReflectionTestUtils.setField(sharding, "virtualNodes", 16);
+        sharding.setNodes("test", Collections.singletonList("other"));
+        pollService.destroy();
+        ReflectionTestUtils.setField(pollService, "agentSharding", sharding);
+        pollService.start();
+        SnmpPollProfile profile = new SnmpPollProfile();
+        profile.setName("router");
+        profile.setInterval(60000);
+        pollService.addProfile(profile);
+
+        pollService.registerDevice(new SnmpPollDevice("TOKEN", "udp:" + agentAddress, "public", "router"));
+        assertEquals(0, pollService.getDeviceCount());
+
+        sharding.setNodes("test", Collections.singletonList("test"));
+        assertEquals(1, pollService.getDeviceCount());
+
+        sharding.setNodes("test", Arrays.asList("other", "another"));
+        assertEquals(0, pollService.getDeviceCount());
+
+        // Unregistered devices are not taken over again
+        pollService.unregisterDevice("TOKEN");
+        sharding.setNodes("test", Collections.singletonList("test"));
+        assertEquals(0, pollService.getDeviceCount());
+    }
+
+    private static class CounterResponder implements CommandResponder {
+        private final long started = System.currentTimeMillis();
+
+        @Override
+        public void processPdu(CommandResponderEvent event) {
+            PDU pdu = event.getPDU();
+            for (int i = 0; i < pdu.size(); i++) {
+                if (pdu.get(i).getOid().equals(SnmpConstants.sysUpTime)) {
+                    pdu.set(i, new VariableBinding(SnmpConstants.sysUpTime, new TimeTicks((System.currentTimeMillis() - started) / 10)));
+                    continue;
+                }
+                // Column number of the requested ifTable OID as its value
+                int[] oid = pdu.get(i).getOid().getValue();
+                pdu.set(i, new VariableBinding(pdu.get(i).getOid(), new Counter32(oid[oid.length - 2])));
+            }
+            pdu.setType(PDU.RESPONSE);
+            try {
+                event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(), event.getSecurityModel(),
+                        event.getSecurityName(), event.getSecurityLevel(), pdu, event.getMaxSizeResponsePDU(),
+                        event.getStateReference(), new StatusInformation());
+            } catch (MessageException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.thingsboard.server.transport.snmp.poll;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SnmpTimingWheelTest {
+
+    @Test
+    public void testTasksFireAtTheirTick() {
+        SnmpTimingWheel wheel = new SnmpTimingWheel(10, 4);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(() -> fired.add("a"), 10);
+        wheel.schedule(() -> fired.add("b"), 25);
+        // Longer than the wheel, must survive a full rotation
+        wheel.schedule(() -> fired.add("c"), 60);
+
+        wheel.tick();
+        assertEquals(1, fired.size());
+        wheel.tick();
+        assertEquals(1, fired.size());
+        wheel.tick();
+        assertEquals(2, fired.size());
+        wheel.tick();
+        wheel.tick();
+        assertEquals(2, fired.size());
+        wheel.tick();
+        assertEquals(3, fired.size());
+        assertEquals("abc", String.join("", fired));
+    }
+
+    @Test
+    public void testPeriodicTaskReschedulesItself() {
+        SnmpTimingWheel wheel = new SnmpTimingWheel(10, 4);
+        int[] runs = new int[1];
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                runs[0]++;
+                wheel.schedule(this, 40);
+            }
+        };
+        wheel.schedule(task, 0);
+        for (int i = 0; i < 20; i++) {
+            wheel.tick();
+        }
+        assertEquals(5, runs[0]);
+    }
+}
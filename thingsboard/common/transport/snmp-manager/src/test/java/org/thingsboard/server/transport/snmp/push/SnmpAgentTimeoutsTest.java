@@ -0,0 +1,108 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import org.junit.Test;
+import org.snmp4j.smi.UdpAddress;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.transport.snmp.metrics.SnmpMetrics;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SnmpAgentTimeoutsTest {
+
+    private static final UdpAddress LAN_AGENT = new UdpAddress("10.0.0.1/161");
+    private static final UdpAddress SATELLITE_AGENT = new UdpAddress("10.0.0.2/161");
+
+    @Test
+    public void testTimeoutFollowsRoundTripTimes() {
+        SnmpAgentTimeouts timeouts = new SnmpAgentTimeouts(50, 10000, 5, 1000, 100);
+        assertEquals(1000, timeouts.acquire(LAN_AGENT, 1000));
+        for (int i = 0; i < 20; i++) {
+            long timeout = timeouts.acquire(LAN_AGENT, 1000);
+            timeouts.onResponse(LAN_AGENT, 2, timeout);
+            timeout = timeouts.acquire(SATELLITE_AGENT, 1000);
+            timeouts.onResponse(SATELLITE_AGENT, 700 + (i % 2) * 200, timeout);
+        }
+        // Fast agents fail fast, slow agents are not cut off at the default timeout
+        assertEquals(50, timeouts.acquire(LAN_AGENT, 1000));
+        long satelliteTimeout = timeouts.acquire(SATELLITE_AGENT, 1000);
+        assertTrue(satelliteTimeout > 1000 && satelliteTimeout < 2000);
+
+        // Timeouts back off, answers to retries are not sampled
+        timeouts.onTimeout(SATELLITE_AGENT, satelliteTimeout);
+        assertEquals(satelliteTimeout * 2, timeouts.acquire(SATELLITE_AGENT, 1000));
+        timeouts.onResponse(SATELLITE_AGENT, 5000, satelliteTimeout * 2);
+        assertEquals(satelliteTimeout * 2, timeouts.getStats(SATELLITE_AGENT).getRetransmissionTimeout());
+        assertEquals(0, timeouts.getStats(SATELLITE_AGENT).getConsecutiveFailures());
+    }
+
+    @Test
+    public void testCircuitOpensAndIsProbed() throws Exception {
+        SnmpAgentTimeouts timeouts = new SnmpAgentTimeouts(50, 200, 3, 100, 100);
+        for (int i = 0; i < 3; i++) {
+            timeouts.onTimeout(LAN_AGENT, timeouts.acquire(LAN_AGENT, 100));
+        }
+        assertEquals(SnmpAgentStats.CircuitState.OPEN, timeouts.getStats(LAN_AGENT).getCircuitState());
+        assertEquals(-1, timeouts.acquire(LAN_AGENT, 100));
+        assertEquals(1, timeouts.getOpenCircuits());
+
+        Thread.sleep(150);
+        long probeTimeout = timeouts.acquire(LAN_AGENT, 100);
+        assertEquals(200, probeTimeout);
+        // Only one probe at a time
+        assertEquals(-1, timeouts.acquire(LAN_AGENT, 100));
+        timeouts.onResponse(LAN_AGENT, 10, probeTimeout);
+
+        SnmpAgentStats stats = timeouts.getStats(LAN_AGENT);
+        assertEquals(SnmpAgentStats.CircuitState.CLOSED, stats.getCircuitState());
+        assertEquals(3, stats.getTimeouts());
+        assertEquals(2, stats.getRejected());
+        assertEquals(1, stats.getResponses());
+    }
+
+    @Test
+    public void testAgentsOwnedElsewhereAreDropped() {
+        SnmpAgentTimeouts timeouts = new SnmpAgentTimeouts(50, 10000, 5, 1000, 100);
+        timeouts.onTimeout(LAN_AGENT, timeouts.acquire(LAN_AGENT, 1000));
+        timeouts.onTimeout(SATELLITE_AGENT, timeouts.acquire(SATELLITE_AGENT, 1000));
+
+        assertEquals(1, timeouts.retainAgents(agent -> agent.equals(LAN_AGENT.toString())));
+        assertEquals(1, timeouts.getAgents().size());
+        assertEquals(1, timeouts.getStats(LAN_AGENT).getTimeouts());
+    }
+
+    @Test
+    public void testStatsOfEachAgentAreReadOverJmx() throws Exception {
+        SnmpAgentTimeouts timeouts = new SnmpAgentTimeouts(50, 10000, 1, 1000, 100);
+        timeouts.onTimeout(LAN_AGENT, timeouts.acquire(LAN_AGENT, 1000));
+        timeouts.acquire(LAN_AGENT, 1000);
+        timeouts.onResponse(SATELLITE_AGENT, 700, timeouts.acquire(SATELLITE_AGENT, 1000));
+
+        SnmpMetrics metrics = new SnmpMetrics();
+        ReflectionTestUtils.setField(metrics, "enabled", true);
+        ReflectionTestUtils.setField(metrics, "interval", 1000L);
+        ReflectionTestUtils.setField(metrics, "agentGroups", "");
+        metrics.init();
+        try {
+            metrics.mBean("Agents", timeouts);
+            ObjectName name = new ObjectName(SnmpMetrics.DOMAIN + ":type=Agents");
+            TabularData agents = (TabularData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Agents");
+
+            assertEquals(2, agents.size());
+            CompositeData lan = (CompositeData) agents.get(new Object[]{LAN_AGENT.toString()}).get("value");
+            assertEquals("OPEN", lan.get("circuitState"));
+            assertEquals(1L, lan.get("timeouts"));
+            assertEquals(1L, lan.get("rejected"));
+            CompositeData satellite = (CompositeData) agents.get(new Object[]{SATELLITE_AGENT.toString()}).get("value");
+            assertEquals(700.0, (double) satellite.get("smoothedRtt"), 0.0);
+            assertTrue((long) satellite.get("retransmissionTimeout") > 700);
+        } finally {
+            metrics.destroy();
+        }
+    }
+}
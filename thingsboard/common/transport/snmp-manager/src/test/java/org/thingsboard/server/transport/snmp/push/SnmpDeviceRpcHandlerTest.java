@@ -0,0 +1,45 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Test;
+import org.snmp4j.smi.VariableBinding;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.List;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SnmpDeviceRpcHandlerTest {
+
+    private static final TransportProtos.ToDeviceRpcRequestMsg REQUEST = TransportProtos.ToDeviceRpcRequestMsg.newBuilder()
+            .setRequestId(7).setMethodName("getSysDescr").setParams("{}").build();
+
+    private final SnmpPushManager pushManager = mock(SnmpPushManager.class);
+    private final SnmpDeviceRpcHandler handler = new SnmpDeviceRpcHandler();
+
+    @Test
+    public void testRequestPushedByTheCoreIsNotPushedAgain() {
+        ReflectionTestUtils.setField(handler, "snmpPushManager", pushManager);
+
+        handler.onToDeviceRpcRequest(TransportProtos.SessionInfoProto.getDefaultInstance(),
+                REQUEST.toBuilder().setSnmpPushDirect(true).build());
+
+        verify(pushManager, never()).doSnmpPushAsync(anyString());
+    }
+
+    @Test
+    public void testRequestIsPushedWithoutDirectPush() {
+        ReflectionTestUtils.setField(handler, "snmpPushManager", pushManager);
+        SettableFuture<List<? extends VariableBinding>> response = SettableFuture.create();
+        when(pushManager.doSnmpPushAsync(anyString())).thenReturn(response);
+
+        handler.onToDeviceRpcRequest(TransportProtos.SessionInfoProto.getDefaultInstance(), REQUEST);
+
+        verify(pushManager).doSnmpPushAsync(SnmpDeviceRpcHandler.toPushMessage(REQUEST));
+    }
+}
@@ -0,0 +1,211 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnmpGetBatcherTest {
+
+    private static final OID SYS_OR_DESCR = new OID("1.3.6.1.2.1.1.9.1.3");
+
+    private SnmpSessionPool pool;
+    private ScheduledExecutorService scheduler;
+    private Snmp agent;
+    private UdpAddress agentAddress;
+    private final AtomicInteger receivedPdus = new AtomicInteger();
+    // Delay of every response, so that requests sent meanwhile are batched
+    private volatile long responseDelay;
+    // Requests with more bindings are answered with tooBig, and this OID with genErr
+    private volatile int maxResponseBindings = Integer.MAX_VALUE;
+    private volatile OID failingOid;
+
+    @Before
+    public void before() throws Exception {
+        pool = new SnmpSessionPool(1, 100);
+        pool.init();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/0"));
+        agent = new Snmp(transport);
+        agent.addCommandResponder(new EchoResponder());
+        agent.listen();
+        agentAddress = transport.getListenAddress();
+    }
+
+    @After
+    public void after() throws Exception {
+        agent.close();
+        scheduler.shutdownNow();
+        pool.destroy();
+    }
+
+    @Test
+    public void testRequestsToSameAgentShareOnePdu() throws Exception {
+        responseDelay = 200;
+        SnmpGetBatcher batcher = new SnmpGetBatcher(pool, scheduler, 60000, 32, 1200);
+        ListenableFuture<List<? extends VariableBinding>> descr = batcher.get(newTarget(), SnmpConstants.sysDescr);
+        ListenableFuture<List<? extends VariableBinding>> upTime = batcher.get(newTarget(), SnmpConstants.sysUpTime);
+        ListenableFuture<List<? extends VariableBinding>> name = batcher.get(newTarget(), SnmpConstants.sysName);
+        ListenableFuture<List<? extends VariableBinding>> nameAgain = batcher.get(newTarget(), SnmpConstants.sysName);
+
+        assertEquals(SnmpConstants.sysDescr.toString(), descr.get(5, TimeUnit.SECONDS).get(0).getVariable().toString());
+        assertEquals(SnmpConstants.sysUpTime.toString(), upTime.get(5, TimeUnit.SECONDS).get(0).getVariable().toString());
+        assertEquals(SnmpConstants.sysName.toString(), name.get(5, TimeUnit.SECONDS).get(0).getVariable().toString());
+        assertEquals(SnmpConstants.sysName.toString(), nameAgain.get(5, TimeUnit.SECONDS).get(0).getVariable().toString());
+        // The first request goes out alone, the others are batched until it is answered
+        assertEquals(2, receivedPdus.get());
+        assertEquals(2, batcher.getPdusSent());
+    }
+
+    @Test
+    public void testRequestToAnIdleAgentIsNotDelayed() throws Exception {
+        SnmpGetBatcher batcher = new SnmpGetBatcher(pool, scheduler, 60000, 32, 1200);
+        batcher.get(newTarget(), SnmpConstants.sysName).get(5, TimeUnit.SECONDS);
+        batcher.get(newTarget(), SnmpConstants.sysName).get(5, TimeUnit.SECONDS);
+        assertEquals(2, batcher.getPdusSent());
+    }
+
+    @Test
+    public void testBatchIsSentWhenFull() throws Exception {
+        responseDelay = 200;
+        SnmpGetBatcher batcher = new SnmpGetBatcher(pool, scheduler, 60000, 2, 1200);
+        ListenableFuture<List<? extends VariableBinding>> descr = batcher.get(newTarget(), SnmpConstants.sysDescr);
+        ListenableFuture<List<? extends VariableBinding>> upTime = batcher.get(newTarget(), SnmpConstants.sysUpTime);
+        ListenableFuture<List<? extends VariableBinding>> name = batcher.get(newTarget(), SnmpConstants.sysName);
+
+        descr.get(5, TimeUnit.SECONDS);
+        upTime.get(5, TimeUnit.SECONDS);
+        name.get(5, TimeUnit.SECONDS);
+        assertEquals(2, batcher.getPdusSent());
+    }
+
+    @Test
+    public void testTooBigBatchIsSplit() throws Exception {
+        responseDelay = 100;
+        maxResponseBindings = 2;
+        SnmpGetBatcher batcher = new SnmpGetBatcher(pool, scheduler, 60000, 32, 1200);
+        batcher.get(newTarget(), SnmpConstants.sysDescr);
+        List<ListenableFuture<List<? extends VariableBinding>>> batched = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            batched.add(batcher.get(newTarget(), new OID(SYS_OR_DESCR).append(i)));
+        }
+
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(new OID(SYS_OR_DESCR).append(i).toString(),
+                    batched.get(i - 1).get(5, TimeUnit.SECONDS).get(0).getVariable().toString());
+        }
+        // The batch of 4 is answered with tooBig and sent again in 2 halves
+        assertEquals(4, batcher.getPdusSent());
+        assertEquals(2, batcher.getPdusResent());
+    }
+
+    @Test
+    public void testErrorOnlyFailsTheRequestItPointsAt() throws Exception {
+        responseDelay = 100;
+        failingOid = SnmpConstants.sysName;
+        SnmpGetBatcher batcher = new SnmpGetBatcher(pool, scheduler, 60000, 32, 1200);
+        batcher.get(newTarget(), SnmpConstants.sysDescr);
+        ListenableFuture<List<? extends VariableBinding>> upTime = batcher.get(newTarget(), SnmpConstants.sysUpTime);
+        ListenableFuture<List<? extends VariableBinding>> name = batcher.get(newTarget(), SnmpConstants.sysName);
+        ListenableFuture<List<? extends VariableBinding>> location = batcher.get(newTarget(), SnmpConstants.sysLocation);
+
+        assertEquals(SnmpConstants.sysUpTime.toString(), upTime.get(5, TimeUnit.SECONDS).get(0).getVariable().toString());
+        assertEquals(SnmpConstants.sysLocation.toString(), location.get(5, TimeUnit.SECONDS).get(0).getVariable().toString());
+        try {
+            name.get(5, TimeUnit.SECONDS);
+            fail("Request of the failing OID succeeded");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, batcher.getPdusResent());
+    }
+
+    @Test
+    public void testRequestsWithOtherCredentialsAreNotBatchedTogether() throws Exception {
+        SnmpGetBatcher batcher = new SnmpGetBatcher(pool, scheduler, 200, 32, 1200);
+        CommunityTarget v1 = newTarget();
+        v1.setVersion(SnmpConstants.version1);
+        ListenableFuture<List<? extends VariableBinding>> upTime = batcher.get(newTarget(), SnmpConstants.sysUpTime);
+        ListenableFuture<List<? extends VariableBinding>> name = batcher.get(newTarget("private"), SnmpConstants.sysName);
+        ListenableFuture<List<? extends VariableBinding>> descr = batcher.get(v1, SnmpConstants.sysDescr);
+
+        upTime.get(5, TimeUnit.SECONDS);
+        name.get(5, TimeUnit.SECONDS);
+        descr.get(5, TimeUnit.SECONDS);
+        assertEquals(3, receivedPdus.get());
+        assertEquals(3, batcher.getPdusSent());
+    }
+
+    private CommunityTarget newTarget() {
+        return newTarget("public");
+    }
+
+    private CommunityTarget newTarget(String community) {
+        CommunityTarget target = new CommunityTarget();
+        target.setCommunity(new OctetString(community));
+        target.setVersion(SnmpConstants.version2c);
+        target.setAddress(agentAddress);
+        target.setRetries(0);
+        target.setTimeout(1000);
+        return target;
+    }
+
+    private class EchoResponder implements CommandResponder {
+        @Override
+        public void processPdu(CommandResponderEvent event) {
+            receivedPdus.incrementAndGet();
+            try {
+                Thread.sleep(responseDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            PDU pdu = event.getPDU();
+            for (int i = 0; i < pdu.size(); i++) {
+                OID oid = pdu.get(i).getOid();
+                if (oid.equals(failingOid)) {
+                    pdu.setErrorStatus(PDU.genErr);
+                    pdu.setErrorIndex(i + 1);
+                }
+                pdu.set(i, new VariableBinding(oid, new OctetString(oid.toString())));
+            }
+            if (pdu.size() > maxResponseBindings) {
+                pdu.setErrorStatus(PDU.tooBig);
+                pdu.setErrorIndex(0);
+            }
+            pdu.setType(PDU.RESPONSE);
+            try {
+                event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(), event.getSecurityModel(),
+                        event.getSecurityName(), event.getSecurityLevel(), pdu, event.getMaxSizeResponsePDU(),
+                        event.getStateReference(), new StatusInformation());
+            } catch (MessageException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
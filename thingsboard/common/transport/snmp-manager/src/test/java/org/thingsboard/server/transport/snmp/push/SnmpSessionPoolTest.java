@@ -0,0 +1,97 @@
+package org.thingsboard.server.transport.snmp.push;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.PDU;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnmpSessionPoolTest {
+
+    private SnmpSessionPool pool;
+
+    @Before
+    public void before() throws Exception {
+        pool = new SnmpSessionPool(2, 1);
+        pool.init();
+    }
+
+    @After
+    public void after() {
+        pool.destroy();
+    }
+
+    @Test
+    public void testInFlightLimitAndTimeout() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<ResponseEvent> event = new AtomicReference<>();
+
+        assertTrue(pool.send(newPdu(), newTarget(), null, e -> {
+            event.set(e);
+            latch.countDown();
+        }));
+        assertEquals(1, pool.getInFlight());
+        assertFalse(pool.send(newPdu(), newTarget(), null, e -> {
+        }));
+        assertEquals(1, pool.getRequestsRejected());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertNull(event.get().getResponse());
+        assertEquals(0, pool.getInFlight());
+        assertEquals(1, pool.getRequestsTimedOut());
+        assertEquals(2, pool.getSocketsOpened());
+    }
+
+    @Test
+    public void testUnreachableAgentIsShortCircuited() throws Exception {
+        SnmpSessionPool adaptivePool = new SnmpSessionPool(1, 10, null, new SnmpAgentTimeouts(50, 200, 1, 60000, 10));
+        adaptivePool.init();
+        try {
+            CountDownLatch timedOut = new CountDownLatch(1);
+            assertTrue(adaptivePool.send(newPdu(), newTarget(), null, e -> timedOut.countDown()));
+            assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+
+            AtomicReference<ResponseEvent> event = new AtomicReference<>();
+            assertTrue(adaptivePool.send(newPdu(), newTarget(), null, event::set));
+            assertNull(event.get().getResponse());
+            assertTrue(event.get().getError() != null);
+            assertEquals(1, adaptivePool.getRequestsShortCircuited());
+            assertEquals(1, adaptivePool.getRequestsSent());
+            assertEquals(0, adaptivePool.getInFlight());
+        } finally {
+            adaptivePool.destroy();
+        }
+    }
+
+    private static PDU newPdu() {
+        PDU pdu = new PDU();
+        pdu.add(new VariableBinding(SnmpConstants.sysUpTime));
+        pdu.setType(PDU.GET);
+        return pdu;
+    }
+
+    private static CommunityTarget newTarget() {
+        CommunityTarget target = new CommunityTarget();
+        target.setCommunity(new OctetString("public"));
+        target.setVersion(SnmpConstants.version2c);
+        // Nothing listens on the discard port, so the request always times out
+        target.setAddress(new UdpAddress("127.0.0.1/9"));
+        target.setRetries(0);
+        target.setTimeout(200);
+        return target;
+    }
+}
@@ -0,0 +1,193 @@
+package org.thingsboard.server.transport.snmp.security;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.ScopedPDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.UserTarget;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.security.AuthHMAC192SHA256;
+import org.snmp4j.security.PrivAES128;
+import org.snmp4j.security.SecurityLevel;
+import org.snmp4j.security.SecurityProtocols;
+import org.snmp4j.security.USM;
+import org.snmp4j.security.UsmUser;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.transport.snmp.push.SnmpSessionPool;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnmpUsmServiceTest {
+
+    private Snmp agent;
+    private UdpAddress agentAddress;
+    private SnmpUsmService usmService;
+    private SnmpSessionPool pool;
+
+    @Before
+    public void before() throws Exception {
+        SnmpUsmService.initSecurityProtocols();
+        DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/0"));
+        agent = new Snmp(transport);
+        USM agentUsm = new USM(SecurityProtocols.getInstance(), new OctetString(MPv3.createLocalEngineID(new OctetString("agent"))), 0);
+        agentUsm.addUser(new OctetString("tb"), new UsmUser(new OctetString("tb"), AuthHMAC192SHA256.ID,
+                new OctetString("authPassphrase"), PrivAES128.ID, new OctetString("privPassphrase")));
+        SnmpUsmService.installUsm(agent, agentUsm);
+        agent.addCommandResponder(new DescriptionResponder());
+        agent.listen();
+        agentAddress = transport.getListenAddress();
+
+        usmService = new SnmpUsmService();
+        ReflectionTestUtils.setField(usmService, "usersFile", "");
+        ReflectionTestUtils.setField(usmService, "maxAgents", 100L);
+        ReflectionTestUtils.setField(usmService, "engineIdTtl", 60000L);
+        ReflectionTestUtils.setField(usmService, "discoveryTimeout", 1000L);
+        ReflectionTestUtils.setField(usmService, "discoveryBackoff", 60000L);
+        ReflectionTestUtils.setField(usmService, "discoveryPoolSize", 2);
+        usmService.init();
+        usmService.addUser(new SnmpUsmUser("router", "tb", "SHA256", "authPassphrase", "AES128", "privPassphrase"));
+
+        pool = new SnmpSessionPool(2, 100, usmService.getUsm());
+        pool.init();
+    }
+
+    @After
+    public void after() throws Exception {
+        pool.destroy();
+        usmService.destroy();
+        agent.close();
+    }
+
+    @Test
+    public void testAuthPrivRequestsReuseDiscoveredEngineIdAndLocalizedKeys() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            UserTarget target = usmService.getTargetAsync(agentAddress, "router").get(5, TimeUnit.SECONDS);
+            assertEquals(SecurityLevel.AUTH_PRIV, target.getSecurityLevel());
+            target.setTimeout(1000);
+            ScopedPDU pdu = new ScopedPDU();
+            pdu.setType(PDU.GET);
+            pdu.add(new VariableBinding(SnmpConstants.sysDescr));
+            SettableFuture<ResponseEvent> response = SettableFuture.create();
+            pool.send(pdu, target, null, response::set);
+            PDU responsePdu = response.get(5, TimeUnit.SECONDS).getResponse();
+            assertNotNull(responsePdu);
+            assertEquals("SNMPv3 agent", responsePdu.get(0).getVariable().toString());
+        }
+        assertEquals(1, usmService.getDiscoveries());
+        assertEquals(1, usmService.getLocalizations());
+    }
+
+    @Test
+    public void testTargetIsDiscoveredInBackground() throws Exception {
+        assertNull(usmService.getTarget(agentAddress, "router"));
+        UserTarget target = null;
+        for (int i = 0; i < 50 && target == null; i++) {
+            Thread.sleep(100);
+            target = usmService.getTarget(agentAddress, "router");
+        }
+        assertNotNull(target);
+        assertEquals(1, usmService.getDiscoveries());
+    }
+
+    @Test
+    public void testRequestsShareTheDiscoveryInFlight() throws Exception {
+        ListenableFuture<UserTarget> first = usmService.getTargetAsync(agentAddress, "router");
+        ListenableFuture<UserTarget> second = usmService.getTargetAsync(agentAddress, "router");
+
+        assertNotNull(first.get(5, TimeUnit.SECONDS));
+        assertNotNull(second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, usmService.getDiscoveries());
+    }
+
+    @Test
+    public void testSilentAgentIsNotAskedAgainBeforeTheBackoff() throws Exception {
+        ReflectionTestUtils.setField(usmService, "discoveryTimeout", 200L);
+        try (DatagramSocket silentAgent = new DatagramSocket(0, InetAddress.getByName("127.0.0.1"))) {
+            UdpAddress silentAddress = new UdpAddress("127.0.0.1/" + silentAgent.getLocalPort());
+            ListenableFuture<UserTarget> first = usmService.getTargetAsync(silentAddress, "router");
+            for (int i = 0; i < 10; i++) {
+                assertNull(usmService.getTarget(silentAddress, "router"));
+            }
+            IllegalStateException failure = awaitFailure(first);
+
+            for (int i = 0; i < 10; i++) {
+                assertNull(usmService.getTarget(silentAddress, "router"));
+                ListenableFuture<UserTarget> next = usmService.getTargetAsync(silentAddress, "router");
+                assertTrue(next.isDone());
+                assertSame(failure, awaitFailure(next));
+            }
+            assertEquals(1, usmService.getDiscoveries());
+            assertEquals(1, usmService.getDiscoveryFailures());
+        }
+    }
+
+    @Test
+    public void testSilentAgentDoesNotHoldUpOtherDiscoveries() throws Exception {
+        ReflectionTestUtils.setField(usmService, "discoveryTimeout", 2000L);
+        try (DatagramSocket silentAgent = new DatagramSocket(0, InetAddress.getByName("127.0.0.1"))) {
+            UdpAddress silentAddress = new UdpAddress("127.0.0.1/" + silentAgent.getLocalPort());
+            ListenableFuture<UserTarget> silent = usmService.getTargetAsync(silentAddress, "router");
+            long start = System.currentTimeMillis();
+            assertNotNull(usmService.getTargetAsync(agentAddress, "router").get(5, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertFalse(silent.isDone());
+            awaitFailure(silent);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownProtocolIsRejected() {
+        usmService.addUser(new SnmpUsmUser("legacy", "tb", "SHA1024", "authPassphrase", null, null));
+    }
+
+    private static IllegalStateException awaitFailure(ListenableFuture<UserTarget> target) throws Exception {
+        try {
+            target.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return (IllegalStateException) e.getCause();
+        }
+        fail("Discovery of a silent agent succeeded");
+        return null;
+    }
+
+    private static class DescriptionResponder implements CommandResponder {
+        @Override
+        public void processPdu(CommandResponderEvent event) {
+            PDU pdu = event.getPDU();
+            pdu.set(0, new VariableBinding(pdu.get(0).getOid(), new OctetString("SNMPv3 agent")));
+            pdu.setType(PDU.RESPONSE);
+            try {
+                event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(), event.getSecurityModel(),
+                        event.getSecurityName(), event.getSecurityLevel(), pdu, event.getMaxSizeResponsePDU(),
+                        event.getStateReference(), new StatusInformation());
+            } catch (MessageException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.thingsboard.server.transport.snmp.walk;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.thingsboard.server.transport.snmp.push.SnmpSessionPool;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures table walk throughput against a running snmp-device-agent, e.g.
+ * {@code mvn test -Dtest=SnmpTableWalkerBenchmark -Dsnmp.agent.address=127.0.0.1/9988 -Dsnmp.walk.maxRepetitions=50}.
+ * The agent serves ifTable with {@code snmp.agent.ifTableRows} rows.
+ */
+@Ignore("Needs a running snmp-device-agent")
+public class SnmpTableWalkerBenchmark {
+
+    private static final List<OID> IF_TABLE_COLUMNS = Arrays.asList(
+            new OID("1.3.6.1.2.1.2.2.1.2"),
+            new OID("1.3.6.1.2.1.2.2.1.10"),
+            new OID("1.3.6.1.2.1.2.2.1.16"));
+
+    @Test
+    public void walkIfTable() throws Exception {
+        int maxRepetitions = Integer.getInteger("snmp.walk.maxRepetitions", 25);
+        int iterations = Integer.getInteger("snmp.walk.iterations", 20);
+        CommunityTarget target = new CommunityTarget();
+        target.setCommunity(new OctetString("public"));
+        target.setVersion(SnmpConstants.version2c);
+        target.setAddress(new UdpAddress(System.getProperty("snmp.agent.address", "127.0.0.1/9988")));
+        target.setRetries(1);
+        target.setTimeout(2000);
+
+        SnmpSessionPool pool = new SnmpSessionPool(1, 1000);
+        pool.init();
+        try {
+            SnmpTableWalker walker = new SnmpTableWalker(pool, maxRepetitions, 1);
+            // Warm up
+            walker.walk(target, IF_TABLE_COLUMNS, (index, columns) -> {
+            }).get(60, TimeUnit.SECONDS);
+
+            long rows = 0;
+            long requestsBefore = walker.getRequestsSent();
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                rows += walker.walk(target, IF_TABLE_COLUMNS, (index, columns) -> {
+                }).get(60, TimeUnit.SECONDS);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("maxRepetitions=%d: %d rows in %.2f s, %.0f rows/s, %d requests%n",
+                    maxRepetitions, rows, seconds, rows / seconds, walker.getRequestsSent() - requestsBefore);
+        } finally {
+            pool.destroy();
+        }
+    }
+}
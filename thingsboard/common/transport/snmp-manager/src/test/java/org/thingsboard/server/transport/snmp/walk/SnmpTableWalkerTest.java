@@ -0,0 +1,188 @@
+package org.thingsboard.server.transport.snmp.walk;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.Counter32;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+import org.thingsboard.server.transport.snmp.push.SnmpSessionPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SnmpTableWalkerTest {
+
+    private static final OID IF_DESCR = new OID("1.3.6.1.2.1.2.2.1.2");
+    private static final OID IF_IN_OCTETS = new OID("1.3.6.1.2.1.2.2.1.10");
+    private static final OID IF_OUT_OCTETS = new OID("1.3.6.1.2.1.2.2.1.16");
+
+    private SnmpSessionPool pool;
+    private Snmp agent;
+    private UdpAddress agentAddress;
+    private final NavigableMap<OID, Variable> mib = new TreeMap<>();
+    private final AtomicInteger receivedPdus = new AtomicInteger();
+    // Answer GETBULK requests past the last OID with no variable bindings instead of endOfMibView
+    private volatile boolean emptyAtEnd;
+
+    @Before
+    public void before() throws Exception {
+        pool = new SnmpSessionPool(1, 100);
+        pool.init();
+
+        DefaultUdpTransportMapping transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/0"));
+        agent = new Snmp(transport);
+        agent.addCommandResponder(new BulkResponder());
+        agent.listen();
+        agentAddress = transport.getListenAddress();
+    }
+
+    @After
+    public void after() throws Exception {
+        agent.close();
+        pool.destroy();
+    }
+
+    @Test
+    public void testWalkReturnsEveryRowInOrder() throws Exception {
+        for (int i = 1; i <= 50; i++) {
+            mib.put(new OID(IF_DESCR).append(i), new OctetString("eth" + i));
+            mib.put(new OID(IF_IN_OCTETS).append(i), new Counter32(i * 10));
+        }
+        // Next column of the table, must not be reported as part of the walked columns
+        mib.put(new OID(IF_OUT_OCTETS).append(1), new Counter32(1));
+
+        SnmpTableWalker walker = new SnmpTableWalker(pool, 10, 1);
+        List<OID> indexes = new ArrayList<>();
+        List<VariableBinding[]> rows = new ArrayList<>();
+        int count = walker.walk(newTarget(), Arrays.asList(IF_DESCR, IF_IN_OCTETS), (index, columns) -> {
+            indexes.add(index);
+            rows.add(columns);
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(50, count);
+        assertEquals(50, rows.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(new OID(new int[]{i + 1}), indexes.get(i));
+            assertEquals("eth" + (i + 1), rows.get(i)[0].getVariable().toString());
+            assertEquals((i + 1) * 10, rows.get(i)[1].getVariable().toLong());
+        }
+        // 50 rows at 10 repetitions plus the request that detects the end of the columns
+        assertEquals(6, receivedPdus.get());
+    }
+
+    @Test
+    public void testSparseColumnsAreMergedByIndex() throws Exception {
+        mib.put(new OID(IF_DESCR).append(1), new OctetString("eth1"));
+        mib.put(new OID(IF_DESCR).append(2), new OctetString("eth2"));
+        mib.put(new OID(IF_DESCR).append(3), new OctetString("eth3"));
+        mib.put(new OID(IF_IN_OCTETS).append(2), new Counter32(20));
+
+        SnmpTableWalker walker = new SnmpTableWalker(pool, 2, 1);
+        List<VariableBinding[]> rows = new ArrayList<>();
+        walker.walk(newTarget(), Arrays.asList(IF_DESCR, IF_IN_OCTETS), (index, columns) -> rows.add(columns))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, rows.size());
+        assertNull(rows.get(0)[1]);
+        assertEquals(20, rows.get(1)[1].getVariable().toLong());
+        assertNull(rows.get(2)[1]);
+    }
+
+    @Test
+    public void testEmptyResponseEndsTheWalk() throws Exception {
+        emptyAtEnd = true;
+        mib.put(new OID(IF_DESCR).append(1), new OctetString("eth1"));
+        mib.put(new OID(IF_IN_OCTETS).append(1), new Counter32(10));
+
+        SnmpTableWalker walker = new SnmpTableWalker(pool, 1, 1);
+        List<VariableBinding[]> rows = new ArrayList<>();
+        int count = walker.walk(newTarget(), Arrays.asList(IF_DESCR, IF_IN_OCTETS), (index, columns) -> rows.add(columns))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, count);
+        assertEquals("eth1", rows.get(0)[0].getVariable().toString());
+        assertEquals(10, rows.get(0)[1].getVariable().toLong());
+    }
+
+    @Test
+    public void testAgentIsForgottenOnceItsWalksAreDone() throws Exception {
+        mib.put(new OID(IF_DESCR).append(1), new OctetString("eth1"));
+
+        SnmpTableWalker walker = new SnmpTableWalker(pool, 10, 1);
+        ListenableFuture<Integer> first = walker.walk(newTarget(), Collections.singletonList(IF_DESCR), (index, columns) -> {});
+        ListenableFuture<Integer> queued = walker.walk(newTarget(), Collections.singletonList(IF_DESCR), (index, columns) -> {});
+
+        assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, (int) queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, walker.getAgentCount());
+    }
+
+    private CommunityTarget newTarget() {
+        CommunityTarget target = new CommunityTarget();
+        target.setCommunity(new OctetString("public"));
+        target.setVersion(SnmpConstants.version2c);
+        target.setAddress(agentAddress);
+        target.setRetries(0);
+        target.setTimeout(1000);
+        return target;
+    }
+
+    private class BulkResponder implements CommandResponder {
+        @Override
+        public void processPdu(CommandResponderEvent event) {
+            receivedPdus.incrementAndGet();
+            PDU request = event.getPDU();
+            PDU response = new PDU();
+            response.setType(PDU.RESPONSE);
+            response.setRequestID(request.getRequestID());
+            OID[] cursors = new OID[request.size()];
+            for (int i = 0; i < cursors.length; i++) {
+                cursors[i] = request.get(i).getOid();
+            }
+            for (int r = 0; r < request.getMaxRepetitions(); r++) {
+                for (int i = 0; i < cursors.length; i++) {
+                    Map.Entry<OID, Variable> next = mib.higherEntry(cursors[i]);
+                    if (next == null && emptyAtEnd) {
+                        break;
+                    }
+                    VariableBinding vb = next != null ? new VariableBinding(next.getKey(), next.getValue())
+                            : new VariableBinding(cursors[i], Null.endOfMibView);
+                    response.add(vb);
+                    cursors[i] = vb.getOid();
+                }
+            }
+            try {
+                event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(), event.getSecurityModel(),
+                        event.getSecurityName(), event.getSecurityLevel(), response, event.getMaxSizeResponsePDU(),
+                        event.getStateReference(), new StatusInformation());
+            } catch (MessageException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
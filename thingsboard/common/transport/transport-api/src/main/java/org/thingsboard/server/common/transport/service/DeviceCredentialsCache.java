@@ -0,0 +1,72 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.thingsboard.server.gen.transport.TransportProtos.DeviceInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Successful validations of access tokens and X.509 certificate hashes, reused until they expire or the credentials
+ * of their device change. Failed validations are not cached, so a device gets access as soon as it is provisioned.
+ */
+class DeviceCredentialsCache {
+
+    private final Cache<String, ValidateDeviceCredentialsResponseMsg> cache;
+    // Changed by every invalidation, so that a validation requested before it is not cached after it
+    private final AtomicLong version = new AtomicLong();
+
+    DeviceCredentialsCache(long ttl, long maxSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    ValidateDeviceCredentialsResponseMsg get(String credentials) {
+        return cache.getIfPresent(credentials);
+    }
+
+    /**
+     * @return the version to pass to {@link #put(String, long, ValidateDeviceCredentialsResponseMsg)} once the
+     * credentials are validated
+     */
+    long getVersion() {
+        return version.get();
+    }
+
+    void put(String credentials, long version, ValidateDeviceCredentialsResponseMsg response) {
+        if (response.hasDeviceInfo() && version == this.version.get()) {
+            cache.put(credentials, response);
+        }
+    }
+
+    void invalidate(long deviceIdMSB, long deviceIdLSB) {
+        version.incrementAndGet();
+        cache.asMap().values().removeIf(response -> {
+            DeviceInfoProto deviceInfo = response.getDeviceInfo();
+            return deviceInfo.getDeviceIdMSB() == deviceIdMSB && deviceInfo.getDeviceIdLSB() == deviceIdLSB;
+        });
+    }
+
+    long size() {
+        return cache.size();
+    }
+}
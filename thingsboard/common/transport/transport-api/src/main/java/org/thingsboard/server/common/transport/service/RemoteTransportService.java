@@ -54,6 +54,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by ashvayka on 05.10.18.
@@ -63,8 +64,15 @@ import java.util.concurrent.Executors;
 @Slf4j
 public class RemoteTransportService extends AbstractTransportService {
 
+    private static final String TOKEN_PREFIX = "token:";
+    private static final String X509_PREFIX = "x509:";
+
     @Value("${kafka.rule_engine.topic}")
     private String ruleEngineTopic;
+    @Value("${kafka.rule_engine.batch_window}")
+    private long ruleEngineBatchWindow;
+    @Value("${kafka.rule_engine.batch_max_size}")
+    private int ruleEngineBatchMaxSize;
     @Value("${kafka.notifications.topic}")
     private String notificationsTopic;
     @Value("${kafka.notifications.poll_interval}")
@@ -83,6 +91,10 @@ public class RemoteTransportService extends AbstractTransportService {
     private int responsePollDuration;
     @Value("${kafka.transport_api.response_auto_commit_interval}")
     private int autoCommitInterval;
+    @Value("${kafka.transport_api.credentials_cache_ttl}")
+    private long credentialsCacheTtl;
+    @Value("${kafka.transport_api.credentials_cache_max_size}")
+    private long credentialsCacheMaxSize;
 
     @Autowired
     private TbKafkaSettings kafkaSettings;
@@ -92,9 +104,14 @@ public class RemoteTransportService extends AbstractTransportService {
 
     private TbKafkaRequestTemplate<TransportApiRequestMsg, TransportApiResponseMsg> transportApiTemplate;
     private TBKafkaProducerTemplate<ToRuleEngineMsg> ruleEngineProducer;
+    private ToRuleEngineMsgBatcher ruleEngineBatcher;
     private TBKafkaConsumerTemplate<ToTransportMsg> mainConsumer;
+    // Notifications for every transport node, e.g. credentials updates
+    private TBKafkaConsumerTemplate<ToTransportMsg> broadcastConsumer;
+    private DeviceCredentialsCache credentialsCache;
 
     private ExecutorService mainConsumerExecutor = Executors.newSingleThreadExecutor();
+    private ExecutorService broadcastConsumerExecutor = Executors.newSingleThreadExecutor();
 
     private volatile boolean stopped = false;
 
@@ -102,6 +119,10 @@ public class RemoteTransportService extends AbstractTransportService {
     public void init() {
         super.init();
 
+        if (credentialsCacheTtl > 0) {
+            credentialsCache = new DeviceCredentialsCache(credentialsCacheTtl, credentialsCacheMaxSize);
+        }
+
         TBKafkaProducerTemplate.TBKafkaProducerTemplateBuilder<TransportApiRequestMsg> requestBuilder = TBKafkaProducerTemplate.builder();
         requestBuilder.settings(kafkaSettings);
         requestBuilder.clientId("producer-transport-api-request-" + nodeIdProvider.getNodeId());
@@ -134,16 +155,15 @@ public class RemoteTransportService extends AbstractTransportService {
         ruleEngineProducerBuilder.encoder(new ToRuleEngineMsgEncoder());
         ruleEngineProducer = ruleEngineProducerBuilder.build();
         ruleEngineProducer.init();
+        if (ruleEngineBatchWindow > 0) {
+            ruleEngineBatcher = new ToRuleEngineMsgBatcher(ruleEngineProducer, ruleEngineBatchMaxSize);
+            schedulerExecutor.scheduleAtFixedRate(ruleEngineBatcher::flush, ruleEngineBatchWindow, ruleEngineBatchWindow, TimeUnit.MILLISECONDS);
+        }
 
         String notificationsTopicName = notificationsTopic + "." + nodeIdProvider.getNodeId();
 
-        try {
-            TBKafkaAdmin admin = new TBKafkaAdmin(kafkaSettings);
-            CreateTopicsResult result = admin.createTopic(new NewTopic(notificationsTopicName, 1, (short) 1));
-            result.all().get();
-        } catch (Exception e) {
-            log.trace("Failed to create topic: {}", e.getMessage(), e);
-        }
+        createTopic(notificationsTopicName);
+        createTopic(notificationsTopic);
 
         TBKafkaConsumerTemplate.TBKafkaConsumerTemplateBuilder<ToTransportMsg> mainConsumerBuilder = TBKafkaConsumerTemplate.builder();
         mainConsumerBuilder.settings(kafkaSettings);
@@ -156,16 +176,46 @@ public class RemoteTransportService extends AbstractTransportService {
         mainConsumer = mainConsumerBuilder.build();
         mainConsumer.subscribe();
 
-        mainConsumerExecutor.execute(() -> {
+        // A consumer group of its own, so that every node receives every broadcast
+        TBKafkaConsumerTemplate.TBKafkaConsumerTemplateBuilder<ToTransportMsg> broadcastConsumerBuilder = TBKafkaConsumerTemplate.builder();
+        broadcastConsumerBuilder.settings(kafkaSettings);
+        broadcastConsumerBuilder.topic(notificationsTopic);
+        broadcastConsumerBuilder.clientId("transport-broadcast-" + nodeIdProvider.getNodeId());
+        broadcastConsumerBuilder.groupId("transport-" + nodeIdProvider.getNodeId());
+        broadcastConsumerBuilder.autoCommit(true);
+        broadcastConsumerBuilder.autoCommitIntervalMs(notificationsAutoCommitInterval);
+        broadcastConsumerBuilder.decoder(new ToTransportMsgResponseDecoder());
+        broadcastConsumer = broadcastConsumerBuilder.build();
+        broadcastConsumer.subscribe();
+
+        consume(mainConsumer, mainConsumerExecutor);
+        consume(broadcastConsumer, broadcastConsumerExecutor);
+    }
+
+    private void createTopic(String topic) {
+        try {
+            TBKafkaAdmin admin = new TBKafkaAdmin(kafkaSettings);
+            CreateTopicsResult result = admin.createTopic(new NewTopic(topic, 1, (short) 1));
+            result.all().get();
+        } catch (Exception e) {
+            log.trace("Failed to create topic: {}", e.getMessage(), e);
+        }
+    }
+
+    private void consume(TBKafkaConsumerTemplate<ToTransportMsg> consumer, ExecutorService executor) {
+        executor.execute(() -> {
             while (!stopped) {
                 try {
-                    ConsumerRecords<String, byte[]> records = mainConsumer.poll(Duration.ofMillis(notificationsPollDuration));
+                    ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(notificationsPollDuration));
                     records.forEach(record -> {
                         try {
-                            ToTransportMsg toTransportMsg = mainConsumer.decode(record);
+                            ToTransportMsg toTransportMsg = consumer.decode(record);
                             if (toTransportMsg.hasToDeviceSessionMsg()) {
                                 processToTransportMsg(toTransportMsg.getToDeviceSessionMsg());
                             }
+                            if (toTransportMsg.hasCredentialsUpdateNotification()) {
+                                processCredentialsUpdate(toTransportMsg.getCredentialsUpdateNotification());
+                            }
                         } catch (Throwable e) {
                             log.warn("Failed to process the notification.", e);
                         }
@@ -184,6 +234,9 @@ public class RemoteTransportService extends AbstractTransportService {
 
     @PreDestroy
     public void destroy() {
+        if (ruleEngineBatcher != null) {
+            ruleEngineBatcher.flush();
+        }
         super.destroy();
         stopped = true;
         if (transportApiTemplate != null) {
@@ -195,22 +248,53 @@ public class RemoteTransportService extends AbstractTransportService {
         if (mainConsumerExecutor != null) {
             mainConsumerExecutor.shutdownNow();
         }
+        if (broadcastConsumer != null) {
+            broadcastConsumer.unsubscribe();
+        }
+        if (broadcastConsumerExecutor != null) {
+            broadcastConsumerExecutor.shutdownNow();
+        }
     }
 
     @Override
     public void process(ValidateDeviceTokenRequestMsg msg, TransportServiceCallback<ValidateDeviceCredentialsResponseMsg> callback) {
-        log.info("Processing msg: {}", msg);
-        AsyncCallbackTemplate.withCallback(transportApiTemplate.post(msg.getToken(),
-                TransportApiRequestMsg.newBuilder().setValidateTokenRequestMsg(msg).build()),
-                response -> callback.onSuccess(response.getValidateTokenResponseMsg()), callback::onError, transportCallbackExecutor);
+        log.trace("Processing msg: {}", msg);
+        validateCredentials(TOKEN_PREFIX + msg.getToken(), msg.getToken(),
+                TransportApiRequestMsg.newBuilder().setValidateTokenRequestMsg(msg).build(), callback);
     }
 
     @Override
     public void process(ValidateDeviceX509CertRequestMsg msg, TransportServiceCallback<ValidateDeviceCredentialsResponseMsg> callback) {
         log.trace("Processing msg: {}", msg);
-        AsyncCallbackTemplate.withCallback(transportApiTemplate.post(msg.getHash(),
-                TransportApiRequestMsg.newBuilder().setValidateX509CertRequestMsg(msg).build()),
-                response -> callback.onSuccess(response.getValidateTokenResponseMsg()), callback::onError, transportCallbackExecutor);
+        validateCredentials(X509_PREFIX + msg.getHash(), msg.getHash(),
+                TransportApiRequestMsg.newBuilder().setValidateX509CertRequestMsg(msg).build(), callback);
+    }
+
+    private void validateCredentials(String cacheKey, String requestKey, TransportApiRequestMsg request,
+                                     TransportServiceCallback<ValidateDeviceCredentialsResponseMsg> callback) {
+        if (credentialsCache == null) {
+            AsyncCallbackTemplate.withCallback(transportApiTemplate.post(requestKey, request),
+                    response -> callback.onSuccess(response.getValidateTokenResponseMsg()), callback::onError, transportCallbackExecutor);
+            return;
+        }
+        ValidateDeviceCredentialsResponseMsg cached = credentialsCache.get(cacheKey);
+        if (cached != null) {
+            transportCallbackExecutor.submit(() -> callback.onSuccess(cached));
+            return;
+        }
+        long version = credentialsCache.getVersion();
+        AsyncCallbackTemplate.withCallback(transportApiTemplate.post(requestKey, request),
+                response -> {
+                    credentialsCache.put(cacheKey, version, response.getValidateTokenResponseMsg());
+                    callback.onSuccess(response.getValidateTokenResponseMsg());
+                }, callback::onError, transportCallbackExecutor);
+    }
+
+    private void processCredentialsUpdate(CredentialsUpdateNotificationProto msg) {
+        if (credentialsCache != null) {
+            log.trace("[{}] Invalidating cached credentials", new UUID(msg.getDeviceIdMSB(), msg.getDeviceIdLSB()));
+            credentialsCache.invalidate(msg.getDeviceIdMSB(), msg.getDeviceIdLSB());
+        }
     }
 
     @Override
@@ -327,6 +411,10 @@ public class RemoteTransportService extends AbstractTransportService {
     }
 
     private void send(SessionInfoProto sessionInfo, ToRuleEngineMsg toRuleEngineMsg, TransportServiceCallback<Void> callback) {
-        ruleEngineProducer.send(getRoutingKey(sessionInfo), toRuleEngineMsg, new TransportCallbackAdaptor(callback));
+        if (ruleEngineBatcher != null) {
+            ruleEngineBatcher.add(getRoutingKey(sessionInfo), toRuleEngineMsg.getToDeviceActorMsg(), callback);
+        } else {
+            ruleEngineProducer.send(getRoutingKey(sessionInfo), toRuleEngineMsg, new TransportCallbackAdaptor(callback));
+        }
     }
 }
@@ -0,0 +1,133 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportToDeviceActorMsg;
+import org.thingsboard.server.kafka.TBKafkaProducerTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects the messages of every device for a short window and sends them to the rule engine as one record, keyed
+ * by the device like the messages themselves, so they still go to the partition of the device and keep their order.
+ */
+@Slf4j
+class ToRuleEngineMsgBatcher {
+
+    private static final int SEND_LOCKS = 64;
+
+    private final TBKafkaProducerTemplate<ToRuleEngineMsg> producer;
+    private final int maxSize;
+    private final ConcurrentMap<String, Batch> batches = new ConcurrentHashMap<>();
+    // Serialize the sends of a device, so that two batches of the device can not overtake each other
+    private final Object[] sendLocks = new Object[SEND_LOCKS];
+
+    ToRuleEngineMsgBatcher(TBKafkaProducerTemplate<ToRuleEngineMsg> producer, int maxSize) {
+        this.producer = producer;
+        this.maxSize = maxSize;
+        for (int i = 0; i < SEND_LOCKS; i++) {
+            sendLocks[i] = new Object();
+        }
+    }
+
+    void add(String key, TransportToDeviceActorMsg msg, TransportServiceCallback<Void> callback) {
+        int[] size = new int[1];
+        batches.compute(key, (k, b) -> {
+            if (b == null) {
+                b = new Batch();
+            }
+            b.msgs.add(msg);
+            if (callback != null) {
+                b.callbacks.add(callback);
+            }
+            size[0] = b.msgs.size();
+            return b;
+        });
+        if (size[0] >= maxSize) {
+            send(key);
+        }
+    }
+
+    /**
+     * Sends the messages collected so far, to be called at the end of every window.
+     */
+    void flush() {
+        for (String key : batches.keySet()) {
+            send(key);
+        }
+    }
+
+    private void send(String key) {
+        Batch batch;
+        RuntimeException failure = null;
+        synchronized (sendLocks[(key.hashCode() & 0x7fffffff) % SEND_LOCKS]) {
+            // Once removed the batch is out of reach of add(), so it is sent without holding the map
+            batch = batches.remove(key);
+            if (batch == null) {
+                return;
+            }
+            ToRuleEngineMsg.Builder msg = ToRuleEngineMsg.newBuilder();
+            if (batch.msgs.size() == 1) {
+                msg.setToDeviceActorMsg(batch.msgs.get(0));
+            } else {
+                msg.addAllToDeviceActorMsgBatch(batch.msgs);
+            }
+            try {
+                producer.send(key, msg.build(), new BatchCallback(batch.callbacks));
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            log.warn("[{}] Failed to send {} messages to the rule engine", key, batch.msgs.size(), failure);
+            for (TransportServiceCallback<Void> callback : batch.callbacks) {
+                callback.onError(failure);
+            }
+        }
+    }
+
+    private static class Batch {
+        private final List<TransportToDeviceActorMsg> msgs = new ArrayList<>();
+        private final List<TransportServiceCallback<Void>> callbacks = new ArrayList<>();
+    }
+
+    private static class BatchCallback implements Callback {
+        private final List<TransportServiceCallback<Void>> callbacks;
+
+        BatchCallback(List<TransportServiceCallback<Void>> callbacks) {
+            this.callbacks = callbacks;
+        }
+
+        @Override
+        public void onCompletion(RecordMetadata metadata, Exception exception) {
+            for (TransportServiceCallback<Void> callback : callbacks) {
+                if (exception == null) {
+                    callback.onSuccess(null);
+                } else {
+                    callback.onError(exception);
+                }
+            }
+        }
+    }
+}
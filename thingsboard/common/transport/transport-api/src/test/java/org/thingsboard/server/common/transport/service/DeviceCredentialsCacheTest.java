@@ -0,0 +1,84 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import org.junit.Test;
+import org.thingsboard.server.gen.transport.TransportProtos.DeviceInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceCredentialsResponseMsg;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DeviceCredentialsCacheTest {
+
+    private static final UUID DEVICE = UUID.randomUUID();
+    private static final UUID OTHER_DEVICE = UUID.randomUUID();
+
+    private final DeviceCredentialsCache cache = new DeviceCredentialsCache(60000, 100);
+
+    @Test
+    public void testValidatedCredentialsAreReused() {
+        ValidateDeviceCredentialsResponseMsg response = response(DEVICE);
+        cache.put("token:A1", cache.getVersion(), response);
+
+        assertSame(response, cache.get("token:A1"));
+        assertNull(cache.get("token:B2"));
+    }
+
+    @Test
+    public void testFailedValidationIsNotCached() {
+        cache.put("token:A1", cache.getVersion(), ValidateDeviceCredentialsResponseMsg.getDefaultInstance());
+
+        assertNull(cache.get("token:A1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCredentialsUpdateInvalidatesOnlyTheDevice() {
+        cache.put("token:A1", cache.getVersion(), response(DEVICE));
+        cache.put("x509:A1", cache.getVersion(), response(DEVICE));
+        cache.put("token:B2", cache.getVersion(), response(OTHER_DEVICE));
+
+        cache.invalidate(DEVICE.getMostSignificantBits(), DEVICE.getLeastSignificantBits());
+
+        assertNull(cache.get("token:A1"));
+        assertNull(cache.get("x509:A1"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testValidationRequestedBeforeAnInvalidationIsNotCached() {
+        long version = cache.getVersion();
+        cache.invalidate(DEVICE.getMostSignificantBits(), DEVICE.getLeastSignificantBits());
+        cache.put("token:A1", version, response(DEVICE));
+
+        assertNull(cache.get("token:A1"));
+
+        cache.put("token:A1", cache.getVersion(), response(DEVICE));
+        assertEquals(1, cache.size());
+    }
+
+    private static ValidateDeviceCredentialsResponseMsg response(UUID deviceId) {
+        return ValidateDeviceCredentialsResponseMsg.newBuilder()
+                .setDeviceInfo(DeviceInfoProto.newBuilder()
+                        .setDeviceIdMSB(deviceId.getMostSignificantBits())
+                        .setDeviceIdLSB(deviceId.getLeastSignificantBits()))
+                .build();
+    }
+}
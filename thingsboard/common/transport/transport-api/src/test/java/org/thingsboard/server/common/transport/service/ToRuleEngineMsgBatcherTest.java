@@ -0,0 +1,148 @@
+/**
+ * Copyright © 2016-2019 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportToDeviceActorMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+import org.thingsboard.server.kafka.TBKafkaProducerTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ToRuleEngineMsgBatcherTest {
+
+    @SuppressWarnings("unchecked")
+    private final TBKafkaProducerTemplate<ToRuleEngineMsg> producer = mock(TBKafkaProducerTemplate.class);
+    private final ToRuleEngineMsgBatcher batcher = new ToRuleEngineMsgBatcher(producer, 3);
+
+    @Test
+    public void testFlushSendsOneRecordPerDevice() {
+        batcher.add("device-1", msg(1), null);
+        batcher.add("device-1", msg(2), null);
+        batcher.add("device-2", msg(3), null);
+        verify(producer, never()).send(anyString(), any(ToRuleEngineMsg.class), any(Callback.class));
+
+        batcher.flush();
+
+        ArgumentCaptor<ToRuleEngineMsg> batched = ArgumentCaptor.forClass(ToRuleEngineMsg.class);
+        verify(producer).send(eq("device-1"), batched.capture(), any(Callback.class));
+        assertFalse(batched.getValue().hasToDeviceActorMsg());
+        assertEquals(2, batched.getValue().getToDeviceActorMsgBatchCount());
+        assertEquals(1, batched.getValue().getToDeviceActorMsgBatch(0).getPostTelemetry().getTsKvListCount());
+
+        // A batch of one message is sent as a plain message
+        ArgumentCaptor<ToRuleEngineMsg> single = ArgumentCaptor.forClass(ToRuleEngineMsg.class);
+        verify(producer).send(eq("device-2"), single.capture(), any(Callback.class));
+        assertTrue(single.getValue().hasToDeviceActorMsg());
+        assertEquals(0, single.getValue().getToDeviceActorMsgBatchCount());
+
+        batcher.flush();
+        verify(producer, times(2)).send(anyString(), any(ToRuleEngineMsg.class), any(Callback.class));
+    }
+
+    @Test
+    public void testFullBatchIsSentWithoutWaitingForTheWindow() {
+        for (int i = 0; i < 3; i++) {
+            batcher.add("device-1", msg(i), null);
+        }
+
+        ArgumentCaptor<ToRuleEngineMsg> batched = ArgumentCaptor.forClass(ToRuleEngineMsg.class);
+        verify(producer).send(eq("device-1"), batched.capture(), any(Callback.class));
+        assertEquals(3, batched.getValue().getToDeviceActorMsgBatchCount());
+    }
+
+    @Test
+    public void testRecordOutcomeIsFannedOutToEveryMessage() {
+        List<Object> outcomes = new ArrayList<>();
+        batcher.add("device-1", msg(1), callback(outcomes));
+        batcher.add("device-1", msg(2), callback(outcomes));
+        batcher.flush();
+
+        ArgumentCaptor<Callback> callback = ArgumentCaptor.forClass(Callback.class);
+        verify(producer).send(eq("device-1"), any(ToRuleEngineMsg.class), callback.capture());
+        IllegalStateException failure = new IllegalStateException("broker unavailable");
+        callback.getValue().onCompletion(null, failure);
+
+        assertEquals(2, outcomes.size());
+        assertEquals(failure, outcomes.get(0));
+        assertEquals(failure, outcomes.get(1));
+    }
+
+    @Test
+    public void testFailedSendIsReportedOutsideTheBatcher() {
+        IllegalStateException failure = new IllegalStateException("buffer exhausted");
+        when(producer.send(anyString(), any(ToRuleEngineMsg.class), any(Callback.class))).thenThrow(failure);
+        List<Object> outcomes = new ArrayList<>();
+        // Retries from the error callback, which must not run inside an operation on the batches of the device
+        TransportServiceCallback<Void> retrying = new TransportServiceCallback<Void>() {
+            @Override
+            public void onSuccess(Void msg) {
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                outcomes.add(e);
+                batcher.add("device-1", msg(9), null);
+            }
+        };
+        batcher.add("device-1", msg(1), retrying);
+        batcher.add("device-1", msg(2), callback(outcomes));
+        batcher.flush();
+
+        assertEquals(2, outcomes.size());
+        assertEquals(failure, outcomes.get(0));
+        assertEquals(failure, outcomes.get(1));
+    }
+
+    private static TransportServiceCallback<Void> callback(List<Object> outcomes) {
+        return new TransportServiceCallback<Void>() {
+            @Override
+            public void onSuccess(Void msg) {
+                outcomes.add("ok");
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                outcomes.add(e);
+            }
+        };
+    }
+
+    private static TransportToDeviceActorMsg msg(int i) {
+        return TransportToDeviceActorMsg.newBuilder()
+                .setPostTelemetry(PostTelemetryMsg.newBuilder()
+                        .addTsKvList(TsKvListProto.newBuilder().setTs(i)))
+                .build();
+    }
+}